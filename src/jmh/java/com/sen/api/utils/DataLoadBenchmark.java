@@ -0,0 +1,141 @@
+package com.sen.api.utils;
+
+import com.sen.api.beans.ApiDataBean;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 测试数据加载基准测试（JSON / CSV / Excel）
+ *
+ * @author sen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataLoadBenchmark {
+
+    private static final String[] COLUMNS = {"run", "desc", "url", "method", "param", "status", "verify", "save"};
+    private static final String SHEET = "cases";
+
+    @Param({"100", "1000", "10000"})
+    private int rows;
+
+    private Path dir;
+    private String jsonFile;
+    private String csvFile;
+    private String excelFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("jmh-data-");
+        List<Map<String, Object>> data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            data.add(row(i));
+        }
+        jsonFile = dir.resolve("cases.json").toString();
+        JsonDataReader.writeJson(data, jsonFile);
+        csvFile = writeCsv(data, dir.resolve("cases.csv"));
+        excelFile = writeExcel(data, dir.resolve("cases.xlsx"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<ApiDataBean> readJson() {
+        return JsonDataReader.readJson(ApiDataBean.class, jsonFile);
+    }
+
+    @Benchmark
+    public List<ApiDataBean> readCsv() {
+        return CsvDataReader.readCsv(ApiDataBean.class, csvFile);
+    }
+
+    @Benchmark
+    public List<ApiDataBean> readExcel() {
+        return ExcelUtil.readExcel(ApiDataBean.class, excelFile, SHEET);
+    }
+
+    private static Map<String, Object> row(int i) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("run", true);
+        row.put("desc", "查询订单" + i);
+        row.put("url", "/api/orders/" + i);
+        row.put("method", i % 2 == 0 ? "get" : "post");
+        row.put("param", "{\"orderId\":" + i + ",\"token\":\"${token}\"}");
+        row.put("status", 200);
+        row.put("verify", "$.code=0;$.data.id=" + i);
+        row.put("save", "orderNo=$.data.orderNo");
+        return row;
+    }
+
+    private static String writeCsv(List<Map<String, Object>> data, Path file) {
+        StringBuilder sb = new StringBuilder(String.join(",", COLUMNS)).append('\n');
+        for (Map<String, Object> row : data) {
+            for (int c = 0; c < COLUMNS.length; c++) {
+                String value = String.valueOf(row.get(COLUMNS[c]));
+                sb.append(c > 0 ? "," : "").append('"').append(value.replace("\"", "\"\"")).append('"');
+            }
+            sb.append('\n');
+        }
+        try {
+            Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file.toString();
+    }
+
+    private static String writeExcel(List<Map<String, Object>> data, Path file) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet(SHEET);
+            Row head = sheet.createRow(0);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                head.createCell(c).setCellValue(COLUMNS[c]);
+            }
+            for (int r = 0; r < data.size(); r++) {
+                Row row = sheet.createRow(r + 1);
+                for (int c = 0; c < COLUMNS.length; c++) {
+                    row.createCell(c).setCellValue(String.valueOf(data.get(r).get(COLUMNS[c])));
+                }
+            }
+            workbook.write(out);
+        }
+        return file.toString();
+    }
+}
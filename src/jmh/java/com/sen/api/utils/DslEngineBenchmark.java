@@ -0,0 +1,82 @@
+package com.sen.api.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * YamlDslTestEngine 变量替换与断言的基准测试
+ *
+ * @author sen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DslEngineBenchmark {
+
+    private YamlDslTestEngine engine;
+    private String plainText;
+    private String variableText;
+    private String functionText;
+    private String responseBody;
+
+    @Setup
+    public void setUp() {
+        engine = YamlDslTestEngine.getInstance();
+        engine.setSharedData("token", "abcdef0123456789");
+        engine.setSharedData("userId", "10086");
+        engine.setSharedData("orderNo", "ORD-20240101-0001");
+        plainText = "{\"name\":\"benchmark\",\"page\":1,\"size\":20}";
+        variableText = "{\"token\":\"${token}\",\"userId\":${userId},\"orderNo\":\"${orderNo}\",\"missing\":\"${none}\"}";
+        functionText = "{\"sign\":\"__sha(${token})\",\"nonce\":\"__random(8)\"}";
+        responseBody = "{\"code\":0,\"message\":\"ok\",\"data\":{\"id\":10086,\"name\":\"张三\","
+            + "\"items\":[{\"sku\":\"A1\",\"price\":12.5},{\"sku\":\"B2\",\"price\":30}],\"total\":42.5}}";
+    }
+
+    @Benchmark
+    public String replacePlain() {
+        return engine.replaceVariables(plainText);
+    }
+
+    @Benchmark
+    public String replaceVariables() {
+        return engine.replaceVariables(variableText);
+    }
+
+    @Benchmark
+    public String replaceFunctions() {
+        return engine.replaceVariables(functionText);
+    }
+
+    @Benchmark
+    public boolean validateStatus() {
+        return engine.validateSingle("status", 200, 200, responseBody);
+    }
+
+    @Benchmark
+    public boolean validateJsonPathEquals() {
+        return engine.validateSingle("$.data.name", "张三", 200, responseBody);
+    }
+
+    @Benchmark
+    public boolean validateJsonPathCompare() {
+        return engine.validateSingle("$.data.total", ">40", 200, responseBody);
+    }
+
+    @Benchmark
+    public boolean validateNestedArray() {
+        return engine.validateSingle("$.data.items[1].sku", "B2", 200, responseBody);
+    }
+}
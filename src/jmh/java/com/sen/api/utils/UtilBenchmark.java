@@ -0,0 +1,111 @@
+package com.sen.api.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonUtil / FunctionUtil / CryptoUtil 基准测试
+ *
+ * @author sen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilBenchmark {
+
+    private String json;
+    private String aesKey;
+    private String aesCipher;
+    private String[] rsaKeys;
+    private String rsaSignature;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("{\"code\":0,\"data\":{\"list\":[");
+        for (int i = 0; i < 50; i++) {
+            sb.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"name\":\"item").append(i).append("\"}");
+        }
+        json = sb.append("],\"total\":50}}").toString();
+        text = "username=admin&password=123456&timestamp=1700000000000";
+        aesKey = CryptoUtil.generateAesKey(128);
+        aesCipher = CryptoUtil.aesEncrypt(text, aesKey);
+        rsaKeys = CryptoUtil.generateRsaKeyPair(2048);
+        rsaSignature = CryptoUtil.rsaSign(text, rsaKeys[1]);
+    }
+
+    @Benchmark
+    public String jsonReadScalar() {
+        return JsonUtil.read(json, "$.data.total");
+    }
+
+    @Benchmark
+    public String jsonReadArrayElement() {
+        return JsonUtil.read(json, "$.data.list[25].name");
+    }
+
+    @Benchmark
+    public String functionSha() {
+        return FunctionUtil.getValue("sha", new String[]{text});
+    }
+
+    @Benchmark
+    public String functionRandom() {
+        return FunctionUtil.getValue("random", new String[]{"8"});
+    }
+
+    @Benchmark
+    public String functionDate() {
+        return FunctionUtil.getValue("date", new String[]{"yyyy-MM-dd HH:mm:ss"});
+    }
+
+    @Benchmark
+    public String cryptoMd5() {
+        return CryptoUtil.md5(text);
+    }
+
+    @Benchmark
+    public String cryptoSha256() {
+        return CryptoUtil.sha256(text);
+    }
+
+    @Benchmark
+    public String cryptoBase64() {
+        return CryptoUtil.base64Encode(text);
+    }
+
+    @Benchmark
+    public String cryptoAesEncrypt() {
+        return CryptoUtil.aesEncrypt(text, aesKey);
+    }
+
+    @Benchmark
+    public String cryptoAesDecrypt() {
+        return CryptoUtil.aesDecrypt(aesCipher, aesKey);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String cryptoRsaSign() {
+        return CryptoUtil.rsaSign(text, rsaKeys[1]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean cryptoRsaVerify() {
+        return CryptoUtil.rsaVerify(text, rsaSignature, rsaKeys[0]);
+    }
+}
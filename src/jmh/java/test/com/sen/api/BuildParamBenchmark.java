@@ -0,0 +1,60 @@
+package test.com.sen.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TestBase.buildParam 参数构建基准测试（${} 替换 + __func() 函数）
+ *
+ * @author sen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildParamBenchmark extends TestBase {
+
+    private String plainParam;
+    private String variableParam;
+    private String functionParam;
+
+    @Setup
+    public void setUp() {
+        Map<String, String> data = new HashMap<>();
+        data.put("token", "abcdef0123456789");
+        data.put("userId", "10086");
+        setSaveDates(data);
+        plainParam = "{\"page\":1,\"size\":20}";
+        variableParam = "{\"token\":\"${token}\",\"userId\":${userId}}";
+        functionParam = "{\"token\":\"${token}\",\"sign\":\"__sha(${token})\",\"nonce\":\"__random(8)\"}";
+    }
+
+    @Benchmark
+    public String buildPlain() {
+        return buildParam(plainParam);
+    }
+
+    @Benchmark
+    public String buildVariables() {
+        return buildParam(variableParam);
+    }
+
+    @Benchmark
+    public String buildFunctions() {
+        return buildParam(functionParam);
+    }
+}
@@ -0,0 +1,485 @@
+package test.com.sen.api;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sen.api.beans.ApiDataBean;
+import com.sen.api.utils.ApiFlowExecutor;
+import com.sen.api.utils.MockUtil;
+import com.sen.api.utils.YamlDslTestEngine;
+import io.restassured.RestAssured;
+import io.restassured.config.LogConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 端到端吞吐基准
+ * 启动本地 Mock 服务，把合成的 1k/10k/100k 条用例分别经 YamlDslTestEngine、ApiFlowExecutor、
+ * TestNG(ApiTestModern) 三条路径、按不同并发度执行，记录：
+ * - 吞吐（用例/秒）
+ * - 每用例 CPU 时间（执行线程，不含 Mock 服务线程）与进程 CPU 时间
+ * - 每用例分配字节（执行线程）
+ * - 峰值堆内存（采样）
+ * 结果写入 JSON 报告（默认 target/throughput-report.json）。
+ *
+ * 运行：mvn -Pjmh test-compile exec:exec@run-throughput -Dthroughput.sizes=1000,10000
+ * 系统属性：throughput.sizes / throughput.parallelism / throughput.paths / throughput.report /
+ * throughput.port / throughput.logLevel
+ *
+ * @author sen
+ */
+public class ThroughputBenchmark {
+
+    private static final String RESPONSE = "{\"code\":0,\"message\":\"ok\",\"data\":{\"id\":1,\"name\":\"bench\"}}";
+    private static final String TOKEN = "bench-token-0123456789";
+    private static final int WARMUP_CASES = 500;
+
+    private final int port;
+    private final String rootUrl;
+    private final Path workDir;
+    private final ObjectMapper jsonMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public ThroughputBenchmark(int port, Path workDir) {
+        this.port = port;
+        this.rootUrl = "http://localhost:" + port;
+        this.workDir = workDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = intList(System.getProperty("throughput.sizes", "1000,10000,100000"));
+        List<Integer> parallelism = intList(System.getProperty("throughput.parallelism", "1,4,16"));
+        List<String> paths = Arrays.asList(System.getProperty("throughput.paths", "dsl,flow,testng").split(","));
+        Path report = Paths.get(System.getProperty("throughput.report", "target/throughput-report.json"));
+        int port = Integer.parseInt(System.getProperty("throughput.port", "18099"));
+        String logLevel = System.getProperty("throughput.logLevel", "WARN");
+
+        // 逐用例日志和 RestAssured log(ALL) 默认写控制台，大批量时测的是终端而不是框架
+        setLogLevel(logLevel);
+        PrintStream stdout = System.out;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        RestAssured.config = RestAssured.config().logConfig(LogConfig.logConfig().defaultStream(discard));
+
+        // TestNG 路径按 user.dir 解析配置和数据文件，工作目录放在项目目录下
+        Path workDir = Paths.get("target", "throughput");
+        Files.createDirectories(workDir);
+        ThroughputBenchmark benchmark = new ThroughputBenchmark(port, workDir);
+        MockUtil.startMockServer(port);
+        MockUtil.stubIndexedPrefix("GET", "/bench/", RESPONSE, 200);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        try {
+            for (String path : paths) {
+                System.setOut(discard);
+                try {
+                    benchmark.prepare(path.trim(), WARMUP_CASES, parallelism.get(parallelism.size() - 1)).call();
+                } finally {
+                    System.setOut(stdout);
+                }
+                for (int size : sizes) {
+                    for (int threads : parallelism) {
+                        System.setOut(discard);
+                        Map<String, Object> result;
+                        try {
+                            result = benchmark.measure(path.trim(), size, threads);
+                        } finally {
+                            System.setOut(stdout);
+                        }
+                        results.add(result);
+                        stdout.println(formatRow(result));
+                    }
+                }
+            }
+        } finally {
+            MockUtil.stopMockServer();
+        }
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        document.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        document.put("maxHeapMb", Runtime.getRuntime().maxMemory() >> 20);
+        document.put("logLevel", logLevel);
+        document.put("results", results);
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        benchmark.jsonMapper.writeValue(report.toFile(), document);
+        stdout.println("Throughput report written to " + report.toAbsolutePath());
+        System.exit(0);
+    }
+
+    // ==================== 测量 ====================
+
+    /**
+     * 执行一轮并采集资源消耗
+     */
+    Map<String, Object> measure(String path, int cases, int threads) throws Exception {
+        Callable<Integer> run = prepare(path, cases, threads);
+        System.gc();
+        ResourceSampler sampler = new ResourceSampler();
+        long processCpuStart = processCpuNanos();
+        long start = System.nanoTime();
+        sampler.start();
+        int passed;
+        try {
+            passed = run.call();
+        } finally {
+            sampler.stop();
+        }
+        long wallNanos = System.nanoTime() - start;
+        long processCpu = processCpuNanos() - processCpuStart;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", path);
+        result.put("cases", cases);
+        result.put("parallelism", threads);
+        result.put("passed", passed);
+        result.put("failed", cases - passed);
+        result.put("wallMs", wallNanos / 1_000_000);
+        result.put("casesPerSec", round(cases * 1e9 / wallNanos));
+        result.put("cpuUsPerCase", round(sampler.getCpuNanos() / 1000.0 / cases));
+        result.put("processCpuUsPerCase", round(processCpu / 1000.0 / cases));
+        result.put("allocBytesPerCase", sampler.getAllocatedBytes() / cases);
+        result.put("peakHeapMb", round(sampler.getPeakHeapBytes() / 1048576.0));
+        return result;
+    }
+
+    /**
+     * 生成用例数据（不计入测量），返回执行任务，任务结果为通过的用例数
+     */
+    Callable<Integer> prepare(String path, int cases, int threads) throws Exception {
+        switch (path) {
+            case "dsl":
+                return prepareDsl(cases, threads);
+            case "flow":
+                return prepareFlow(cases, threads);
+            case "testng":
+                return prepareTestNg(cases, threads);
+            default:
+                throw new IllegalArgumentException("未知的执行路径: " + path);
+        }
+    }
+
+    private Callable<Integer> prepareDsl(int cases, int threads) throws Exception {
+        YamlDslTestEngine engine = YamlDslTestEngine.getInstance();
+        engine.init(rootUrl);
+        engine.setSharedData("token", TOKEN);
+        List<String> files = new ArrayList<>();
+        for (int shard = 0; shard < threads; shard++) {
+            // YAML 按文本拼接，与手写用例文件保持同样的结构
+            StringBuilder yaml = new StringBuilder();
+            for (int i = shard; i < cases; i += threads) {
+                yaml.append("- name: case-").append(i).append('\n')
+                    .append("  api: /bench/orders/").append(i).append('\n')
+                    .append("  method: GET\n")
+                    .append("  params:\n")
+                    .append("    token: ${token}\n")
+                    .append("  validate:\n")
+                    .append("    - status: 200\n")
+                    .append("    - $.code: 0\n");
+            }
+            Path file = workDir.resolve("dsl-" + cases + "-" + shard + ".yml");
+            Files.write(file, yaml.toString().getBytes(StandardCharsets.UTF_8));
+            files.add(file.toString());
+        }
+        return () -> inParallel(files, file -> engine.runFromFile(file).getPassedCount());
+    }
+
+    private Callable<Integer> prepareFlow(int cases, int threads) {
+        List<ApiFlowExecutor> flows = new ArrayList<>();
+        for (int shard = 0; shard < threads; shard++) {
+            ApiFlowExecutor flow = ApiFlowExecutor.create("bench-" + shard)
+                .rootUrl(rootUrl)
+                .withData("token", TOKEN);
+            for (int i = shard; i < cases; i += threads) {
+                ApiFlowExecutor.FlowStep step = ApiFlowExecutor.newStep("case-" + i)
+                    .api(benchData(i))
+                    .assertion("$.code", "0")
+                    .stopOnFailure(false);
+                flow.step(step);
+            }
+            flows.add(flow);
+        }
+        return () -> inParallel(flows, flow -> flow.execute().getSuccessCount());
+    }
+
+    private Callable<Integer> prepareTestNg(int cases, int threads) throws Exception {
+        Path config = workDir.resolve("api-config.yml");
+        String yaml = "api:\n"
+            + "  rootUrl: " + rootUrl + "\n"
+            + "  headers:\n"
+            + "    Content-Type: application/json\n"
+            + "  params:\n"
+            + "    token: " + TOKEN + "\n";
+        Files.write(config, yaml.getBytes(StandardCharsets.UTF_8));
+
+        XmlSuite suite = new XmlSuite();
+        suite.setName("throughput-" + cases);
+        suite.setParallel(XmlSuite.ParallelMode.TESTS);
+        suite.setThreadCount(threads);
+        // @BeforeSuite 的参数取自 suite 级别
+        suite.setParameters(Map.of("envName", config.toString()));
+        for (int shard = 0; shard < threads; shard++) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (int i = shard; i < cases; i += threads) {
+                rows.add(testNgRow(i));
+            }
+            Path data = workDir.resolve("testng-" + cases + "-" + shard + ".json");
+            jsonMapper.writeValue(data.toFile(), rows);
+
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put("dataPath", data.toString());
+            parameters.put("dataFormat", "json");
+            XmlTest test = new XmlTest(suite);
+            test.setName("shard-" + shard);
+            test.setParameters(parameters);
+            test.setXmlClasses(List.of(new XmlClass(ApiTestModern.class)));
+        }
+
+        return () -> {
+            PassCounter counter = new PassCounter();
+            TestNG testng = new TestNG(false);
+            testng.setUseDefaultListeners(false);
+            testng.setVerbose(0);
+            testng.setXmlSuites(List.of(suite));
+            testng.addListener(counter);
+            testng.run();
+            return counter.passed.get();
+        };
+    }
+
+    /**
+     * 与 data/api-test-data.json 同格式的一行
+     */
+    private static Map<String, Object> testNgRow(int i) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("run", true);
+        row.put("desc", "case-" + i);
+        row.put("url", "/bench/orders/" + i);
+        row.put("method", "GET");
+        row.put("param", "{\"token\":\"${token}\"}");
+        row.put("contains", false);
+        row.put("status", 200);
+        row.put("verify", "$.code=0");
+        row.put("save", "");
+        row.put("preParam", "");
+        row.put("sleep", 0);
+        row.put("sheetName", "throughput");
+        return row;
+    }
+
+    private static ApiDataBean benchData(int i) {
+        ApiDataBean bean = new ApiDataBean();
+        bean.setRun(true);
+        bean.setDesc("case-" + i);
+        bean.setSheetName("throughput");
+        bean.setMethod("GET");
+        bean.setUrl("/bench/orders/" + i);
+        bean.setParam("{\"token\":\"${token}\"}");
+        bean.setPreParam("");
+        bean.setVerify("$.code=0");
+        bean.setStatus(200);
+        return bean;
+    }
+
+    private interface ShardTask<T> {
+        int run(T shard) throws Exception;
+    }
+
+    /**
+     * 每个分片一个线程，执行线程统一以 throughput- 命名
+     */
+    private static <T> int inParallel(List<T> shards, ShardTask<T> task) throws Exception {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread t = new Thread(r, "throughput-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (T shard : shards) {
+                futures.add(executor.submit(() -> task.run(shard)));
+            }
+            int passed = 0;
+            for (Future<Integer> future : futures) {
+                passed += future.get();
+            }
+            return passed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 只统计通过数，不保留 ITestResult
+     */
+    public static class PassCounter implements ITestListener {
+        private final AtomicInteger passed = new AtomicInteger();
+
+        @Override
+        public void onTestSuccess(ITestResult result) {
+            passed.incrementAndGet();
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    private static void setLogLevel(String level) {
+        Level target = Level.toLevel(level, Level.WARN);
+        for (String name : new String[]{"com.sen.api", "test.com.sen.api", "org.testng", "wiremock",
+            "com.github.tomakehurst", Logger.ROOT_LOGGER_NAME}) {
+            ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(name)).setLevel(target);
+        }
+    }
+
+    private static List<Integer> intList(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).map(Integer::parseInt).collect(Collectors.toList());
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static String formatRow(Map<String, Object> r) {
+        return String.format("%-6s cases=%-7s threads=%-3s passed=%-7s %10s cases/s  cpu=%8sus/case  "
+                + "alloc=%9sB/case  peakHeap=%sMB",
+            r.get("path"), r.get("cases"), r.get("parallelism"), r.get("passed"), r.get("casesPerSec"),
+            r.get("cpuUsPerCase"), r.get("allocBytesPerCase"), r.get("peakHeapMb"));
+    }
+
+    /**
+     * 线程级 CPU/分配采样
+     * 已结束线程的消耗只能统计到最后一次采样，采样间隔 {@value #INTERVAL_MS}ms；
+     * Mock 服务（Jetty）线程不计入。
+     */
+    static class ResourceSampler {
+
+        private static final long INTERVAL_MS = 20;
+
+        private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private final Map<Long, long[]> baseline = new HashMap<>();
+        private final Map<Long, long[]> latest = new HashMap<>();
+        private final Map<Long, Boolean> counted = new HashMap<>();
+        private volatile boolean running;
+        private Thread thread;
+        private long peakHeapBytes;
+
+        void start() {
+            for (long id : threads.getAllThreadIds()) {
+                long[] usage = usage(id);
+                if (usage != null) {
+                    baseline.put(id, usage);
+                }
+            }
+            running = true;
+            thread = new Thread(() -> {
+                while (running) {
+                    sample();
+                    try {
+                        Thread.sleep(INTERVAL_MS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "ResourceSampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.interrupt();
+            thread.join();
+            sample();
+        }
+
+        private synchronized void sample() {
+            for (long id : threads.getAllThreadIds()) {
+                Boolean include = counted.get(id);
+                if (include == null) {
+                    ThreadInfo info = threads.getThreadInfo(id);
+                    if (info == null) {
+                        continue;
+                    }
+                    include = !isMockServerThread(info.getThreadName()) && !"ResourceSampler".equals(info.getThreadName());
+                    counted.put(id, include);
+                }
+                if (include) {
+                    long[] usage = usage(id);
+                    if (usage != null) {
+                        latest.put(id, usage);
+                    }
+                }
+            }
+            peakHeapBytes = Math.max(peakHeapBytes,
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+
+        private long[] usage(long id) {
+            long allocated = threads.getThreadAllocatedBytes(id);
+            long cpu = threads.getThreadCpuTime(id);
+            return allocated < 0 || cpu < 0 ? null : new long[]{allocated, cpu};
+        }
+
+        private static boolean isMockServerThread(String name) {
+            return name.startsWith("qtp") || name.startsWith("Connector-Scheduler");
+        }
+
+        private synchronized long total(int index) {
+            long sum = 0;
+            for (Map.Entry<Long, long[]> entry : latest.entrySet()) {
+                long[] base = baseline.get(entry.getKey());
+                sum += entry.getValue()[index] - (base != null ? base[index] : 0);
+            }
+            return sum;
+        }
+
+        long getAllocatedBytes() {
+            return total(0);
+        }
+
+        long getCpuNanos() {
+            return total(1);
+        }
+
+        synchronized long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+    }
+}
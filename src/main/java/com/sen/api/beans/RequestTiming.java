@@ -0,0 +1,118 @@
+package com.sen.api.beans;
+
+/**
+ * 单次HTTP请求的分阶段耗时（毫秒）
+ * - dns:      域名解析
+ * - connect:  TCP建连
+ * - tls:      TLS握手
+ * - ttfb:     开始发送请求到收到响应头（含上传与服务端处理）
+ * - download: 收到响应头到响应体读取完成
+ * 复用连接时 dns/connect/tls 为 0；total 为整个请求耗时，与各阶段之和的差值为客户端处理开销。
+ *
+ * @author sen
+ */
+public class RequestTiming {
+
+    private double dnsMs;
+
+    private double connectMs;
+
+    private double tlsMs;
+
+    private double ttfbMs;
+
+    private double downloadMs;
+
+    private double totalMs;
+
+    /**
+     * 请求字节数（请求行 + 头 + 体）
+     */
+    private long requestBytes;
+
+    /**
+     * 响应字节数（状态行 + 头 + 体）
+     */
+    private long responseBytes;
+
+    private boolean connectionReused;
+
+    public double getDnsMs() {
+        return dnsMs;
+    }
+
+    public void setDnsMs(double dnsMs) {
+        this.dnsMs = dnsMs;
+    }
+
+    public double getConnectMs() {
+        return connectMs;
+    }
+
+    public void setConnectMs(double connectMs) {
+        this.connectMs = connectMs;
+    }
+
+    public double getTlsMs() {
+        return tlsMs;
+    }
+
+    public void setTlsMs(double tlsMs) {
+        this.tlsMs = tlsMs;
+    }
+
+    public double getTtfbMs() {
+        return ttfbMs;
+    }
+
+    public void setTtfbMs(double ttfbMs) {
+        this.ttfbMs = ttfbMs;
+    }
+
+    public double getDownloadMs() {
+        return downloadMs;
+    }
+
+    public void setDownloadMs(double downloadMs) {
+        this.downloadMs = downloadMs;
+    }
+
+    public double getTotalMs() {
+        return totalMs;
+    }
+
+    public void setTotalMs(double totalMs) {
+        this.totalMs = totalMs;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public void setRequestBytes(long requestBytes) {
+        this.requestBytes = requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public void setResponseBytes(long responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+
+    public boolean isConnectionReused() {
+        return connectionReused;
+    }
+
+    public void setConnectionReused(boolean connectionReused) {
+        this.connectionReused = connectionReused;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("dns=%.2fms connect=%.2fms tls=%.2fms ttfb=%.2fms download=%.2fms total=%.2fms "
+                + "sent=%dB received=%dB reused=%s",
+            dnsMs, connectMs, tlsMs, ttfbMs, downloadMs, totalMs, requestBytes, responseBytes, connectionReused);
+    }
+}
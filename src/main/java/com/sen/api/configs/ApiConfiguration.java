@@ -1,12 +1,21 @@
 package com.sen.api.configs;
 
+import com.sen.api.utils.ApiTracer;
+import com.sen.api.utils.CaseScheduler;
+import com.sen.api.utils.DbAssertUtil;
+import com.sen.api.utils.DbFixture;
+import com.sen.api.utils.LatencyGate;
+import com.sen.api.utils.PerformanceMode;
+import com.sen.api.utils.RunCheckpoint;
+import com.sen.api.utils.TestResultStore;
+import com.sen.api.utils.YamlDslTestEngine;
 import io.restassured.RestAssured;
-import io.restassured.config.HttpClientConfig;
-import io.restassured.config.RestAssuredConfig;
 import io.restassured.specification.RequestSpecification;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,10 +44,10 @@ public class ApiConfiguration {
     public RequestSpecification requestSpecification() {
         logger.info("Initializing REST Assured with root URL: {}", apiProperties.getRootUrl());
 
-        // 配置RestAssured
+        // 配置RestAssured（在现有配置上修改，保留分阶段计时用的 HttpClient 工厂）
         RestAssured.baseURI = apiProperties.getRootUrl();
-        RestAssured.config = RestAssuredConfig.config()
-                .httpClient(HttpClientConfig.httpClientConfig()
+        RestAssured.config = RestAssured.config()
+                .httpClient(RestAssured.config().getHttpClientConfig()
                         .setParam("http.connection.timeout", apiProperties.getTest().getTimeoutSeconds() * 1000)
                         .setParam("http.socket.timeout", apiProperties.getTest().getTimeoutSeconds() * 1000));
 
@@ -63,6 +72,42 @@ public class ApiConfiguration {
         return apiProperties;
     }
 
+    /**
+     * 数据库断言工具，按 api.database 创建连接池；未启用时断言直接跳过
+     */
+    @Bean(destroyMethod = "close")
+    public DbAssertUtil dbAssertUtil() {
+        ApiProperties.DatabaseConfig database = apiProperties.getDatabase();
+        return database.isEnabled() ? new DbAssertUtil(database) : new DbAssertUtil();
+    }
+
+    /**
+     * 数据库夹具，设置到 DSL 引擎供声明了 snapshot 的用例拍摄和恢复快照
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "api.database", name = "enabled", havingValue = "true")
+    public DbFixture dbFixture(DbAssertUtil dbAssertUtil) {
+        DbFixture fixture = new DbFixture(dbAssertUtil);
+        YamlDslTestEngine.getInstance().setDbFixture(fixture);
+        return fixture;
+    }
+
+    /**
+     * 测试结果库，写入 spring.datasource（复用 MyBatis 自动配置），并设置到 DSL 引擎和 TestNG 监听器
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "api.test.result-store", name = "enabled", havingValue = "true")
+    public TestResultStore testResultStore(SqlSessionFactory sqlSessionFactory) {
+        ApiProperties.ResultStoreConfig resultStore = apiProperties.getTest().getResultStore();
+        TestResultStore store = new TestResultStore(sqlSessionFactory, resultStore.getCapacity());
+        if (resultStore.isInitSchema()) {
+            store.initSchema();
+        }
+        TestResultStore.setShared(store, resultStore);
+        YamlDslTestEngine.getInstance().setResultStore(store);
+        return store;
+    }
+
     /**
      * 初始化后日志
      */
@@ -76,6 +121,16 @@ public class ApiConfiguration {
         logger.info("Database Enabled: {}", apiProperties.getDatabase().isEnabled());
         logger.info("Mock Enabled: {}", apiProperties.getMock().isEnabled());
         logger.info("Parallel Threads: {}", apiProperties.getTest().getParallelThreads());
+        logger.info("Performance Mode: {}", apiProperties.getTest().getPerformance().isEnabled());
+        PerformanceMode.configure(apiProperties.getTest().getPerformance());
+        logger.info("Latency Baseline: {}", apiProperties.getTest().getBaseline().isEnabled());
+        LatencyGate.configure(apiProperties.getTest().getBaseline());
+        logger.info("Tracing: {}", apiProperties.getTest().getTracing().isEnabled());
+        ApiTracer.configure(apiProperties.getTest().getTracing());
+        logger.info("Case Scheduling: {}", apiProperties.getTest().getSchedule().isEnabled());
+        CaseScheduler.configure(apiProperties.getTest().getSchedule());
+        logger.info("Checkpoint: {}", apiProperties.getTest().getCheckpoint().isEnabled());
+        RunCheckpoint.configure(apiProperties.getTest().getCheckpoint());
         logger.info("==============================");
         return "initialized";
     }
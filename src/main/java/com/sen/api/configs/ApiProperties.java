@@ -115,6 +115,12 @@ public class ApiProperties {
         private String username;
         private String password;
         private String driverClassName = "com.mysql.cj.jdbc.Driver";
+        // 连接池大小，0 表示不使用连接池（每次查询新建连接）；等待式断言的查询线程数与之相同
+        private int poolSize = 5;
+        // 连接校验SQL，为空时使用JDBC4的 Connection.isValid
+        private String validationQuery;
+        // 每个连接缓存的预编译语句数（MySQL驱动）
+        private int statementCacheSize = 250;
 
         public boolean isEnabled() {
             return enabled;
@@ -155,6 +161,30 @@ public class ApiProperties {
         public void setDriverClassName(String driverClassName) {
             this.driverClassName = driverClassName;
         }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public String getValidationQuery() {
+            return validationQuery;
+        }
+
+        public void setValidationQuery(String validationQuery) {
+            this.validationQuery = validationQuery;
+        }
+
+        public int getStatementCacheSize() {
+            return statementCacheSize;
+        }
+
+        public void setStatementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+        }
     }
 
     /**
@@ -205,6 +235,36 @@ public class ApiProperties {
          */
         private TimeoutConfig timeout = new TimeoutConfig();
 
+        /**
+         * 性能模式配置
+         */
+        private PerformanceConfig performance = new PerformanceConfig();
+
+        /**
+         * 接口耗时基线配置
+         */
+        private BaselineConfig baseline = new BaselineConfig();
+
+        /**
+         * 链路追踪配置
+         */
+        private TracingConfig tracing = new TracingConfig();
+
+        /**
+         * 按历史耗时调度与分片
+         */
+        private ScheduleConfig schedule = new ScheduleConfig();
+
+        /**
+         * 断点续跑
+         */
+        private CheckpointConfig checkpoint = new CheckpointConfig();
+
+        /**
+         * 测试结果库
+         */
+        private ResultStoreConfig resultStore = new ResultStoreConfig();
+
         public int getParallelThreads() {
             return parallelThreads;
         }
@@ -252,6 +312,54 @@ public class ApiProperties {
         public void setTimeout(TimeoutConfig timeout) {
             this.timeout = timeout;
         }
+
+        public PerformanceConfig getPerformance() {
+            return performance;
+        }
+
+        public void setPerformance(PerformanceConfig performance) {
+            this.performance = performance;
+        }
+
+        public BaselineConfig getBaseline() {
+            return baseline;
+        }
+
+        public void setBaseline(BaselineConfig baseline) {
+            this.baseline = baseline;
+        }
+
+        public TracingConfig getTracing() {
+            return tracing;
+        }
+
+        public void setTracing(TracingConfig tracing) {
+            this.tracing = tracing;
+        }
+
+        public ScheduleConfig getSchedule() {
+            return schedule;
+        }
+
+        public void setSchedule(ScheduleConfig schedule) {
+            this.schedule = schedule;
+        }
+
+        public CheckpointConfig getCheckpoint() {
+            return checkpoint;
+        }
+
+        public void setCheckpoint(CheckpointConfig checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+
+        public ResultStoreConfig getResultStore() {
+            return resultStore;
+        }
+
+        public void setResultStore(ResultStoreConfig resultStore) {
+            this.resultStore = resultStore;
+        }
     }
 
     /**
@@ -310,4 +418,563 @@ public class ApiProperties {
             this.connectionRequest = connectionRequest;
         }
     }
+
+    /**
+     * 性能模式配置
+     * 开启后只对失败用例和按比例抽样的通过用例输出请求日志、生成Allure附件
+     */
+    public static class PerformanceConfig {
+        /**
+         * 是否开启性能模式
+         */
+        private boolean enabled = false;
+
+        /**
+         * 通过用例的抽样比例（0~1）
+         */
+        private double passSampleRate = 0.01;
+
+        /**
+         * 日志和附件中请求/响应体的最大字符数
+         */
+        private int maxBodyChars = 4096;
+
+        /**
+         * 附件后台写入队列容量，队列满时在测试线程上直接写入
+         */
+        private int attachmentQueueSize = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPassSampleRate() {
+            return passSampleRate;
+        }
+
+        public void setPassSampleRate(double passSampleRate) {
+            this.passSampleRate = passSampleRate;
+        }
+
+        public int getMaxBodyChars() {
+            return maxBodyChars;
+        }
+
+        public void setMaxBodyChars(int maxBodyChars) {
+            this.maxBodyChars = maxBodyChars;
+        }
+
+        public int getAttachmentQueueSize() {
+            return attachmentQueueSize;
+        }
+
+        public void setAttachmentQueueSize(int attachmentQueueSize) {
+            this.attachmentQueueSize = attachmentQueueSize;
+        }
+    }
+
+    /**
+     * 接口耗时基线配置
+     * record 模式把本次运行各接口的耗时分布写入基线文件，compare 模式与基线比较，变慢的接口记为失败检查
+     */
+    public static class BaselineConfig {
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * record / compare
+         */
+        private String mode = "compare";
+
+        /**
+         * 基线文件
+         */
+        private String file = "baseline/latency-baseline.json";
+
+        /**
+         * 比较的百分位
+         */
+        private int percentile = 95;
+
+        /**
+         * 允许的相对增幅（0.2 即 20%）
+         */
+        private double tolerance = 0.2;
+
+        /**
+         * 允许的绝对增幅（毫秒），低于该值的变化不算回归
+         */
+        private double minDeltaMs = 5;
+
+        /**
+         * 显著性水平（单侧 Mann-Whitney U 检验）
+         */
+        private double alpha = 0.05;
+
+        /**
+         * 基线与本次运行各自的最少样本数，不足时跳过该接口
+         */
+        private int minSamples = 10;
+
+        /**
+         * 基线文件中每个接口保留的样本数
+         */
+        private int maxStoredSamples = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public int getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(int percentile) {
+            this.percentile = percentile;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public double getMinDeltaMs() {
+            return minDeltaMs;
+        }
+
+        public void setMinDeltaMs(double minDeltaMs) {
+            this.minDeltaMs = minDeltaMs;
+        }
+
+        public double getAlpha() {
+            return alpha;
+        }
+
+        public void setAlpha(double alpha) {
+            this.alpha = alpha;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public int getMaxStoredSamples() {
+            return maxStoredSamples;
+        }
+
+        public void setMaxStoredSamples(int maxStoredSamples) {
+            this.maxStoredSamples = maxStoredSamples;
+        }
+    }
+
+    /**
+     * 链路追踪配置
+     * 每个用例/流程步骤一个 span，请求带 W3C traceparent 头，结束的 span 以 OTLP-JSON 导出到目录或发送到收集器
+     */
+    public static class TracingConfig {
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 是否向被测服务发送 traceparent 头
+         */
+        private boolean propagate = true;
+
+        /**
+         * OTLP-JSON 文件目录，为空不写文件
+         */
+        private String exportDir = "target/traces";
+
+        /**
+         * OTLP/HTTP 收集器地址（如 http://localhost:4318/v1/traces），为空不发送
+         */
+        private String collectorUrl = "";
+
+        /**
+         * resource 中的 service.name
+         */
+        private String serviceName = "lite-api-test";
+
+        /**
+         * 累计多少个 span 导出一次（套件/流程结束和 JVM 退出时也会导出）
+         */
+        private int batchSize = 512;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isPropagate() {
+            return propagate;
+        }
+
+        public void setPropagate(boolean propagate) {
+            this.propagate = propagate;
+        }
+
+        public String getExportDir() {
+            return exportDir;
+        }
+
+        public void setExportDir(String exportDir) {
+            this.exportDir = exportDir;
+        }
+
+        public String getCollectorUrl() {
+            return collectorUrl;
+        }
+
+        public void setCollectorUrl(String collectorUrl) {
+            this.collectorUrl = collectorUrl;
+        }
+
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        public void setServiceName(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * 用例调度配置
+     * 按历史耗时先执行预计最慢的用例（满足依赖与优先级），分片时按预计耗时而不是用例数均衡
+     */
+    public static class ScheduleConfig {
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 用例历史耗时文件，每次运行后更新；分片执行时各分片需读取同一份文件
+         */
+        private String historyFile = "baseline/case-durations.json";
+
+        /**
+         * YAML DSL 套件的并发数，1 为串行
+         */
+        private int threads = 1;
+
+        /**
+         * 没有历史记录的用例的预计耗时（毫秒）
+         */
+        private long defaultDurationMs = 1000;
+
+        /**
+         * 指数平滑系数，越大越偏向最近一次耗时
+         */
+        private double smoothing = 0.3;
+
+        /**
+         * 分片总数，1 为不分片
+         */
+        private int shardCount = 1;
+
+        /**
+         * 当前分片序号，从0开始
+         */
+        private int shardIndex = 0;
+
+        /**
+         * 分片方式：duration 按预计耗时均衡，hash 按用例键哈希
+         */
+        private String shardBy = "duration";
+
+        /**
+         * 分片 worker 执行的用例清单（JSON 字符串数组），由 ShardRunner 启动进程统一划分后写入；
+         * 设置后只执行清单中的用例，不再按 shardCount / shardIndex 自行划分
+         */
+        private String casesFile;
+
+        /**
+         * 运行结束后是否把耗时写回历史文件；分片 worker 为 false，由启动进程在全部 worker 结束后统一写入
+         */
+        private boolean saveHistory = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getHistoryFile() {
+            return historyFile;
+        }
+
+        public void setHistoryFile(String historyFile) {
+            this.historyFile = historyFile;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public long getDefaultDurationMs() {
+            return defaultDurationMs;
+        }
+
+        public void setDefaultDurationMs(long defaultDurationMs) {
+            this.defaultDurationMs = defaultDurationMs;
+        }
+
+        public double getSmoothing() {
+            return smoothing;
+        }
+
+        public void setSmoothing(double smoothing) {
+            this.smoothing = smoothing;
+        }
+
+        public int getShardCount() {
+            return shardCount;
+        }
+
+        public void setShardCount(int shardCount) {
+            this.shardCount = shardCount;
+        }
+
+        public int getShardIndex() {
+            return shardIndex;
+        }
+
+        public void setShardIndex(int shardIndex) {
+            this.shardIndex = shardIndex;
+        }
+
+        public String getShardBy() {
+            return shardBy;
+        }
+
+        public void setShardBy(String shardBy) {
+            this.shardBy = shardBy;
+        }
+
+        public String getCasesFile() {
+            return casesFile;
+        }
+
+        public void setCasesFile(String casesFile) {
+            this.casesFile = casesFile;
+        }
+
+        public boolean isSaveHistory() {
+            return saveHistory;
+        }
+
+        public void setSaveHistory(boolean saveHistory) {
+            this.saveHistory = saveHistory;
+        }
+    }
+
+    /**
+     * 断点续跑配置
+     * 每个用例完成后把结果和它保存的变量追加到检查点文件，中断后用 resume 跳过已完成的用例并恢复变量
+     */
+    public static class CheckpointConfig {
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 检查点文件（JSON Lines），分片执行时每个分片加 .shard-N 后缀
+         */
+        private String file = "checkpoint/run-checkpoint.jsonl";
+
+        /**
+         * 是否从检查点继续，false 时每次运行清空检查点
+         */
+        private boolean resume = false;
+
+        /**
+         * 后台写入间隔（毫秒）
+         */
+        private long flushIntervalMs = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public boolean isResume() {
+            return resume;
+        }
+
+        public void setResume(boolean resume) {
+            this.resume = resume;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+    }
+
+    /**
+     * 测试结果库配置
+     * Spring 下写入 spring.datasource（复用 MyBatis 自动配置）；
+     * 脱离 Spring 运行 TestNG / DSL 时写入 url 指定的库，未配置 url 时取 EnvCenter 当前环境的 database
+     */
+    public static class ResultStoreConfig {
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 缓冲区容量，写满后丢弃并计数
+         */
+        private int capacity = 10000;
+
+        /**
+         * 启动时建表（已存在则跳过）
+         */
+        private boolean initSchema = true;
+
+        /**
+         * 运行结束时等待落库的超时（毫秒）
+         */
+        private long flushTimeoutMs = 30000;
+
+        /**
+         * 脱离 Spring 运行时的结果库连接
+         */
+        private String url;
+        private String username;
+        private String password;
+        private String driver;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public boolean isInitSchema() {
+            return initSchema;
+        }
+
+        public void setInitSchema(boolean initSchema) {
+            this.initSchema = initSchema;
+        }
+
+        public long getFlushTimeoutMs() {
+            return flushTimeoutMs;
+        }
+
+        public void setFlushTimeoutMs(long flushTimeoutMs) {
+            this.flushTimeoutMs = flushTimeoutMs;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getDriver() {
+            return driver;
+        }
+
+        public void setDriver(String driver) {
+            this.driver = driver;
+        }
+    }
 }
@@ -5,22 +5,43 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
-
+import java.util.UUID;
+
+import com.sen.api.beans.ApiDataBean;
+import com.sen.api.beans.TestResultRecord;
+import com.sen.api.utils.AllureAttachmentWriter;
+import com.sen.api.utils.ApiMetrics;
+import com.sen.api.utils.CaseScheduler;
+import com.sen.api.utils.TestResultStore;
 import org.testng.ITestContext;
 import org.testng.ITestResult;
 import org.testng.TestListenerAdapter;
 
 public class AutoTestListener extends TestListenerAdapter {
 
+	// 本次运行的批次号，结果库按它汇总
+	private static final String RUN_ID = UUID.randomUUID().toString();
+
+	@Override
+	public void onStart(ITestContext testContext) {
+		super.onStart(testContext);
+		// -Dapi.metrics.port 开启 /metrics 抓取端口（只启动一次）
+		ApiMetrics.startFromSystemProperties();
+	}
+
 	@Override
 	public void onTestSuccess(ITestResult tr) {
 		// TODO Auto-generated method stub
 		TestngRetry.resetRetryCount();
+		ApiMetrics.caseFinished("testng", true);
+		persistResult(tr, true);
 		super.onTestSuccess(tr);
 	}
 
 	public void onTestFailure(ITestResult tr) {
 		saveResult(tr);
+		ApiMetrics.caseFinished("testng", false);
+		persistResult(tr, false);
 		super.onTestFailure(tr);
 	}
 
@@ -40,9 +61,39 @@ public class AutoTestListener extends TestListenerAdapter {
 		// Reporter.log("path path path path");
 	}
 
+	/**
+	 * 写入结果库（未开启时跳过），用例名与调度/检查点一致
+	 */
+	private void persistResult(ITestResult tr, boolean passed) {
+		TestResultStore store = TestResultStore.shared();
+		if (store == null) {
+			return;
+		}
+		Object[] parameters = tr.getParameters();
+		TestResultRecord record = new TestResultRecord();
+		record.setRunId(RUN_ID);
+		record.setSuiteName(tr.getTestContext().getName());
+		record.setCaseName(parameters != null && parameters.length > 0 && parameters[0] instanceof ApiDataBean
+				? CaseScheduler.keyOf((ApiDataBean) parameters[0])
+				: tr.getMethod().getMethodName());
+		record.setPassed(passed);
+		record.setDurationMs(tr.getEndMillis() - tr.getStartMillis());
+		Throwable throwable = tr.getThrowable();
+		if (!passed && throwable != null) {
+			record.setErrorMessage(throwable.toString());
+		}
+		store.record(record);
+	}
+
 	@Override
 	public void onFinish(ITestContext testContext) {
 		super.onFinish(testContext);
+		// 等待后台写完Allure附件和结果库
+		AllureAttachmentWriter.flush(30_000);
+		TestResultStore store = TestResultStore.shared();
+		if (store != null) {
+			store.flush(TestResultStore.flushTimeoutMs());
+		}
 
 		// List of test results which we will delete later
 		ArrayList<ITestResult> testsToBeRemoved = new ArrayList<ITestResult>();
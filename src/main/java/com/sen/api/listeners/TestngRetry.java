@@ -5,6 +5,7 @@ import org.testng.ITestResult;
 import org.testng.Reporter;
 
 import com.sen.api.exceptions.ErrorRespStatusException;
+import com.sen.api.utils.ApiMetrics;
 
 
 public class TestngRetry implements IRetryAnalyzer {
@@ -21,6 +22,7 @@ public class TestngRetry implements IRetryAnalyzer {
 			
 			Reporter.log("RunCount=" + (retryCount + 1));
 			retryCount++;
+			ApiMetrics.retry("testng");
 			return true;
 		} else {
 			resetRetryCount();
@@ -0,0 +1,32 @@
+package com.sen.api.mapper;
+
+import com.sen.api.beans.TestResultRecord;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用例执行结果Mapper，SQL见 mapper/TestResultMapper.xml
+ *
+ * @author sen
+ */
+public interface TestResultMapper {
+
+    /**
+     * 批量插入（单条多值INSERT）
+     */
+    int insertBatch(@Param("list") List<TestResultRecord> records);
+
+    /**
+     * 查询某个用例最近的执行记录
+     */
+    List<TestResultRecord> selectByCase(@Param("caseName") String caseName, @Param("limit") int limit);
+
+    /**
+     * 按运行批次汇总（总数、通过数、平均/最大耗时），最近的在前
+     */
+    List<Map<String, Object>> selectRunSummaries(@Param("limit") int limit);
+
+    int countByRun(@Param("runId") String runId);
+}
@@ -0,0 +1,112 @@
+package com.sen.api.utils;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allure附件异步写入
+ * 附件在测试线程上登记到当前用例/步骤（Allure按线程维护上下文），文件内容交给后台线程写入；
+ * 队列满时退回到测试线程直接写入，附件不会丢失；更换线程池时已拿到旧线程池的提交同样在测试线程上写入。
+ *
+ * @author sen
+ */
+public class AllureAttachmentWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AllureAttachmentWriter.class);
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+    private static volatile ThreadPoolExecutor executor = createExecutor(1000);
+    // 已提交 / 已写完的附件数，flush 等待两者追平；更换线程池不影响计数
+    private static final AtomicLong submitted = new AtomicLong();
+    private static final Object completedLock = new Object();
+    private static long completed;
+
+    private AllureAttachmentWriter() {
+    }
+
+    private static ThreadPoolExecutor createExecutor(int queueSize) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+                Thread t = new Thread(r, "AllureAttachmentWriter-" + threadCounter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, (task, rejectedBy) -> task.run());
+        return pool;
+    }
+
+    /**
+     * 调整后台队列容量
+     * 旧线程池关闭前已排队的附件照常写完；并发 attach 若提交到已关闭的旧线程池，
+     * 拒绝策略直接在调用线程上写入（CallerRunsPolicy 在线程池关闭后会静默丢弃任务，flush 只能等到超时）
+     */
+    public static synchronized void configure(int queueSize) {
+        ThreadPoolExecutor old = executor;
+        executor = createExecutor(queueSize);
+        old.shutdown();
+    }
+
+    /**
+     * 添加附件，内容超过 maxChars 时截断（maxChars <= 0 不截断）
+     */
+    public static void attach(String name, String type, String content, String extension, int maxChars) {
+        String body = content == null ? "" : content;
+        if (maxChars > 0 && body.length() > maxChars) {
+            body = body.substring(0, maxChars) + "\n... (truncated, " + content.length() + " chars)";
+        }
+        AllureLifecycle lifecycle = Allure.getLifecycle();
+        String source = lifecycle.prepareAttachment(name, type, extension);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        submitted.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                lifecycle.writeAttachment(source, new ByteArrayInputStream(bytes));
+            } catch (Exception e) {
+                logger.warn("Failed to write allure attachment {}: {}", name, e.getMessage());
+            } finally {
+                synchronized (completedLock) {
+                    completed++;
+                    completedLock.notifyAll();
+                }
+            }
+        });
+    }
+
+    public static void attach(String name, String content) {
+        attach(name, "text/plain", content, ".txt", 0);
+    }
+
+    /**
+     * 等待调用前已提交的附件全部写完
+     *
+     * @return 超时或被中断返回 false
+     */
+    public static boolean flush(long timeoutMs) {
+        long target = submitted.get();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (completedLock) {
+            while (completed < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    completedLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
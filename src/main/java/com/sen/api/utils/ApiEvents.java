@@ -0,0 +1,316 @@
+package com.sen.api.utils;
+
+import com.sen.api.beans.RequestTiming;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.Collection;
+
+/**
+ * JFR 自定义事件
+ * 启动参数加 -XX:StartFlightRecording=filename=api.jfr 录制，在 JMC 的 "LiteApiTest" 分类下查看。
+ * 未录制时 begin/commit 几乎没有开销，字段只在 {@link Event#shouldCommit()} 为真时才计算。
+ *
+ * 事件都带当前用例名和接口（METHOD URL模板）：
+ * - 用例名由 YamlDslTestEngine / ApiFlowExecutor / ApiTestModern 在用例开始时通过 {@link #startCase(String)} 设置
+ * - 接口取当前线程最近一次请求，校验、保存等事件因此能对应到刚请求的接口
+ * Mock 命中事件在 WireMock 线程上产生，不带用例名。
+ *
+ * @author sen
+ */
+public final class ApiEvents {
+
+    private static final String CATEGORY = "LiteApiTest";
+
+    private static final ThreadLocal<Context> context = ThreadLocal.withInitial(Context::new);
+
+    private ApiEvents() {
+    }
+
+    /**
+     * 当前线程的用例与最近请求，URL 模板在提交事件时才计算
+     */
+    private static final class Context {
+        private String caseName;
+        private String method;
+        private String url;
+
+        String endpoint() {
+            return method == null ? null : LatencySamples.endpoint(method, url);
+        }
+    }
+
+    public static void startCase(String caseName) {
+        Context ctx = context.get();
+        ctx.caseName = caseName;
+        ctx.method = null;
+        ctx.url = null;
+    }
+
+    public static void endCase() {
+        context.remove();
+    }
+
+    static void requestSent(String method, String url) {
+        Context ctx = context.get();
+        ctx.method = method;
+        ctx.url = url;
+    }
+
+    private static String caseName() {
+        return context.get().caseName;
+    }
+
+    private static String endpoint() {
+        return context.get().endpoint();
+    }
+
+    // ==================== 事件 ====================
+
+    @Name("com.sen.api.HttpRequest")
+    @Label("HTTP Request")
+    @Category({CATEGORY, "HTTP"})
+    @StackTrace(false)
+    public static final class HttpRequestEvent extends Event {
+        @Label("Case")
+        String caseName;
+        @Label("Endpoint")
+        String endpoint;
+        @Label("URL")
+        String url;
+        @Label("Status")
+        int status;
+        @Label("DNS")
+        @Timespan(Timespan.NANOSECONDS)
+        long dns;
+        @Label("Connect")
+        @Timespan(Timespan.NANOSECONDS)
+        long connect;
+        @Label("TLS")
+        @Timespan(Timespan.NANOSECONDS)
+        long tls;
+        @Label("TTFB")
+        @Timespan(Timespan.NANOSECONDS)
+        long ttfb;
+        @Label("Download")
+        @Timespan(Timespan.NANOSECONDS)
+        long download;
+        @Label("Request Bytes")
+        @DataAmount(DataAmount.BYTES)
+        long requestBytes;
+        @Label("Response Bytes")
+        @DataAmount(DataAmount.BYTES)
+        long responseBytes;
+        @Label("Connection Reused")
+        boolean connectionReused;
+
+        public void finish(String method, String url, int status, RequestTiming timing) {
+            end();
+            if (!shouldCommit()) {
+                return;
+            }
+            this.caseName = caseName();
+            this.endpoint = LatencySamples.endpoint(method, url);
+            this.url = url;
+            this.status = status;
+            if (timing != null) {
+                this.dns = nanos(timing.getDnsMs());
+                this.connect = nanos(timing.getConnectMs());
+                this.tls = nanos(timing.getTlsMs());
+                this.ttfb = nanos(timing.getTtfbMs());
+                this.download = nanos(timing.getDownloadMs());
+                this.requestBytes = timing.getRequestBytes();
+                this.responseBytes = timing.getResponseBytes();
+                this.connectionReused = timing.isConnectionReused();
+            }
+            commit();
+        }
+
+        private static long nanos(double millis) {
+            return (long) (millis * 1_000_000);
+        }
+    }
+
+    @Name("com.sen.api.Validation")
+    @Label("Validation")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class ValidationEvent extends Event {
+        @Label("Case")
+        String caseName;
+        @Label("Endpoint")
+        String endpoint;
+        @Label("Expression")
+        @Description("校验的 JsonPath 或校验类型（status / contains / matches）")
+        String expression;
+        @Label("Passed")
+        boolean passed;
+
+        public void finish(String expression, boolean passed) {
+            end();
+            if (!shouldCommit()) {
+                return;
+            }
+            this.caseName = caseName();
+            this.endpoint = endpoint();
+            this.expression = expression;
+            this.passed = passed;
+            commit();
+        }
+    }
+
+    @Name("com.sen.api.Extract")
+    @Label("Save / Extract")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class ExtractEvent extends Event {
+        @Label("Case")
+        String caseName;
+        @Label("Endpoint")
+        String endpoint;
+        @Label("Key")
+        String key;
+        @Label("Expression")
+        String expression;
+        @Label("Success")
+        boolean success;
+
+        public void finish(String key, String expression, boolean success) {
+            end();
+            if (!shouldCommit()) {
+                return;
+            }
+            this.caseName = caseName();
+            this.endpoint = endpoint();
+            this.key = key;
+            this.expression = expression;
+            this.success = success;
+            commit();
+        }
+    }
+
+    @Name("com.sen.api.FunctionCall")
+    @Label("Function Call")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class FunctionCallEvent extends Event {
+        @Label("Case")
+        String caseName;
+        @Label("Endpoint")
+        String endpoint;
+        @Label("Function")
+        String function;
+        @Label("Success")
+        boolean success;
+
+        public void finish(String function, boolean success) {
+            end();
+            if (!shouldCommit()) {
+                return;
+            }
+            this.caseName = caseName();
+            this.endpoint = endpoint();
+            this.function = function;
+            this.success = success;
+            commit();
+        }
+    }
+
+    @Name("com.sen.api.DataLoad")
+    @Label("Data File Load")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class DataLoadEvent extends Event {
+        @Label("Case")
+        String caseName;
+        @Label("Path")
+        String path;
+        @Label("Format")
+        String format;
+        @Label("Rows")
+        int rows;
+
+        public void finish(String path, String format, Collection<?> rows) {
+            finish(path, format, rows == null ? 0 : rows.size());
+        }
+
+        public void finish(String path, String format, int rows) {
+            end();
+            if (!shouldCommit()) {
+                return;
+            }
+            this.caseName = caseName();
+            this.path = path;
+            this.format = format;
+            this.rows = rows;
+            commit();
+        }
+    }
+
+    @Name("com.sen.api.TokenRefresh")
+    @Label("Token Refresh")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class TokenRefreshEvent extends Event {
+        @Label("Case")
+        String caseName;
+        @Label("Endpoint")
+        String endpoint;
+        @Label("Account")
+        String account;
+        @Label("Type")
+        @Description("login / refresh")
+        String type;
+        @Label("Success")
+        boolean success;
+
+        public void finish(String account, String type, boolean success) {
+            end();
+            if (!shouldCommit()) {
+                return;
+            }
+            this.caseName = caseName();
+            this.endpoint = endpoint();
+            this.account = account;
+            this.type = type;
+            this.success = success;
+            commit();
+        }
+    }
+
+    /**
+     * 瞬时事件，在 WireMock 发送响应前产生
+     */
+    @Name("com.sen.api.MockHit")
+    @Label("Mock Hit")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class MockHitEvent extends Event {
+        @Label("Endpoint")
+        String endpoint;
+        @Label("URL")
+        String url;
+        @Label("Status")
+        int status;
+        @Label("Matched")
+        boolean matched;
+
+        public void finish(String method, String url, int status, boolean matched) {
+            end();
+            if (!shouldCommit()) {
+                return;
+            }
+            this.endpoint = LatencySamples.endpoint(method, url);
+            this.url = url;
+            this.status = status;
+            this.matched = matched;
+            commit();
+        }
+    }
+}
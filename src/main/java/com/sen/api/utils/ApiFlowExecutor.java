@@ -2,11 +2,14 @@ package com.sen.api.utils;
 
 import com.jayway.jsonpath.JsonPath;
 import com.sen.api.beans.ApiDataBean;
+import com.sen.api.beans.RequestTiming;
 import io.restassured.response.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -37,6 +40,8 @@ public class ApiFlowExecutor {
         private long retryDelayMs = 1000;
         private long delayBeforeMs = 0;
         private Map<String, String> paramOverrides = new HashMap<>();
+        private List<DbCheck> dbChecks = new ArrayList<>();
+        private boolean barrier = false;
 
         public FlowStep(String name) {
             this.name = name;
@@ -93,6 +98,32 @@ public class ApiFlowExecutor {
             return this;
         }
 
+        /**
+         * 步骤成功后异步执行数据库验证，与后续步骤并行，在屏障或流程结束时汇总
+         *
+         * @param sql      查询SQL，支持 ${key} 变量
+         * @param dbVerify 验证表达式，格式同 DbAssertUtil.verifyDbResult
+         */
+        public FlowStep dbVerify(String sql, String dbVerify) {
+            return dbVerify(sql, dbVerify, 0);
+        }
+
+        /**
+         * 异步数据库验证（最终一致性），在 awaitTimeoutMs 内轮询直到成立
+         */
+        public FlowStep dbVerify(String sql, String dbVerify, long awaitTimeoutMs) {
+            this.dbChecks.add(new DbCheck(sql, dbVerify, awaitTimeoutMs));
+            return this;
+        }
+
+        /**
+         * 执行本步骤前等待之前提交的数据库验证全部完成
+         */
+        public FlowStep barrier() {
+            this.barrier = true;
+            return this;
+        }
+
         // Getters
         public String getName() {
             return name;
@@ -141,6 +172,80 @@ public class ApiFlowExecutor {
         public Map<String, String> getParamOverrides() {
             return paramOverrides;
         }
+
+        public List<DbCheck> getDbChecks() {
+            return dbChecks;
+        }
+
+        public boolean isBarrier() {
+            return barrier;
+        }
+    }
+
+    /**
+     * 数据库验证
+     */
+    public static class DbCheck {
+        private final String sql;
+        private final String dbVerify;
+        private final long awaitTimeoutMs;
+
+        public DbCheck(String sql, String dbVerify, long awaitTimeoutMs) {
+            this.sql = sql;
+            this.dbVerify = dbVerify;
+            this.awaitTimeoutMs = awaitTimeoutMs;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getDbVerify() {
+            return dbVerify;
+        }
+
+        public long getAwaitTimeoutMs() {
+            return awaitTimeoutMs;
+        }
+    }
+
+    /**
+     * 数据库验证结果
+     */
+    public static class DbCheckResult {
+        private final String stepName;
+        private final String sql;
+        private final boolean success;
+        private final String errorMessage;
+        private final long durationMs;
+
+        public DbCheckResult(String stepName, String sql, boolean success, String errorMessage, long durationMs) {
+            this.stepName = stepName;
+            this.sql = sql;
+            this.success = success;
+            this.errorMessage = errorMessage;
+            this.durationMs = durationMs;
+        }
+
+        public String getStepName() {
+            return stepName;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
     }
 
     /**
@@ -155,6 +260,8 @@ public class ApiFlowExecutor {
         private String errorMessage;
         private long durationMs;
         private int retryAttempts;
+        // 最近一次请求的分阶段耗时，请求未发出时为 null
+        private RequestTiming timing;
 
         public StepResult(String stepName) {
             this.stepName = stepName;
@@ -213,6 +320,14 @@ public class ApiFlowExecutor {
             this.durationMs = durationMs;
         }
 
+        public RequestTiming getTiming() {
+            return timing;
+        }
+
+        public void setTiming(RequestTiming timing) {
+            this.timing = timing;
+        }
+
         public int getRetryAttempts() {
             return retryAttempts;
         }
@@ -237,6 +352,9 @@ public class ApiFlowExecutor {
         private long totalDurationMs;
         private int successCount;
         private int failureCount;
+        private List<DbCheckResult> dbCheckResults = new ArrayList<>();
+        // 流程级失败检查（如接口耗时回归）
+        private List<String> failedChecks = new ArrayList<>();
 
         public FlowResult(String flowName) {
             this.flowName = flowName;
@@ -300,6 +418,26 @@ public class ApiFlowExecutor {
         public String getValue(String key) {
             return sharedData.get(key);
         }
+
+        public void addDbCheckResult(DbCheckResult result) {
+            dbCheckResults.add(result);
+        }
+
+        public List<DbCheckResult> getDbCheckResults() {
+            return dbCheckResults;
+        }
+
+        public long getDbFailureCount() {
+            return dbCheckResults.stream().filter(r -> !r.isSuccess()).count();
+        }
+
+        public void addFailedCheck(String check) {
+            failedChecks.add(check);
+        }
+
+        public List<String> getFailedChecks() {
+            return failedChecks;
+        }
     }
 
     // 流程名称
@@ -320,12 +458,16 @@ public class ApiFlowExecutor {
     // REST Assured 工具
     private RestAssuredUtil restAssuredUtil;
 
+    // 数据库断言工具（步骤配置了 dbVerify 时使用）
+    private DbAssertUtil dbAssertUtil;
+
     // 流程执行前后回调
     private Consumer<FlowResult> beforeFlow;
     private Consumer<FlowResult> afterFlow;
 
     public ApiFlowExecutor(String flowName) {
         this.flowName = flowName;
+        ApiMetrics.install();
         logger.info("创建API调用链: {}", flowName);
     }
 
@@ -360,6 +502,14 @@ public class ApiFlowExecutor {
         return this;
     }
 
+    /**
+     * 设置数据库断言工具
+     */
+    public ApiFlowExecutor db(DbAssertUtil dbAssertUtil) {
+        this.dbAssertUtil = dbAssertUtil;
+        return this;
+    }
+
     /**
      * 预设共享数据
      */
@@ -444,6 +594,7 @@ public class ApiFlowExecutor {
     public FlowResult execute() {
         logger.info("========== 开始执行API调用链: {} ==========", flowName);
         long startTime = System.currentTimeMillis();
+        ApiTracer.Span flowSpan = ApiTracer.startSpan(flowName);
 
         FlowResult flowResult = new FlowResult(flowName);
         flowResult.getSharedData().putAll(sharedData);
@@ -454,11 +605,21 @@ public class ApiFlowExecutor {
         }
 
         boolean flowSuccess = true;
+        // 已提交、尚未汇总的数据库验证
+        List<CompletableFuture<DbCheckResult>> pendingDbChecks = new ArrayList<>();
+        LatencySamples latencies = new LatencySamples();
 
         for (int i = 0; i < steps.size(); i++) {
             FlowStep step = steps.get(i);
             logger.info("---------- 步骤 {}/{}: {} ----------", i + 1, steps.size(), step.getName());
 
+            // 屏障：等待之前的数据库验证完成，失败时终止流程
+            if (step.isBarrier() && !joinDbChecks(pendingDbChecks, flowResult)) {
+                flowSuccess = false;
+                logger.warn("流程终止于屏障步骤 {}: 数据库验证失败", step.getName());
+                break;
+            }
+
             // 执行步骤前延迟
             if (step.getDelayBeforeMs() > 0) {
                 try {
@@ -468,7 +629,7 @@ public class ApiFlowExecutor {
                 }
             }
 
-            StepResult stepResult = executeStep(step, flowResult.getSharedData());
+            StepResult stepResult = executeStep(step, flowResult.getSharedData(), latencies);
             flowResult.addStepResult(stepResult);
 
             if (!stepResult.isSuccess()) {
@@ -487,6 +648,7 @@ public class ApiFlowExecutor {
                 }
             } else {
                 logger.info("步骤执行成功: {}", step.getName());
+                submitDbChecks(step, flowResult.getSharedData(), pendingDbChecks);
 
                 // 执行成功回调
                 if (step.getOnSuccess() != null) {
@@ -495,8 +657,18 @@ public class ApiFlowExecutor {
             }
         }
 
+        if (!joinDbChecks(pendingDbChecks, flowResult)) {
+            flowSuccess = false;
+        }
+
+        LatencyGate.evaluate(flowName, latencies).forEach(flowResult::addFailedCheck);
+        if (!flowResult.getFailedChecks().isEmpty()) {
+            flowSuccess = false;
+        }
+
         flowResult.setSuccess(flowSuccess);
         flowResult.setTotalDurationMs(System.currentTimeMillis() - startTime);
+        ApiTracer.endSpan(flowSpan, flowSuccess ? null : "流程失败");
 
         // 执行后回调
         if (afterFlow != null) {
@@ -504,21 +676,76 @@ public class ApiFlowExecutor {
         }
 
         logger.info("========== API调用链执行完成: {} ==========", flowName);
-        logger.info("结果: {}, 成功: {}, 失败: {}, 耗时: {}ms",
+        logger.info("结果: {}, 成功: {}, 失败: {}, 数据库验证失败: {}, 耗时: {}ms",
             flowSuccess ? "成功" : "失败",
             flowResult.getSuccessCount(),
             flowResult.getFailureCount(),
+            flowResult.getDbFailureCount(),
             flowResult.getTotalDurationMs());
 
         return flowResult;
     }
 
+    /**
+     * 提交步骤的数据库验证，SQL中的变量按提交时的共享数据替换
+     * 查询在 DbAssertUtil 实例的查询线程池中执行（线程数同连接池大小），流程线程只在屏障或流程结束时等待
+     */
+    private void submitDbChecks(FlowStep step, Map<String, String> sharedData,
+                                List<CompletableFuture<DbCheckResult>> pending) {
+        if (step.getDbChecks().isEmpty()) {
+            return;
+        }
+        if (dbAssertUtil == null || !dbAssertUtil.isEnabled()) {
+            logger.warn("步骤 {} 配置了数据库验证，但数据库未启用，跳过", step.getName());
+            return;
+        }
+        for (DbCheck check : step.getDbChecks()) {
+            String sql = replaceVariables(check.getSql(), sharedData);
+            String dbVerify = replaceVariables(check.getDbVerify(), sharedData);
+            long submitTime = System.currentTimeMillis();
+            pending.add(dbAssertUtil.verifyDbResultAsync(sql, dbVerify, check.getAwaitTimeoutMs())
+                .handle((ignored, error) -> {
+                    long duration = System.currentTimeMillis() - submitTime;
+                    if (error == null) {
+                        return new DbCheckResult(step.getName(), sql, true, null, duration);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                    return new DbCheckResult(step.getName(), sql, false, cause.getMessage(), duration);
+                }));
+            logger.debug("提交数据库验证: {} -> {}", step.getName(), sql);
+        }
+    }
+
+    /**
+     * 等待已提交的数据库验证完成并记录结果
+     *
+     * @return 全部通过返回true
+     */
+    private boolean joinDbChecks(List<CompletableFuture<DbCheckResult>> pending, FlowResult flowResult) {
+        boolean allPassed = true;
+        for (CompletableFuture<DbCheckResult> future : pending) {
+            DbCheckResult result = future.join();
+            flowResult.addDbCheckResult(result);
+            if (result.isSuccess()) {
+                logger.info("数据库验证通过: {} ({}ms)", result.getStepName(), result.getDurationMs());
+            } else {
+                allPassed = false;
+                logger.error("数据库验证失败: {} - {}", result.getStepName(), result.getErrorMessage());
+            }
+        }
+        pending.clear();
+        return allPassed;
+    }
+
     /**
      * 执行单个步骤
      */
-    private StepResult executeStep(FlowStep step, Map<String, String> sharedData) {
+    private StepResult executeStep(FlowStep step, Map<String, String> sharedData, LatencySamples latencies) {
         StepResult result = new StepResult(step.getName());
         long startTime = System.currentTimeMillis();
+        ApiEvents.startCase(flowName + "/" + step.getName());
+        ApiTracer.Span span = ApiTracer.startSpan(step.getName());
 
         int attempts = 0;
         int maxAttempts = step.getRetryCount() + 1;
@@ -543,21 +770,38 @@ public class ApiFlowExecutor {
                 String fullUrl = rootUrl + processedUrl;
 
                 // 发送请求
-                Response response = sendRequest(apiData.getMethod(), fullUrl, processedParam);
+                Response response = sendRequest(apiData.getMethod(), fullUrl, processedParam, latencies);
 
+                result.setTiming(HttpPhaseTimer.last());
                 result.setStatusCode(response.getStatusCode());
                 result.setResponseBody(response.getBody().asString());
 
                 // 检查状态码
-                if (apiData.getStatus() > 0 && response.getStatusCode() != apiData.getStatus()) {
-                    throw new RuntimeException("状态码不匹配: 期望=" + apiData.getStatus() +
-                        ", 实际=" + response.getStatusCode());
+                if (apiData.getStatus() > 0) {
+                    ApiEvents.ValidationEvent event = new ApiEvents.ValidationEvent();
+                    event.begin();
+                    boolean statusMatched = response.getStatusCode() == apiData.getStatus();
+                    event.finish("status", statusMatched);
+                    if (!statusMatched) {
+                        throw new RuntimeException("状态码不匹配: 期望=" + apiData.getStatus() +
+                            ", 实际=" + response.getStatusCode());
+                    }
                 }
 
                 // 执行断言
                 for (Map.Entry<String, String> assertion : step.getAssertions().entrySet()) {
-                    String actualValue = JsonPath.read(result.getResponseBody(), assertion.getKey()).toString();
-                    if (!actualValue.equals(assertion.getValue())) {
+                    ApiEvents.ValidationEvent event = new ApiEvents.ValidationEvent();
+                    event.begin();
+                    String actualValue;
+                    try {
+                        actualValue = JsonPath.read(result.getResponseBody(), assertion.getKey()).toString();
+                    } catch (RuntimeException e) {
+                        event.finish(assertion.getKey(), false);
+                        throw e;
+                    }
+                    boolean matched = actualValue.equals(assertion.getValue());
+                    event.finish(assertion.getKey(), matched);
+                    if (!matched) {
                         throw new RuntimeException("断言失败: " + assertion.getKey() +
                             " 期望=" + assertion.getValue() + ", 实际=" + actualValue);
                     }
@@ -565,13 +809,17 @@ public class ApiFlowExecutor {
 
                 // 提取数据
                 for (Map.Entry<String, String> extractRule : step.getExtractRules().entrySet()) {
+                    ApiEvents.ExtractEvent event = new ApiEvents.ExtractEvent();
+                    event.begin();
                     try {
                         Object value = JsonPath.read(result.getResponseBody(), extractRule.getValue());
                         String strValue = value != null ? value.toString() : "";
                         result.getExtractedData().put(extractRule.getKey(), strValue);
                         sharedData.put(extractRule.getKey(), strValue);
+                        event.finish(extractRule.getKey(), extractRule.getValue(), true);
                         logger.debug("提取数据: {} = {}", extractRule.getKey(), strValue);
                     } catch (Exception e) {
+                        event.finish(extractRule.getKey(), extractRule.getValue(), false);
                         logger.warn("提取数据失败: {} -> {}", extractRule.getKey(), extractRule.getValue());
                     }
                 }
@@ -597,13 +845,18 @@ public class ApiFlowExecutor {
         }
 
         result.setDurationMs(System.currentTimeMillis() - startTime);
+        if (span != null) {
+            span.setAttribute("test.retry_count", result.getRetryAttempts());
+            ApiTracer.endSpan(span, result.isSuccess() ? null : Objects.toString(result.getErrorMessage(), "步骤失败"));
+        }
+        ApiEvents.endCase();
         return result;
     }
 
     /**
      * 发送HTTP请求
      */
-    private Response sendRequest(String method, String url, String body) {
+    private Response sendRequest(String method, String url, String body, LatencySamples latencies) {
         logger.debug("发送请求: {} {}", method, url);
         logger.debug("请求体: {}", body);
 
@@ -621,6 +874,7 @@ public class ApiFlowExecutor {
         }
 
         Response response;
+        long requestStart = System.nanoTime();
         switch (method.toUpperCase()) {
             case "GET":
                 response = request.get(url);
@@ -640,6 +894,7 @@ public class ApiFlowExecutor {
             default:
                 throw new RuntimeException("不支持的HTTP方法: " + method);
         }
+        latencies.record(method, url, (System.nanoTime() - requestStart) / 1000);
 
         logger.debug("响应状态码: {}", response.getStatusCode());
         logger.debug("响应体: {}", response.getBody().asString());
@@ -0,0 +1,240 @@
+package com.sen.api.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import com.sen.api.beans.RequestTiming;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.restassured.RestAssured;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 运行指标
+ * 基于 Micrometer，指标注册到 {@link Metrics#globalRegistry}：
+ * - Spring Boot 下 Actuator 会把 Prometheus 注册表加入全局注册表，通过 /api-test/actuator/prometheus 抓取
+ * - 直接运行 TestNG 或命令行入口时设置 -Dapi.metrics.port 启动独立的 /metrics 抓取端口（{@link #startFromSystemProperties()}）
+ * 未接入任何注册表时所有记录都是空操作。
+ *
+ * 指标：
+ * - api.test.request          请求耗时（method / uri模板 / status）
+ * - api.test.request.errors   请求错误（method / uri模板 / reason）
+ * - api.test.request.phase    请求分阶段耗时（method / uri模板 / phase=dns|connect|tls|ttfb|download）
+ * - api.test.request.bytes    请求/响应字节数（method / uri模板 / direction=sent|received）
+ * - api.test.connections      连接使用（reused）
+ * - api.test.cases            用例结果（source / result）
+ * - api.test.retries          重试次数（source）
+ * - api.test.token.refresh    Token登录与刷新（type / result）
+ * - api.test.mock.hits        Mock请求（matched）
+ * - hikaricp.*                DbAssertUtil 连接池指标
+ *
+ * @author sen
+ */
+public class ApiMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiMetrics.class);
+
+    private static final AtomicBoolean installed = new AtomicBoolean();
+    private static volatile PrometheusMeterRegistry standaloneRegistry;
+    private static volatile HttpServer scrapeServer;
+
+    private ApiMetrics() {
+    }
+
+    public static MeterRegistry registry() {
+        return Metrics.globalRegistry;
+    }
+
+    /**
+     * 为所有 RestAssured 请求注册计时过滤器（只注册一次），并启用链路追踪和分阶段计时
+     */
+    public static void install() {
+        if (installed.compareAndSet(false, true)) {
+            RestAssured.filters(new RequestMetricsFilter());
+        }
+        // 追踪过滤器需在分阶段计时之前，才能在请求返回后取到本次耗时
+        ApiTracer.install();
+        HttpPhaseTimer.install();
+    }
+
+    // ==================== 记录 ====================
+
+    public static void recordRequest(String method, String url, int status, long durationNanos) {
+        String uri = uriTag(url);
+        Timer.builder("api.test.request")
+            .tag("method", method)
+            .tag("uri", uri)
+            .tag("status", String.valueOf(status))
+            .publishPercentileHistogram()
+            .register(registry())
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (status >= 400) {
+            requestError(method, uri, status >= 500 ? "SERVER_ERROR" : "CLIENT_ERROR");
+        }
+    }
+
+    /**
+     * 记录分阶段耗时；复用连接时没有 dns/connect/tls 阶段，不记录以免拉低分布
+     */
+    public static void recordTiming(String method, String url, RequestTiming timing) {
+        String uri = uriTag(url);
+        if (!timing.isConnectionReused()) {
+            recordPhase(method, uri, "dns", timing.getDnsMs());
+            recordPhase(method, uri, "connect", timing.getConnectMs());
+            recordPhase(method, uri, "tls", timing.getTlsMs());
+        }
+        recordPhase(method, uri, "ttfb", timing.getTtfbMs());
+        recordPhase(method, uri, "download", timing.getDownloadMs());
+        recordBytes(method, uri, "sent", timing.getRequestBytes());
+        recordBytes(method, uri, "received", timing.getResponseBytes());
+        registry().counter("api.test.connections", "reused", String.valueOf(timing.isConnectionReused()))
+            .increment();
+    }
+
+    private static void recordPhase(String method, String uri, String phase, double millis) {
+        Timer.builder("api.test.request.phase")
+            .tag("method", method)
+            .tag("uri", uri)
+            .tag("phase", phase)
+            .register(registry())
+            .record((long) (millis * 1_000_000), TimeUnit.NANOSECONDS);
+    }
+
+    private static void recordBytes(String method, String uri, String direction, long bytes) {
+        DistributionSummary.builder("api.test.request.bytes")
+            .baseUnit("bytes")
+            .tag("method", method)
+            .tag("uri", uri)
+            .tag("direction", direction)
+            .register(registry())
+            .record(bytes);
+    }
+
+    public static void requestError(String method, String uri, String reason) {
+        Counter.builder("api.test.request.errors")
+            .tag("method", method)
+            .tag("uri", uri)
+            .tag("reason", reason)
+            .register(registry())
+            .increment();
+    }
+
+    public static void caseFinished(String source, boolean passed) {
+        registry().counter("api.test.cases", "source", source, "result", passed ? "passed" : "failed").increment();
+    }
+
+    public static void retry(String source) {
+        registry().counter("api.test.retries", "source", source).increment();
+    }
+
+    public static void tokenRefresh(String type, boolean success) {
+        registry().counter("api.test.token.refresh", "type", type, "result", success ? "success" : "failure")
+            .increment();
+    }
+
+    public static void mockHit(boolean matched) {
+        registry().counter("api.test.mock.hits", "matched", String.valueOf(matched)).increment();
+    }
+
+    private static String uriTag(String url) {
+        String template = RequestEventJournal.urlTemplate(url);
+        return template == null || template.isEmpty() ? "/" : template;
+    }
+
+    // ==================== 独立抓取端口 ====================
+
+    /**
+     * 非 Spring 运行时启动 Prometheus 抓取端口（GET /metrics）
+     */
+    public static synchronized void startScrapeServer(int port) {
+        if (scrapeServer != null) {
+            return;
+        }
+        if (standaloneRegistry == null) {
+            standaloneRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            Metrics.addRegistry(standaloneRegistry);
+        }
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = standaloneRegistry.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.setExecutor(null);
+            server.start();
+            scrapeServer = server;
+            logger.info("Metrics scrape endpoint started on port {}", port);
+        } catch (IOException e) {
+            throw new IllegalStateException("启动指标抓取端口失败: " + port, e);
+        }
+    }
+
+    /**
+     * 设置了 api.metrics.port 时启动抓取端口；启动失败只告警，不影响测试运行
+     */
+    public static void startFromSystemProperties() {
+        Integer port = Integer.getInteger("api.metrics.port");
+        if (port == null || port <= 0) {
+            return;
+        }
+        try {
+            startScrapeServer(port);
+        } catch (IllegalStateException e) {
+            logger.warn("{}: {}", e.getMessage(), e.getCause() != null ? e.getCause().getMessage() : "");
+        }
+    }
+
+    public static synchronized void stopScrapeServer() {
+        if (scrapeServer != null) {
+            scrapeServer.stop(0);
+            scrapeServer = null;
+        }
+    }
+
+    /**
+     * 独立注册表当前的 Prometheus 文本，未启动时返回空串
+     */
+    public static String scrape() {
+        return standaloneRegistry != null ? standaloneRegistry.scrape() : "";
+    }
+
+    /**
+     * 请求计时过滤器
+     */
+    public static class RequestMetricsFilter implements Filter {
+        @Override
+        public Response filter(FilterableRequestSpecification requestSpec,
+                               FilterableResponseSpecification responseSpec, FilterContext ctx) {
+            long start = System.nanoTime();
+            try {
+                Response response = ctx.next(requestSpec, responseSpec);
+                recordRequest(requestSpec.getMethod(), requestSpec.getURI(), response.getStatusCode(),
+                    System.nanoTime() - start);
+                return response;
+            } catch (RuntimeException e) {
+                requestError(requestSpec.getMethod(), uriTag(requestSpec.getURI()), e.getClass().getSimpleName());
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,603 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sen.api.beans.RequestTiming;
+import com.sen.api.configs.ApiProperties;
+import io.restassured.RestAssured;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 链路追踪
+ * - 每个用例（YamlDslTestEngine / ApiTestModern）是一条 trace 的根 span，流程是根 span、步骤是子 span
+ * - 每个请求是当前 span 下的 CLIENT span，并向被测服务发送 W3C traceparent 头，服务端日志/链路可按 traceId 关联
+ * - 解析响应的 Server-Timing 头，与 {@link HttpPhaseTimer} 的分阶段耗时一起记为 span 属性
+ * - 结束的 span 按批以 OTLP-JSON（ExportTraceServiceRequest）写入 exportDir，或 POST 到 OTLP/HTTP 收集器
+ * - 测试线程只把 span 放进有界缓冲区，攒满一批由后台导出线程写文件/发送；缓冲区满时丢弃并计数
+ * 未开启时 {@link #startSpan(String)} 返回 null，请求不加头，没有额外开销。
+ *
+ * 配置来源：Spring 下为 api.test.tracing，TestNG 直接运行时可用系统属性
+ * api.tracing.enabled / api.tracing.propagate / api.tracing.exportDir / api.tracing.collectorUrl /
+ * api.tracing.serviceName
+ *
+ * @author sen
+ */
+public class ApiTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiTracer.class);
+
+    public static final String TRACEPARENT = "traceparent";
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    static final int KIND_INTERNAL = 1;
+    static final int KIND_CLIENT = 3;
+    static final int STATUS_OK = 1;
+    static final int STATUS_ERROR = 2;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // nanoTime 与 epoch 纳秒的差值，span 时间用单调时钟计算
+    private static final long EPOCH_OFFSET_NANOS = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+    private static final AtomicBoolean installed = new AtomicBoolean();
+    private static final ThreadLocal<Deque<Span>> activeSpans = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final int CAPACITY = 10000;
+    private static final BlockingQueue<Span> finished = new ArrayBlockingQueue<>(CAPACITY);
+    private static final LongAdder dropped = new LongAdder();
+    private static final Object exportLock = new Object();
+    private static final AtomicInteger fileSeq = new AtomicInteger();
+    private static volatile Thread exporter;
+
+    private static volatile ApiProperties.TracingConfig config = fromSystemProperties();
+    private static volatile HttpClient collectorClient;
+
+    private ApiTracer() {
+    }
+
+    private static ApiProperties.TracingConfig fromSystemProperties() {
+        ApiProperties.TracingConfig tracing = new ApiProperties.TracingConfig();
+        tracing.setEnabled(Boolean.getBoolean("api.tracing.enabled"));
+        tracing.setPropagate(Boolean.parseBoolean(System.getProperty("api.tracing.propagate", "true")));
+        tracing.setExportDir(System.getProperty("api.tracing.exportDir", tracing.getExportDir()));
+        tracing.setCollectorUrl(System.getProperty("api.tracing.collectorUrl", tracing.getCollectorUrl()));
+        tracing.setServiceName(System.getProperty("api.tracing.serviceName", tracing.getServiceName()));
+        return tracing;
+    }
+
+    public static void configure(ApiProperties.TracingConfig tracing) {
+        if (tracing == null) {
+            return;
+        }
+        if (tracing.getBatchSize() <= 0) {
+            throw new IllegalArgumentException("span 批量大小必须大于0: " + tracing.getBatchSize());
+        }
+        config = tracing;
+        if (tracing.isEnabled()) {
+            logger.info("Tracing enabled: propagate={}, exportDir={}, collector={}", tracing.isPropagate(),
+                tracing.getExportDir(), tracing.getCollectorUrl());
+        }
+    }
+
+    public static boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 注册请求追踪过滤器并在 JVM 退出时导出剩余 span（只执行一次）
+     * 计时过滤器总在最内层，请求结束时即可取到分阶段耗时，与注册顺序无关
+     */
+    public static void install() {
+        if (installed.compareAndSet(false, true)) {
+            RestAssured.filters(new TraceFilter());
+            Runtime.getRuntime().addShutdownHook(new Thread(ApiTracer::flush, "api-tracer-flush"));
+        }
+    }
+
+    // ==================== Span ====================
+
+    /**
+     * 一个 span，时间为 epoch 纳秒
+     */
+    public static class Span {
+        private final String traceId;
+        private final String spanId;
+        private final String parentSpanId;
+        private final String name;
+        private final int kind;
+        private final long startNanos = System.nanoTime();
+        private long endNanos;
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+        private int statusCode;
+        private String statusMessage;
+
+        Span(String traceId, String parentSpanId, String name, int kind) {
+            this.traceId = traceId;
+            this.spanId = randomHex(16);
+            this.parentSpanId = parentSpanId;
+            this.name = name;
+            this.kind = kind;
+        }
+
+        public Span setAttribute(String key, Object value) {
+            if (value != null) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+
+        /**
+         * W3C traceparent：version-traceId-spanId-flags（始终采样）
+         */
+        public String traceparent() {
+            return "00-" + traceId + "-" + spanId + "-01";
+        }
+
+        public String getTraceId() {
+            return traceId;
+        }
+
+        public String getSpanId() {
+            return spanId;
+        }
+
+        public String getParentSpanId() {
+            return parentSpanId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public long getDurationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+
+    /**
+     * 开始一个 span：有当前 span 时作为其子 span，否则开启新 trace
+     *
+     * @return 未开启追踪时为 null
+     */
+    public static Span startSpan(String name) {
+        return isEnabled() ? push(name, KIND_INTERNAL) : null;
+    }
+
+    private static Span push(String name, int kind) {
+        Deque<Span> stack = activeSpans.get();
+        Span parent = stack.peek();
+        Span span = parent != null
+            ? new Span(parent.traceId, parent.spanId, name, kind)
+            : new Span(randomHex(32), null, name, kind);
+        if (parent == null && kind == KIND_INTERNAL) {
+            // 日志中的 traceId 与导出的 trace 一致
+            LogEnhancer.setTraceId(span.traceId);
+        }
+        stack.push(span);
+        return span;
+    }
+
+    /**
+     * 结束 span
+     *
+     * @param errorMessage 为 null 表示成功
+     */
+    public static void endSpan(Span span, String errorMessage) {
+        if (span == null) {
+            return;
+        }
+        span.endNanos = System.nanoTime();
+        span.statusCode = errorMessage == null ? STATUS_OK : STATUS_ERROR;
+        span.statusMessage = errorMessage;
+        Deque<Span> stack = activeSpans.get();
+        stack.remove(span);
+        if (stack.isEmpty()) {
+            activeSpans.remove();
+        }
+        if (!finished.offer(span)) {
+            dropped.increment();
+            return;
+        }
+        if (finished.size() >= batchThreshold()) {
+            // 导出有文件和网络 I/O，交给后台线程，测试线程不等待
+            LockSupport.unpark(exporter());
+        }
+    }
+
+    /**
+     * 当前线程的 span，没有时为 null
+     */
+    public static Span current() {
+        Deque<Span> stack = activeSpans.get();
+        Span span = stack.peek();
+        if (span == null) {
+            activeSpans.remove();
+        }
+        return span;
+    }
+
+    private static String randomHex(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (sb.length() < length) {
+            // 全零 ID 无效
+            long value = random.nextLong();
+            if (value != 0) {
+                sb.append(String.format("%016x", value));
+            }
+        }
+        return sb.substring(0, length);
+    }
+
+    // ==================== Server-Timing ====================
+
+    /**
+     * Server-Timing 中的一项
+     */
+    public static class ServerTiming {
+        private final String name;
+        private final Double durationMs;
+        private final String description;
+
+        public ServerTiming(String name, Double durationMs, String description) {
+            this.name = name;
+            this.durationMs = durationMs;
+            this.description = description;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Double getDurationMs() {
+            return durationMs;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * 解析 Server-Timing 头，如 {@code db;dur=53.2;desc="query users", cache;desc=hit}
+     * 无法识别的参数忽略，dur 不是数字时视为缺失
+     */
+    public static List<ServerTiming> parseServerTiming(String header) {
+        if (header == null || header.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ServerTiming> result = new ArrayList<>();
+        for (String metric : split(header, ',')) {
+            List<String> parts = split(metric, ';');
+            String name = parts.get(0).trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            Double duration = null;
+            String description = null;
+            for (int i = 1; i < parts.size(); i++) {
+                String param = parts.get(i).trim();
+                int eq = param.indexOf('=');
+                if (eq <= 0) {
+                    continue;
+                }
+                String key = param.substring(0, eq).trim().toLowerCase();
+                String value = unquote(param.substring(eq + 1).trim());
+                if ("dur".equals(key)) {
+                    try {
+                        duration = Double.parseDouble(value);
+                    } catch (NumberFormatException ignored) {
+                        // dur 非法时忽略
+                    }
+                } else if ("desc".equals(key)) {
+                    description = value;
+                }
+            }
+            result.add(new ServerTiming(name, duration, description));
+        }
+        return result;
+    }
+
+    /**
+     * 按分隔符拆分，忽略双引号内的分隔符
+     */
+    private static List<String> split(String text, char separator) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && quoted && i + 1 < text.length()) {
+                current.append(c).append(text.charAt(++i));
+            } else if (c == '"') {
+                quoted = !quoted;
+                current.append(c);
+            } else if (c == separator && !quoted) {
+                parts.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        parts.add(current.toString());
+        return parts;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1).replaceAll("\\\\(.)", "$1");
+        }
+        return value;
+    }
+
+    // ==================== 请求过滤器 ====================
+
+    /**
+     * 为每个请求创建 CLIENT span，注入 traceparent，记录状态码、分阶段耗时与 Server-Timing
+     */
+    public static class TraceFilter implements Filter {
+        @Override
+        public Response filter(FilterableRequestSpecification requestSpec,
+                               FilterableResponseSpecification responseSpec, FilterContext ctx) {
+            ApiProperties.TracingConfig current = config;
+            if (!current.isEnabled()) {
+                return ctx.next(requestSpec, responseSpec);
+            }
+            String method = requestSpec.getMethod();
+            String url = requestSpec.getURI();
+            Span span = push(LatencySamples.endpoint(method, url), KIND_CLIENT);
+            span.setAttribute("http.request.method", method)
+                .setAttribute("url.full", url);
+            if (current.isPropagate() && !requestSpec.getHeaders().hasHeaderWithName(TRACEPARENT)) {
+                requestSpec.header(TRACEPARENT, span.traceparent());
+            }
+            try {
+                Response response = ctx.next(requestSpec, responseSpec);
+                span.setAttribute("http.response.status_code", response.getStatusCode());
+                recordTiming(span, HttpPhaseTimer.last());
+                recordServerTiming(span, response.getHeaders().getValues(SERVER_TIMING));
+                endSpan(span, response.getStatusCode() >= 500 ? "HTTP " + response.getStatusCode() : null);
+                return response;
+            } catch (RuntimeException e) {
+                span.setAttribute("error.type", e.getClass().getName());
+                endSpan(span, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                throw e;
+            }
+        }
+
+        private static void recordTiming(Span span, RequestTiming timing) {
+            if (timing == null) {
+                return;
+            }
+            span.setAttribute("http.timing.dns_ms", timing.getDnsMs())
+                .setAttribute("http.timing.connect_ms", timing.getConnectMs())
+                .setAttribute("http.timing.tls_ms", timing.getTlsMs())
+                .setAttribute("http.timing.ttfb_ms", timing.getTtfbMs())
+                .setAttribute("http.timing.download_ms", timing.getDownloadMs())
+                .setAttribute("http.request.size", timing.getRequestBytes())
+                .setAttribute("http.response.size", timing.getResponseBytes())
+                .setAttribute("http.connection.reused", timing.isConnectionReused());
+        }
+
+        private static void recordServerTiming(Span span, List<String> headers) {
+            double totalMs = 0;
+            boolean hasDuration = false;
+            for (String header : headers) {
+                for (ServerTiming entry : parseServerTiming(header)) {
+                    String prefix = "http.server_timing." + entry.getName();
+                    if (entry.getDurationMs() != null) {
+                        span.setAttribute(prefix + ".dur_ms", entry.getDurationMs());
+                        totalMs += entry.getDurationMs();
+                        hasDuration = true;
+                    }
+                    span.setAttribute(prefix + ".desc", entry.getDescription());
+                }
+            }
+            if (hasDuration) {
+                span.setAttribute("http.server_timing.total_ms", totalMs);
+            }
+        }
+    }
+
+    // ==================== 导出 ====================
+
+    /**
+     * 缓冲区容量小于批量大小时按半个缓冲区导出，避免攒不满一批
+     */
+    private static int batchThreshold() {
+        return Math.min(config.getBatchSize(), CAPACITY / 2);
+    }
+
+    private static Thread exporter() {
+        Thread thread = exporter;
+        if (thread == null) {
+            synchronized (ApiTracer.class) {
+                thread = exporter;
+                if (thread == null) {
+                    thread = new Thread(ApiTracer::exportLoop, "ApiTracerExporter");
+                    thread.setDaemon(true);
+                    thread.start();
+                    exporter = thread;
+                }
+            }
+        }
+        return thread;
+    }
+
+    private static void exportLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            // 被 endSpan 唤醒，或定期检查一次，防止唤醒丢失
+            LockSupport.parkNanos(1_000_000_000L);
+            int threshold = batchThreshold();
+            while (finished.size() >= threshold) {
+                export(threshold);
+            }
+        }
+    }
+
+    /**
+     * 导出全部已结束的 span：写 OTLP-JSON 文件和/或发送到收集器
+     * 由 JVM 退出钩子调用，也可在用例集结束时手动调用；导出失败只记录日志，不影响用例结果
+     *
+     * @return 导出的 span 数
+     */
+    public static int flush() {
+        return export(Integer.MAX_VALUE);
+    }
+
+    /**
+     * 缓冲区满被丢弃的 span 数
+     */
+    public static long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private static int export(int maxSpans) {
+        // 后台导出与 flush 串行，文件序号与发送顺序保持一致
+        synchronized (exportLock) {
+            List<Span> batch = new ArrayList<>();
+            finished.drainTo(batch, maxSpans);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            write(batch);
+            return batch.size();
+        }
+    }
+
+    private static void write(List<Span> batch) {
+        ApiProperties.TracingConfig current = config;
+        try {
+            byte[] body = mapper.writeValueAsBytes(toOtlp(batch, current.getServiceName()));
+            if (current.getExportDir() != null && !current.getExportDir().isEmpty()) {
+                Path dir = Paths.get(current.getExportDir());
+                Files.createDirectories(dir);
+                Path file = dir.resolve(String.format("traces-%s-%04d.json",
+                    LocalDateTime.now().format(FILE_TIME), fileSeq.incrementAndGet()));
+                Files.write(file, body);
+                logger.info("Exported {} spans to {}", batch.size(), file);
+            }
+            if (current.getCollectorUrl() != null && !current.getCollectorUrl().isEmpty()) {
+                send(current.getCollectorUrl(), body);
+                logger.info("Sent {} spans to {}", batch.size(), current.getCollectorUrl());
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to export spans: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(String url, byte[] body) throws IOException, InterruptedException {
+        HttpClient client = collectorClient;
+        if (client == null) {
+            client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            collectorClient = client;
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofSeconds(10))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IOException("收集器返回 " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    /**
+     * OTLP/JSON ExportTraceServiceRequest，trace/span ID 为十六进制，64位整数为字符串
+     */
+    static Map<String, Object> toOtlp(List<Span> spans, String serviceName) {
+        List<Map<String, Object>> spanList = new ArrayList<>(spans.size());
+        for (Span span : spans) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("traceId", span.traceId);
+            item.put("spanId", span.spanId);
+            if (span.parentSpanId != null) {
+                item.put("parentSpanId", span.parentSpanId);
+            }
+            item.put("name", span.name);
+            item.put("kind", span.kind);
+            item.put("startTimeUnixNano", String.valueOf(span.startNanos + EPOCH_OFFSET_NANOS));
+            item.put("endTimeUnixNano", String.valueOf(span.endNanos + EPOCH_OFFSET_NANOS));
+            item.put("attributes", attributes(span.attributes));
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("code", span.statusCode);
+            if (span.statusMessage != null) {
+                status.put("message", span.statusMessage);
+            }
+            item.put("status", status);
+            spanList.add(item);
+        }
+        Map<String, Object> scope = new LinkedHashMap<>();
+        scope.put("scope", Collections.singletonMap("name", "com.sen.api"));
+        scope.put("spans", spanList);
+
+        Map<String, Object> resource = new LinkedHashMap<>();
+        resource.put("resource", Collections.singletonMap("attributes",
+            attributes(Collections.singletonMap("service.name", serviceName))));
+        resource.put("scopeSpans", Collections.singletonList(scope));
+        return Collections.singletonMap("resourceSpans", Collections.singletonList(resource));
+    }
+
+    private static List<Map<String, Object>> attributes(Map<String, Object> values) {
+        List<Map<String, Object>> list = new ArrayList<>(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            Map<String, Object> typed = new LinkedHashMap<>();
+            if (value instanceof Boolean) {
+                typed.put("boolValue", value);
+            } else if (value instanceof Integer || value instanceof Long) {
+                typed.put("intValue", String.valueOf(value));
+            } else if (value instanceof Number) {
+                typed.put("doubleValue", ((Number) value).doubleValue());
+            } else {
+                typed.put("stringValue", String.valueOf(value));
+            }
+            Map<String, Object> attribute = new LinkedHashMap<>();
+            attribute.put("key", entry.getKey());
+            attribute.put("value", typed);
+            list.add(attribute);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,153 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 用例历史耗时
+ * 按用例键（ApiDataBean.caseId / DslTestCase.name）保存运行次数、最近一次耗时和指数平滑后的耗时，以 JSON 文件存储。
+ *
+ * @author sen
+ */
+public class CaseDurationHistory {
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private long updatedAt;
+    private Map<String, CaseStats> cases = new TreeMap<>();
+
+    /**
+     * 单个用例的耗时（毫秒）
+     */
+    public static class CaseStats {
+        private int runs;
+        private double smoothedMs;
+        private long lastMs;
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public void setRuns(int runs) {
+            this.runs = runs;
+        }
+
+        public double getSmoothedMs() {
+            return smoothedMs;
+        }
+
+        public void setSmoothedMs(double smoothedMs) {
+            this.smoothedMs = smoothedMs;
+        }
+
+        public long getLastMs() {
+            return lastMs;
+        }
+
+        public void setLastMs(long lastMs) {
+            this.lastMs = lastMs;
+        }
+    }
+
+    // ==================== 读写 ====================
+
+    /**
+     * 读取历史文件，文件不存在时返回空历史
+     */
+    public static CaseDurationHistory load(Path file) {
+        if (!Files.exists(file)) {
+            return new CaseDurationHistory();
+        }
+        try {
+            return mapper.readValue(file.toFile(), CaseDurationHistory.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取用例耗时历史失败: " + file, e);
+        }
+    }
+
+    /**
+     * 写入历史文件（先写临时文件再替换）
+     */
+    public void save(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            mapper.writeValue(tmp.toFile(), this);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入用例耗时历史失败: " + file, e);
+        }
+    }
+
+    // ==================== 记录与预估 ====================
+
+    /**
+     * 记录一次耗时，首次记录直接取本次耗时
+     *
+     * @param smoothing 本次耗时的权重（0-1）
+     */
+    public synchronized void record(String key, long durationMs, double smoothing) {
+        if (key == null || durationMs < 0) {
+            return;
+        }
+        CaseStats stats = cases.computeIfAbsent(key, k -> new CaseStats());
+        stats.smoothedMs = stats.runs == 0 ? durationMs
+            : smoothing * durationMs + (1 - smoothing) * stats.smoothedMs;
+        stats.lastMs = durationMs;
+        stats.runs++;
+        updatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 预计耗时，没有历史时返回 defaultMs
+     */
+    public synchronized double expectedMs(String key, double defaultMs) {
+        CaseStats stats = key == null ? null : cases.get(key);
+        return stats != null && stats.runs > 0 ? stats.smoothedMs : defaultMs;
+    }
+
+    /**
+     * 用另一份历史中指定用例的记录覆盖本历史（分片各自更新自己的用例后合并回同一文件）
+     */
+    public synchronized void merge(CaseDurationHistory other, Collection<String> keys) {
+        synchronized (other) {
+            for (String key : keys) {
+                CaseStats stats = other.cases.get(key);
+                if (stats != null) {
+                    cases.put(key, stats);
+                }
+            }
+        }
+        updatedAt = System.currentTimeMillis();
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public synchronized Map<String, CaseStats> getCases() {
+        return cases;
+    }
+
+    public void setCases(Map<String, CaseStats> cases) {
+        this.cases = new TreeMap<>(cases);
+    }
+}
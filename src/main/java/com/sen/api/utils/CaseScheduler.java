@@ -0,0 +1,612 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sen.api.beans.ApiDataBean;
+import com.sen.api.configs.ApiProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * 按历史耗时调度用例
+ * - 预计耗时取 {@link CaseDurationHistory} 中的平滑耗时，没有历史时取 defaultDurationMs
+ * - 执行顺序：依赖先于被依赖者；可执行的用例中先按 priority（1最高），再按"自身耗时 + 后续依赖链最长耗时"从长到短
+ * - 分片：有依赖关系的用例作为一组，按预计耗时从大到小依次分给当前负载最小的分片，各分片用同一份历史得到同样的划分；
+ *   shardBy=hash 时按组内第一个用例键的哈希取模，不依赖历史
+ *
+ * - 多进程分片时由启动进程调用 {@link #partition} 统一划分，worker 只按 casesFile 执行分到的用例，
+ *   避免各 worker 读到不同时刻的历史文件而划分不一致
+ *
+ * 配置来源：Spring 下为 api.test.schedule，TestNG 直接运行时可用系统属性
+ * api.schedule.enabled / api.schedule.historyFile / api.schedule.threads / api.schedule.defaultDurationMs /
+ * api.schedule.shardCount / api.schedule.shardIndex / api.schedule.shardBy / api.schedule.casesFile /
+ * api.schedule.saveHistory
+ *
+ * @author sen
+ */
+public class CaseScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaseScheduler.class);
+
+    private static volatile ApiProperties.ScheduleConfig config = fromSystemProperties();
+    private static volatile CaseDurationHistory history;
+    // 本次运行记录的用例耗时，保存时只合并这些用例
+    private static final Map<String, Long> recorded = new ConcurrentHashMap<>();
+
+    private CaseScheduler() {
+    }
+
+    private static ApiProperties.ScheduleConfig fromSystemProperties() {
+        ApiProperties.ScheduleConfig schedule = new ApiProperties.ScheduleConfig();
+        schedule.setEnabled(Boolean.getBoolean("api.schedule.enabled"));
+        schedule.setHistoryFile(System.getProperty("api.schedule.historyFile", schedule.getHistoryFile()));
+        schedule.setThreads(Integer.getInteger("api.schedule.threads", schedule.getThreads()));
+        schedule.setDefaultDurationMs(Long.getLong("api.schedule.defaultDurationMs", schedule.getDefaultDurationMs()));
+        schedule.setShardCount(Integer.getInteger("api.schedule.shardCount", schedule.getShardCount()));
+        schedule.setShardIndex(Integer.getInteger("api.schedule.shardIndex", schedule.getShardIndex()));
+        schedule.setShardBy(System.getProperty("api.schedule.shardBy", schedule.getShardBy()));
+        schedule.setCasesFile(System.getProperty("api.schedule.casesFile"));
+        schedule.setSaveHistory(Boolean.parseBoolean(System.getProperty("api.schedule.saveHistory", "true")));
+        return schedule;
+    }
+
+    public static void configure(ApiProperties.ScheduleConfig schedule) {
+        if (schedule == null) {
+            return;
+        }
+        if (schedule.getThreads() < 1) {
+            throw new IllegalArgumentException("调度并发数必须大于0: " + schedule.getThreads());
+        }
+        if (schedule.getShardCount() < 1 || schedule.getShardIndex() < 0
+            || schedule.getShardIndex() >= schedule.getShardCount()) {
+            throw new IllegalArgumentException("分片序号必须在0到分片总数之间: "
+                + schedule.getShardIndex() + "/" + schedule.getShardCount());
+        }
+        if (!"duration".equals(schedule.getShardBy()) && !"hash".equals(schedule.getShardBy())) {
+            throw new IllegalArgumentException("不支持的分片方式: " + schedule.getShardBy());
+        }
+        if (schedule.getSmoothing() <= 0 || schedule.getSmoothing() > 1) {
+            throw new IllegalArgumentException("平滑系数必须在0到1之间: " + schedule.getSmoothing());
+        }
+        config = schedule;
+        history = null;
+        if (schedule.isEnabled()) {
+            logger.info("Case scheduling enabled: history={}, threads={}, shard={}/{}", schedule.getHistoryFile(),
+                schedule.getThreads(), schedule.getShardIndex(), schedule.getShardCount());
+        }
+    }
+
+    public static boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public static ApiProperties.ScheduleConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * ApiDataBean 的用例键：caseId，未设置时用 desc
+     */
+    public static String keyOf(ApiDataBean bean) {
+        return StringUtil.isNotBlank(bean.getCaseId()) ? bean.getCaseId() : bean.getDesc();
+    }
+
+    // ==================== 历史耗时 ====================
+
+    private static CaseDurationHistory history() {
+        CaseDurationHistory current = history;
+        if (current == null) {
+            synchronized (CaseScheduler.class) {
+                current = history;
+                if (current == null) {
+                    current = CaseDurationHistory.load(Paths.get(config.getHistoryFile()));
+                    history = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 记录用例耗时（未开启时忽略）
+     */
+    public static void recordDuration(String key, long durationMs) {
+        if (!isEnabled() || key == null) {
+            return;
+        }
+        history().record(key, durationMs, config.getSmoothing());
+        recorded.put(key, durationMs);
+    }
+
+    /**
+     * 本次运行记录、尚未写回历史文件的原始耗时，分片 worker 用它把耗时回传给启动进程
+     */
+    public static Map<String, Long> recordedDurations() {
+        return new HashMap<>(recorded);
+    }
+
+    /**
+     * 把本次记录的耗时合并回历史文件，其他用例保持不变；saveHistory 为 false 时不写
+     * 读-合并-写期间持有 historyFile.lock 文件锁，防止同机其他运行同时写入
+     */
+    public static void saveHistory() {
+        if (!isEnabled() || !config.isSaveHistory() || recorded.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(recorded.keySet());
+        Path file = Paths.get(config.getHistoryFile());
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        synchronized (CaseScheduler.class) {
+            try {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    FileLock lock = channel.lock();
+                    try {
+                        CaseDurationHistory latest = CaseDurationHistory.load(file);
+                        latest.merge(history(), keys);
+                        latest.save(file);
+                    } finally {
+                        lock.release();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("写入用例耗时历史失败: " + file, e);
+            }
+        }
+        recorded.keySet().removeAll(keys);
+        logger.info("Case durations saved: {} cases -> {}", keys.size(), file);
+    }
+
+    // ==================== 调度 ====================
+
+    /**
+     * 一个待调度的用例
+     */
+    private static final class Job<T> {
+        private final T item;
+        private final String key;
+        private final int priority;
+        private final int index;
+        private final double expectedMs;
+        private final List<Job<T>> prerequisites = new ArrayList<>();
+        private final List<Job<T>> dependents = new ArrayList<>();
+        // 自身耗时 + 后续依赖链的最长耗时
+        private double rank = -1;
+
+        Job(T item, String key, int priority, int index, double expectedMs) {
+            this.item = item;
+            this.key = key;
+            this.priority = priority;
+            this.index = index;
+            this.expectedMs = expectedMs;
+        }
+    }
+
+    /**
+     * 调度结果：当前分片的用例及执行顺序
+     */
+    public static final class Plan<T> {
+        private final List<Job<T>> jobs;
+        private final double expectedMs;
+
+        private Plan(List<Job<T>> jobs) {
+            this.jobs = jobs;
+            this.expectedMs = jobs.stream().mapToDouble(job -> job.expectedMs).sum();
+        }
+
+        /**
+         * 当前分片的用例，按串行执行顺序排列
+         */
+        public List<T> cases() {
+            List<T> cases = new ArrayList<>(jobs.size());
+            for (Job<T> job : jobs) {
+                cases.add(job.item);
+            }
+            return cases;
+        }
+
+        /**
+         * 当前分片预计总耗时（毫秒，串行）
+         */
+        public double getExpectedMs() {
+            return expectedMs;
+        }
+
+        /**
+         * 执行：threads 为1时按顺序串行；否则依赖完成后才开始，空闲线程总是取当前可执行的第一优先用例
+         * runner 抛出的异常只记录日志，不影响其他用例
+         */
+        public void execute(int threads, Consumer<T> runner) {
+            if (threads <= 1 || jobs.size() <= 1) {
+                for (Job<T> job : jobs) {
+                    run(job, runner);
+                }
+                return;
+            }
+            Map<Job<T>, Integer> waiting = new HashMap<>();
+            PriorityQueue<Job<T>> ready = new PriorityQueue<>(readyOrder());
+            for (Job<T> job : jobs) {
+                waiting.put(job, job.prerequisites.size());
+                if (job.prerequisites.isEmpty()) {
+                    ready.add(job);
+                }
+            }
+            ReentrantLock lock = new ReentrantLock();
+            Condition changed = lock.newCondition();
+            int[] running = {0};
+            int[] done = {0};
+            AtomicInteger threadIndex = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, jobs.size()), r -> {
+                Thread t = new Thread(r, "case-scheduler-" + threadIndex.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                lock.lock();
+                try {
+                    while (done[0] < jobs.size()) {
+                        while (running[0] < threads && !ready.isEmpty()) {
+                            Job<T> job = ready.poll();
+                            running[0]++;
+                            executor.execute(() -> {
+                                try {
+                                    run(job, runner);
+                                } finally {
+                                    lock.lock();
+                                    try {
+                                        running[0]--;
+                                        done[0]++;
+                                        for (Job<T> dependent : job.dependents) {
+                                            if (waiting.merge(dependent, -1, Integer::sum) == 0) {
+                                                ready.add(dependent);
+                                            }
+                                        }
+                                        changed.signal();
+                                    } finally {
+                                        lock.unlock();
+                                    }
+                                }
+                            });
+                        }
+                        changed.awaitUninterruptibly();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        private static <T> void run(Job<T> job, Consumer<T> runner) {
+            try {
+                runner.accept(job.item);
+            } catch (RuntimeException e) {
+                logger.error("Scheduled case {} failed: {}", job.key, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 生成当前分片的调度
+     * 配置了 casesFile 时只调度清单中的用例，否则按 shardCount / shardIndex 取当前分片
+     *
+     * @param key       用例键，用于查历史耗时和匹配依赖
+     * @param priority  优先级，数值小的先执行
+     * @param dependsOn 依赖的用例键（逗号分隔），不存在的键忽略
+     */
+    public static <T> Plan<T> plan(List<T> cases, Function<T, String> key, ToIntFunction<T> priority,
+                                   Function<T, String> dependsOn) {
+        ApiProperties.ScheduleConfig current = config;
+        List<Job<T>> jobs = buildJobs(cases, key, priority, dependsOn, current.getDefaultDurationMs());
+        rank(jobs);
+        if (StringUtil.isNotBlank(current.getCasesFile())) {
+            return new Plan<>(order(assigned(jobs, current.getCasesFile())));
+        }
+        List<List<Job<T>>> shards = shard(jobs, current.getShardCount(), "hash".equals(current.getShardBy()));
+        List<Job<T>> selected = order(shards.get(current.getShardIndex()));
+        if (current.getShardCount() > 1) {
+            StringBuilder loads = new StringBuilder();
+            for (List<Job<T>> shard : shards) {
+                loads.append(loads.length() == 0 ? "" : ", ")
+                    .append(Math.round(shard.stream().mapToDouble(job -> job.expectedMs).sum())).append("ms");
+            }
+            logger.info("Shard {}/{}: {} of {} cases, expected loads [{}]", current.getShardIndex(),
+                current.getShardCount(), selected.size(), jobs.size(), loads);
+        }
+        return new Plan<>(selected);
+    }
+
+    /**
+     * 把用例划分为 shardCount 个分片，每个分片按串行执行顺序排列
+     * 供多进程分片的启动进程统一划分，划分方式与 {@link #plan} 相同
+     */
+    public static <T> List<List<T>> partition(List<T> cases, Function<T, String> key, ToIntFunction<T> priority,
+                                              Function<T, String> dependsOn, int shardCount, boolean byHash) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("分片数必须大于0: " + shardCount);
+        }
+        List<Job<T>> jobs = buildJobs(cases, key, priority, dependsOn, config.getDefaultDurationMs());
+        rank(jobs);
+        List<List<T>> partitions = new ArrayList<>(shardCount);
+        for (List<Job<T>> shard : shard(jobs, shardCount, byHash)) {
+            partitions.add(new Plan<>(order(shard)).cases());
+        }
+        return partitions;
+    }
+
+    /**
+     * 按用例清单选出分给当前 worker 的用例
+     */
+    private static <T> List<Job<T>> assigned(List<Job<T>> jobs, String casesFile) {
+        Set<String> names;
+        try {
+            names = new HashSet<>(Arrays.asList(new ObjectMapper().readValue(Paths.get(casesFile).toFile(),
+                String[].class)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取分片用例清单失败: " + casesFile, e);
+        }
+        List<Job<T>> selected = new ArrayList<>();
+        for (Job<T> job : jobs) {
+            if (names.contains(job.key)) {
+                selected.add(job);
+            }
+        }
+        Set<Job<T>> selectedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        selectedSet.addAll(selected);
+        for (Job<T> job : selected) {
+            for (Job<T> prerequisite : job.prerequisites) {
+                if (!selectedSet.contains(prerequisite)) {
+                    throw new IllegalStateException("分片用例清单缺少依赖: " + job.key + " 依赖 " + prerequisite.key);
+                }
+            }
+        }
+        logger.info("Assigned cases from {}: {} of {} cases", casesFile, selected.size(), jobs.size());
+        return selected;
+    }
+
+    private static <T> List<Job<T>> buildJobs(List<T> cases, Function<T, String> key, ToIntFunction<T> priority,
+                                              Function<T, String> dependsOn, double defaultMs) {
+        CaseDurationHistory durations = history();
+        List<Job<T>> jobs = new ArrayList<>(cases.size());
+        Map<String, List<Job<T>>> byKey = new HashMap<>();
+        for (int i = 0; i < cases.size(); i++) {
+            T item = cases.get(i);
+            String k = key.apply(item);
+            Job<T> job = new Job<>(item, k, priority.applyAsInt(item), i, durations.expectedMs(k, defaultMs));
+            jobs.add(job);
+            if (k != null) {
+                byKey.computeIfAbsent(k, x -> new ArrayList<>()).add(job);
+            }
+        }
+        for (Job<T> job : jobs) {
+            String deps = dependsOn.apply(job.item);
+            if (StringUtil.isBlank(deps)) {
+                continue;
+            }
+            for (String dep : deps.split(",")) {
+                for (Job<T> prerequisite : byKey.getOrDefault(dep.trim(), Collections.emptyList())) {
+                    if (prerequisite != job && !job.prerequisites.contains(prerequisite)) {
+                        job.prerequisites.add(prerequisite);
+                        prerequisite.dependents.add(job);
+                    }
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * 计算每个用例的 rank（自身耗时 + 后续依赖链的最长耗时）
+     * 先按拓扑排序（Kahn），再按逆拓扑序累加，不递归，依赖链很长时也不会栈溢出
+     */
+    private static <T> void rank(List<Job<T>> jobs) {
+        Map<Job<T>, Integer> pending = new IdentityHashMap<>();
+        ArrayDeque<Job<T>> ready = new ArrayDeque<>();
+        for (Job<T> job : jobs) {
+            pending.put(job, job.prerequisites.size());
+            if (job.prerequisites.isEmpty()) {
+                ready.add(job);
+            }
+        }
+        List<Job<T>> sorted = new ArrayList<>(jobs.size());
+        while (!ready.isEmpty()) {
+            Job<T> job = ready.poll();
+            sorted.add(job);
+            for (Job<T> dependent : job.dependents) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (sorted.size() < jobs.size()) {
+            throw new IllegalStateException("用例依赖存在循环: " + describeCycle(jobs, pending));
+        }
+        for (int i = sorted.size() - 1; i >= 0; i--) {
+            Job<T> job = sorted.get(i);
+            double longest = 0;
+            for (Job<T> dependent : job.dependents) {
+                longest = Math.max(longest, dependent.rank);
+            }
+            job.rank = job.expectedMs + longest;
+        }
+    }
+
+    /**
+     * 找出一个循环：未排序的用例都还有未排序的前置用例，沿前置用例走下去必然回到走过的用例
+     */
+    private static <T> String describeCycle(List<Job<T>> jobs, Map<Job<T>, Integer> pending) {
+        Job<T> current = null;
+        for (Job<T> job : jobs) {
+            if (pending.get(job) > 0) {
+                current = job;
+                break;
+            }
+        }
+        Map<Job<T>, Integer> visited = new IdentityHashMap<>();
+        List<Job<T>> walk = new ArrayList<>();
+        while (current != null && !visited.containsKey(current)) {
+            visited.put(current, walk.size());
+            walk.add(current);
+            Job<T> next = null;
+            for (Job<T> prerequisite : current.prerequisites) {
+                if (pending.get(prerequisite) > 0) {
+                    next = prerequisite;
+                    break;
+                }
+            }
+            current = next;
+        }
+        if (current == null) {
+            return "";
+        }
+        // 沿前置用例走到的顺序与执行顺序相反，反转后按 a -> b -> a 输出
+        List<Job<T>> cycle = new ArrayList<>(walk.subList(visited.get(current), walk.size()));
+        Collections.reverse(cycle);
+        StringBuilder sb = new StringBuilder();
+        for (Job<T> job : cycle) {
+            sb.append(job.key).append(" -> ");
+        }
+        return sb.append(cycle.get(0).key).toString();
+    }
+
+    /**
+     * 按依赖关系分组后用 LPT（或哈希）分给各分片，组内保持原有顺序
+     * 同名用例也放在同一组，按用例名分派时不会被两个分片同时执行
+     */
+    private static <T> List<List<Job<T>>> shard(List<Job<T>> jobs, int shardCount, boolean byHash) {
+        List<List<Job<T>>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        if (shardCount == 1) {
+            shards.get(0).addAll(jobs);
+            return shards;
+        }
+        // 依赖连通分量
+        int[] parent = new int[jobs.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        Map<String, Integer> firstByKey = new HashMap<>();
+        for (Job<T> job : jobs) {
+            for (Job<T> prerequisite : job.prerequisites) {
+                parent[find(parent, job.index)] = find(parent, prerequisite.index);
+            }
+            Integer first = job.key != null ? firstByKey.putIfAbsent(job.key, job.index) : null;
+            if (first != null) {
+                parent[find(parent, job.index)] = find(parent, first);
+            }
+        }
+        Map<Integer, List<Job<T>>> groups = new LinkedHashMap<>();
+        for (Job<T> job : jobs) {
+            groups.computeIfAbsent(find(parent, job.index), x -> new ArrayList<>()).add(job);
+        }
+        double[] loads = new double[shardCount];
+        if (byHash) {
+            for (List<Job<T>> group : groups.values()) {
+                int target = Math.floorMod(Objects.hashCode(group.get(0).key), shardCount);
+                loads[target] += weight(group);
+                shards.get(target).addAll(group);
+            }
+            logger.debug("Shard loads: {}", Arrays.toString(loads));
+            return shards;
+        }
+        List<List<Job<T>>> sorted = new ArrayList<>(groups.values());
+        sorted.sort(Comparator.comparingDouble((List<Job<T>> group) -> -weight(group))
+            .thenComparingInt(group -> group.get(0).index));
+
+        for (List<Job<T>> group : sorted) {
+            int target = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (loads[i] < loads[target]) {
+                    target = i;
+                }
+            }
+            loads[target] += weight(group);
+            shards.get(target).addAll(group);
+        }
+        logger.debug("Shard loads: {}", Arrays.toString(loads));
+        return shards;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static <T> double weight(List<Job<T>> group) {
+        double sum = 0;
+        for (Job<T> job : group) {
+            sum += job.expectedMs;
+        }
+        return sum;
+    }
+
+    /**
+     * 拓扑排序，每一步取可执行用例中优先级最高、后续链最长的一个
+     */
+    private static <T> List<Job<T>> order(List<Job<T>> jobs) {
+        Map<Job<T>, Integer> waiting = new HashMap<>();
+        PriorityQueue<Job<T>> ready = new PriorityQueue<>(readyOrder());
+        for (Job<T> job : jobs) {
+            waiting.put(job, job.prerequisites.size());
+            if (job.prerequisites.isEmpty()) {
+                ready.add(job);
+            }
+        }
+        List<Job<T>> ordered = new ArrayList<>(jobs.size());
+        while (!ready.isEmpty()) {
+            Job<T> job = ready.poll();
+            ordered.add(job);
+            for (Job<T> dependent : job.dependents) {
+                if (waiting.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static <T> Comparator<Job<T>> readyOrder() {
+        return Comparator.<Job<T>>comparingInt(job -> job.priority)
+            .thenComparingDouble(job -> -job.rank)
+            .thenComparingInt(job -> job.index);
+    }
+}
@@ -25,6 +25,8 @@ public class CsvDataReader {
      * 默认使用第一行作为列头
      */
     public static <T> List<T> readCsv(Class<T> clz, String path) {
+        ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+        event.begin();
         try {
             logger.info("Reading CSV file from path: {}", path);
             File file = new File(path);
@@ -32,7 +34,9 @@ public class CsvDataReader {
             MappingIterator<T> iterator = csvMapper.readerFor(clz)
                 .with(schema)
                 .readValues(file);
-            return iterator.readAll();
+            List<T> rows = iterator.readAll();
+            event.finish(path, "csv", rows);
+            return rows;
         } catch (IOException e) {
             logger.error("Failed to read CSV file: {}", path, e);
             throw new RuntimeException("转换CSV文件失败：" + e.getMessage(), e);
@@ -43,6 +47,8 @@ public class CsvDataReader {
      * 从文件路径读取CSV数据并转换为Map列表
      */
     public static List<Map<String, String>> readCsvAsMap(String path) {
+        ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+        event.begin();
         try {
             logger.info("Reading CSV file as Map from path: {}", path);
             File file = new File(path);
@@ -50,7 +56,9 @@ public class CsvDataReader {
             MappingIterator<Map<String, String>> iterator = csvMapper.readerFor(Map.class)
                 .with(schema)
                 .readValues(file);
-            return iterator.readAll();
+            List<Map<String, String>> rows = iterator.readAll();
+            event.finish(path, "csv", rows);
+            return rows;
         } catch (IOException e) {
             logger.error("Failed to read CSV file as Map: {}", path, e);
             throw new RuntimeException("转换CSV文件失败：" + e.getMessage(), e);
@@ -61,6 +69,8 @@ public class CsvDataReader {
      * 读取CSV文件，指定分隔符
      */
     public static <T> List<T> readCsvWithSeparator(Class<T> clz, String path, char separator) {
+        ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+        event.begin();
         try {
             logger.info("Reading CSV file from path: {} with separator: {}", path, separator);
             File file = new File(path);
@@ -70,7 +80,9 @@ public class CsvDataReader {
             MappingIterator<T> iterator = csvMapper.readerFor(clz)
                 .with(schema)
                 .readValues(file);
-            return iterator.readAll();
+            List<T> rows = iterator.readAll();
+            event.finish(path, "csv", rows);
+            return rows;
         } catch (IOException e) {
             logger.error("Failed to read CSV file: {}", path, e);
             throw new RuntimeException("转换CSV文件失败：" + e.getMessage(), e);
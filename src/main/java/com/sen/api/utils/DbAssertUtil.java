@@ -1,26 +1,66 @@
 package com.sen.api.utils;
 
-import com.jayway.jsonpath.JsonPath;
+import com.sen.api.configs.ApiProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.testng.Assert;
 
 import javax.sql.DataSource;
+import java.sql.PreparedStatement;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * 数据库断言工具类
  * 用于测试前后的数据库验证
+ * 查询方法支持 ? 占位符参数，只有字面值不同的重复查询会复用同一条预编译语句
  */
-public class DbAssertUtil {
+public class DbAssertUtil implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(DbAssertUtil.class);
 
+    // 等待式断言的轮询间隔：从初始值开始指数退避，不超过上限
+    private static final long AWAIT_INITIAL_INTERVAL_MS = 50;
+    private static final long AWAIT_MAX_INTERVAL_MS = 1000;
+
+    private static final AtomicInteger awaitThreadCounter = new AtomicInteger();
+    private static final AtomicInteger poolCounter = new AtomicInteger();
+    // 所有实例共享的轮询调度器，只负责计时，到点后把查询交给实例的查询线程池
+    private static final ScheduledExecutorService awaitScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "DbAwaitScheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    // 未配置连接池时的查询线程数
+    private static final int DEFAULT_QUERY_THREADS = 4;
+
     private JdbcTemplate jdbcTemplate;
     private boolean enabled = false;
+    // 由本实例创建的连接池，close时释放
+    private HikariDataSource pooledDataSource;
+    // 等待式断言和异步验证的阻塞查询线程数，使用连接池时与池大小一致
+    private int queryThreads = DEFAULT_QUERY_THREADS;
+    private ThreadPoolExecutor queryExecutor;
+    private boolean closed;
 
     public DbAssertUtil() {
         // 默认构造，未启用
@@ -53,6 +93,79 @@ public class DbAssertUtil {
         }
     }
 
+    /**
+     * 初始化数据库连接池
+     *
+     * @param poolSize 连接池大小
+     */
+    public DbAssertUtil(String url, String username, String password, String driverClassName, int poolSize) {
+        this(url, username, password, driverClassName, poolSize, null, 250);
+    }
+
+    /**
+     * 按配置初始化，poolSize 为0时退回到不带连接池的数据源
+     * Spring 下由 ApiConfiguration 按 api.database 创建
+     */
+    public DbAssertUtil(ApiProperties.DatabaseConfig config) {
+        this(config.getUrl(), config.getUsername(), config.getPassword(), config.getDriverClassName(),
+            config.getPoolSize(), config.getValidationQuery(), config.getStatementCacheSize());
+    }
+
+    private DbAssertUtil(String url, String username, String password, String driverClassName,
+                         int poolSize, String validationQuery, int statementCacheSize) {
+        try {
+            DataSource dataSource;
+            if (poolSize > 0) {
+                this.pooledDataSource = createPooledDataSource(url, username, password, driverClassName,
+                    poolSize, validationQuery, statementCacheSize);
+                this.queryThreads = poolSize;
+                dataSource = pooledDataSource;
+            } else {
+                DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
+                driverManagerDataSource.setDriverClassName(driverClassName);
+                driverManagerDataSource.setUrl(url);
+                driverManagerDataSource.setUsername(username);
+                driverManagerDataSource.setPassword(password);
+                dataSource = driverManagerDataSource;
+            }
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.enabled = true;
+            logger.info("Database assertion initialized (poolSize={}): {}", poolSize, url);
+        } catch (Exception e) {
+            logger.error("Failed to initialize database connection", e);
+            this.enabled = false;
+        }
+    }
+
+    /**
+     * 创建连接池
+     * 借出连接时校验有效性；MySQL驱动开启客户端和服务端预编译语句缓存
+     */
+    private static HikariDataSource createPooledDataSource(String url, String username, String password,
+                                                           String driverClassName, int poolSize,
+                                                           String validationQuery, int statementCacheSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("DbAssertPool-" + poolCounter.incrementAndGet());
+        config.setMetricRegistry(Metrics.globalRegistry);
+        config.setDriverClassName(driverClassName);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(Math.min(1, poolSize));
+        config.setValidationTimeout(3000);
+        if (StringUtil.isNotBlank(validationQuery)) {
+            config.setConnectionTestQuery(validationQuery);
+        }
+        if (url != null && url.startsWith("jdbc:mysql:") && statementCacheSize > 0) {
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        }
+        return new HikariDataSource(config);
+    }
+
     /**
      * 使用已有DataSource初始化
      */
@@ -61,6 +174,13 @@ public class DbAssertUtil {
         this.enabled = true;
     }
 
+    /**
+     * 获取JdbcTemplate
+     */
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
     /**
      * 检查是否已启用
      */
@@ -115,13 +235,13 @@ public class DbAssertUtil {
     /**
      * 查询单个值
      */
-    public Object queryForObject(String sql, Class<?> requiredType) {
+    public Object queryForObject(String sql, Class<?> requiredType, Object... args) {
         if (!enabled) {
             logger.warn("Database not enabled, skip query");
             return null;
         }
         try {
-            return jdbcTemplate.queryForObject(sql, requiredType);
+            return jdbcTemplate.queryForObject(sql, requiredType, args);
         } catch (Exception e) {
             logger.error("Failed to query: {}", sql, e);
             throw new RuntimeException("查询失败: " + e.getMessage(), e);
@@ -131,13 +251,13 @@ public class DbAssertUtil {
     /**
      * 查询单行数据
      */
-    public Map<String, Object> queryForMap(String sql) {
+    public Map<String, Object> queryForMap(String sql, Object... args) {
         if (!enabled) {
             logger.warn("Database not enabled, skip query");
             return null;
         }
         try {
-            return jdbcTemplate.queryForMap(sql);
+            return jdbcTemplate.queryForMap(sql, args);
         } catch (Exception e) {
             logger.error("Failed to query map: {}", sql, e);
             throw new RuntimeException("查询失败: " + e.getMessage(), e);
@@ -147,13 +267,13 @@ public class DbAssertUtil {
     /**
      * 查询多行数据
      */
-    public List<Map<String, Object>> queryForList(String sql) {
+    public List<Map<String, Object>> queryForList(String sql, Object... args) {
         if (!enabled) {
             logger.warn("Database not enabled, skip query");
             return null;
         }
         try {
-            return jdbcTemplate.queryForList(sql);
+            return jdbcTemplate.queryForList(sql, args);
         } catch (Exception e) {
             logger.error("Failed to query list: {}", sql, e);
             throw new RuntimeException("查询失败: " + e.getMessage(), e);
@@ -166,34 +286,34 @@ public class DbAssertUtil {
      * @param sql      查询SQL
      * @param jsonPath JsonPath表达式
      * @param expected 期望值
+     * @param args     SQL占位符参数
      */
-    public void assertQuery(String sql, String jsonPath, Object expected) {
+    public void assertQuery(String sql, String jsonPath, Object expected, Object... args) {
         if (!enabled) {
             logger.warn("Database not enabled, skip assertion");
             return;
         }
 
-        List<Map<String, Object>> result = queryForList(sql);
-        String jsonResult = JsonUtil.toJsonString(result);
-        logger.debug("Query result: {}", jsonResult);
-
-        Object actual = JsonPath.read(jsonResult, jsonPath);
+        DbVerifyEvaluator.Outcome outcome = evaluate(DbVerifyEvaluator.of(jsonPath, expected), sql, args);
+        Object actual = outcome.getActual(0);
         logger.info("DB Assert: {} = {} (expected: {})", jsonPath, actual, expected);
 
-        Assert.assertEquals(String.valueOf(actual), String.valueOf(expected),
-                "数据库验证失败: " + jsonPath);
+        if (!outcome.matches(0)) {
+            Assert.assertEquals(String.valueOf(actual), String.valueOf(expected),
+                    "数据库验证失败: " + jsonPath);
+        }
     }
 
     /**
      * 数据库断言 - 验证记录数量
      */
-    public void assertCount(String sql, int expectedCount) {
+    public void assertCount(String sql, int expectedCount, Object... args) {
         if (!enabled) {
             logger.warn("Database not enabled, skip assertion");
             return;
         }
 
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, args);
         logger.info("DB Assert Count: {} (expected: {})", count, expectedCount);
 
         Assert.assertEquals(count.intValue(), expectedCount,
@@ -203,13 +323,13 @@ public class DbAssertUtil {
     /**
      * 数据库断言 - 验证记录存在
      */
-    public void assertExists(String sql) {
+    public void assertExists(String sql, Object... args) {
         if (!enabled) {
             logger.warn("Database not enabled, skip assertion");
             return;
         }
 
-        List<Map<String, Object>> result = queryForList(sql);
+        List<Map<String, Object>> result = queryForList(sql, args);
         Assert.assertFalse(result.isEmpty(), "数据库记录不存在");
         logger.info("DB Assert Exists: passed");
     }
@@ -217,13 +337,13 @@ public class DbAssertUtil {
     /**
      * 数据库断言 - 验证记录不存在
      */
-    public void assertNotExists(String sql) {
+    public void assertNotExists(String sql, Object... args) {
         if (!enabled) {
             logger.warn("Database not enabled, skip assertion");
             return;
         }
 
-        List<Map<String, Object>> result = queryForList(sql);
+        List<Map<String, Object>> result = queryForList(sql, args);
         Assert.assertTrue(result.isEmpty(), "数据库记录不应存在但实际存在");
         logger.info("DB Assert Not Exists: passed");
     }
@@ -233,53 +353,217 @@ public class DbAssertUtil {
      *
      * @param dbVerify 验证表达式，格式: "$.fieldName=expectedValue;$.fieldName2=expectedValue2"
      * @param sql      查询SQL
+     * @param args     SQL占位符参数
      */
-    public void verifyDbResult(String sql, String dbVerify) {
+    public void verifyDbResult(String sql, String dbVerify, Object... args) {
         if (!enabled || StringUtil.isBlank(dbVerify)) {
             return;
         }
 
-        List<Map<String, Object>> result = queryForList(sql);
-        if (result.isEmpty()) {
+        DbVerifyEvaluator evaluator = DbVerifyEvaluator.parse(dbVerify);
+        DbVerifyEvaluator.Outcome outcome = evaluate(evaluator, sql, args);
+        if (!outcome.hasRows()) {
             Assert.fail("数据库查询无结果: " + sql);
             return;
         }
 
-        String jsonResult = JsonUtil.toJsonString(result);
-        logger.debug("DB Query Result: {}", jsonResult);
+        List<DbVerifyEvaluator.Expression> expressions = evaluator.getExpressions();
+        for (int i = 0; i < expressions.size(); i++) {
+            DbVerifyEvaluator.Expression expression = expressions.get(i);
+            Object actual = outcome.getActual(i);
+            logger.info("DB Verify: {} = {} (expected: {})", expression.getPath(), actual, expression.getExpected());
 
-        // 解析验证表达式
-        String[] verifies = dbVerify.split(";");
-        for (String verify : verifies) {
-            if (StringUtil.isBlank(verify)) {
-                continue;
-            }
-            String[] parts = verify.split("=", 2);
-            if (parts.length != 2) {
-                continue;
+            if (!outcome.matches(i)) {
+                Assert.assertEquals(String.valueOf(actual), expression.getExpected(),
+                        "数据库验证失败: " + expression.getPath());
             }
+        }
+    }
+
+    /**
+     * 执行查询并对验证表达式求值
+     */
+    private DbVerifyEvaluator.Outcome evaluate(DbVerifyEvaluator evaluator, String sql, Object... args) {
+        try {
+            return evaluator.evaluate(jdbcTemplate, sql, args);
+        } catch (Exception e) {
+            logger.error("Failed to query: {}", sql, e);
+            throw new RuntimeException("查询失败: " + e.getMessage(), e);
+        }
+    }
 
-            String jsonPath = parts[0].trim();
-            String expected = parts[1].trim();
+    // ==================== 等待式断言（最终一致性） ====================
 
-            Object actual = JsonPath.read(jsonResult, jsonPath);
-            logger.info("DB Verify: {} = {} (expected: {})", jsonPath, actual, expected);
+    /**
+     * 等待查询结果满足 JsonPath 条件
+     * 条件满足立即返回，超过 timeoutMs 仍不满足则断言失败
+     */
+    public void awaitQuery(String sql, String jsonPath, Object expected, long timeoutMs, Object... args) {
+        DbVerifyEvaluator evaluator = DbVerifyEvaluator.of(jsonPath, expected);
+        await(sql, timeoutMs, result -> evaluator.evaluate(result).firstMismatch(), args);
+    }
 
-            Assert.assertEquals(String.valueOf(actual), expected,
-                    "数据库验证失败: " + jsonPath);
+    /**
+     * 等待记录出现
+     */
+    public void awaitExists(String sql, long timeoutMs, Object... args) {
+        await(sql, timeoutMs, result -> result.isEmpty() ? "数据库记录不存在" : null, args);
+    }
+
+    /**
+     * 等待 dbVerify 表达式全部成立，用于替代 sleep + verifyDbResult
+     *
+     * @param dbVerify 验证表达式，格式同 {@link #verifyDbResult}
+     */
+    public void awaitDbResult(String sql, String dbVerify, long timeoutMs, Object... args) {
+        if (StringUtil.isBlank(dbVerify)) {
+            return;
+        }
+        await(sql, timeoutMs, dbVerifyMismatch(dbVerify), args);
+    }
+
+    /**
+     * 异步验证 dbVerify 表达式，不阻塞调用线程
+     * timeoutMs 为0时只查询一次，大于0时按等待式断言轮询
+     *
+     * @return 验证通过时正常完成，失败时以异常完成（异常信息为失败原因）
+     */
+    public CompletableFuture<Void> verifyDbResultAsync(String sql, String dbVerify, long timeoutMs, Object... args) {
+        if (StringUtil.isBlank(dbVerify)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return awaitAsync(sql, dbVerifyMismatch(dbVerify), timeoutMs, args).thenApply(result -> null);
+    }
+
+    private static Function<List<Map<String, Object>>, String> dbVerifyMismatch(String dbVerify) {
+        DbVerifyEvaluator evaluator = DbVerifyEvaluator.parse(dbVerify);
+        return result -> {
+            DbVerifyEvaluator.Outcome outcome = evaluator.evaluate(result);
+            return outcome.hasRows() ? outcome.firstMismatch() : "数据库查询无结果";
+        };
+    }
+
+    /**
+     * 阻塞等待轮询结果，超时转换为断言失败
+     */
+    private void await(String sql, long timeoutMs, Function<List<Map<String, Object>>, String> mismatch,
+                       Object... args) {
+        if (!enabled) {
+            logger.warn("Database not enabled, skip assertion");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            awaitAsync(sql, mismatch, timeoutMs, args).join();
+            logger.info("DB Await passed in {}ms: {}", System.currentTimeMillis() - start, sql);
+        } catch (CompletionException e) {
+            Assert.fail(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+    }
+
+    /**
+     * 异步等待查询结果满足条件
+     * 共享调度器按间隔从 {@value #AWAIT_INITIAL_INTERVAL_MS}ms 指数增长到 {@value #AWAIT_MAX_INTERVAL_MS}ms 触发轮询，
+     * 查询在本实例的查询线程池中执行，并以剩余等待时间作为 queryTimeout，慢查询不会拖过截止时间；
+     * 查询异常（如数据尚未写入的表、查询超时）按未满足处理，继续轮询
+     *
+     * @param mismatch 返回不满足的原因，返回null表示条件成立
+     * @return 条件成立时以查询结果完成，超时以 TimeoutException 异常完成
+     */
+    public CompletableFuture<List<Map<String, Object>>> awaitAsync(
+            String sql, Function<List<Map<String, Object>>, String> mismatch, long timeoutMs, Object... args) {
+        CompletableFuture<List<Map<String, Object>>> future = new CompletableFuture<>();
+        if (!enabled) {
+            future.complete(null);
+            return future;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        submitPoll(future, sql, mismatch, args, deadline, AWAIT_INITIAL_INTERVAL_MS, 1);
+        return future;
+    }
+
+    private void submitPoll(CompletableFuture<List<Map<String, Object>>> future, String sql,
+                            Function<List<Map<String, Object>>, String> mismatch, Object[] args,
+                            long deadline, long interval, int attempt) {
+        try {
+            queryExecutor().execute(() -> poll(future, sql, mismatch, args, deadline, interval, attempt));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IllegalStateException("数据库断言已关闭: " + sql, e));
+        }
+    }
+
+    private synchronized ThreadPoolExecutor queryExecutor() {
+        if (closed) {
+            throw new RejectedExecutionException("closed");
+        }
+        if (queryExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(queryThreads, queryThreads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "DbAwaitQuery-" + awaitThreadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+            // 空闲时线程全部退出，未 close 的实例不会留下线程
+            executor.allowCoreThreadTimeOut(true);
+            queryExecutor = executor;
+        }
+        return queryExecutor;
+    }
+
+    /**
+     * 查询超时取剩余等待时间，向上取整到秒（JDBC 的最小单位），至少1秒
+     */
+    private List<Map<String, Object>> queryWithTimeout(String sql, Object[] args, long remainingMs) {
+        int timeoutSeconds = (int) Math.max(1, (remainingMs + 999) / 1000);
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setQueryTimeout(timeoutSeconds);
+            return ps;
+        }, new ArgumentPreparedStatementSetter(args), new RowMapperResultSetExtractor<>(new ColumnMapRowMapper()));
+    }
+
+    private void poll(CompletableFuture<List<Map<String, Object>>> future, String sql,
+                      Function<List<Map<String, Object>>, String> mismatch, Object[] args,
+                      long deadline, long interval, int attempt) {
+        if (future.isDone()) {
+            return;
         }
+        String reason;
+        try {
+            List<Map<String, Object>> result = queryWithTimeout(sql, args, deadline - System.currentTimeMillis());
+            reason = mismatch.apply(result);
+            if (reason == null) {
+                logger.debug("DB await satisfied after {} attempts: {}", attempt, sql);
+                future.complete(result);
+                return;
+            }
+        } catch (Exception e) {
+            reason = "查询失败: " + e.getMessage();
+        }
+
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            future.completeExceptionally(new TimeoutException(attempt > 1
+                ? String.format("数据库等待超时(%d次轮询): %s - %s", attempt, reason, sql)
+                : String.format("数据库验证失败: %s - %s", reason, sql)));
+            return;
+        }
+        long delay = Math.min(interval, remaining);
+        long nextInterval = Math.min(interval * 2, AWAIT_MAX_INTERVAL_MS);
+        awaitScheduler.schedule(() -> submitPoll(future, sql, mismatch, args, deadline, nextInterval, attempt + 1),
+            delay, TimeUnit.MILLISECONDS);
     }
 
     /**
      * 更新数据
      */
-    public int update(String sql) {
+    public int update(String sql, Object... args) {
         if (!enabled) {
             logger.warn("Database not enabled, skip update");
             return 0;
         }
         try {
-            int rows = jdbcTemplate.update(sql);
+            int rows = jdbcTemplate.update(sql, args);
             logger.info("Updated {} rows", rows);
             return rows;
         } catch (Exception e) {
@@ -291,14 +575,31 @@ public class DbAssertUtil {
     /**
      * 删除数据
      */
-    public int delete(String sql) {
-        return update(sql);
+    public int delete(String sql, Object... args) {
+        return update(sql, args);
     }
 
     /**
      * 插入数据
      */
-    public int insert(String sql) {
-        return update(sql);
+    public int insert(String sql, Object... args) {
+        return update(sql, args);
+    }
+
+    /**
+     * 停止查询线程池并释放本实例创建的连接池
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (queryExecutor != null) {
+                queryExecutor.shutdownNow();
+            }
+        }
+        if (pooledDataSource != null && !pooledDataSource.isClosed()) {
+            pooledDataSource.close();
+            logger.info("Database connection pool closed");
+        }
     }
 }
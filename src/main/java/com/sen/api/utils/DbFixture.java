@@ -0,0 +1,324 @@
+package com.sen.api.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 数据库测试夹具
+ * - 种子数据按JDBC批量写入，整体在一个事务中，中途失败不会留下半套数据
+ * - 对指定表拍摄命名快照，用例或用例组之间一次事务内恢复（先删后批量插入），中途失败整体回滚
+ * - 恢复顺序按外键排列：子表先清空、父表先插入，无法从元数据判断时按快照时给出的顺序（父表在前）；
+ *   MySQL 另外在会话内关闭外键检查，兼容自引用和循环外键。H2 的 SET REFERENTIAL_INTEGRITY 会提交当前事务，不使用
+ * - 快照保存在内存中，单个快照默认最多 {@value #DEFAULT_MAX_SNAPSHOT_ROWS} 行，超出时拍摄失败，
+ *   大表请只对用例涉及的表拍摄，或用 {@link #maxSnapshotRows(int)} 调整上限
+ *
+ * 用法：
+ * <pre>
+ * DbFixture fixture = new DbFixture(dataSource);
+ * fixture.loadSql("INSERT INTO user ...; INSERT INTO orders ...");
+ * fixture.snapshot("seed", "user", "orders");
+ * fixture.withSnapshot("seed", () -> runCase());   // 用例结束（包括失败）后恢复
+ * </pre>
+ *
+ * @author sen
+ */
+public class DbFixture {
+
+    private static final Logger logger = LoggerFactory.getLogger(DbFixture.class);
+
+    private static final int BATCH_SIZE = 500;
+    static final int DEFAULT_MAX_SNAPSHOT_ROWS = 100_000;
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z0-9_.`\"$]+");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Map<String, TableData>> snapshots = new ConcurrentHashMap<>();
+    private volatile String databaseProduct;
+    private volatile int maxSnapshotRows = DEFAULT_MAX_SNAPSHOT_ROWS;
+
+    /**
+     * 表数据
+     */
+    private static class TableData {
+        private final List<String> columns = new ArrayList<>();
+        private final List<Object[]> rows = new ArrayList<>();
+    }
+
+    public DbFixture(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    public DbFixture(DbAssertUtil dbAssertUtil) {
+        this(dbAssertUtil.getJdbcTemplate().getDataSource());
+    }
+
+    /**
+     * 单个快照的最大行数（所有表合计），0 表示不限制
+     */
+    public DbFixture maxSnapshotRows(int maxRows) {
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("快照行数上限不能为负数: " + maxRows);
+        }
+        this.maxSnapshotRows = maxRows;
+        return this;
+    }
+
+    // ==================== 种子数据 ====================
+
+    /**
+     * 批量执行SQL脚本（分号分隔），整体一个事务
+     *
+     * @return 执行的语句数
+     */
+    public int loadSql(String script) {
+        if (StringUtil.isBlank(script)) {
+            return 0;
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : script.split(";")) {
+            if (StringUtil.isNotBlank(sql)) {
+                statements.add(sql.trim());
+            }
+        }
+        long start = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < statements.size(); i += BATCH_SIZE) {
+                List<String> batch = statements.subList(i, Math.min(i + BATCH_SIZE, statements.size()));
+                jdbcTemplate.batchUpdate(batch.toArray(new String[0]));
+            }
+        });
+        logger.info("Fixture SQL loaded: {} statements in {}ms", statements.size(), System.currentTimeMillis() - start);
+        return statements.size();
+    }
+
+    /**
+     * 批量插入行数据，列取第一行的键，整体一个事务
+     *
+     * @return 插入的行数
+     */
+    public int loadRows(String table, List<Map<String, Object>> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        TableData data = new TableData();
+        data.columns.addAll(rows.get(0).keySet());
+        for (Map<String, Object> row : rows) {
+            Object[] values = new Object[data.columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = row.get(data.columns.get(i));
+            }
+            data.rows.add(values);
+        }
+        transactionTemplate.executeWithoutResult(status -> insert(table, data));
+        logger.info("Fixture rows loaded: {} rows into {}", rows.size(), table);
+        return rows.size();
+    }
+
+    // ==================== 快照 ====================
+
+    /**
+     * 拍摄快照
+     *
+     * @param name   快照名称，同名覆盖
+     * @param tables 表名，外键无法从元数据判断时按父表到子表的顺序给出
+     * @throws IllegalStateException 行数超过 {@link #maxSnapshotRows(int)}
+     */
+    public void snapshot(String name, String... tables) {
+        long start = System.currentTimeMillis();
+        int limit = maxSnapshotRows;
+        int[] total = {0};
+        Map<String, TableData> snapshot = new LinkedHashMap<>();
+        for (String table : orderByForeignKeys(tables)) {
+            checkIdentifier(table);
+            TableData data = new TableData();
+            jdbcTemplate.query("SELECT * FROM " + table, rs -> {
+                if (limit > 0 && ++total[0] > limit) {
+                    throw new IllegalStateException("快照 '" + name + "' 超过 " + limit + " 行，请缩小表范围或调整 maxSnapshotRows");
+                }
+                ResultSetMetaData metaData = rs.getMetaData();
+                if (data.columns.isEmpty()) {
+                    for (int c = 1; c <= metaData.getColumnCount(); c++) {
+                        data.columns.add(metaData.getColumnLabel(c));
+                    }
+                }
+                Object[] values = new Object[data.columns.size()];
+                for (int c = 0; c < values.length; c++) {
+                    values[c] = rs.getObject(c + 1);
+                }
+                data.rows.add(values);
+            });
+            snapshot.put(table, data);
+        }
+        snapshots.put(name, snapshot);
+        logger.info("Snapshot '{}' captured: {} tables, {} rows in {}ms", name, tables.length,
+            snapshot.values().stream().mapToInt(d -> d.rows.size()).sum(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 恢复快照：一个事务内子表到父表逐表清空、父表到子表批量插入，任何一步失败整体回滚
+     */
+    public void restore(String name) {
+        Map<String, TableData> snapshot = snapshots.get(name);
+        if (snapshot == null) {
+            throw new IllegalArgumentException("快照不存在: " + name);
+        }
+        long start = System.currentTimeMillis();
+        List<String> tables = new ArrayList<>(snapshot.keySet());
+        boolean mysql = isMySql();
+        transactionTemplate.executeWithoutResult(status -> {
+            // 会话级设置，不会提交事务
+            if (mysql) {
+                jdbcTemplate.execute("SET FOREIGN_KEY_CHECKS = 0");
+            }
+            try {
+                List<String> reversed = new ArrayList<>(tables);
+                Collections.reverse(reversed);
+                for (String table : reversed) {
+                    jdbcTemplate.update("DELETE FROM " + table);
+                }
+                for (String table : tables) {
+                    insert(table, snapshot.get(table));
+                }
+            } finally {
+                if (mysql) {
+                    jdbcTemplate.execute("SET FOREIGN_KEY_CHECKS = 1");
+                }
+            }
+        });
+        logger.info("Snapshot '{}' restored in {}ms", name, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 执行用例并在结束后（包括失败）恢复快照
+     */
+    public void withSnapshot(String name, Runnable action) {
+        try {
+            action.run();
+        } finally {
+            restore(name);
+        }
+    }
+
+    public boolean hasSnapshot(String name) {
+        return snapshots.containsKey(name);
+    }
+
+    public void dropSnapshot(String name) {
+        snapshots.remove(name);
+    }
+
+    public Set<String> getSnapshotNames() {
+        return snapshots.keySet();
+    }
+
+    // ==================== 内部方法 ====================
+
+    private void insert(String table, TableData data) {
+        checkIdentifier(table);
+        if (data.rows.isEmpty()) {
+            return;
+        }
+        data.columns.forEach(DbFixture::checkIdentifier);
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", data.columns) + ") VALUES ("
+            + String.join(", ", Collections.nCopies(data.columns.size(), "?")) + ")";
+        for (int i = 0; i < data.rows.size(); i += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, data.rows.subList(i, Math.min(i + BATCH_SIZE, data.rows.size())));
+        }
+    }
+
+    private boolean isMySql() {
+        String product = getDatabaseProduct();
+        return product.contains("mysql") || product.contains("mariadb");
+    }
+
+    /**
+     * 按外键把表排成父表在前的顺序（快照内的表之间），
+     * 带库名或引号的表名、自引用以外的循环外键保持给出的顺序
+     */
+    private List<String> orderByForeignKeys(String[] tables) {
+        List<String> given = new ArrayList<>();
+        for (String table : tables) {
+            checkIdentifier(table);
+            given.add(table);
+        }
+        Map<String, Set<String>> parents = jdbcTemplate.execute((Connection connection) -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, String> byKey = new HashMap<>();
+            for (String table : given) {
+                byKey.put(table.toLowerCase(), table);
+            }
+            Map<String, Set<String>> result = new HashMap<>();
+            for (String table : given) {
+                Set<String> tableParents = new LinkedHashSet<>();
+                result.put(table, tableParents);
+                if (!table.matches("[A-Za-z0-9_$]+")) {
+                    continue;
+                }
+                String lookup = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase()
+                    : metaData.storesLowerCaseIdentifiers() ? table.toLowerCase() : table;
+                try (ResultSet rs = metaData.getImportedKeys(connection.getCatalog(), null, lookup)) {
+                    while (rs.next()) {
+                        String parent = byKey.get(rs.getString("PKTABLE_NAME").toLowerCase());
+                        if (parent != null && !parent.equals(table)) {
+                            tableParents.add(parent);
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+        List<String> ordered = new ArrayList<>();
+        Set<String> remaining = new LinkedHashSet<>(given);
+        while (!remaining.isEmpty()) {
+            String next = null;
+            for (String table : remaining) {
+                if (ordered.containsAll(parents.get(table))) {
+                    next = table;
+                    break;
+                }
+            }
+            if (next == null) {
+                // 循环外键：剩余的表按给出的顺序
+                ordered.addAll(remaining);
+                break;
+            }
+            ordered.add(next);
+            remaining.remove(next);
+        }
+        return ordered;
+    }
+
+    private String getDatabaseProduct() {
+        if (databaseProduct == null) {
+            databaseProduct = jdbcTemplate.execute((Connection connection) ->
+                connection.getMetaData().getDatabaseProductName().toLowerCase());
+        }
+        return databaseProduct;
+    }
+
+    private static void checkIdentifier(String identifier) {
+        if (identifier == null || !IDENTIFIER.matcher(identifier).matches()) {
+            throw new IllegalArgumentException("非法的表名或列名: " + identifier);
+        }
+    }
+}
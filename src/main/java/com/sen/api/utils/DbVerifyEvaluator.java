@@ -0,0 +1,307 @@
+package com.sen.api.utils;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 数据库验证表达式求值器
+ * 常见的 "$.field=expected"（第一行）、"$[i].field=expected"、"$.length()=n" 直接在JDBC行上求值，列名不区分大小写：
+ * 流式读取 ResultSet，所需的行读完即停止，不再把整个结果集序列化成JSON再解析。
+ * 其他JsonPath写法（过滤器、通配符、深度扫描等）回退为一次序列化后统一求值，需要把整个结果集读进内存，
+ * 大结果集请改写为直接表达式或在SQL中过滤。
+ *
+ * 语句按只进只读打开并设置 fetchSize：MySQL 驱动默认把整个结果集读进内存，这里用
+ * {@code Integer.MIN_VALUE} 逐行流式读取；其他数据库按 {@value #FETCH_SIZE} 行一批读取。
+ * 没有有效表达式时只检查是否有结果行，与原来的行为一致。
+ *
+ * 值比较：两边都是数值时按数值比较（12.50 与 12.5 相等），日期按毫秒时间戳比较，与原JSON路径的结果一致。
+ *
+ * @author sen
+ */
+public class DbVerifyEvaluator {
+
+    private static final Pattern ROW_FIELD = Pattern.compile("^\\$(?:\\[(\\d+)])?\\.([A-Za-z_][A-Za-z0-9_]*)$");
+    private static final Pattern ROW_COUNT = Pattern.compile("^\\$\\.(?:length|size)\\(\\)$");
+    static final int FETCH_SIZE = 500;
+
+    private final List<Expression> expressions;
+    private final boolean direct;
+    private final boolean needCount;
+    // 需要读到的最后一行，至少读第一行以判断是否有结果
+    private final int lastRow;
+
+    /**
+     * 单个验证表达式
+     */
+    public static class Expression {
+        private final String path;
+        private final String expected;
+        private final int rowIndex;
+        private final String column;
+        private final boolean count;
+
+        Expression(String path, String expected) {
+            this.path = path;
+            this.expected = expected;
+            Matcher field = ROW_FIELD.matcher(path);
+            if (field.matches()) {
+                this.rowIndex = field.group(1) != null ? Integer.parseInt(field.group(1)) : 0;
+                this.column = field.group(2);
+                this.count = false;
+            } else {
+                this.rowIndex = -1;
+                this.column = null;
+                this.count = ROW_COUNT.matcher(path).matches();
+            }
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getExpected() {
+            return expected;
+        }
+
+        boolean isDirect() {
+            return column != null || count;
+        }
+    }
+
+    /**
+     * 求值结果
+     */
+    public static class Outcome {
+        private final List<Expression> expressions;
+        private final List<Object> actuals;
+        private final boolean hasRows;
+
+        Outcome(List<Expression> expressions, List<Object> actuals, boolean hasRows) {
+            this.expressions = expressions;
+            this.actuals = actuals;
+            this.hasRows = hasRows;
+        }
+
+        public boolean hasRows() {
+            return hasRows;
+        }
+
+        public Object getActual(int index) {
+            return actuals.get(index);
+        }
+
+        public boolean matches(int index) {
+            return DbVerifyEvaluator.matches(actuals.get(index), expressions.get(index).getExpected());
+        }
+
+        /**
+         * 第一个不成立的表达式描述，全部成立返回null
+         */
+        public String firstMismatch() {
+            for (int i = 0; i < expressions.size(); i++) {
+                if (!matches(i)) {
+                    return expressions.get(i).getPath() + " = " + actuals.get(i)
+                        + " (expected: " + expressions.get(i).getExpected() + ")";
+                }
+            }
+            return null;
+        }
+    }
+
+    public DbVerifyEvaluator(List<Expression> expressions) {
+        this.expressions = expressions;
+        this.direct = expressions.stream().allMatch(Expression::isDirect);
+        this.needCount = expressions.stream().anyMatch(e -> e.count);
+        this.lastRow = Math.max(0, expressions.stream().mapToInt(e -> e.rowIndex).max().orElse(0));
+    }
+
+    /**
+     * 解析验证表达式，格式: "$.fieldName=expectedValue;$.fieldName2=expectedValue2"
+     */
+    public static DbVerifyEvaluator parse(String dbVerify) {
+        List<Expression> expressions = new ArrayList<>();
+        if (StringUtil.isNotBlank(dbVerify)) {
+            for (String verify : dbVerify.split(";")) {
+                String[] parts = verify.split("=", 2);
+                if (StringUtil.isBlank(verify) || parts.length != 2) {
+                    continue;
+                }
+                expressions.add(new Expression(parts[0].trim(), parts[1].trim()));
+            }
+        }
+        return new DbVerifyEvaluator(expressions);
+    }
+
+    public static DbVerifyEvaluator of(String jsonPath, Object expected) {
+        return new DbVerifyEvaluator(Collections.singletonList(
+            new Expression(jsonPath.trim(), String.valueOf(expected))));
+    }
+
+    public List<Expression> getExpressions() {
+        return expressions;
+    }
+
+    /**
+     * 执行查询并求值
+     * 全部为直接表达式且不需要行数时，以 maxRows 限制只取到最后一个用到的行
+     */
+    public Outcome evaluate(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        if (!direct) {
+            List<Map<String, Object>> rows = jdbcTemplate.query(connection -> prepare(connection, sql, 0),
+                new ArgumentPreparedStatementSetter(args), new RowMapperResultSetExtractor<>(new ColumnMapRowMapper()));
+            return evaluate(rows);
+        }
+        int maxRows = needCount ? 0 : lastRow + 1;
+        return jdbcTemplate.query(connection -> prepare(connection, sql, maxRows),
+            new ArgumentPreparedStatementSetter(args), this::extract);
+    }
+
+    /**
+     * 只进只读语句，按数据库设置流式读取
+     */
+    static PreparedStatement prepare(Connection connection, String sql, int maxRows) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (maxRows > 0) {
+            ps.setMaxRows(maxRows);
+        }
+        // 部分驱动（如H2）要求 fetchSize 不超过 maxRows
+        ps.setFetchSize(isMySql(connection) ? Integer.MIN_VALUE
+            : maxRows > 0 ? Math.min(maxRows, FETCH_SIZE) : FETCH_SIZE);
+        return ps;
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        return product != null && (product.contains("MySQL") || product.contains("MariaDB"));
+    }
+
+    /**
+     * 在流式 ResultSet 上求值，所需行读完即停止
+     */
+    private Outcome extract(ResultSet rs) throws SQLException {
+        List<Object> actuals = new ArrayList<>(Collections.nCopies(expressions.size(), null));
+        int[] columnIndexes = resolveColumns(rs.getMetaData());
+        int row = 0;
+        while ((needCount || row <= lastRow) && rs.next()) {
+            for (int i = 0; i < expressions.size(); i++) {
+                Expression expression = expressions.get(i);
+                if (expression.rowIndex == row && columnIndexes[i] > 0) {
+                    actuals.set(i, rs.getObject(columnIndexes[i]));
+                }
+            }
+            row++;
+        }
+        for (int i = 0; i < expressions.size(); i++) {
+            if (expressions.get(i).count) {
+                actuals.set(i, row);
+            }
+        }
+        return new Outcome(expressions, actuals, row > 0);
+    }
+
+    /**
+     * 在已查出的行上求值
+     */
+    public Outcome evaluate(List<Map<String, Object>> rows) {
+        List<Object> actuals = new ArrayList<>(expressions.size());
+        DocumentContext document = null;
+        for (Expression expression : expressions) {
+            if (expression.count) {
+                actuals.add(rows.size());
+            } else if (expression.column != null) {
+                actuals.add(expression.rowIndex < rows.size()
+                    ? getIgnoreCase(rows.get(expression.rowIndex), expression.column) : null);
+            } else {
+                if (document == null) {
+                    document = JsonPath.parse(JsonUtil.toJsonString(rows));
+                }
+                actuals.add(readQuietly(document, expression.path));
+            }
+        }
+        return new Outcome(expressions, actuals, !rows.isEmpty());
+    }
+
+    private int[] resolveColumns(ResultSetMetaData metaData) throws SQLException {
+        int[] indexes = new int[expressions.size()];
+        for (int i = 0; i < expressions.size(); i++) {
+            String column = expressions.get(i).column;
+            if (column == null) {
+                continue;
+            }
+            for (int c = 1; c <= metaData.getColumnCount(); c++) {
+                if (column.equalsIgnoreCase(metaData.getColumnLabel(c))) {
+                    indexes[i] = c;
+                    break;
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private static Object getIgnoreCase(Map<String, Object> row, String column) {
+        if (row.containsKey(column)) {
+            return row.get(column);
+        }
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(column)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Object readQuietly(DocumentContext document, String path) {
+        try {
+            return document.read(path);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 比较实际值与期望值
+     */
+    public static boolean matches(Object actual, String expected) {
+        Object normalized = normalize(actual);
+        if (normalized instanceof Number) {
+            try {
+                return new BigDecimal(normalized.toString()).compareTo(new BigDecimal(expected)) == 0;
+            } catch (NumberFormatException e) {
+                // 期望值不是数值，按字符串比较
+            }
+        }
+        return String.valueOf(normalized).equals(expected);
+    }
+
+    /**
+     * 与JSON序列化后的表现保持一致：日期为毫秒时间戳，二进制为Base64
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+        return value;
+    }
+}
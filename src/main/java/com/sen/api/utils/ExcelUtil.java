@@ -36,6 +36,8 @@ public class ExcelUtil {
 		}
 		InputStream is;
 		Workbook xssfWorkbook;
+		ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+		event.begin();
 		try {
 			is = new FileInputStream(path);
 			if (path.endsWith(".xls")) {
@@ -50,6 +52,7 @@ public class ExcelUtil {
 				allData.addAll(transToObject(clz, xssfWorkbook,
 						xssfWorkbook.getSheetName(i)));
 			}
+			event.finish(path, "excel", allData);
 			return allData;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -71,6 +74,8 @@ public class ExcelUtil {
 		}
 		InputStream is;
 		Workbook xssfWorkbook;
+		ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+		event.begin();
 		try {
 			is = new FileInputStream(path);
 			if (path.endsWith(".xls")) {
@@ -79,7 +84,9 @@ public class ExcelUtil {
 				xssfWorkbook = new XSSFWorkbook(is);
 			}
 			is.close();
-			return transToObject(clz, xssfWorkbook, sheetName);
+			List<T> rows = transToObject(clz, xssfWorkbook, sheetName);
+			event.finish(path + "#" + sheetName, "excel", rows);
+			return rows;
 		} catch (Exception e) {
 			e.printStackTrace();
 			throw new RuntimeException("转换excel文件失败：" + e.getMessage());
@@ -33,17 +33,28 @@ public class FunctionUtil{
 	}
 	
 	public static String getValue(String functionName,String[] args){
+		ApiEvents.FunctionCallEvent event = new ApiEvents.FunctionCallEvent();
+		event.begin();
 		try {
-			return functionsMap.get(functionName).newInstance().execute(args);
+			String value = functionsMap.get(functionName).newInstance().execute(args);
+			event.finish(functionName, true);
+			return value;
 		} catch (Exception e) {
+			event.finish(functionName, false);
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 			return "";
 		}
 	}
 
-    public static String execute(String funcName, String[] argArray) {
-		return null;
+	/**
+	 * 执行函数助手，函数不存在时抛出异常（供DSL引擎调用，失败时由调用方保留原文）
+	 */
+	public static String execute(String funcName, String[] argArray) {
+		if (!isFunction(funcName) || functionsMap.get(funcName) == null) {
+			throw new IllegalArgumentException("未知函数: " + funcName);
+		}
+		return getValue(funcName, argArray);
 	}
 }
 
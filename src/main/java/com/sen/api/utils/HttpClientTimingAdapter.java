@@ -0,0 +1,157 @@
+package com.sen.api.utils;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeLayeredSocketFactory;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SchemeSocketFactory;
+import org.apache.http.impl.client.AbstractHttpClient;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.BasicClientConnectionManager;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+
+/**
+ * {@link HttpPhaseTimer} 的 HttpClient 接入层
+ * RestAssured 5 的 HttpClientConfig.HttpClientFactory 只接受 HttpClient 4 的 AbstractHttpClient，
+ * 建连扩展点（ClientConnectionOperator、SchemeSocketFactory 等）也只在这套已废弃的 API 中存在，
+ * 所以废弃类型全部收在本类，计时数据通过 {@link HttpPhaseTimer.Recorder} 回写。
+ *
+ * @author sen
+ */
+@SuppressWarnings("deprecation")
+final class HttpClientTimingAdapter {
+
+    private HttpClientTimingAdapter() {
+    }
+
+    /**
+     * 供 HttpClientConfig.httpClientFactory 使用
+     */
+    static AbstractHttpClient create() {
+        return new TimedHttpClient();
+    }
+
+    /**
+     * 使用计时连接管理器和请求执行器的 HttpClient
+     * RestAssured 要求 AbstractHttpClient，与其默认实现一样基于 DefaultHttpClient
+     */
+    static class TimedHttpClient extends DefaultHttpClient {
+        @Override
+        protected ClientConnectionManager createClientConnectionManager() {
+            return new BasicClientConnectionManager(SchemeRegistryFactory.createDefault()) {
+                @Override
+                protected ClientConnectionOperator createConnectionOperator(SchemeRegistry registry) {
+                    return new TimedConnectionOperator(registry);
+                }
+            };
+        }
+
+        @Override
+        protected HttpRequestExecutor createRequestExecutor() {
+            return new HttpPhaseTimer.TimedRequestExecutor();
+        }
+    }
+
+    /**
+     * 建连计时：DNS 在 resolveHostname，TCP 在 Socket.connect，其余为 TLS
+     */
+    static class TimedConnectionOperator extends DefaultClientConnectionOperator {
+
+        TimedConnectionOperator(SchemeRegistry registry) {
+            super(registry);
+        }
+
+        @Override
+        public void openConnection(OperatedClientConnection conn, HttpHost target, InetAddress local,
+                                   HttpContext context, HttpParams params) throws IOException {
+            HttpPhaseTimer.Recorder recorder = HttpPhaseTimer.recorder();
+            if (recorder == null) {
+                super.openConnection(conn, target, local, context, params);
+                return;
+            }
+            // RestAssured 在请求前才注册 https 的 Scheme（如 relaxedHTTPSValidation），所以在这里包装
+            Scheme scheme = schemeRegistry.getScheme(target.getSchemeName());
+            SchemeSocketFactory factory = scheme.getSchemeSocketFactory();
+            if (!(factory instanceof TimedSocketFactory)) {
+                schemeRegistry.register(new Scheme(scheme.getName(), scheme.getDefaultPort(),
+                    factory instanceof SchemeLayeredSocketFactory
+                        ? new TimedLayeredSocketFactory((SchemeLayeredSocketFactory) factory)
+                        : new TimedSocketFactory(factory)));
+            }
+            long start = System.nanoTime();
+            try {
+                super.openConnection(conn, target, local, context, params);
+            } finally {
+                recorder.opened(System.nanoTime() - start, scheme.isLayered());
+            }
+        }
+
+        @Override
+        protected InetAddress[] resolveHostname(String host) throws UnknownHostException {
+            long start = System.nanoTime();
+            try {
+                return super.resolveHostname(host);
+            } finally {
+                HttpPhaseTimer.Recorder recorder = HttpPhaseTimer.recorder();
+                if (recorder != null) {
+                    recorder.resolved(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    /**
+     * 总是创建普通 Socket：SSL 工厂收到未握手的 Socket 时先 connect 再 createLayeredSocket，
+     * 这样 TCP 建连和 TLS 握手可以分开计时
+     */
+    static class TimedSocketFactory implements SchemeSocketFactory {
+        protected final SchemeSocketFactory delegate;
+
+        TimedSocketFactory(SchemeSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createSocket(HttpParams params) {
+            return new HttpPhaseTimer.TimedSocket();
+        }
+
+        @Override
+        public Socket connectSocket(Socket sock, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                    HttpParams params) throws IOException, ConnectTimeoutException {
+            return delegate.connectSocket(sock, remoteAddress, localAddress, params);
+        }
+
+        @Override
+        public boolean isSecure(Socket sock) {
+            return delegate.isSecure(sock);
+        }
+    }
+
+    static class TimedLayeredSocketFactory extends TimedSocketFactory implements SchemeLayeredSocketFactory {
+
+        TimedLayeredSocketFactory(SchemeLayeredSocketFactory delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpParams params)
+            throws IOException {
+            return ((SchemeLayeredSocketFactory) delegate).createLayeredSocket(socket, target, port, params);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.sen.api.utils;
+
+import com.sen.api.beans.RequestTiming;
+import io.restassured.RestAssured;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HTTP 请求分阶段计时
+ * 替换 RestAssured 使用的 HttpClient（见 {@link HttpClientTimingAdapter}），在连接层和请求执行层打点：
+ * - DNS：连接操作器解析域名
+ * - connect：Socket.connect
+ * - TLS：建连完成到 SSL 握手结束
+ * - TTFB：开始发送请求到读完响应头
+ * - download：读完响应头到 RestAssured 返回响应（响应体已读入内存）
+ * 同时记录请求/响应的线上字节数和连接是否复用。
+ *
+ * 计时在最内层的全局过滤器中开始和结束，结果保存在当前线程，外层过滤器和发请求的代码通过 {@link #last()} 取回，
+ * 并写入 {@link ApiMetrics} 和 JFR 请求事件；性能模式下随请求摘要一起输出（见 {@link PerformanceMode}），
+ * 不单独生成附件。
+ *
+ * @author sen
+ */
+public class HttpPhaseTimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpPhaseTimer.class);
+
+    private static final AtomicBoolean installed = new AtomicBoolean();
+    private static final ThreadLocal<Recorder> current = new ThreadLocal<>();
+    private static final ThreadLocal<RequestTiming> last = new ThreadLocal<>();
+
+    private HttpPhaseTimer() {
+    }
+
+    /**
+     * 注册计时过滤器并替换 HttpClient 工厂（只执行一次）
+     * 之后修改 RestAssured.config 时需基于 RestAssured.config() 修改，否则会丢失计时用的 HttpClient
+     */
+    public static void install() {
+        if (installed.compareAndSet(false, true)) {
+            RestAssured.config = RestAssured.config().httpClient(
+                RestAssured.config().getHttpClientConfig().httpClientFactory(HttpClientTimingAdapter::create));
+            RestAssured.filters(new TimingFilter());
+        }
+    }
+
+    /**
+     * 当前线程最近一次请求的分阶段耗时，请求失败或未经过 RestAssured 时为 null
+     */
+    public static RequestTiming last() {
+        return last.get();
+    }
+
+    /**
+     * 当前线程正在计时的请求，供 {@link HttpClientTimingAdapter} 打点
+     */
+    static Recorder recorder() {
+        return current.get();
+    }
+
+    private static double millis(long nanos) {
+        return Math.max(0, nanos) / 1_000_000.0;
+    }
+
+    /**
+     * 单次请求的打点，重定向时连接阶段累加、TTFB 取最后一次交互
+     */
+    static final class Recorder {
+        private final long start = System.nanoTime();
+        private long dnsNanos;
+        private long connectNanos;
+        private long openNanos;
+        private boolean secure;
+        private boolean executed;
+        private boolean reused;
+        private long sendStart;
+        private long headersAt;
+        private long requestBytes;
+        private long responseBytes;
+        private HttpConnectionMetrics metrics;
+        private long receivedBefore;
+
+        void resolved(long nanos) {
+            dnsNanos += nanos;
+        }
+
+        void opened(long nanos, boolean layered) {
+            openNanos += nanos;
+            secure = layered;
+        }
+
+        void switchConnection(HttpConnectionMetrics next) {
+            if (metrics != next) {
+                collectReceived();
+                metrics = next;
+                receivedBefore = next.getReceivedBytesCount();
+            }
+        }
+
+        void collectReceived() {
+            if (metrics != null) {
+                responseBytes += metrics.getReceivedBytesCount() - receivedBefore;
+                receivedBefore = metrics.getReceivedBytesCount();
+            }
+        }
+
+        RequestTiming finish(Response response) {
+            long end = System.nanoTime();
+            RequestTiming timing = new RequestTiming();
+            timing.setDnsMs(millis(dnsNanos));
+            timing.setConnectMs(millis(connectNanos));
+            timing.setTlsMs(secure ? millis(openNanos - dnsNanos - connectNanos) : 0);
+            if (executed) {
+                timing.setTtfbMs(millis(headersAt - sendStart));
+                timing.setDownloadMs(millis(end - headersAt));
+            }
+            timing.setTotalMs(millis(end - start));
+            timing.setRequestBytes(requestBytes);
+            collectReceived();
+            // 未使用计时 HttpClient（如外部重置了 RestAssured.config）时只能取响应体长度
+            timing.setResponseBytes(metrics != null ? responseBytes : response.asByteArray().length);
+            timing.setConnectionReused(reused);
+            return timing;
+        }
+    }
+
+    /**
+     * 全局过滤器：开始计时，响应返回后汇总
+     * 排在最后执行（最靠近实际发送），其他过滤器在 ctx.next 返回后即可通过 {@link #last()} 取到本次耗时
+     */
+    public static class TimingFilter implements OrderedFilter {
+        @Override
+        public int getOrder() {
+            return LOWEST_PRECEDENCE;
+        }
+
+        @Override
+        public Response filter(FilterableRequestSpecification requestSpec,
+                               FilterableResponseSpecification responseSpec, FilterContext ctx) {
+            String method = requestSpec.getMethod();
+            String uri = requestSpec.getURI();
+            ApiEvents.requestSent(method, uri);
+            ApiEvents.HttpRequestEvent event = new ApiEvents.HttpRequestEvent();
+            event.begin();
+            Recorder outer = current.get();
+            Recorder recorder = new Recorder();
+            current.set(recorder);
+            last.remove();
+            try {
+                Response response = ctx.next(requestSpec, responseSpec);
+                RequestTiming timing = recorder.finish(response);
+                last.set(timing);
+                event.finish(method, uri, response.getStatusCode(), timing);
+                ApiMetrics.recordTiming(method, uri, timing);
+                logger.debug("Timing {} {}: {}", method, uri, timing);
+                return response;
+            } finally {
+                if (outer != null) {
+                    current.set(outer);
+                } else {
+                    current.remove();
+                }
+            }
+        }
+    }
+
+    static class TimedSocket extends Socket {
+        @Override
+        public void connect(SocketAddress endpoint, int timeout) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.connect(endpoint, timeout);
+            } finally {
+                Recorder recorder = current.get();
+                if (recorder != null) {
+                    recorder.connectNanos += System.nanoTime() - start;
+                }
+            }
+        }
+    }
+
+    /**
+     * 请求执行计时：发送开始、响应头读完、连接复用与字节数
+     */
+    static class TimedRequestExecutor extends HttpRequestExecutor {
+        @Override
+        public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws IOException, HttpException {
+            Recorder recorder = current.get();
+            if (recorder == null) {
+                return super.execute(request, conn, context);
+            }
+            HttpConnectionMetrics metrics = conn.getMetrics();
+            if (!recorder.executed) {
+                recorder.reused = metrics.getRequestCount() > 0;
+                recorder.executed = true;
+            }
+            recorder.switchConnection(metrics);
+            long sentBefore = metrics.getSentBytesCount();
+            try {
+                return super.execute(request, conn, context);
+            } finally {
+                recorder.requestBytes += metrics.getSentBytesCount() - sentBefore;
+            }
+        }
+
+        @Override
+        protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws IOException, HttpException {
+            Recorder recorder = current.get();
+            if (recorder != null) {
+                recorder.sendStart = System.nanoTime();
+            }
+            return super.doSendRequest(request, conn, context);
+        }
+
+        @Override
+        protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws IOException, HttpException {
+            HttpResponse response = super.doReceiveResponse(request, conn, context);
+            Recorder recorder = current.get();
+            if (recorder != null) {
+                recorder.headersAt = System.nanoTime();
+            }
+            return response;
+        }
+    }
+}
@@ -32,11 +32,15 @@ public class JsonDataReader {
      * 从文件路径读取JSON数据并转换为指定类型的对象列表
      */
     public static <T> List<T> readJson(Class<T> clz, String path) {
+        ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+        event.begin();
         try {
             logger.info("Reading JSON file from path: {}", path);
             File file = new File(path);
-            return objectMapper.readValue(file,
+            List<T> rows = objectMapper.readValue(file,
                 objectMapper.getTypeFactory().constructCollectionType(List.class, clz));
+            event.finish(path, "json", rows);
+            return rows;
         } catch (IOException e) {
             logger.error("Failed to read JSON file: {}", path, e);
             throw new RuntimeException("转换JSON文件失败：" + e.getMessage(), e);
@@ -77,10 +81,14 @@ public class JsonDataReader {
      */
     @SuppressWarnings("unchecked")
     public static List<Map<String, Object>> readJsonAsList(String path) {
+        ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+        event.begin();
         try {
             logger.info("Reading JSON file as List from path: {}", path);
             File file = new File(path);
-            return objectMapper.readValue(file, List.class);
+            List<Map<String, Object>> rows = objectMapper.readValue(file, List.class);
+            event.finish(path, "json", rows);
+            return rows;
         } catch (IOException e) {
             logger.error("Failed to read JSON file as List: {}", path, e);
             throw new RuntimeException("转换JSON文件失败：" + e.getMessage(), e);
@@ -0,0 +1,371 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sen.api.configs.ApiProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 接口耗时基线
+ * 每个接口保存样本数、均值、P50/P90/P95/P99 以及等间隔抽取的样本（用于显著性检验），以 JSON 文件存储。
+ *
+ * 判定回归需同时满足：
+ * - 基线与本次样本数都不少于 minSamples
+ * - 指定百分位的耗时超过基线 (1 + tolerance) 倍，且绝对增幅不小于 minDeltaMs
+ * - 单侧 Mann-Whitney U 检验（本次耗时整体大于基线）的 p 值小于 alpha
+ *
+ * @author sen
+ */
+public class LatencyBaseline {
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private long updatedAt;
+    private Map<String, EndpointStats> endpoints = new TreeMap<>();
+
+    /**
+     * 单个接口的耗时统计（毫秒），samplesMicros 升序
+     */
+    public static class EndpointStats {
+        private int count;
+        private double meanMs;
+        private double p50Ms;
+        private double p90Ms;
+        private double p95Ms;
+        private double p99Ms;
+        private long[] samplesMicros = new long[0];
+
+        public static EndpointStats of(long[] sortedMicros, int maxStoredSamples) {
+            EndpointStats stats = new EndpointStats();
+            stats.count = sortedMicros.length;
+            long sum = 0;
+            for (long value : sortedMicros) {
+                sum += value;
+            }
+            stats.meanMs = sortedMicros.length == 0 ? 0 : sum / 1000.0 / sortedMicros.length;
+            stats.p50Ms = percentileMs(sortedMicros, 50);
+            stats.p90Ms = percentileMs(sortedMicros, 90);
+            stats.p95Ms = percentileMs(sortedMicros, 95);
+            stats.p99Ms = percentileMs(sortedMicros, 99);
+            stats.samplesMicros = downsample(sortedMicros, maxStoredSamples);
+            return stats;
+        }
+
+        public double percentile(int percentile) {
+            switch (percentile) {
+                case 50:
+                    return p50Ms;
+                case 90:
+                    return p90Ms;
+                case 95:
+                    return p95Ms;
+                case 99:
+                    return p99Ms;
+                default:
+                    return percentileMs(samplesMicros, percentile);
+            }
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public double getMeanMs() {
+            return meanMs;
+        }
+
+        public void setMeanMs(double meanMs) {
+            this.meanMs = meanMs;
+        }
+
+        public double getP50Ms() {
+            return p50Ms;
+        }
+
+        public void setP50Ms(double p50Ms) {
+            this.p50Ms = p50Ms;
+        }
+
+        public double getP90Ms() {
+            return p90Ms;
+        }
+
+        public void setP90Ms(double p90Ms) {
+            this.p90Ms = p90Ms;
+        }
+
+        public double getP95Ms() {
+            return p95Ms;
+        }
+
+        public void setP95Ms(double p95Ms) {
+            this.p95Ms = p95Ms;
+        }
+
+        public double getP99Ms() {
+            return p99Ms;
+        }
+
+        public void setP99Ms(double p99Ms) {
+            this.p99Ms = p99Ms;
+        }
+
+        public long[] getSamplesMicros() {
+            return samplesMicros;
+        }
+
+        public void setSamplesMicros(long[] samplesMicros) {
+            this.samplesMicros = samplesMicros;
+        }
+    }
+
+    /**
+     * 一个变慢的接口
+     */
+    public static class Regression {
+        private final String endpoint;
+        private final int percentile;
+        private final double baselineMs;
+        private final double currentMs;
+        private final double pValue;
+
+        public Regression(String endpoint, int percentile, double baselineMs, double currentMs, double pValue) {
+            this.endpoint = endpoint;
+            this.percentile = percentile;
+            this.baselineMs = baselineMs;
+            this.currentMs = currentMs;
+            this.pValue = pValue;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public int getPercentile() {
+            return percentile;
+        }
+
+        public double getBaselineMs() {
+            return baselineMs;
+        }
+
+        public double getCurrentMs() {
+            return currentMs;
+        }
+
+        public double getPValue() {
+            return pValue;
+        }
+
+        public String getMessage() {
+            double increase = baselineMs > 0 ? (currentMs - baselineMs) / baselineMs * 100 : 0;
+            return String.format("接口耗时回归: %s P%d %.1fms -> %.1fms (+%.1f%%, p=%.4f)",
+                endpoint, percentile, baselineMs, currentMs, increase, pValue);
+        }
+
+        @Override
+        public String toString() {
+            return getMessage();
+        }
+    }
+
+    // ==================== 读写 ====================
+
+    /**
+     * 读取基线文件，文件不存在时返回空基线
+     */
+    public static LatencyBaseline load(Path file) {
+        if (!Files.exists(file)) {
+            return new LatencyBaseline();
+        }
+        try {
+            return mapper.readValue(file.toFile(), LatencyBaseline.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取耗时基线失败: " + file, e);
+        }
+    }
+
+    /**
+     * 写入基线文件（先写临时文件再替换）
+     */
+    public void save(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            mapper.writeValue(tmp.toFile(), this);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入耗时基线失败: " + file, e);
+        }
+    }
+
+    /**
+     * 用本次运行的样本覆盖对应接口的基线，其他接口保持不变
+     */
+    public void update(LatencySamples samples, int maxStoredSamples) {
+        for (String endpoint : samples.endpoints()) {
+            long[] sorted = samples.sorted(endpoint);
+            if (sorted.length > 0) {
+                endpoints.put(endpoint, EndpointStats.of(sorted, maxStoredSamples));
+            }
+        }
+        updatedAt = System.currentTimeMillis();
+    }
+
+    // ==================== 比较 ====================
+
+    /**
+     * 与基线比较，返回变慢的接口；基线中没有的接口不参与比较
+     */
+    public List<Regression> compare(LatencySamples samples, ApiProperties.BaselineConfig config) {
+        List<Regression> regressions = new ArrayList<>();
+        for (String endpoint : samples.endpoints()) {
+            EndpointStats base = endpoints.get(endpoint);
+            long[] current = samples.sorted(endpoint);
+            if (base == null || base.samplesMicros.length < config.getMinSamples()
+                || current.length < config.getMinSamples()) {
+                continue;
+            }
+            double baselineMs = base.percentile(config.getPercentile());
+            double currentMs = percentileMs(current, config.getPercentile());
+            if (currentMs <= baselineMs * (1 + config.getTolerance())
+                || currentMs - baselineMs < config.getMinDeltaMs()) {
+                continue;
+            }
+            double pValue = mannWhitneyGreater(current, base.samplesMicros);
+            if (pValue < config.getAlpha()) {
+                regressions.add(new Regression(endpoint, config.getPercentile(), baselineMs, currentMs, pValue));
+            }
+        }
+        regressions.sort((a, b) -> a.getEndpoint().compareTo(b.getEndpoint()));
+        return regressions;
+    }
+
+    /**
+     * 单侧 Mann-Whitney U 检验，H1: x 整体大于 y，正态近似（含结点修正与连续性修正）
+     *
+     * @param x 升序样本
+     * @param y 升序样本
+     * @return p 值
+     */
+    static double mannWhitneyGreater(long[] x, long[] y) {
+        int n1 = x.length;
+        int n2 = y.length;
+        if (n1 == 0 || n2 == 0) {
+            return 1.0;
+        }
+        int n = n1 + n2;
+        // 归并两个有序数组，按结点组分配平均秩
+        double rankSumX = 0;
+        double tieTerm = 0;
+        int i = 0;
+        int j = 0;
+        int rank = 0;
+        while (i < n1 || j < n2) {
+            long value = i < n1 && (j >= n2 || x[i] <= y[j]) ? x[i] : y[j];
+            int countX = 0;
+            int countY = 0;
+            while (i < n1 && x[i] == value) {
+                countX++;
+                i++;
+            }
+            while (j < n2 && y[j] == value) {
+                countY++;
+                j++;
+            }
+            int t = countX + countY;
+            double averageRank = rank + (t + 1) / 2.0;
+            rankSumX += averageRank * countX;
+            tieTerm += (double) t * t * t - t;
+            rank += t;
+        }
+        double u = rankSumX - n1 * (n1 + 1) / 2.0;
+        double mean = n1 * (double) n2 / 2.0;
+        double variance = n1 * (double) n2 / 12.0 * ((n + 1) - tieTerm / ((double) n * (n - 1)));
+        if (variance <= 0) {
+            return 1.0;
+        }
+        double z = (u - mean - 0.5) / Math.sqrt(variance);
+        return 1.0 - normalCdf(z);
+    }
+
+    static double normalCdf(double z) {
+        return 0.5 * (1 + erf(z / Math.sqrt(2)));
+    }
+
+    /**
+     * 误差函数（Abramowitz-Stegun 7.1.26，误差 < 1.5e-7）
+     */
+    private static double erf(double x) {
+        double sign = Math.signum(x);
+        double a = Math.abs(x);
+        double t = 1 / (1 + 0.3275911 * a);
+        double y = 1 - (((((1.061405429 * t - 1.453152027) * t) + 1.421413741) * t - 0.284496736) * t
+            + 0.254829592) * t * Math.exp(-a * a);
+        return sign * y;
+    }
+
+    /**
+     * 最近秩法百分位（毫秒）
+     */
+    static double percentileMs(long[] sortedMicros, int percentile) {
+        if (sortedMicros.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedMicros.length) - 1;
+        index = Math.max(0, Math.min(sortedMicros.length - 1, index));
+        return sortedMicros[index] / 1000.0;
+    }
+
+    /**
+     * 等间隔抽取至多 max 个顺序统计量，保持分布形状
+     */
+    private static long[] downsample(long[] sorted, int max) {
+        if (max <= 0 || sorted.length <= max) {
+            return sorted.clone();
+        }
+        long[] result = new long[max];
+        for (int k = 0; k < max; k++) {
+            result[k] = sorted[(int) ((k + 0.5) * sorted.length / max)];
+        }
+        return result;
+    }
+
+    public EndpointStats getEndpoint(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Map<String, EndpointStats> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, EndpointStats> endpoints) {
+        this.endpoints = new TreeMap<>(endpoints);
+    }
+}
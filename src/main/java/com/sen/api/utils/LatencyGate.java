@@ -0,0 +1,158 @@
+package com.sen.api.utils;
+
+import com.sen.api.configs.ApiProperties;
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.model.Stage;
+import io.qameta.allure.model.Status;
+import io.qameta.allure.model.StatusDetails;
+import io.qameta.allure.model.TestResult;
+import io.qameta.allure.util.ResultsUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 接口耗时回归检查
+ * YamlDslTestEngine / ApiFlowExecutor 在套件或流程结束时调用 {@link #evaluate(String, LatencySamples)}：
+ * - record 模式：把本次各接口的耗时分布写入基线文件
+ * - compare 模式：与基线比较，变慢的接口返回为失败检查，并在 Allure 报告中生成失败用例
+ *
+ * 配置来源：Spring 下为 api.test.baseline，TestNG 直接运行时可用系统属性
+ * api.baseline.enabled / api.baseline.mode / api.baseline.file / api.baseline.percentile /
+ * api.baseline.tolerance / api.baseline.minDeltaMs / api.baseline.alpha
+ *
+ * @author sen
+ */
+public class LatencyGate {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyGate.class);
+
+    public static final String MODE_RECORD = "record";
+    public static final String MODE_COMPARE = "compare";
+
+    private static volatile ApiProperties.BaselineConfig config = fromSystemProperties();
+
+    private LatencyGate() {
+    }
+
+    private static ApiProperties.BaselineConfig fromSystemProperties() {
+        ApiProperties.BaselineConfig baseline = new ApiProperties.BaselineConfig();
+        baseline.setEnabled(Boolean.getBoolean("api.baseline.enabled"));
+        baseline.setMode(System.getProperty("api.baseline.mode", baseline.getMode()));
+        baseline.setFile(System.getProperty("api.baseline.file", baseline.getFile()));
+        baseline.setPercentile(Integer.getInteger("api.baseline.percentile", baseline.getPercentile()));
+        String tolerance = System.getProperty("api.baseline.tolerance");
+        if (tolerance != null) {
+            baseline.setTolerance(Double.parseDouble(tolerance));
+        }
+        String minDelta = System.getProperty("api.baseline.minDeltaMs");
+        if (minDelta != null) {
+            baseline.setMinDeltaMs(Double.parseDouble(minDelta));
+        }
+        String alpha = System.getProperty("api.baseline.alpha");
+        if (alpha != null) {
+            baseline.setAlpha(Double.parseDouble(alpha));
+        }
+        return baseline;
+    }
+
+    public static void configure(ApiProperties.BaselineConfig baseline) {
+        if (baseline == null) {
+            return;
+        }
+        if (!Arrays.asList(MODE_RECORD, MODE_COMPARE).contains(baseline.getMode())) {
+            throw new IllegalArgumentException("基线模式只能是 record 或 compare: " + baseline.getMode());
+        }
+        if (baseline.getPercentile() <= 0 || baseline.getPercentile() >= 100) {
+            throw new IllegalArgumentException("百分位必须在1到99之间: " + baseline.getPercentile());
+        }
+        config = baseline;
+        if (baseline.isEnabled()) {
+            logger.info("Latency baseline enabled: mode={}, file={}, P{} tolerance={}, alpha={}",
+                baseline.getMode(), baseline.getFile(), baseline.getPercentile(), baseline.getTolerance(),
+                baseline.getAlpha());
+        }
+    }
+
+    public static boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public static ApiProperties.BaselineConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 套件/流程结束时调用
+     *
+     * @param source  来源（套件名或流程名），用于日志和报告
+     * @param samples 本次运行的请求耗时
+     * @return 失败检查的描述，未开启、record 模式或无回归时为空
+     */
+    public static List<String> evaluate(String source, LatencySamples samples) {
+        ApiProperties.BaselineConfig current = config;
+        if (!current.isEnabled() || samples == null || samples.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Path file = Paths.get(current.getFile());
+        if (MODE_RECORD.equals(current.getMode())) {
+            // 多个套件可能先后写同一个文件
+            synchronized (LatencyGate.class) {
+                LatencyBaseline baseline = LatencyBaseline.load(file);
+                baseline.update(samples, current.getMaxStoredSamples());
+                baseline.save(file);
+            }
+            logger.info("Latency baseline recorded for {}: {} endpoints -> {}", source, samples.endpoints().size(), file);
+            return Collections.emptyList();
+        }
+
+        List<LatencyBaseline.Regression> regressions = LatencyBaseline.load(file).compare(samples, current);
+        List<String> failedChecks = new ArrayList<>();
+        for (LatencyBaseline.Regression regression : regressions) {
+            logger.warn("[{}] {}", source, regression.getMessage());
+            failedChecks.add(regression.getMessage());
+            reportToAllure(source, regression);
+        }
+        if (regressions.isEmpty()) {
+            logger.info("Latency check passed for {}: {} endpoints", source, samples.endpoints().size());
+        }
+        return failedChecks;
+    }
+
+    /**
+     * 每个回归生成一条独立的失败用例（不占用当前线程的 Allure 上下文）
+     */
+    private static void reportToAllure(String source, LatencyBaseline.Regression regression) {
+        try {
+            AllureLifecycle lifecycle = Allure.getLifecycle();
+            String uuid = UUID.randomUUID().toString();
+            long now = System.currentTimeMillis();
+            TestResult result = new TestResult()
+                .setUuid(uuid)
+                .setHistoryId("latency:" + source + ":" + regression.getEndpoint())
+                .setName("接口耗时回归: " + regression.getEndpoint())
+                .setFullName(source + " " + regression.getEndpoint())
+                .setStatus(Status.FAILED)
+                .setStatusDetails(new StatusDetails().setMessage(regression.getMessage()))
+                .setStart(now)
+                .setStop(now);
+            result.getLabels().addAll(Arrays.asList(
+                ResultsUtils.createSuiteLabel("Latency Baseline"),
+                ResultsUtils.createFeatureLabel(source),
+                ResultsUtils.createStoryLabel(regression.getEndpoint())));
+            lifecycle.scheduleTestCase(result);
+            result.setStage(Stage.FINISHED);
+            lifecycle.writeTestCase(uuid);
+        } catch (Exception e) {
+            logger.warn("Failed to report latency regression to allure: {}", e.getMessage());
+        }
+    }
+}
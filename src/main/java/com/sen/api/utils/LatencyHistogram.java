@@ -0,0 +1,146 @@
+package com.sen.api.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 可合并的耗时直方图（微秒）
+ * 对数线性分桶：小于128的值每个值一个桶，之后每个2的幂区间分64个桶，相对误差不超过 1/64。
+ * 桶边界固定，不同进程、不同时间段的直方图按桶相加即可合并，分位数在合并后计算。
+ * 非线程安全，并发记录时由调用方加锁。
+ *
+ * @author sen
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 最大约 2^40 微秒（约12天），更大的值计入最后一个桶
+    private static final int MAX_SHIFT = 40 - SUB_BUCKET_BITS;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        return (shift + 1) * SUB_BUCKETS + (int) (value >> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * 桶内最大值
+     */
+    static long upperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public void record(long micros) {
+        if (micros < 0) {
+            return;
+        }
+        counts[bucketOf(micros)]++;
+        count++;
+        sum += micros;
+        min = Math.min(min, micros);
+        max = Math.max(max, micros);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * 分位数（0-100），取所在桶的上界且不超过最大值，没有样本时返回0
+     */
+    public long percentile(double p) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    // ==================== 序列化 ====================
+
+    /**
+     * 稀疏表示，只包含非空桶，用于网络传输
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Long> buckets = new TreeMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] != 0) {
+                buckets.put(String.valueOf(i), counts[i]);
+            }
+        }
+        Map<String, Object> map = new TreeMap<>();
+        map.put("count", count);
+        map.put("sum", sum);
+        map.put("min", getMin());
+        map.put("max", max);
+        map.put("buckets", buckets);
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static LatencyHistogram fromMap(Map<String, Object> map) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Map<String, Number> buckets = (Map<String, Number>) map.get("buckets");
+        if (buckets != null) {
+            buckets.forEach((bucket, n) -> histogram.counts[Integer.parseInt(bucket)] = n.longValue());
+        }
+        histogram.count = ((Number) map.getOrDefault("count", 0)).longValue();
+        histogram.sum = ((Number) map.getOrDefault("sum", 0)).longValue();
+        histogram.max = ((Number) map.getOrDefault("max", 0)).longValue();
+        histogram.min = histogram.count == 0 ? Long.MAX_VALUE : ((Number) map.getOrDefault("min", 0)).longValue();
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + count + ", p50=" + percentile(50) + ", p99=" + percentile(99)
+            + ", max=" + max + "}";
+    }
+}
@@ -0,0 +1,66 @@
+package com.sen.api.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一次运行中按接口收集的请求耗时（微秒）
+ * 接口按 "METHOD URL模板" 归类，URL模板规则见 {@link RequestEventJournal#urlTemplate(String)}。
+ *
+ * @author sen
+ */
+public class LatencySamples {
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    /**
+     * 单个接口的样本，按需扩容
+     */
+    private static final class Series {
+        private long[] values = new long[64];
+        private int size;
+
+        synchronized void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    public static String endpoint(String method, String url) {
+        String template = RequestEventJournal.urlTemplate(url);
+        return method.toUpperCase() + " " + (template == null || template.isEmpty() ? "/" : template);
+    }
+
+    public void record(String method, String url, long durationMicros) {
+        if (method == null || url == null || durationMicros < 0) {
+            return;
+        }
+        series.computeIfAbsent(endpoint(method, url), k -> new Series()).add(durationMicros);
+    }
+
+    public Set<String> endpoints() {
+        return series.keySet();
+    }
+
+    /**
+     * 指定接口的样本（升序），没有样本时返回空数组
+     */
+    public long[] sorted(String endpoint) {
+        Series s = series.get(endpoint);
+        return s != null ? s.sorted() : new long[0];
+    }
+
+    public boolean isEmpty() {
+        return series.isEmpty();
+    }
+}
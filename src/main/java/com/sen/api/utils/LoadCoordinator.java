@@ -0,0 +1,574 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sen.api.utils.YamlDslTestEngine.DslTestCase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分布式压测协调器
+ * 等待 N 个 {@link LoadWorker} 连接后下发压测计划（DSL 用例、到达速率、持续时间），速率在 worker 间平分；
+ * worker 预热完成后统一开始，每秒上报各用例的计数与耗时直方图，协调器按秒合并输出实时视图，结束后生成汇总报告。
+ * 超过 持续时间 + 收尾超时 仍未结束（或中途断开）的 worker 在报告中记为失败，不会让协调器无限等待。
+ *
+ * 协议：TCP 上每行一条 JSON 消息
+ * - worker → 协调器: {"type":"hello","worker":名称}
+ * - 协调器 → worker: {"type":"plan","plan":{...}}
+ * - worker → 协调器: {"type":"ready","worker":名称}（每个用例执行一次预热，不计入统计）
+ * - 协调器 → worker: {"type":"start","startAt":统一开始时间(epoch毫秒)}
+ * - worker → 协调器: {"type":"report","worker":名称,"second":秒序号,"cases":{用例名:{count,errors,histogram}}}
+ * - worker → 协调器: {"type":"done","worker":名称}
+ *
+ * 用法: LoadCoordinator &lt;yaml文件&gt; &lt;worker数&gt; &lt;总速率/秒&gt; &lt;持续秒数&gt; [端口]
+ *
+ * @author sen
+ */
+public class LoadCoordinator implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadCoordinator.class);
+
+    static final ObjectMapper mapper = new ObjectMapper()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final long START_DELAY_MS = 1000;
+    // worker 排空在途请求之外，再留给上报和 done 消息的余量
+    private static final long FINISH_SLACK_MS = 30_000;
+
+    /**
+     * 压测计划
+     */
+    public static class LoadPlan {
+        private List<DslTestCase> cases = new ArrayList<>();
+        // 总到达速率（次/秒），开环：按固定间隔发起，不等待前一个请求返回
+        private double ratePerSecond;
+        private int durationSeconds;
+        // 每个 worker 的最大并发请求数
+        private int maxConcurrency = 200;
+        // 为空时 worker 使用自己 EnvCenter 的 rootUrl
+        private String rootUrl;
+
+        public List<DslTestCase> getCases() {
+            return cases;
+        }
+
+        public void setCases(List<DslTestCase> cases) {
+            this.cases = cases;
+        }
+
+        public double getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        public void setRatePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        public int getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        public void setDurationSeconds(int durationSeconds) {
+            this.durationSeconds = durationSeconds;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public String getRootUrl() {
+            return rootUrl;
+        }
+
+        public void setRootUrl(String rootUrl) {
+            this.rootUrl = rootUrl;
+        }
+    }
+
+    /**
+     * 计数与耗时直方图，可跨 worker、跨秒合并
+     */
+    public static class LoadStats {
+        private long count;
+        private long errors;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        void record(long latencyMicros, boolean passed) {
+            count++;
+            if (!passed) {
+                errors++;
+            }
+            histogram.record(latencyMicros);
+        }
+
+        void merge(LoadStats other) {
+            count += other.count;
+            errors += other.errors;
+            histogram.merge(other.histogram);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", count);
+            map.put("errors", errors);
+            map.put("histogram", histogram.toMap());
+            return map;
+        }
+
+        @SuppressWarnings("unchecked")
+        static LoadStats fromMap(Map<String, Object> map) {
+            LoadStats stats = new LoadStats();
+            stats.count = ((Number) map.get("count")).longValue();
+            stats.errors = ((Number) map.get("errors")).longValue();
+            stats.histogram.merge(LatencyHistogram.fromMap((Map<String, Object>) map.get("histogram")));
+            return stats;
+        }
+
+        /**
+         * 报告中的汇总（毫秒）
+         */
+        Map<String, Object> summary() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", count);
+            map.put("errors", errors);
+            map.put("errorRate", count == 0 ? 0 : (double) errors / count);
+            map.put("meanMs", histogram.getMean() / 1000.0);
+            map.put("p50Ms", histogram.percentile(50) / 1000.0);
+            map.put("p90Ms", histogram.percentile(90) / 1000.0);
+            map.put("p95Ms", histogram.percentile(95) / 1000.0);
+            map.put("p99Ms", histogram.percentile(99) / 1000.0);
+            map.put("maxMs", histogram.getMax() / 1000.0);
+            return map;
+        }
+    }
+
+    /**
+     * 压测报告
+     */
+    public static class LoadReport {
+        private final int workers;
+        private final double targetRate;
+        private final long elapsedMs;
+        private final LoadStats total = new LoadStats();
+        private final Map<String, LoadStats> cases;
+        private final Map<Long, LoadStats> timeline;
+        private final Map<String, String> failedWorkers;
+
+        LoadReport(int workers, double targetRate, long elapsedMs, Map<String, LoadStats> cases,
+                   Map<Long, LoadStats> timeline, Map<String, String> failedWorkers) {
+            this.workers = workers;
+            this.targetRate = targetRate;
+            this.elapsedMs = elapsedMs;
+            this.cases = cases;
+            this.timeline = timeline;
+            this.failedWorkers = failedWorkers;
+            cases.values().forEach(total::merge);
+        }
+
+        public LoadStats getTotal() {
+            return total;
+        }
+
+        public Map<String, LoadStats> getCases() {
+            return cases;
+        }
+
+        public Map<Long, LoadStats> getTimeline() {
+            return timeline;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        /**
+         * 未正常结束的 worker（名称 → 原因），它们断开前上报的数据仍计入统计
+         */
+        public Map<String, String> getFailedWorkers() {
+            return failedWorkers;
+        }
+
+        /**
+         * 实际达到的速率（次/秒）
+         */
+        public double getAchievedRate() {
+            return elapsedMs == 0 ? 0 : total.getCount() * 1000.0 / elapsedMs;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("workers", workers);
+            map.put("targetRate", targetRate);
+            map.put("achievedRate", getAchievedRate());
+            map.put("elapsedMs", elapsedMs);
+            map.put("failedWorkers", failedWorkers);
+            map.put("total", total.summary());
+            Map<String, Object> caseSummaries = new LinkedHashMap<>();
+            cases.forEach((name, stats) -> caseSummaries.put(name, stats.summary()));
+            map.put("cases", caseSummaries);
+            Map<String, Object> seconds = new LinkedHashMap<>();
+            timeline.forEach((second, stats) -> seconds.put(String.valueOf(second), stats.summary()));
+            map.put("timeline", seconds);
+            return map;
+        }
+    }
+
+    private final LoadPlan plan;
+    private final int workers;
+    private final ServerSocket server;
+    private long connectTimeoutMs = 60_000;
+    private long finishTimeoutMs = TimeUnit.SECONDS.toMillis(LoadWorker.DRAIN_TIMEOUT_SECONDS) + FINISH_SLACK_MS;
+    private Path reportDir = Paths.get("target", "load");
+
+    // 以下由 this 保护
+    private final Map<String, LoadStats> totals = new TreeMap<>();
+    private final Map<Long, LoadStats> timeline = new TreeMap<>();
+    private final Map<Long, Integer> reporters = new HashMap<>();
+    private long lastPrinted = -1;
+
+    /**
+     * @param port 监听端口，0 表示随机端口（用 {@link #getPort()} 获取）
+     */
+    public LoadCoordinator(LoadPlan plan, int workers, int port) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("worker 数必须大于0: " + workers);
+        }
+        if (plan.getRatePerSecond() <= 0 || plan.getDurationSeconds() <= 0) {
+            throw new IllegalArgumentException("速率和持续时间必须大于0");
+        }
+        this.plan = plan;
+        this.workers = workers;
+        this.server = new ServerSocket(port);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * 等待 worker 连接、握手和预热的超时
+     */
+    public void setConnectTimeoutMs(long connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    /**
+     * 持续时间结束后等待 worker 收尾（排空在途请求、发送 done）的超时，默认 worker 排空超时 + 30s
+     */
+    public void setFinishTimeoutMs(long finishTimeoutMs) {
+        this.finishTimeoutMs = finishTimeoutMs;
+    }
+
+    /**
+     * 报告目录，为 null 时不写文件
+     */
+    public void setReportDir(Path reportDir) {
+        this.reportDir = reportDir;
+    }
+
+    /**
+     * 等待 worker 连接并执行压测，全部 worker 结束后返回报告
+     */
+    public LoadReport run() {
+        logger.info("压测协调器监听端口 {}，等待 {} 个 worker", getPort(), workers);
+        List<Socket> sockets = new ArrayList<>();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService readers = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "load-coordinator-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "load-coordinator-ticker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<String> names = new ArrayList<>();
+            List<BufferedReader> inputs = new ArrayList<>();
+            server.setSoTimeout((int) connectTimeoutMs);
+            while (sockets.size() < workers) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    throw new RuntimeException("等待 worker 连接超时，已连接 " + sockets.size() + "/" + workers, e);
+                }
+                socket.setSoTimeout((int) connectTimeoutMs);
+                sockets.add(socket);
+                BufferedReader input = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Map<String, Object> hello = read(input);
+                if (hello == null || !"hello".equals(hello.get("type"))) {
+                    throw new IllegalStateException("worker 握手失败: " + socket.getRemoteSocketAddress());
+                }
+                socket.setSoTimeout(0);
+                names.add(String.valueOf(hello.get("worker")));
+                inputs.add(input);
+                logger.info("worker 已连接: {} ({}/{})", hello.get("worker"), sockets.size(), workers);
+            }
+
+            // 各 worker 平分速率，全部预热完成后同一时刻开始
+            LoadPlan share = mapper.convertValue(plan, LoadPlan.class);
+            share.setRatePerSecond(plan.getRatePerSecond() / workers);
+            Map<String, Object> message = new LinkedHashMap<>();
+            message.put("type", "plan");
+            message.put("plan", share);
+            List<PrintWriter> outputs = new ArrayList<>();
+            for (Socket socket : sockets) {
+                PrintWriter output = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                outputs.add(output);
+                send(output, message);
+            }
+            for (int i = 0; i < workers; i++) {
+                sockets.get(i).setSoTimeout((int) connectTimeoutMs);
+                Map<String, Object> ready = read(inputs.get(i));
+                if (ready == null || !"ready".equals(ready.get("type"))) {
+                    throw new IllegalStateException("worker 预热失败: " + names.get(i));
+                }
+            }
+            long startAt = System.currentTimeMillis() + START_DELAY_MS;
+            long deadline = startAt + TimeUnit.SECONDS.toMillis(plan.getDurationSeconds()) + finishTimeoutMs;
+            for (Socket socket : sockets) {
+                // 上报每秒一次，读超时兜底卡死的连接
+                socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, deadline - System.currentTimeMillis()));
+            }
+            Map<String, Object> start = new LinkedHashMap<>();
+            start.put("type", "start");
+            start.put("startAt", startAt);
+            for (PrintWriter output : outputs) {
+                send(output, start);
+            }
+            logger.info("压测开始: {} 个用例，总速率 {}/s，持续 {}s", plan.getCases().size(),
+                plan.getRatePerSecond(), plan.getDurationSeconds());
+
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                String name = names.get(i);
+                BufferedReader input = inputs.get(i);
+                futures.add(readers.submit(() -> collect(name, input)));
+            }
+            ticker.scheduleAtFixedRate(() -> printLive(startAt, false), START_DELAY_MS + 1000, 1000,
+                TimeUnit.MILLISECONDS);
+            Map<String, String> failedWorkers = new TreeMap<>();
+            for (int i = 0; i < workers; i++) {
+                String failure = await(futures.get(i), deadline);
+                if (failure != null) {
+                    logger.error("worker {} 未正常结束: {}", names.get(i), failure);
+                    failedWorkers.put(names.get(i), failure);
+                }
+            }
+            ticker.shutdownNow();
+            printLive(startAt, true);
+
+            LoadReport report;
+            synchronized (this) {
+                report = new LoadReport(workers, plan.getRatePerSecond(),
+                    System.currentTimeMillis() - startAt, new TreeMap<>(totals), new TreeMap<>(timeline),
+                    failedWorkers);
+            }
+            writeReport(report);
+            return report;
+        } catch (IOException e) {
+            throw new UncheckedIOException("压测协调失败", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("压测协调被中断", e);
+        } finally {
+            ticker.shutdownNow();
+            readers.shutdownNow();
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // 连接已断开
+                }
+            }
+        }
+    }
+
+    /**
+     * 等待一个 worker 的上报结束，正常完成返回 null，否则返回失败原因
+     */
+    private static String await(Future<Boolean> future, long deadline) throws InterruptedException {
+        try {
+            // 读超时已按 deadline 设置，这里多等1秒让读线程先报告超时
+            long remaining = Math.max(0, deadline - System.currentTimeMillis()) + 1000;
+            return future.get(remaining, TimeUnit.MILLISECONDS) ? null : "连接断开，未收到 done";
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return "超过收尾超时仍未结束";
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            return cause instanceof SocketTimeoutException ? "超过收尾超时仍未结束"
+                : "读取上报失败: " + cause.getMessage();
+        }
+    }
+
+    /**
+     * 读取一个 worker 的上报直到 done 或连接断开
+     *
+     * @return 收到 done 返回 true，连接断开返回 false
+     */
+    @SuppressWarnings("unchecked")
+    private boolean collect(String name, BufferedReader input) throws IOException {
+        Map<String, Object> message;
+        while ((message = read(input)) != null) {
+            String type = String.valueOf(message.get("type"));
+            if ("done".equals(type)) {
+                logger.info("worker 已完成: {}", name);
+                return true;
+            }
+            if (!"report".equals(type)) {
+                continue;
+            }
+            long second = ((Number) message.get("second")).longValue();
+            Map<String, Object> cases = (Map<String, Object>) message.get("cases");
+            synchronized (this) {
+                LoadStats bucket = timeline.computeIfAbsent(second, k -> new LoadStats());
+                cases.forEach((caseName, value) -> {
+                    LoadStats stats = LoadStats.fromMap((Map<String, Object>) value);
+                    totals.computeIfAbsent(caseName, k -> new LoadStats()).merge(stats);
+                    bucket.merge(stats);
+                });
+                reporters.merge(second, 1, Integer::sum);
+            }
+        }
+        logger.warn("worker 连接断开: {}", name);
+        return false;
+    }
+
+    /**
+     * 实时视图：每秒输出已经收齐（或超过1秒未收齐）的那一秒
+     */
+    private synchronized void printLive(long startAt, boolean all) {
+        long complete = (System.currentTimeMillis() - startAt) / 1000 - 2;
+        for (Map.Entry<Long, LoadStats> entry : timeline.entrySet()) {
+            long second = entry.getKey();
+            if (second <= lastPrinted) {
+                continue;
+            }
+            int reported = reporters.getOrDefault(second, 0);
+            if (!all && reported < workers && second > complete) {
+                break;
+            }
+            LoadStats stats = entry.getValue();
+            LatencyHistogram histogram = stats.getHistogram();
+            logger.info("[load] {}s: {} req/s, 错误 {}, p50 {}ms, p95 {}ms, p99 {}ms, max {}ms, worker {}/{}",
+                second + 1, stats.getCount(), stats.getErrors(), histogram.percentile(50) / 1000.0,
+                histogram.percentile(95) / 1000.0, histogram.percentile(99) / 1000.0,
+                histogram.getMax() / 1000.0, reported, workers);
+            lastPrinted = second;
+        }
+    }
+
+    private void writeReport(LoadReport report) {
+        LoadStats total = report.getTotal();
+        logger.info("========== 压测完成 ==========");
+        logger.info("请求 {}，错误 {}，目标速率 {}/s，实际速率 {}/s，p50 {}ms，p95 {}ms，p99 {}ms",
+            total.getCount(), total.getErrors(), plan.getRatePerSecond(), String.format("%.1f", report.getAchievedRate()),
+            total.getHistogram().percentile(50) / 1000.0, total.getHistogram().percentile(95) / 1000.0,
+            total.getHistogram().percentile(99) / 1000.0);
+        if (!report.getFailedWorkers().isEmpty()) {
+            logger.warn("未正常结束的 worker: {}", report.getFailedWorkers());
+        }
+        if (reportDir == null) {
+            return;
+        }
+        Path file = reportDir.resolve("load-report-" + System.currentTimeMillis() + ".json");
+        try {
+            Files.createDirectories(reportDir);
+            mapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report.toMap());
+            logger.info("压测报告: {}", file);
+        } catch (IOException e) {
+            logger.warn("写入压测报告失败: {} - {}", file, e.getMessage());
+        }
+    }
+
+    // ==================== 协议 ====================
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> read(BufferedReader input) throws IOException {
+        String line = input.readLine();
+        return line == null ? null : mapper.readValue(line, Map.class);
+    }
+
+    static void send(PrintWriter output, Map<String, Object> message) throws IOException {
+        synchronized (output) {
+            output.println(mapper.writeValueAsString(message));
+            output.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    /**
+     * 命令行入口
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("用法: LoadCoordinator <yaml文件> <worker数> <总速率/秒> <持续秒数> [端口]");
+            System.exit(1);
+        }
+        ApiMetrics.startFromSystemProperties();
+        LoadPlan plan = new LoadPlan();
+        plan.setCases(YamlDslTestEngine.getInstance().loadCases(args[0]));
+        plan.setRatePerSecond(Double.parseDouble(args[2]));
+        plan.setDurationSeconds(Integer.parseInt(args[3]));
+        plan.setRootUrl(System.getProperty("api.load.rootUrl"));
+        int port = args.length > 4 ? Integer.parseInt(args[4]) : 7070;
+        try (LoadCoordinator coordinator = new LoadCoordinator(plan, Integer.parseInt(args[1]), port)) {
+            LoadReport report = coordinator.run();
+            System.exit(report.getTotal().getErrors() == 0 && report.getFailedWorkers().isEmpty() ? 0 : 1);
+        }
+    }
+}
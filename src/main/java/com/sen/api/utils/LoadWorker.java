@@ -0,0 +1,235 @@
+package com.sen.api.utils;
+
+import com.sen.api.configs.EnvCenter;
+import com.sen.api.utils.LoadCoordinator.LoadPlan;
+import com.sen.api.utils.LoadCoordinator.LoadStats;
+import com.sen.api.utils.YamlDslTestEngine.DslTestCase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 分布式压测 worker
+ * 连接 {@link LoadCoordinator} 领取压测计划，每个用例先执行一次预热（HTTP 客户端初始化等），
+ * 在协调器给出的统一开始时间按固定间隔（开环）轮流发起计划中的 DSL 用例，每秒把这一秒完成的请求计数和耗时直方图上报给协调器。
+ * 耗时从计划发起时刻算起，线程池排队的时间也计入，目标服务变慢时不会因为少发请求而低估延迟（coordinated omission）。
+ *
+ * 用法: LoadWorker &lt;协调器主机&gt; &lt;端口&gt; [名称]
+ *
+ * @author sen
+ */
+public class LoadWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadWorker.class);
+
+    static final long DRAIN_TIMEOUT_SECONDS = 60;
+
+    private final String host;
+    private final int port;
+    private final String name;
+
+    // 当前这一秒的统计，上报时整体替换
+    private Map<String, LoadStats> interval = new HashMap<>();
+    private final Object intervalLock = new Object();
+
+    public LoadWorker(String host, int port, String name) {
+        this.host = host;
+        this.port = port;
+        this.name = name;
+    }
+
+    /**
+     * 连接协调器并执行压测，直到计划结束
+     */
+    public void run() {
+        try (Socket socket = new Socket(host, port)) {
+            BufferedReader input = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter output = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            Map<String, Object> hello = new LinkedHashMap<>();
+            hello.put("type", "hello");
+            hello.put("worker", name);
+            LoadCoordinator.send(output, hello);
+
+            Map<String, Object> message = LoadCoordinator.read(input);
+            if (message == null || !"plan".equals(message.get("type"))) {
+                throw new IllegalStateException("未收到压测计划");
+            }
+            LoadPlan plan = LoadCoordinator.mapper.convertValue(message.get("plan"), LoadPlan.class);
+            List<DslTestCase> cases = prepare(plan);
+            Map<String, Object> ready = new LinkedHashMap<>();
+            ready.put("type", "ready");
+            ready.put("worker", name);
+            LoadCoordinator.send(output, ready);
+
+            message = LoadCoordinator.read(input);
+            if (message == null || !"start".equals(message.get("type"))) {
+                throw new IllegalStateException("未收到开始指令");
+            }
+            long startAt = ((Number) message.get("startAt")).longValue();
+            execute(plan, cases, startAt, output);
+
+            Map<String, Object> done = new LinkedHashMap<>();
+            done.put("type", "done");
+            done.put("worker", name);
+            LoadCoordinator.send(output, done);
+        } catch (IOException e) {
+            throw new UncheckedIOException("压测 worker 执行失败: " + name, e);
+        }
+    }
+
+    /**
+     * 筛出可执行用例并各执行一次预热
+     */
+    private List<DslTestCase> prepare(LoadPlan plan) {
+        YamlDslTestEngine engine = YamlDslTestEngine.getInstance();
+        if (StringUtil.isNotBlank(plan.getRootUrl())) {
+            engine.setRootUrl(plan.getRootUrl());
+        }
+        List<DslTestCase> cases = new ArrayList<>();
+        for (DslTestCase testCase : plan.getCases()) {
+            if (!testCase.isSkip()) {
+                cases.add(testCase);
+            }
+        }
+        if (cases.isEmpty()) {
+            throw new IllegalStateException("压测计划中没有可执行的用例");
+        }
+        for (DslTestCase testCase : cases) {
+            try {
+                engine.runCase(testCase);
+            } catch (RuntimeException e) {
+                logger.warn("worker {} 预热用例失败: {} - {}", name, testCase.getName(), e.getMessage());
+            }
+        }
+        return cases;
+    }
+
+    private void execute(LoadPlan plan, List<DslTestCase> cases, long startAt, PrintWriter output) {
+        YamlDslTestEngine engine = YamlDslTestEngine.getInstance();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / plan.getRatePerSecond());
+        logger.info("worker {} 领取计划: {} 个用例，速率 {}/s，持续 {}s", name, cases.size(),
+            plan.getRatePerSecond(), plan.getDurationSeconds());
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(plan.getMaxConcurrency(), r -> {
+            Thread t = new Thread(r, "load-worker-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "load-worker-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicLong second = new AtomicLong();
+        reporter.scheduleAtFixedRate(() -> report(output, second.getAndIncrement()),
+            Math.max(0, startAt + 1000 - System.currentTimeMillis()), 1000, TimeUnit.MILLISECONDS);
+        try {
+            long waitMs = startAt - System.currentTimeMillis();
+            if (waitMs > 0) {
+                Thread.sleep(waitMs);
+            }
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(plan.getDurationSeconds());
+            for (long k = 0; ; k++) {
+                long intended = start + k * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long delay;
+                while ((delay = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                DslTestCase testCase = cases.get((int) (k % cases.size()));
+                pool.execute(() -> fire(engine, testCase, intended));
+            }
+            pool.shutdown();
+            if (!pool.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("worker {} 等待在途请求超时", name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+            reporter.shutdownNow();
+            try {
+                reporter.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 最后一次上报收尾的请求
+        report(output, second.getAndIncrement());
+    }
+
+    private void fire(YamlDslTestEngine engine, DslTestCase testCase, long intended) {
+        boolean passed;
+        try {
+            passed = engine.runCase(testCase).isPassed();
+        } catch (RuntimeException e) {
+            passed = false;
+        }
+        long latencyMicros = (System.nanoTime() - intended) / 1000;
+        synchronized (intervalLock) {
+            interval.computeIfAbsent(testCase.getName(), k -> new LoadStats()).record(latencyMicros, passed);
+        }
+    }
+
+    private void report(PrintWriter output, long second) {
+        Map<String, LoadStats> snapshot;
+        synchronized (intervalLock) {
+            snapshot = interval;
+            interval = new HashMap<>();
+        }
+        Map<String, Object> cases = new LinkedHashMap<>();
+        snapshot.forEach((caseName, stats) -> cases.put(caseName, stats.toMap()));
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "report");
+        message.put("worker", name);
+        message.put("second", second);
+        message.put("cases", cases);
+        try {
+            LoadCoordinator.send(output, message);
+        } catch (IOException e) {
+            logger.warn("worker {} 上报失败: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 命令行入口
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: LoadWorker <协调器主机> <端口> [名称]");
+            System.exit(1);
+        }
+        String name = args.length > 2 ? args[2] : InetAddress.getLocalHost().getHostName();
+        EnvCenter.getInstance().init();
+        YamlDslTestEngine.getInstance().initFromEnvCenter();
+        ApiMetrics.startFromSystemProperties();
+        new LoadWorker(args[0], Integer.parseInt(args[1]), name).run();
+        System.exit(0);
+    }
+}
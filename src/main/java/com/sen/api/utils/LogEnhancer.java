@@ -4,10 +4,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 日志增强工具类
@@ -17,6 +29,11 @@ import java.util.concurrent.ConcurrentHashMap;
  * - traceId 捕获
  * - 失败用例日志特殊标记
  *
+ * 内存占用有界：
+ * - 用例日志写入所属线程的定长环形缓冲区，后台线程异步落盘到滚动文件（logs/api-test-cases.log）
+ * - 只有失败用例的日志保留在内存中（每个用例最多保留一个缓冲区容量的最新条目）
+ * - 失败用例的大请求/响应体截断保存，完整内容由后台线程另存到 logs/spill 目录（待写队列满时不另存）
+ *
  * @author sen
  */
 public class LogEnhancer {
@@ -28,9 +45,19 @@ public class LogEnhancer {
     public static final String TEST_CASE_KEY = "testCase";
     public static final String TEST_STATUS_KEY = "testStatus";
 
-    // 日志存储
+    // 每线程环形缓冲区容量、内存中保留的请求/响应体最大字符数
+    private static final int RING_CAPACITY = 1024;
+    private static final int MAX_BODY_CHARS = 4096;
+
+    // 失败用例保留的日志
     private static final Map<String, List<LogEntry>> testLogs = new ConcurrentHashMap<>();
 
+    // 请求事件日志（可选）
+    private static volatile RequestEventJournal eventJournal;
+
+    // 当前线程的日志缓冲区与用例起点
+    private static final ThreadLocal<ThreadLog> threadLogs = ThreadLocal.withInitial(ThreadLog::new);
+
     // 失败用例日志
     private static final Map<String, FailedTestLog> failedTestLogs = new ConcurrentHashMap<>();
 
@@ -50,6 +77,7 @@ public class LogEnhancer {
         private String traceId;
         private String testCase;
         private Map<String, String> extras = new HashMap<>();
+        private long sequence = -1;
 
         public LogEntry(String level, String message) {
             this.timestamp = LocalDateTime.now().format(DATETIME_FORMATTER);
@@ -88,6 +116,14 @@ public class LogEnhancer {
             return extras;
         }
 
+        long getSequence() {
+            return sequence;
+        }
+
+        void setSequence(long sequence) {
+            this.sequence = sequence;
+        }
+
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
@@ -161,7 +197,7 @@ public class LogEnhancer {
         }
 
         public void setRequestBody(String requestBody) {
-            this.requestBody = requestBody;
+            this.requestBody = retainBody(testName, "request", requestBody);
         }
 
         public int getResponseStatus() {
@@ -177,7 +213,7 @@ public class LogEnhancer {
         }
 
         public void setResponseBody(String responseBody) {
-            this.responseBody = responseBody;
+            this.responseBody = retainBody(testName, "response", responseBody);
         }
 
         public List<String> getValidationErrors() {
@@ -201,6 +237,19 @@ public class LogEnhancer {
         }
     }
 
+    /**
+     * 线程日志：环形缓冲区 + 当前用例
+     */
+    private static class ThreadLog {
+        private final LogRingBuffer ring = new LogRingBuffer(RING_CAPACITY);
+        private String testCase;
+        private long caseStart;
+
+        ThreadLog() {
+            LogFileSink.register(ring);
+        }
+    }
+
     // ==================== TraceId 管理 ====================
 
     /**
@@ -257,7 +306,10 @@ public class LogEnhancer {
         MDC.put(TEST_CASE_KEY, testName);
         MDC.put(TEST_STATUS_KEY, "RUNNING");
         generateTraceId();
-        testLogs.put(testName, new ArrayList<>());
+        ThreadLog threadLog = threadLogs.get();
+        threadLog.testCase = testName;
+        threadLog.caseStart = threadLog.ring.position();
+        testLogs.remove(testName);
         logger.info("========== [START] {} ==========", testName);
     }
 
@@ -274,6 +326,14 @@ public class LogEnhancer {
             logger.error("========== [FAILED] {} ==========", testName);
         }
 
+        ThreadLog threadLog = threadLogs.get();
+        if (testName.equals(threadLog.testCase)) {
+            if (!passed) {
+                testLogs.put(testName, threadLog.ring.snapshotFrom(threadLog.caseStart));
+            }
+            threadLog.testCase = null;
+        }
+
         MDC.remove(TEST_CASE_KEY);
         MDC.remove(TEST_STATUS_KEY);
         MDC.remove(TRACE_ID_KEY);
@@ -285,6 +345,10 @@ public class LogEnhancer {
      * 记录请求日志
      */
     public static void logRequest(String method, String url, Map<String, String> headers, String body) {
+        RequestEventJournal journal = eventJournal;
+        if (journal != null) {
+            journal.begin(method, url, RequestEventJournal.utf8Length(body));
+        }
         String traceId = getTraceId();
 
         StringBuilder sb = new StringBuilder();
@@ -312,6 +376,10 @@ public class LogEnhancer {
      */
     public static void logResponse(int statusCode, Map<String, String> headers, String body, long durationMs) {
         String traceId = getTraceId();
+        RequestEventJournal journal = eventJournal;
+        if (journal != null) {
+            journal.end(statusCode, RequestEventJournal.utf8Length(body), durationMs * 1000, traceId);
+        }
 
         // 捕获响应中的traceId
         if (headers != null) {
@@ -343,6 +411,26 @@ public class LogEnhancer {
         addLogEntry(statusCode >= 400 ? "WARN" : "INFO", "RESPONSE: " + statusCode);
     }
 
+    /**
+     * 开启请求事件日志，logRequest/logResponse 每对调用追加一条二进制记录
+     */
+    public static synchronized RequestEventJournal enableEventJournal(String file) {
+        disableEventJournal();
+        eventJournal = new RequestEventJournal(file);
+        return eventJournal;
+    }
+
+    /**
+     * 关闭请求事件日志
+     */
+    public static synchronized void disableEventJournal() {
+        RequestEventJournal journal = eventJournal;
+        eventJournal = null;
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
     /**
      * 记录验证结果
      */
@@ -421,18 +509,25 @@ public class LogEnhancer {
      * 添加日志条目
      */
     private static void addLogEntry(String level, String message) {
-        String testCase = MDC.get(TEST_CASE_KEY);
-        if (testCase != null) {
-            List<LogEntry> logs = testLogs.computeIfAbsent(testCase, k -> new ArrayList<>());
-            logs.add(new LogEntry(level, message));
+        if (MDC.get(TEST_CASE_KEY) != null) {
+            threadLogs.get().ring.add(new LogEntry(level, message));
         }
     }
 
     /**
      * 获取测试用例的日志
+     * 可取到失败用例以及当前线程正在执行的用例的日志，通过的用例日志只在落盘文件中
      */
     public static List<LogEntry> getTestLogs(String testName) {
-        return testLogs.getOrDefault(testName, new ArrayList<>());
+        List<LogEntry> retained = testLogs.get(testName);
+        if (retained != null) {
+            return new ArrayList<>(retained);
+        }
+        ThreadLog threadLog = threadLogs.get();
+        if (testName.equals(threadLog.testCase)) {
+            return threadLog.ring.snapshotFrom(threadLog.caseStart);
+        }
+        return new ArrayList<>();
     }
 
     /**
@@ -443,6 +538,216 @@ public class LogEnhancer {
         failedTestLogs.clear();
     }
 
+    /**
+     * 设置日志落盘文件
+     *
+     * @param directory    目录
+     * @param maxFileBytes 单个文件大小上限，超过后滚动
+     * @param maxFiles     保留的历史文件数
+     */
+    public static void configureLogFile(String directory, long maxFileBytes, int maxFiles) {
+        LogFileSink.configure(Paths.get(directory), maxFileBytes, maxFiles);
+    }
+
+    /**
+     * 立即将所有缓冲区中的日志写入文件
+     */
+    public static void flushLogs() {
+        LogFileSink.drainAll();
+    }
+
+    /**
+     * 落盘跟不上被覆盖的日志条目数
+     */
+    public static long getDroppedLogCount() {
+        return LogFileSink.droppedCount();
+    }
+
+    /**
+     * 截断大请求/响应体，完整内容交给落盘线程另存到 spill 目录，测试线程不做文件 I/O
+     */
+    static String retainBody(String testName, String kind, String body) {
+        if (body == null || body.length() <= MAX_BODY_CHARS) {
+            return body;
+        }
+        String truncated = body.substring(0, MAX_BODY_CHARS) + "... (truncated, " + body.length() + " chars";
+        Path file = LogFileSink.spill(testName, kind, body);
+        return file != null ? truncated + ", full body: " + file + ")" : truncated + ")";
+    }
+
+    /**
+     * 日志落盘
+     * 单个后台线程轮询所有线程的环形缓冲区，写入按大小滚动的文件，并写出待另存的请求/响应体
+     */
+    private static final class LogFileSink {
+        private static final long DRAIN_INTERVAL_MS = 100;
+        // 待另存的完整请求/响应体数量上限，限制等待落盘时占用的内存
+        private static final int SPILL_CAPACITY = 64;
+
+        private static final Queue<LogRingBuffer> rings = new ConcurrentLinkedQueue<>();
+        private static final BlockingQueue<Spill> spills = new ArrayBlockingQueue<>(SPILL_CAPACITY);
+        private static final AtomicLong retiredDropped = new AtomicLong();
+        private static volatile Path directory = Paths.get("logs");
+        private static volatile long maxFileBytes = 50L * 1024 * 1024;
+        private static volatile int maxFiles = 5;
+        private static BufferedWriter writer;
+        private static long fileBytes;
+
+        static {
+            Thread drainer = new Thread(LogFileSink::drainLoop, "LogEnhancerWriter");
+            drainer.setDaemon(true);
+            drainer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(LogFileSink::drainAll, "LogEnhancerFlush"));
+        }
+
+        static void register(LogRingBuffer ring) {
+            rings.add(ring);
+        }
+
+        static synchronized void configure(Path dir, long maxBytes, int files) {
+            drainAll();
+            closeWriter();
+            directory = dir;
+            maxFileBytes = maxBytes;
+            maxFiles = files;
+        }
+
+        static long droppedCount() {
+            return retiredDropped.get() + rings.stream().mapToLong(LogRingBuffer::getDroppedCount).sum();
+        }
+
+        /**
+         * 登记待另存的完整内容
+         *
+         * @return 另存文件路径，待写队列已满时返回 null
+         */
+        static Path spill(String testName, String kind, String body) {
+            Path file = directory.resolve("spill").resolve(testName.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" + kind
+                + "-" + System.nanoTime() + ".txt");
+            if (!spills.offer(new Spill(file, body))) {
+                logger.debug("Spill queue full, {} body of {} kept truncated only", kind, testName);
+                return null;
+            }
+            return file;
+        }
+
+        private static void writeSpills() {
+            Spill spill;
+            while ((spill = spills.poll()) != null) {
+                try {
+                    Files.createDirectories(spill.file.getParent());
+                    Files.writeString(spill.file, spill.body, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    logger.warn("Failed to spill body to {}: {}", spill.file, e.getMessage());
+                }
+            }
+        }
+
+        private static void drainLoop() {
+            while (true) {
+                try {
+                    Thread.sleep(DRAIN_INTERVAL_MS);
+                    drainAll();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    logger.warn("Failed to write test case logs: {}", e.getMessage());
+                }
+            }
+        }
+
+        static synchronized void drainAll() {
+            writeSpills();
+            Iterator<LogRingBuffer> iterator = rings.iterator();
+            while (iterator.hasNext()) {
+                LogRingBuffer ring = iterator.next();
+                ring.drain(LogFileSink::write);
+                if (ring.isRetired()) {
+                    retiredDropped.addAndGet(ring.getDroppedCount());
+                    iterator.remove();
+                }
+            }
+            if (writer != null) {
+                try {
+                    writer.flush();
+                } catch (IOException e) {
+                    closeWriter();
+                }
+            }
+        }
+
+        private static void write(LogEntry entry) {
+            String line = "[" + entry.getTestCase() + "] " + entry + System.lineSeparator();
+            try {
+                if (writer == null) {
+                    openWriter();
+                } else if (fileBytes >= maxFileBytes) {
+                    closeWriter();
+                    roll();
+                    openWriter();
+                }
+                writer.write(line);
+                fileBytes += line.length();
+            } catch (IOException e) {
+                closeWriter();
+                throw new IllegalStateException("写入用例日志文件失败: " + e.getMessage(), e);
+            }
+        }
+
+        private static Path logFile() {
+            return directory.resolve("api-test-cases.log");
+        }
+
+        private static void openWriter() throws IOException {
+            Files.createDirectories(directory);
+            Path file = logFile();
+            fileBytes = Files.exists(file) ? Files.size(file) : 0;
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        private static void closeWriter() {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                    // 关闭失败不影响后续重新打开
+                }
+                writer = null;
+            }
+        }
+
+        /**
+         * 待另存的完整请求/响应体
+         */
+        private static final class Spill {
+            private final Path file;
+            private final String body;
+
+            Spill(Path file, String body) {
+                this.file = file;
+                this.body = body;
+            }
+        }
+
+        /**
+         * api-test-cases.log -> .1 -> .2 ... 超过 maxFiles 的删除
+         */
+        private static void roll() throws IOException {
+            Path file = logFile();
+            Files.deleteIfExists(Paths.get(file + "." + maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                Path source = Paths.get(file + "." + i);
+                if (Files.exists(source)) {
+                    Files.move(source, Paths.get(file + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (Files.exists(file)) {
+                Files.move(file, Paths.get(file + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
     // ==================== 辅助方法 ====================
 
     /**
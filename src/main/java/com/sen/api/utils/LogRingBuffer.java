@@ -0,0 +1,115 @@
+package com.sen.api.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 定长日志环形缓冲区（单生产者 / 单消费者，无锁）
+ * - 生产者为所属测试线程，写入永不阻塞：缓冲区写满时覆盖最旧的条目
+ * - 消费者为后台落盘线程，按序号读取；被覆盖的条目计入丢弃数
+ * - 每个槽位保存条目序号，读取后校验序号，避免读到被并发覆盖的新条目
+ *
+ * @author sen
+ */
+public class LogRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<LogEnhancer.LogEntry> slots;
+    private final Thread owner;
+    // 下一个写入序号（仅生产者写）
+    private final AtomicLong tail = new AtomicLong();
+    // 下一个消费序号（仅消费者写）
+    private long head;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+     * 写入条目（仅所属线程调用）
+     *
+     * @return 条目序号
+     */
+    public long add(LogEnhancer.LogEntry entry) {
+        long seq = tail.get();
+        entry.setSequence(seq);
+        slots.lazySet((int) (seq & mask), entry);
+        tail.lazySet(seq + 1);
+        return seq;
+    }
+
+    /**
+     * 下一个写入序号，用于标记用例起点
+     */
+    public long position() {
+        return tail.get();
+    }
+
+    /**
+     * 取出序号 fromSeq 之后仍在缓冲区中的条目（仅所属线程调用）
+     */
+    public List<LogEnhancer.LogEntry> snapshotFrom(long fromSeq) {
+        long end = tail.get();
+        long start = Math.max(fromSeq, end - capacity);
+        List<LogEnhancer.LogEntry> entries = new ArrayList<>((int) Math.max(0, end - start));
+        for (long seq = start; seq < end; seq++) {
+            LogEnhancer.LogEntry entry = slots.get((int) (seq & mask));
+            if (entry != null && entry.getSequence() == seq) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 消费尚未落盘的条目（仅落盘线程调用）
+     *
+     * @return 本次消费的条目数
+     */
+    public int drain(Consumer<LogEnhancer.LogEntry> consumer) {
+        long end = tail.get();
+        if (end - head > capacity) {
+            // 落盘跟不上，最旧的条目已被覆盖
+            dropped.addAndGet(end - capacity - head);
+            head = end - capacity;
+        }
+        int count = 0;
+        for (; head < end; head++) {
+            LogEnhancer.LogEntry entry = slots.get((int) (head & mask));
+            if (entry == null || entry.getSequence() != head) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            consumer.accept(entry);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 所属线程已结束且条目已全部消费
+     */
+    public boolean isRetired() {
+        return !owner.isAlive() && head >= tail.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
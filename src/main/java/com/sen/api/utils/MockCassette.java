@@ -0,0 +1,428 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformerV2;
+import com.github.tomakehurst.wiremock.extension.requestfilter.RequestFilterAction;
+import com.github.tomakehurst.wiremock.extension.requestfilter.StubRequestFilterV2;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+
+/**
+ * Mock录制回放磁带
+ * 录制模式下Mock服务器作为代理转发到真实服务，并把请求/响应对逐行追加到磁带文件（JSON Lines）；
+ * 回放模式下按请求指纹（方法 + URL + 请求体摘要）直接返回录制的响应。
+ *
+ * 回放时只在内存中保存 指纹 -> 文件偏移 的索引，响应体按需从文件读取，
+ * 因此大磁带不需要整体装入堆内存。记录第一次命中后缓存解析好的响应，之后的命中不再读盘和解析JSON；
+ * 超过 {@link #CACHE_MAX_RECORD_BYTES} 的大记录不缓存，每次仍从文件读取。
+ * 同一指纹录制了多次时按录制顺序依次返回，最后一条重复使用。
+ *
+ * @author sen
+ */
+public class MockCassette implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockCassette.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // 不写入磁带的逐跳响应头
+    private static final Set<String> SKIPPED_HEADERS = Set.of(
+        "content-length", "transfer-encoding", "connection", "date", "keep-alive",
+        "content-encoding", "matched-stub-id");
+
+    // 超过该大小的记录回放时不缓存
+    static final int CACHE_MAX_RECORD_BYTES = 1024 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private int recordCount;
+
+    /**
+     * 一条录制在文件中的位置，命中后缓存解析好的响应
+     */
+    private static class Position {
+        private final long offset;
+        private final int length;
+        private volatile ResponseDefinition response;
+
+        Position(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 同一指纹的所有录制位置
+     */
+    private static class Entry {
+        private final List<Position> positions = new ArrayList<>();
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        Position next() {
+            int i = cursor.getAndIncrement();
+            return positions.get(Math.min(i, positions.size() - 1));
+        }
+    }
+
+    private MockCassette(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * 打开磁带用于回放：顺序扫描一遍文件，只建立指纹到偏移的索引
+     */
+    public static MockCassette open(String cassettePath) {
+        Path path = new File(cassettePath).toPath();
+        if (!Files.exists(path)) {
+            throw new IllegalArgumentException("磁带文件不存在: " + cassettePath);
+        }
+        try {
+            MockCassette cassette = new MockCassette(path);
+            cassette.buildIndex();
+            logger.info("Opened cassette {} ({} records, {} fingerprints)",
+                cassettePath, cassette.recordCount, cassette.index.size());
+            return cassette;
+        } catch (IOException e) {
+            throw new IllegalStateException("打开磁带失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void buildIndex() throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+            // 指纹总在行首，每行只需保留前256字节
+            byte[] head = new byte[256];
+            int headSize = 0;
+            long offset = 0;
+            long lineStart = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    indexLine(head, headSize, lineStart, offset - lineStart);
+                    headSize = 0;
+                    lineStart = offset + 1;
+                } else if (headSize < head.length) {
+                    head[headSize++] = (byte) b;
+                }
+                offset++;
+            }
+            if (offset > lineStart) {
+                indexLine(head, headSize, lineStart, offset - lineStart);
+            }
+        }
+    }
+
+    private void indexLine(byte[] head, int headSize, long lineStart, long length) {
+        String prefix = new String(head, 0, headSize, StandardCharsets.UTF_8);
+        int start = prefix.indexOf("\"fp\":\"");
+        if (start < 0) {
+            return;
+        }
+        start += 6;
+        int end = prefix.indexOf('"', start);
+        String fingerprint = prefix.substring(start, end);
+        if (length > Integer.MAX_VALUE) {
+            logger.warn("Skipped cassette record at offset {}: {} bytes", lineStart, length);
+            return;
+        }
+        index.computeIfAbsent(fingerprint, k -> new Entry()).positions.add(new Position(lineStart, (int) length));
+        recordCount++;
+    }
+
+    /**
+     * 按指纹查找下一条录制的响应
+     */
+    public ResponseDefinition lookup(String method, String url, byte[] body) {
+        Entry entry = index.get(fingerprint(method, url, body));
+        if (entry == null) {
+            return null;
+        }
+        Position pos = entry.next();
+        ResponseDefinition response = pos.response;
+        if (response != null) {
+            return response;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(pos.length);
+            while (buffer.hasRemaining() && channel.read(buffer, pos.offset + buffer.position()) > 0) {
+                // 大记录可能需要多次读取
+            }
+            response = toResponse(mapper.readTree(buffer.array()));
+            // 并发首次命中时可能重复解析，结果相同，不需要加锁
+            if (pos.length <= CACHE_MAX_RECORD_BYTES) {
+                pos.response = response;
+            }
+            return response;
+        } catch (IOException e) {
+            logger.error("Failed to read cassette record at offset {}", pos.offset, e);
+            return null;
+        }
+    }
+
+    private static ResponseDefinition toResponse(JsonNode record) {
+        List<HttpHeader> headers = new ArrayList<>();
+        JsonNode headerNode = record.path("h");
+        headerNode.fieldNames().forEachRemaining(name -> {
+            List<String> values = new ArrayList<>();
+            headerNode.get(name).forEach(v -> values.add(v.asText()));
+            headers.add(new HttpHeader(name, values));
+        });
+
+        byte[] body = record.has("b64")
+            ? Base64.getDecoder().decode(record.get("b64").asText())
+            : record.path("b").asText("").getBytes(StandardCharsets.UTF_8);
+
+        return aResponse()
+            .withStatus(record.path("s").asInt(200))
+            .withHeaders(new HttpHeaders(headers))
+            .withHeader("X-Mock-Replay", "true")
+            .withBody(body)
+            .build();
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public int getFingerprintCount() {
+        return index.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 计算请求指纹：方法 + URL + 请求体SHA-256
+     */
+    public static String fingerprint(String method, String url, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(method.toUpperCase().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ' ');
+            digest.update(url.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            if (body != null) {
+                digest.update(body);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (Exception e) {
+            throw new IllegalStateException("计算请求指纹失败", e);
+        }
+    }
+
+    // ==================== 录制 ====================
+
+    /**
+     * 磁带写入器，每个请求/响应对追加为一行
+     */
+    public static class Recorder implements Closeable {
+        private final BufferedWriter writer;
+        private final String cassettePath;
+        private int count;
+        private boolean closed;
+
+        public Recorder(String cassettePath) {
+            this.cassettePath = cassettePath;
+            try {
+                File file = new File(cassettePath);
+                if (file.getParentFile() != null) {
+                    file.getParentFile().mkdirs();
+                }
+                this.writer = new BufferedWriter(new OutputStreamWriter(
+                    Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                    StandardCharsets.UTF_8), 64 * 1024);
+            } catch (IOException e) {
+                throw new IllegalStateException("创建磁带文件失败: " + cassettePath, e);
+            }
+        }
+
+        public synchronized void record(LoggedRequest request, Response response) {
+            if (closed) {
+                return;
+            }
+            ObjectNode record = mapper.createObjectNode();
+            // fp 必须是第一个字段，回放建索引时只读取行首
+            record.put("fp", fingerprint(request.getMethod().getName(), request.getUrl(), request.getBody()));
+            record.put("m", request.getMethod().getName());
+            record.put("u", request.getUrl());
+            record.put("s", response.getStatus());
+
+            ObjectNode headers = record.putObject("h");
+            if (response.getHeaders() != null) {
+                for (HttpHeader header : response.getHeaders().all()) {
+                    if (!SKIPPED_HEADERS.contains(header.key().toLowerCase())) {
+                        header.values().forEach(headers.withArray(header.key())::add);
+                    }
+                }
+            }
+
+            // 磁带中统一保存解压后的响应体，回放时不再带 Content-Encoding
+            byte[] body = response.getBody();
+            HttpHeader encoding = response.getHeaders() != null
+                ? response.getHeaders().getHeader("Content-Encoding") : null;
+            if (encoding != null && encoding.isPresent() && "gzip".equalsIgnoreCase(encoding.firstValue())) {
+                body = gunzip(body);
+            }
+            String text = decodeUtf8(body);
+            if (text != null) {
+                record.put("b", text);
+            } else {
+                record.put("b64", Base64.getEncoder().encodeToString(body));
+            }
+
+            try {
+                writer.write(mapper.writeValueAsString(record));
+                writer.write('\n');
+                count++;
+            } catch (IOException e) {
+                logger.error("Failed to write cassette record: {} {}", request.getMethod(), request.getUrl(), e);
+            }
+        }
+
+        public synchronized int getCount() {
+            return count;
+        }
+
+        public String getCassettePath() {
+            return cassettePath;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+            writer.close();
+        }
+
+        private static byte[] gunzip(byte[] body) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                return body;
+            }
+        }
+
+        private static String decodeUtf8(byte[] body) {
+            if (body == null) {
+                return "";
+            }
+            try {
+                return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(body))
+                    .toString();
+            } catch (CharacterCodingException e) {
+                return null;
+            }
+        }
+    }
+
+    // ==================== WireMock扩展 ====================
+
+    /**
+     * 录制转换器：把经代理返回的响应写入当前磁带
+     * 在响应转换阶段取完整响应体，不依赖请求日志中可能被截断的响应体。
+     * 只录制代理响应：被常规桩、索引桩或回放命中的请求不会转发到真实服务，也不会写入磁带，
+     * 因此录制期间已存在的桩会遮蔽对应接口的录制。
+     */
+    public static class RecordTransformer implements ResponseTransformerV2 {
+        private volatile Recorder recorder;
+
+        public void setRecorder(Recorder recorder) {
+            this.recorder = recorder;
+        }
+
+        public Recorder getRecorder() {
+            return recorder;
+        }
+
+        @Override
+        public Response transform(Response response, ServeEvent serveEvent) {
+            Recorder current = recorder;
+            if (current != null && serveEvent.getResponseDefinition() != null
+                    && serveEvent.getResponseDefinition().isProxyResponse()) {
+                current.record(serveEvent.getRequest(), response);
+            }
+            return response;
+        }
+
+        @Override
+        public String getName() {
+            return "mock-cassette-recorder";
+        }
+    }
+
+    /**
+     * 回放过滤器：指纹命中时直接返回录制的响应，未命中继续走桩匹配
+     */
+    public static class ReplayFilter implements StubRequestFilterV2 {
+        private volatile MockCassette cassette;
+
+        public void setCassette(MockCassette cassette) {
+            this.cassette = cassette;
+        }
+
+        public MockCassette getCassette() {
+            return cassette;
+        }
+
+        @Override
+        public RequestFilterAction filter(Request request, ServeEvent serveEvent) {
+            MockCassette current = cassette;
+            if (current != null) {
+                ResponseDefinition response = current.lookup(
+                    request.getMethod().getName(), request.getUrl(), request.getBody());
+                if (response != null) {
+                    return RequestFilterAction.stopWith(response);
+                }
+            }
+            return RequestFilterAction.continueWith(request);
+        }
+
+        @Override
+        public String getName() {
+            return "mock-cassette-replay";
+        }
+    }
+}
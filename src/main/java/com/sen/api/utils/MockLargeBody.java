@@ -0,0 +1,328 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.common.InputStreamSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformerV2;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mock大响应体
+ * 响应体不进堆内存：文件响应体从磁盘流式读取（FileChannel.transferTo），
+ * 合成响应体按位置即时生成，两者都支持单区间 Range 请求（206 / 416）。
+ *
+ * 桩通过 transformer 参数声明响应体来源：
+ * - file: 磁盘文件路径
+ * - syntheticSize / syntheticSeed: 合成响应体的字节数和种子，同一种子同一位置的字节始终相同
+ *
+ * @author sen
+ */
+public class MockLargeBody implements ResponseTransformerV2 {
+
+    public static final String NAME = "mock-large-body";
+    public static final String PARAM_FILE = "file";
+    public static final String PARAM_SYNTHETIC_SIZE = "syntheticSize";
+    public static final String PARAM_SYNTHETIC_SEED = "syntheticSeed";
+
+    @Override
+    public Response transform(Response response, ServeEvent serveEvent) {
+        Parameters parameters = serveEvent.getTransformerParameters();
+        if (parameters == null) {
+            return response;
+        }
+
+        BodySource source;
+        if (parameters.containsKey(PARAM_FILE)) {
+            source = fileSource(new File(String.valueOf(parameters.get(PARAM_FILE))));
+        } else if (parameters.containsKey(PARAM_SYNTHETIC_SIZE)) {
+            long size = ((Number) parameters.get(PARAM_SYNTHETIC_SIZE)).longValue();
+            long seed = parameters.get(PARAM_SYNTHETIC_SEED) instanceof Number
+                ? ((Number) parameters.get(PARAM_SYNTHETIC_SEED)).longValue() : 0L;
+            source = syntheticSource(size, seed);
+        } else {
+            return response;
+        }
+
+        long total = source.length();
+        long start = 0;
+        long end = total - 1;
+        int status = response.getStatus();
+        List<HttpHeader> headers = new ArrayList<>();
+        headers.add(new HttpHeader("Accept-Ranges", "bytes"));
+
+        String range = serveEvent.getRequest().getHeader("Range");
+        if (status == 200 && range != null) {
+            long[] bounds = parseRange(range, total);
+            if (bounds == null) {
+                headers.add(new HttpHeader("Content-Range", "bytes */" + total));
+                return Response.Builder.like(response).but()
+                    .status(416)
+                    .headers(merge(response.getHeaders(), headers))
+                    .body(new byte[0])
+                    .build();
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                status = 206;
+                headers.add(new HttpHeader("Content-Range", "bytes " + start + "-" + end + "/" + total));
+            }
+        }
+
+        long length = end - start + 1;
+        headers.add(new HttpHeader("Content-Length", String.valueOf(Math.max(0, length))));
+        long offset = start;
+        return Response.Builder.like(response).but()
+            .status(status)
+            .headers(merge(response.getHeaders(), headers))
+            .body((InputStreamSource) () -> source.open(offset, Math.max(0, length)))
+            .build();
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * 解析 Range 头
+     *
+     * @return 长度为2的 [start, end]；空数组表示忽略 Range 返回完整响应体；null 表示区间无法满足
+     */
+    static long[] parseRange(String range, long total) {
+        String value = range.trim();
+        if (!value.startsWith("bytes=") || value.contains(",")) {
+            // 多区间请求按规范可直接返回完整响应体
+            return new long[0];
+        }
+        String spec = value.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // bytes=-N 表示最后N个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, total - suffix);
+                end = total - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? total - 1 : Math.min(Long.parseLong(last), total - 1);
+            }
+            if (start >= total || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static HttpHeaders merge(HttpHeaders original, List<HttpHeader> overrides) {
+        List<HttpHeader> merged = new ArrayList<>();
+        if (original != null) {
+            for (HttpHeader header : original.all()) {
+                boolean overridden = overrides.stream().anyMatch(h -> h.keyEquals(header.key()));
+                if (!overridden) {
+                    merged.add(header);
+                }
+            }
+        }
+        merged.addAll(overrides);
+        return new HttpHeaders(merged);
+    }
+
+    // ==================== 响应体来源 ====================
+
+    /**
+     * 可随机访问的响应体来源
+     */
+    interface BodySource {
+        long length();
+
+        InputStream open(long offset, long length);
+    }
+
+    static BodySource fileSource(File file) {
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("Mock响应体文件不存在: " + file.getPath());
+        }
+        return new BodySource() {
+            @Override
+            public long length() {
+                return file.length();
+            }
+
+            @Override
+            public InputStream open(long offset, long length) {
+                try {
+                    return new FileRegionInputStream(
+                        FileChannel.open(file.toPath(), StandardOpenOption.READ), offset, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("打开Mock响应体文件失败: " + file.getPath(), e);
+                }
+            }
+        };
+    }
+
+    static BodySource syntheticSource(long size, long seed) {
+        if (size < 0) {
+            throw new IllegalArgumentException("合成响应体大小不能为负数");
+        }
+        return new BodySource() {
+            @Override
+            public long length() {
+                return size;
+            }
+
+            @Override
+            public InputStream open(long offset, long length) {
+                return new SyntheticInputStream(seed, offset, length);
+            }
+        };
+    }
+
+    /**
+     * 文件区间输入流
+     * WireMock 以 InputStream.transferTo 写出响应，这里改由 FileChannel.transferTo 从文件区间直接写入输出流
+     */
+    static class FileRegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        FileRegionInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int toRead = (int) Math.min(len, remaining);
+            int n = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+            if (n > 0) {
+                position += n;
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            while (remaining > 0) {
+                long n = channel.transferTo(position, remaining, target);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+                remaining -= n;
+                transferred += n;
+            }
+            return transferred;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, remaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * 合成响应体输入流
+     * 每8字节一个块，块内容由 种子+块序号 经 SplitMix64 混合得到，可从任意位置开始生成
+     */
+    static class SyntheticInputStream extends InputStream {
+        private final long seed;
+        private long position;
+        private long remaining;
+
+        SyntheticInputStream(long seed, long offset, long length) {
+            this.seed = seed;
+            this.position = offset;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = byteAt(seed, position) & 0xFF;
+            position++;
+            remaining--;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int toRead = (int) Math.min(len, remaining);
+            for (int i = 0; i < toRead; i++) {
+                b[off + i] = byteAt(seed, position + i);
+            }
+            position += toRead;
+            remaining -= toRead;
+            return toRead;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, remaining);
+        }
+
+        static byte byteAt(long seed, long position) {
+            long z = seed + (position >>> 3) * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z = z ^ (z >>> 31);
+            return (byte) (z >>> ((position & 7) << 3));
+        }
+    }
+}
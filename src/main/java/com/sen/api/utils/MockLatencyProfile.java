@@ -0,0 +1,323 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.http.DelayDistribution;
+import com.github.tomakehurst.wiremock.http.UniformDistribution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mock响应延迟画像
+ * 从统计分布中采样响应延迟，并可按带宽限速分块下发响应体，用于测试客户端超时和长尾延迟处理。
+ *
+ * 支持的分布：
+ * - fixed: 固定延迟（delay）
+ * - uniform: 均匀分布（min, max）
+ * - lognormal: 对数正态分布（median, sigma）
+ * - pareto: 帕累托分布（scale, shape, max）
+ * - empirical: 经验直方图（file 指向真实延迟日志，或 samples 直接给出样本）
+ *
+ * 配置示例（mock-config.yml）：
+ * <pre>
+ * latency:
+ *   distribution: lognormal
+ *   median: 120
+ *   sigma: 0.5
+ * bandwidth:
+ *   bytesPerSecond: 16384
+ *   chunkSize: 1024
+ * </pre>
+ *
+ * @author sen
+ */
+public class MockLatencyProfile {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockLatencyProfile.class);
+
+    private static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private DelayDistribution distribution;
+    private long bytesPerSecond = 0;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    public MockLatencyProfile() {
+    }
+
+    public MockLatencyProfile(DelayDistribution distribution) {
+        this.distribution = distribution;
+    }
+
+    public static MockLatencyProfile lognormal(double medianMs, double sigma) {
+        return new MockLatencyProfile(new LogNormalDelay(medianMs, sigma));
+    }
+
+    public static MockLatencyProfile pareto(double scaleMs, double shape, long maxMs) {
+        return new MockLatencyProfile(new ParetoDelay(scaleMs, shape, maxMs));
+    }
+
+    public static MockLatencyProfile empirical(String latencyLogPath) {
+        return new MockLatencyProfile(EmpiricalDelay.fromFile(latencyLogPath));
+    }
+
+    /**
+     * 按带宽限速下发响应体
+     */
+    public MockLatencyProfile bandwidth(long bytesPerSecond, int chunkSize) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+        return this;
+    }
+
+    public DelayDistribution getDistribution() {
+        return distribution;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 将延迟画像应用到响应定义
+     *
+     * @param builder   响应定义
+     * @param bodyBytes 响应体字节数（用于计算限速下发的分块数和总时长）
+     */
+    public void applyTo(ResponseDefinitionBuilder builder, long bodyBytes) {
+        if (distribution != null) {
+            builder.withRandomDelay(distribution);
+        }
+        if (bytesPerSecond > 0 && bodyBytes > 0) {
+            int chunks = (int) Math.max(1, (bodyBytes + chunkSize - 1) / chunkSize);
+            int durationMs = (int) Math.max(1, bodyBytes * 1000 / bytesPerSecond);
+            builder.withChunkedDribbleDelay(chunks, durationMs);
+        }
+    }
+
+    /**
+     * 从YAML配置解析延迟画像
+     *
+     * @param latency   latency 节点，可为null
+     * @param bandwidth bandwidth 节点，可为null
+     */
+    @SuppressWarnings("unchecked")
+    public static MockLatencyProfile fromConfig(Map<String, Object> latency, Map<String, Object> bandwidth) {
+        MockLatencyProfile profile = new MockLatencyProfile();
+
+        if (latency != null) {
+            String type = String.valueOf(latency.getOrDefault("distribution", "fixed")).toLowerCase();
+            switch (type) {
+                case "uniform":
+                    profile.distribution = new UniformDistribution(
+                        toInt(latency.get("min"), 0), toInt(latency.get("max"), 0));
+                    break;
+                case "lognormal":
+                    profile.distribution = new LogNormalDelay(
+                        toDouble(latency.get("median"), 100), toDouble(latency.get("sigma"), 0.1));
+                    break;
+                case "pareto":
+                    profile.distribution = new ParetoDelay(
+                        toDouble(latency.get("scale"), 50), toDouble(latency.get("shape"), 2.0),
+                        toLong(latency.get("max"), 0));
+                    break;
+                case "empirical":
+                    if (latency.get("samples") instanceof List) {
+                        profile.distribution = EmpiricalDelay.fromSamples((List<Object>) latency.get("samples"));
+                    } else {
+                        profile.distribution = EmpiricalDelay.fromFile((String) latency.get("file"));
+                    }
+                    break;
+                case "fixed":
+                    long delay = toLong(latency.get("delay"), 0);
+                    profile.distribution = () -> delay;
+                    break;
+                default:
+                    throw new IllegalArgumentException("不支持的延迟分布: " + type);
+            }
+        }
+
+        if (bandwidth != null) {
+            profile.bandwidth(toLong(bandwidth.get("bytesPerSecond"), 0),
+                toInt(bandwidth.get("chunkSize"), DEFAULT_CHUNK_SIZE));
+        }
+
+        return profile;
+    }
+
+    private static int toInt(Object value, int defaultValue) {
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+
+    private static long toLong(Object value, long defaultValue) {
+        return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+    }
+
+    private static double toDouble(Object value, double defaultValue) {
+        return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+    }
+
+    /**
+     * 对数正态分布延迟
+     * 采样公式与 WireMock 的 LogNormal 相同: median * e^(sigma * N(0,1))，另外支持传入随机源
+     */
+    public static class LogNormalDelay implements DelayDistribution {
+        private final double median;
+        private final double sigma;
+
+        public LogNormalDelay(double median, double sigma) {
+            this.median = median;
+            this.sigma = sigma;
+        }
+
+        public double getMedian() {
+            return median;
+        }
+
+        public double getSigma() {
+            return sigma;
+        }
+
+        @Override
+        public long sampleMillis() {
+            return sampleMillis(ThreadLocalRandom.current());
+        }
+
+        long sampleMillis(Random random) {
+            return Math.round(median * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    /**
+     * 帕累托分布延迟（重尾，适合模拟偶发的极慢请求）
+     * 采样公式: scale / U^(1/shape)，max > 0 时截断
+     */
+    public static class ParetoDelay implements DelayDistribution {
+        private final double scale;
+        private final double shape;
+        private final long max;
+
+        public ParetoDelay(double scale, double shape, long max) {
+            if (scale <= 0 || shape <= 0) {
+                throw new IllegalArgumentException("Pareto分布的scale和shape必须大于0");
+            }
+            this.scale = scale;
+            this.shape = shape;
+            this.max = max;
+        }
+
+        public double getScale() {
+            return scale;
+        }
+
+        public double getShape() {
+            return shape;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public long sampleMillis() {
+            return sampleMillis(ThreadLocalRandom.current());
+        }
+
+        long sampleMillis(Random random) {
+            double u = 1.0 - random.nextDouble();
+            long sample = Math.round(scale / Math.pow(u, 1.0 / shape));
+            return max > 0 ? Math.min(sample, max) : sample;
+        }
+    }
+
+    /**
+     * 经验直方图延迟
+     * 按去重后的延迟值及其累计频次做逆CDF采样，内存只与不同延迟值的个数有关
+     */
+    public static class EmpiricalDelay implements DelayDistribution {
+        private final long[] values;
+        private final long[] cumulativeCounts;
+
+        public EmpiricalDelay(TreeMap<Long, Long> histogram) {
+            if (histogram.isEmpty()) {
+                throw new IllegalArgumentException("经验延迟直方图为空");
+            }
+            this.values = new long[histogram.size()];
+            this.cumulativeCounts = new long[histogram.size()];
+            long total = 0;
+            int i = 0;
+            for (Map.Entry<Long, Long> entry : histogram.entrySet()) {
+                total += entry.getValue();
+                values[i] = entry.getKey();
+                cumulativeCounts[i] = total;
+                i++;
+            }
+        }
+
+        @Override
+        public long sampleMillis() {
+            return sampleMillis(ThreadLocalRandom.current());
+        }
+
+        long sampleMillis(Random random) {
+            long total = cumulativeCounts[cumulativeCounts.length - 1];
+            long target = random.nextLong(total) + 1;
+            int index = Arrays.binarySearch(cumulativeCounts, target);
+            return values[index >= 0 ? index : -index - 1];
+        }
+
+        public static EmpiricalDelay fromSamples(List<Object> samples) {
+            TreeMap<Long, Long> histogram = new TreeMap<>();
+            for (Object sample : samples) {
+                histogram.merge(((Number) sample).longValue(), 1L, Long::sum);
+            }
+            return new EmpiricalDelay(histogram);
+        }
+
+        /**
+         * 从延迟日志导入
+         * 每行一个延迟值（毫秒），或 "延迟,次数" 形式的预分桶直方图；# 开头为注释
+         */
+        public static EmpiricalDelay fromFile(String path) {
+            TreeMap<Long, Long> histogram = new TreeMap<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(openStream(path),
+                    StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] parts = line.split("[,\\s]+");
+                    long value = Math.round(Double.parseDouble(parts[0].replace("ms", "")));
+                    long count = parts.length > 1 ? Long.parseLong(parts[1]) : 1L;
+                    histogram.merge(value, count, Long::sum);
+                }
+            } catch (Exception e) {
+                throw new IllegalArgumentException("读取延迟日志失败: " + path + " - " + e.getMessage(), e);
+            }
+            logger.info("Loaded empirical latency histogram from {} ({} buckets)", path, histogram.size());
+            return new EmpiricalDelay(histogram);
+        }
+
+        private static InputStream openStream(String path) throws Exception {
+            InputStream is = MockLatencyProfile.class.getClassLoader().getResourceAsStream(path);
+            return is != null ? is : Files.newInputStream(new File(path).toPath());
+        }
+    }
+}
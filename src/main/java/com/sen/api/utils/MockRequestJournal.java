@@ -0,0 +1,228 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界Mock请求日志
+ * - 固定容量的环形缓冲区保存最近的请求（按采样率抽样），长时间运行内存不增长
+ * - 每个 "方法 + URL" 的请求次数用 LongAdder 精确计数，不受采样影响
+ * - 计数的URL种类达到上限后，新URL统一计入 {@link #OTHER_KEY}，
+ *   之后这些URL查不到单独计数，用 {@link #isTracked} 区分"未单独计数"和"确实没有请求"
+ *
+ * @author sen
+ */
+public class MockRequestJournal implements ServeEventListener {
+
+    public static final int DEFAULT_CAPACITY = 1000;
+    public static final int DEFAULT_MAX_COUNTER_KEYS = 10000;
+    public static final String OTHER_KEY = "*OTHER*";
+
+    private final AtomicReferenceArray<Entry> ring;
+    private final AtomicLong sequence = new AtomicLong();
+    private final double sampleRate;
+    private final int maxCounterKeys;
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    // 已占用的单独计数名额（不含 OTHER_KEY），先占名额再插入，保证并发下也不超过上限
+    private final AtomicInteger counterKeys = new AtomicInteger();
+    private final LongAdder overflowCount = new LongAdder();
+
+    /**
+     * 请求日志条目
+     */
+    public static class Entry {
+        private final long timestamp;
+        private final String method;
+        private final String url;
+        private final int status;
+
+        public Entry(long timestamp, String method, String url, int status) {
+            this.timestamp = timestamp;
+            this.method = method;
+            this.url = url;
+            this.status = status;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s -> %d", method, url, status);
+        }
+    }
+
+    public MockRequestJournal() {
+        this(DEFAULT_CAPACITY, 1.0, DEFAULT_MAX_COUNTER_KEYS);
+    }
+
+    /**
+     * @param capacity       环形缓冲区容量
+     * @param sampleRate     写入缓冲区的采样率（0~1），计数不受影响
+     * @param maxCounterKeys 最多单独计数的URL种类
+     */
+    public MockRequestJournal(int capacity, double sampleRate, int maxCounterKeys) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("请求日志容量必须大于0");
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.maxCounterKeys = maxCounterKeys;
+    }
+
+    /**
+     * 记录一次请求
+     */
+    public void record(String method, String url, int status) {
+        String key = key(method, url);
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            counter = newCounter(key);
+        }
+        counter.increment();
+
+        if (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            long seq = sequence.getAndIncrement();
+            ring.set((int) (seq % ring.length()), new Entry(System.currentTimeMillis(), method, url, status));
+        }
+    }
+
+    private LongAdder newCounter(String key) {
+        int used;
+        do {
+            used = counterKeys.get();
+            if (used >= maxCounterKeys) {
+                LongAdder existing = counters.get(key);
+                if (existing != null) {
+                    return existing;
+                }
+                overflowCount.increment();
+                return counters.computeIfAbsent(OTHER_KEY, k -> new LongAdder());
+            }
+        } while (!counterKeys.compareAndSet(used, used + 1));
+        LongAdder counter = new LongAdder();
+        LongAdder existing = counters.putIfAbsent(key, counter);
+        if (existing != null) {
+            // 其他线程已插入同一URL，归还名额
+            counterKeys.decrementAndGet();
+            return existing;
+        }
+        return counter;
+    }
+
+    @Override
+    public void beforeResponseSent(ServeEvent serveEvent, Parameters parameters) {
+        record(serveEvent.getRequest().getMethod().getName(),
+            serveEvent.getRequest().getUrl(),
+            serveEvent.getResponse() != null ? serveEvent.getResponse().getStatus() : 0);
+    }
+
+    @Override
+    public String getName() {
+        return "mock-request-journal";
+    }
+
+    /**
+     * 获取请求次数（精确计数）
+     */
+    public long getCount(String method, String url) {
+        LongAdder counter = counters.get(key(method, url));
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /**
+     * 该URL是否单独计数；计数名额用完后首次出现的URL不单独计数，{@link #getCount} 对它恒为0
+     */
+    public boolean isTracked(String method, String url) {
+        return counters.containsKey(key(method, url)) || !isOverflowed();
+    }
+
+    /**
+     * 是否有请求因计数名额用完计入了 {@link #OTHER_KEY}
+     */
+    public boolean isOverflowed() {
+        return overflowCount.sum() > 0;
+    }
+
+    /**
+     * 计入 {@link #OTHER_KEY} 的请求数
+     */
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+
+    public int getMaxCounterKeys() {
+        return maxCounterKeys;
+    }
+
+    /**
+     * 获取所有URL的请求次数
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new java.util.TreeMap<>();
+        counters.forEach((k, v) -> result.put(k, v.sum()));
+        return result;
+    }
+
+    /**
+     * 获取缓冲区中保留的最近请求（从旧到新）
+     */
+    public List<Entry> getRecentEntries() {
+        long end = sequence.get();
+        long start = Math.max(0, end - ring.length());
+        List<Entry> entries = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            Entry entry = ring.get((int) (seq % ring.length()));
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    public int getCapacity() {
+        return ring.length();
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void reset() {
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+        sequence.set(0);
+        counters.clear();
+        counterKeys.set(0);
+        overflowCount.reset();
+    }
+
+    private static String key(String method, String url) {
+        return method.toUpperCase() + " " + url;
+    }
+}
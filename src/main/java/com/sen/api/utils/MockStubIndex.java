@@ -0,0 +1,343 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.extension.StubLifecycleListener;
+import com.github.tomakehurst.wiremock.extension.requestfilter.RequestFilterAction;
+import com.github.tomakehurst.wiremock.extension.requestfilter.StubRequestFilterV2;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mock桩索引
+ * 以 "方法 + 字面URL" 和 "方法 + 路径前缀" 为键直接定位响应，
+ * 命中时在WireMock逐条匹配之前返回；未命中的请求继续交给WireMock的正则/模式桩
+ * （stubGetMatching、stubPostWithBody 等）处理。
+ *
+ * 查找代价只与URL的路径深度有关，与桩数量无关。
+ *
+ * 与WireMock常规桩的先后关系：同一方法和URL后注册的生效。之后注册的字面URL常规桩
+ * （urlEqualTo / urlPathEqualTo，如 stubGet、stubInternalServerError）会遮蔽索引桩，
+ * 请求交给WireMock匹配；之后再注册的索引桩解除遮蔽。
+ *
+ * @author sen
+ */
+public class MockStubIndex implements StubRequestFilterV2, StubLifecycleListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockStubIndex.class);
+
+    private static final String ANY_METHOD = "ANY";
+
+    // 字面URL桩（等价于 urlEqualTo）
+    private final Map<String, IndexedStub> exactStubs = new ConcurrentHashMap<>();
+
+    // 路径前缀桩（前缀以 / 结尾）
+    private final Map<String, IndexedStub> prefixStubs = new ConcurrentHashMap<>();
+
+    // 字面URL常规桩：键为 "方法 URL"（urlEqualTo）或 "方法 路径"（urlPathEqualTo），值为 桩ID -> 注册序号
+    private final Map<String, Map<UUID, Long>> shadowedUrls = new ConcurrentHashMap<>();
+    private final Map<String, Map<UUID, Long>> shadowedPaths = new ConcurrentHashMap<>();
+
+    // 索引桩与常规桩共用的注册序号，序号大的后注册
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 索引快照（场景保存/加载用）
+     */
+    public static class Snapshot {
+        private final Map<String, IndexedStub> exactStubs;
+        private final Map<String, IndexedStub> prefixStubs;
+        private final Map<String, Map<UUID, Long>> shadowedUrls;
+        private final Map<String, Map<UUID, Long>> shadowedPaths;
+
+        private Snapshot(MockStubIndex index) {
+            this.exactStubs = new LinkedHashMap<>(index.exactStubs);
+            this.prefixStubs = new LinkedHashMap<>(index.prefixStubs);
+            this.shadowedUrls = copy(index.shadowedUrls);
+            this.shadowedPaths = copy(index.shadowedPaths);
+        }
+
+        public int size() {
+            return exactStubs.size() + prefixStubs.size();
+        }
+    }
+
+    /**
+     * 索引中的单个桩
+     */
+    public static class IndexedStub {
+        private final String method;
+        private final String url;
+        private final boolean prefix;
+        private final ResponseDefinition response;
+        private final LongAdder hits = new LongAdder();
+        private long sequence;
+
+        public IndexedStub(String method, String url, boolean prefix, ResponseDefinition response) {
+            this.method = method;
+            this.url = url;
+            this.prefix = prefix;
+            this.response = response;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public boolean isPrefix() {
+            return prefix;
+        }
+
+        public ResponseDefinition getResponse() {
+            return response;
+        }
+
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        public String getKey() {
+            return method + " " + url + (prefix ? "*" : "");
+        }
+    }
+
+    /**
+     * 注册字面URL桩，同一方法和URL的旧桩会被覆盖
+     */
+    public IndexedStub putExact(String method, String url, ResponseDefinition response) {
+        IndexedStub stub = new IndexedStub(normalizeMethod(method), url, false, response);
+        stub.sequence = sequence.incrementAndGet();
+        exactStubs.put(key(stub.getMethod(), url), stub);
+        return stub;
+    }
+
+    /**
+     * 注册路径前缀桩，前缀会被补齐为以 / 结尾
+     */
+    public IndexedStub putPrefix(String method, String urlPrefix, ResponseDefinition response) {
+        String prefix = urlPrefix.endsWith("/") ? urlPrefix : urlPrefix + "/";
+        IndexedStub stub = new IndexedStub(normalizeMethod(method), prefix, true, response);
+        stub.sequence = sequence.incrementAndGet();
+        prefixStubs.put(key(stub.getMethod(), prefix), stub);
+        return stub;
+    }
+
+    /**
+     * 查找请求对应的桩，未命中返回null
+     */
+    public IndexedStub lookup(String method, String url) {
+        String m = normalizeMethod(method);
+
+        IndexedStub stub = exactStubs.get(key(m, url));
+        if (stub == null) {
+            stub = exactStubs.get(key(ANY_METHOD, url));
+        }
+        if (stub == null && !prefixStubs.isEmpty()) {
+            stub = lookupPrefix(m, url);
+        }
+        return stub;
+    }
+
+    /**
+     * 从最长前缀开始按 / 逐级回退
+     */
+    private IndexedStub lookupPrefix(String method, String url) {
+        int queryStart = url.indexOf('?');
+        String path = queryStart >= 0 ? url.substring(0, queryStart) : url;
+
+        int end = path.lastIndexOf('/');
+        while (end >= 0) {
+            String prefix = path.substring(0, end + 1);
+            IndexedStub stub = prefixStubs.get(key(method, prefix));
+            if (stub == null) {
+                stub = prefixStubs.get(key(ANY_METHOD, prefix));
+            }
+            if (stub != null) {
+                return stub;
+            }
+            end = end > 0 ? path.lastIndexOf('/', end - 1) : -1;
+        }
+        return null;
+    }
+
+    /**
+     * 请求是否命中了比索引桩更晚注册的字面URL常规桩
+     */
+    boolean isShadowed(IndexedStub stub, String method, String url) {
+        if (shadowedUrls.isEmpty() && shadowedPaths.isEmpty()) {
+            return false;
+        }
+        String m = normalizeMethod(method);
+        int queryStart = url.indexOf('?');
+        String path = queryStart >= 0 ? url.substring(0, queryStart) : url;
+        return newer(shadowedUrls.get(key(m, url)), stub) || newer(shadowedUrls.get(key(ANY_METHOD, url)), stub)
+            || newer(shadowedPaths.get(key(m, path)), stub) || newer(shadowedPaths.get(key(ANY_METHOD, path)), stub);
+    }
+
+    private static boolean newer(Map<UUID, Long> stubs, IndexedStub stub) {
+        if (stubs == null) {
+            return false;
+        }
+        for (Long seq : stubs.values()) {
+            if (seq > stub.sequence) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public RequestFilterAction filter(Request request, ServeEvent serveEvent) {
+        if (exactStubs.isEmpty() && prefixStubs.isEmpty()) {
+            return RequestFilterAction.continueWith(request);
+        }
+
+        IndexedStub stub = lookup(request.getMethod().getName(), request.getUrl());
+        if (stub == null || isShadowed(stub, request.getMethod().getName(), request.getUrl())) {
+            return RequestFilterAction.continueWith(request);
+        }
+
+        stub.hits.increment();
+        return RequestFilterAction.stopWith(stub.getResponse());
+    }
+
+    @Override
+    public void afterStubCreated(StubMapping stub) {
+        track(stub, true);
+    }
+
+    @Override
+    public void afterStubEdited(StubMapping oldStub, StubMapping newStub) {
+        track(oldStub, false);
+        track(newStub, true);
+    }
+
+    @Override
+    public void afterStubRemoved(StubMapping stub) {
+        track(stub, false);
+    }
+
+    @Override
+    public void afterStubsReset() {
+        shadowedUrls.clear();
+        shadowedPaths.clear();
+    }
+
+    /**
+     * 记录或移除常规桩的字面URL，正则、模板等非字面匹配的桩不参与
+     */
+    private void track(StubMapping stub, boolean add) {
+        RequestPattern request = stub.getRequest();
+        if (request == null || stub.getId() == null) {
+            return;
+        }
+        String method = normalizeMethod(request.getMethod() != null ? request.getMethod().getName() : null);
+        Map<String, Map<UUID, Long>> target;
+        String key;
+        if (request.getUrl() != null) {
+            target = shadowedUrls;
+            key = key(method, request.getUrl());
+        } else if (request.getUrlPath() != null) {
+            target = shadowedPaths;
+            key = key(method, request.getUrlPath());
+        } else {
+            return;
+        }
+        if (add) {
+            target.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(stub.getId(), sequence.incrementAndGet());
+        } else {
+            target.computeIfPresent(key, (k, stubs) -> {
+                stubs.remove(stub.getId());
+                return stubs.isEmpty() ? null : stubs;
+            });
+        }
+    }
+
+    private static Map<String, Map<UUID, Long>> copy(Map<String, Map<UUID, Long>> source) {
+        Map<String, Map<UUID, Long>> copy = new ConcurrentHashMap<>();
+        source.forEach((k, v) -> copy.put(k, new ConcurrentHashMap<>(v)));
+        return copy;
+    }
+
+    @Override
+    public String getName() {
+        return "mock-stub-index";
+    }
+
+    /**
+     * 保存当前索引（含遮蔽关系）
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * 恢复快照，需在场景的常规桩重新注册之后调用（注册序号沿用保存时的值）
+     */
+    public void restore(Snapshot snapshot) {
+        clear();
+        exactStubs.putAll(snapshot.exactStubs);
+        prefixStubs.putAll(snapshot.prefixStubs);
+        shadowedUrls.clear();
+        shadowedUrls.putAll(copy(snapshot.shadowedUrls));
+        shadowedPaths.clear();
+        shadowedPaths.putAll(copy(snapshot.shadowedPaths));
+    }
+
+    /**
+     * 获取所有桩的命中次数
+     */
+    public Map<String, Long> getHitCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        exactStubs.values().forEach(s -> counts.put(s.getKey(), s.getHitCount()));
+        prefixStubs.values().forEach(s -> counts.put(s.getKey(), s.getHitCount()));
+        return counts;
+    }
+
+    /**
+     * 获取从未被命中的桩（死Mock）
+     */
+    public List<String> getUnusedStubs() {
+        List<String> unused = new ArrayList<>();
+        getHitCounts().forEach((k, v) -> {
+            if (v == 0) {
+                unused.add(k);
+            }
+        });
+        return unused;
+    }
+
+    public int size() {
+        return exactStubs.size() + prefixStubs.size();
+    }
+
+    public void clear() {
+        exactStubs.clear();
+        prefixStubs.clear();
+        logger.debug("Mock stub index cleared");
+    }
+
+    private static String key(String method, String url) {
+        return method + " " + url;
+    }
+
+    private static String normalizeMethod(String method) {
+        return method == null ? ANY_METHOD : method.toUpperCase();
+    }
+}
@@ -3,17 +3,26 @@ package com.sen.api.utils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.client.VerificationException;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
 import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
 import com.github.tomakehurst.wiremock.stubbing.StubMapping;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 
@@ -26,7 +35,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.*;
  * - mock 异常场景（500/Timeout）
  * - mock AB 实验
  * - 动态Mock配置
- * - 场景录制回放
+ * - 场景录制回放（代理录制到磁带文件，按请求指纹回放）
  *
  * @author sen
  */
@@ -39,12 +48,49 @@ public class MockUtil {
 
     // Mock场景存储
     private static final Map<String, List<StubMapping>> scenarioMappings = new ConcurrentHashMap<>();
+    private static final Map<String, MockStubIndex.Snapshot> scenarioIndexes = new ConcurrentHashMap<>();
 
     // AB实验配置
     private static final Map<String, ABExperiment> abExperiments = new ConcurrentHashMap<>();
 
-    // 请求计数器（用于AB实验轮询）
-    private static final Map<String, Integer> requestCounters = new ConcurrentHashMap<>();
+    // 轮询游标（用于AB实验轮询）：需要原子地取号，不能用 LongAdder
+    private static final Map<String, AtomicLong> requestCounters = new ConcurrentHashMap<>();
+
+    // 有界请求日志（环形缓冲 + 精确计数），替代无界增长的WireMock请求日志
+    private static volatile MockRequestJournal requestJournal = new MockRequestJournal();
+    private static final ServeEventListener journalListener = new ServeEventListener() {
+        @Override
+        public void beforeResponseSent(ServeEvent serveEvent, Parameters parameters) {
+            requestJournal.beforeResponseSent(serveEvent, parameters);
+            ApiMetrics.mockHit(serveEvent.getWasMatched());
+            ApiEvents.MockHitEvent event = new ApiEvents.MockHitEvent();
+            event.begin();
+            event.finish(serveEvent.getRequest().getMethod().getName(), serveEvent.getRequest().getUrl(),
+                serveEvent.getResponseDefinition().getStatus(), serveEvent.getWasMatched());
+        }
+
+        @Override
+        public String getName() {
+            return "mock-request-journal";
+        }
+    };
+
+    // 字面URL桩索引（大批量Mock时避免WireMock逐条匹配）
+    private static final MockStubIndex stubIndex = new MockStubIndex();
+
+    // 录制回放扩展（常驻注册，未开启录制/回放时直接放行）
+    private static final MockCassette.RecordTransformer recordTransformer = new MockCassette.RecordTransformer();
+    private static final MockCassette.ReplayFilter replayFilter = new MockCassette.ReplayFilter();
+    private static StubMapping recordingProxyMapping;
+
+    // 录制代理桩优先级（数值越大优先级越低，保证显式桩优先）
+    private static final int RECORDING_PROXY_PRIORITY = 100;
+
+    // 延迟响应调度线程数（延迟在调度器上等待，不占用Jetty请求线程）
+    private static final int ASYNC_RESPONSE_THREADS = 10;
+
+    // 请求日志中保留的响应体上限，避免大文件下载的响应体被整体读入内存
+    private static final int MAX_LOGGED_RESPONSE_SIZE = 64 * 1024;
 
     private MockUtil() {
         // 工具类不允许实例化
@@ -139,7 +185,12 @@ public class MockUtil {
         try {
             wireMockServer = new WireMockServer(WireMockConfiguration.options()
                     .port(port)
-                    .usingFilesUnderDirectory("src/test/resources/wiremock"));
+                    .usingFilesUnderDirectory("src/test/resources/wiremock")
+                    .asynchronousResponseEnabled(true)
+                    .asynchronousResponseThreads(ASYNC_RESPONSE_THREADS)
+                    .maxRequestJournalEntries(requestJournal.getCapacity())
+                    .maxLoggedResponseSize(MAX_LOGGED_RESPONSE_SIZE)
+                    .extensions(stubIndex, replayFilter, recordTransformer, journalListener, new MockLargeBody()));
 
             wireMockServer.start();
             WireMock.configureFor("localhost", port);
@@ -157,6 +208,8 @@ public class MockUtil {
      */
     public static void stopMockServer() {
         if (wireMockServer != null && isRunning) {
+            stopRecording();
+            stopReplay();
             wireMockServer.stop();
             isRunning = false;
             logger.info("Mock server stopped");
@@ -171,6 +224,38 @@ public class MockUtil {
             wireMockServer.resetAll();
             logger.debug("Mock server reset");
         }
+        stubIndex.clear();
+        requestJournal.reset();
+    }
+
+    /**
+     * 配置请求日志
+     * 容量同时作为WireMock自身请求日志的上限（在下次启动时生效），
+     * 采样率只影响环形缓冲区，请求计数始终精确
+     *
+     * @param capacity   保留的最近请求条数
+     * @param sampleRate 采样率（0~1）
+     */
+    public static void configureJournal(int capacity, double sampleRate) {
+        configureJournal(capacity, sampleRate, MockRequestJournal.DEFAULT_MAX_COUNTER_KEYS);
+    }
+
+    /**
+     * 配置请求日志
+     *
+     * @param maxCounterKeys 最多单独计数的URL种类，超出后这些URL无法再按次数验证
+     */
+    public static void configureJournal(int capacity, double sampleRate, int maxCounterKeys) {
+        requestJournal = new MockRequestJournal(capacity, sampleRate, maxCounterKeys);
+        logger.info("Mock request journal configured: capacity={}, sampleRate={}, maxCounterKeys={}",
+            capacity, sampleRate, maxCounterKeys);
+    }
+
+    /**
+     * 获取请求日志
+     */
+    public static MockRequestJournal getRequestJournal() {
+        return requestJournal;
     }
 
     /**
@@ -261,6 +346,16 @@ public class MockUtil {
         logger.debug("Stubbed DELETE {} -> {}", url, statusCode);
     }
 
+    /**
+     * 模拟 OTLP/HTTP 收集器，接收 {@link ApiTracer} 导出的 span，可配合 verifyPostCalled 校验
+     *
+     * @return 收集器地址，用作 api.tracing.collectorUrl
+     */
+    public static String stubTraceCollector() {
+        stubPost("/v1/traces", "{}", 200);
+        return getMockServerUrl() + "/v1/traces";
+    }
+
     /**
      * 添加延迟响应的Mock
      */
@@ -288,11 +383,77 @@ public class MockUtil {
         logger.debug("Stubbed {} {} with {}ms delay -> {}", method, url, delayMs, statusCode);
     }
 
+    // ==================== 索引桩 ====================
+
+    /**
+     * 添加索引桩（字面URL，O(1)匹配）
+     * 索引桩在WireMock常规匹配之前生效，未命中时回退到正则/模式桩；
+     * 之后为同一方法和URL注册的常规桩（stubGet、stubInternalServerError 等）优先于索引桩
+     */
+    public static void stubIndexed(String method, String url, String responseBody, int statusCode, int delayMs) {
+        stubIndex.putExact(method, url, buildIndexedResponse(responseBody, statusCode, delayMs, null));
+        logger.debug("Indexed stub {} {} -> {}", method, url, statusCode);
+    }
+
+    /**
+     * 添加按统计分布采样延迟的Mock（可叠加带宽限速的分块响应体）
+     */
+    public static void stubWithLatency(String method, String url, String responseBody, int statusCode,
+                                       MockLatencyProfile profile) {
+        stubIndex.putExact(method, url, buildIndexedResponse(responseBody, statusCode, 0, profile));
+        logger.debug("Stubbed {} {} with latency profile -> {}", method, url, statusCode);
+    }
+
+    /**
+     * 添加索引桩（路径前缀匹配，最长前缀优先）
+     */
+    public static void stubIndexedPrefix(String method, String urlPrefix, String responseBody, int statusCode) {
+        stubIndex.putPrefix(method, urlPrefix, buildIndexedResponse(responseBody, statusCode, 0, null));
+        logger.debug("Indexed prefix stub {} {}* -> {}", method, urlPrefix, statusCode);
+    }
+
+    private static ResponseDefinition buildIndexedResponse(String responseBody, int statusCode, int delayMs,
+                                                           MockLatencyProfile profile) {
+        ResponseDefinitionBuilder builder = aResponse()
+                .withStatus(statusCode)
+                .withHeader("Content-Type", "application/json")
+                .withBody(responseBody);
+        if (delayMs > 0) {
+            builder.withFixedDelay(delayMs);
+        }
+        if (profile != null) {
+            long bodyBytes = responseBody != null ? responseBody.getBytes(StandardCharsets.UTF_8).length : 0;
+            profile.applyTo(builder, bodyBytes);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 获取索引桩命中次数（key: "METHOD url"，前缀桩以 * 结尾）
+     */
+    public static Map<String, Long> getStubHitCounts() {
+        return stubIndex.getHitCounts();
+    }
+
+    /**
+     * 获取从未命中的索引桩，用于清理死Mock
+     */
+    public static List<String> getUnusedStubs() {
+        return stubIndex.getUnusedStubs();
+    }
+
+    /**
+     * 获取桩索引
+     */
+    public static MockStubIndex getStubIndex() {
+        return stubIndex;
+    }
+
     /**
      * 验证请求是否被调用
      */
     public static void verifyGetCalled(String url, int times) {
-        verify(times, getRequestedFor(urlEqualTo(url)));
+        verifyCalled("GET", url, times);
         logger.debug("Verified GET {} called {} times", url, times);
     }
 
@@ -300,10 +461,29 @@ public class MockUtil {
      * 验证POST请求是否被调用
      */
     public static void verifyPostCalled(String url, int times) {
-        verify(times, postRequestedFor(urlEqualTo(url)));
+        verifyCalled("POST", url, times);
         logger.debug("Verified POST {} called {} times", url, times);
     }
 
+    /**
+     * 按请求日志计数验证调用次数
+     * 计数名额用完后未单独计数的URL直接报错，不把它当作"收到0次"；
+     * WireMock 自身日志同样有界，不能作为回退
+     */
+    private static void verifyCalled(String method, String url, int times) {
+        MockRequestJournal journal = requestJournal;
+        if (!journal.isTracked(method, url)) {
+            throw new VerificationException(String.format(
+                "%s %s is not tracked: request counter limit %d reached, %d requests counted as %s",
+                method, url, journal.getMaxCounterKeys(), journal.getOverflowCount(), MockRequestJournal.OTHER_KEY));
+        }
+        long actual = journal.getCount(method, url);
+        if (actual != times) {
+            throw new VerificationException(String.format(
+                "Expected exactly %d requests matching %s %s but received %d", times, method, url, actual));
+        }
+    }
+
     /**
      * 获取Mock服务器URL
      */
@@ -467,6 +647,52 @@ public class MockUtil {
         logger.debug("Stubbed placeholder for {}: {}", url, apiDoc);
     }
 
+    // ==================== 增强功能：大响应体Mock ====================
+
+    /**
+     * Mock 文件下载接口，响应体从磁盘流式下发，支持 Range 断点续传
+     *
+     * @param url      接口URL
+     * @param filePath 响应体文件路径
+     */
+    public static void stubFileDownload(String url, String filePath) {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            throw new RuntimeException("Mock响应体文件不存在: " + filePath);
+        }
+        stubFor(get(urlEqualTo(url))
+            .willReturn(downloadResponse(file.getName())
+                .withTransformerParameter(MockLargeBody.PARAM_FILE, file.getAbsolutePath())));
+        logger.debug("Stubbed file download {} -> {} ({} bytes)", url, filePath, file.length());
+    }
+
+    /**
+     * Mock 文件下载接口，响应体按字节数即时合成，不占用磁盘和内存
+     *
+     * @param url       接口URL
+     * @param fileName  下载文件名（Content-disposition）
+     * @param sizeBytes 响应体字节数
+     * @param seed      内容种子，相同种子生成相同内容
+     */
+    public static void stubSyntheticDownload(String url, String fileName, long sizeBytes, long seed) {
+        if (sizeBytes < 0) {
+            throw new RuntimeException("合成响应体大小不能为负数: " + sizeBytes);
+        }
+        stubFor(get(urlEqualTo(url))
+            .willReturn(downloadResponse(fileName)
+                .withTransformerParameter(MockLargeBody.PARAM_SYNTHETIC_SIZE, sizeBytes)
+                .withTransformerParameter(MockLargeBody.PARAM_SYNTHETIC_SEED, seed)));
+        logger.debug("Stubbed synthetic download {} -> {} bytes", url, sizeBytes);
+    }
+
+    private static ResponseDefinitionBuilder downloadResponse(String fileName) {
+        return aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/octet-stream")
+            .withHeader("Content-disposition", "attachment; filename=" + fileName)
+            .withTransformers(MockLargeBody.NAME);
+    }
+
     // ==================== 增强功能：AB实验Mock ====================
 
     /**
@@ -513,14 +739,13 @@ public class MockUtil {
 
         switch (experiment.getStrategy()) {
             case "round_robin":
-                int counter = requestCounters.getOrDefault(experiment.getName(), 0);
-                ABVariant variant = variants.get(counter % variants.size());
-                requestCounters.put(experiment.getName(), counter + 1);
-                return variant;
+                long turn = requestCounters.computeIfAbsent(experiment.getName(), k -> new AtomicLong())
+                    .getAndIncrement();
+                return variants.get((int) (turn % variants.size()));
 
             case "weighted":
                 int totalWeight = variants.stream().mapToInt(ABVariant::getWeight).sum();
-                int random = new Random().nextInt(totalWeight);
+                int random = ThreadLocalRandom.current().nextInt(totalWeight);
                 int cumulative = 0;
                 for (ABVariant v : variants) {
                     cumulative += v.getWeight();
@@ -532,7 +757,7 @@ public class MockUtil {
 
             case "random":
             default:
-                return variants.get(new Random().nextInt(variants.size()));
+                return variants.get(ThreadLocalRandom.current().nextInt(variants.size()));
         }
     }
 
@@ -570,8 +795,10 @@ public class MockUtil {
     public static void saveScenario(String scenarioName) {
         if (wireMockServer != null && isRunning) {
             List<StubMapping> mappings = wireMockServer.getStubMappings();
+            MockStubIndex.Snapshot index = stubIndex.snapshot();
             scenarioMappings.put(scenarioName, new ArrayList<>(mappings));
-            logger.info("Saved scenario: {} ({} mappings)", scenarioName, mappings.size());
+            scenarioIndexes.put(scenarioName, index);
+            logger.info("Saved scenario: {} ({} mappings, {} indexed stubs)", scenarioName, mappings.size(), index.size());
         }
     }
 
@@ -585,7 +812,13 @@ public class MockUtil {
             for (StubMapping mapping : mappings) {
                 wireMockServer.addStubMapping(mapping);
             }
-            logger.info("Loaded scenario: {} ({} mappings)", scenarioName, mappings.size());
+            // 常规桩注册后再恢复索引，遮蔽关系与保存时一致
+            MockStubIndex.Snapshot index = scenarioIndexes.get(scenarioName);
+            if (index != null) {
+                stubIndex.restore(index);
+            }
+            logger.info("Loaded scenario: {} ({} mappings, {} indexed stubs)", scenarioName, mappings.size(),
+                index != null ? index.size() : 0);
         } else {
             logger.warn("Scenario not found or server not running: {}", scenarioName);
         }
@@ -613,33 +846,54 @@ public class MockUtil {
                 config = mapper.readValue(file, Map.class);
             }
 
-            // 解析mocks配置
+            // 请求日志配置
+            Map<String, Object> journal = (Map<String, Object>) config.get("journal");
+            if (journal != null) {
+                configureJournal(((Number) journal.getOrDefault("size", MockRequestJournal.DEFAULT_CAPACITY)).intValue(),
+                    ((Number) journal.getOrDefault("sampleRate", 1.0)).doubleValue());
+            }
+
+            // 解析mocks配置：字面URL进入索引，urlPattern/bodyPattern回退到WireMock匹配
             List<Map<String, Object>> mocks = (List<Map<String, Object>>) config.get("mocks");
             if (mocks != null) {
                 for (Map<String, Object> mock : mocks) {
                     String url = (String) mock.get("url");
+                    String urlPattern = (String) mock.get("urlPattern");
+                    String urlPrefix = (String) mock.get("urlPrefix");
+                    String bodyPattern = (String) mock.get("bodyPattern");
                     String method = (String) mock.getOrDefault("method", "GET");
                     String response = (String) mock.get("response");
                     int status = (int) mock.getOrDefault("status", 200);
                     int delay = (int) mock.getOrDefault("delay", 0);
-
-                    if (delay > 0) {
-                        stubWithDelay(method, url, response, status, delay);
+                    Map<String, Object> latency = (Map<String, Object>) mock.get("latency");
+                    Map<String, Object> bandwidth = (Map<String, Object>) mock.get("bandwidth");
+
+                    Map<String, Object> synthetic = (Map<String, Object>) mock.get("synthetic");
+
+                    if (mock.get("bodyFile") != null) {
+                        stubFileDownload(url, (String) mock.get("bodyFile"));
+                    } else if (synthetic != null) {
+                        stubSyntheticDownload(url, (String) synthetic.getOrDefault("fileName", "synthetic.bin"),
+                            ((Number) synthetic.get("size")).longValue(),
+                            ((Number) synthetic.getOrDefault("seed", 0)).longValue());
+                    } else if ((latency != null || bandwidth != null) && url != null) {
+                        stubWithLatency(method, url, response, status,
+                            MockLatencyProfile.fromConfig(latency, bandwidth));
+                    } else if (urlPattern != null) {
+                        stubFor(request(method.toUpperCase(), urlMatching(urlPattern))
+                            .willReturn(aResponse()
+                                .withStatus(status)
+                                .withHeader("Content-Type", "application/json")
+                                .withBody(response)
+                                .withFixedDelay(delay)));
+                    } else if (bodyPattern != null) {
+                        stubPostWithBody(url, bodyPattern, response, status);
+                    } else if (urlPrefix != null) {
+                        stubIndexedPrefix(method, urlPrefix, response, status);
+                    } else if ("DELETE".equalsIgnoreCase(method) && response == null) {
+                        stubIndexed(method, url, "{\"success\": true}", status, delay);
                     } else {
-                        switch (method.toUpperCase()) {
-                            case "GET":
-                                stubGet(url, response, status);
-                                break;
-                            case "POST":
-                                stubPost(url, response, status);
-                                break;
-                            case "PUT":
-                                stubPut(url, response, status);
-                                break;
-                            case "DELETE":
-                                stubDelete(url, status);
-                                break;
-                        }
+                        stubIndexed(method, url, response, status, delay);
                     }
                 }
             }
@@ -651,6 +905,76 @@ public class MockUtil {
         }
     }
 
+    // ==================== 增强功能：录制回放 ====================
+
+    /**
+     * 开始录制：未被桩命中的请求代理到目标服务，请求/响应对追加写入磁带文件
+     *
+     * @param targetBaseUrl 真实服务地址，如 http://localhost:8080
+     * @param cassettePath  磁带文件路径
+     */
+    public static void startRecording(String targetBaseUrl, String cassettePath) {
+        if (wireMockServer == null || !isRunning) {
+            throw new IllegalStateException("Mock服务器未启动，无法录制");
+        }
+        if (recordTransformer.getRecorder() != null) {
+            stopRecording();
+        }
+        recordTransformer.setRecorder(new MockCassette.Recorder(cassettePath));
+        recordingProxyMapping = stubFor(any(anyUrl())
+            .atPriority(RECORDING_PROXY_PRIORITY)
+            .willReturn(aResponse().proxiedFrom(targetBaseUrl)));
+        logger.info("Recording {} -> {}", targetBaseUrl, cassettePath);
+    }
+
+    /**
+     * 停止录制并关闭磁带文件
+     *
+     * @return 本次录制的请求数
+     */
+    public static int stopRecording() {
+        MockCassette.Recorder recorder = recordTransformer.getRecorder();
+        if (recorder == null) {
+            return 0;
+        }
+        recordTransformer.setRecorder(null);
+        if (recordingProxyMapping != null && isRunning) {
+            removeStub(recordingProxyMapping);
+            recordingProxyMapping = null;
+        }
+        try {
+            recorder.close();
+        } catch (Exception e) {
+            logger.error("Failed to close cassette: {}", recorder.getCassettePath(), e);
+        }
+        logger.info("Recording stopped: {} requests saved to {}", recorder.getCount(), recorder.getCassettePath());
+        return recorder.getCount();
+    }
+
+    /**
+     * 开始回放：按请求指纹从磁带返回录制的响应，未命中的请求继续走桩匹配
+     */
+    public static void startReplay(String cassettePath) {
+        stopReplay();
+        replayFilter.setCassette(MockCassette.open(cassettePath));
+        logger.info("Replaying cassette: {}", cassettePath);
+    }
+
+    /**
+     * 停止回放
+     */
+    public static void stopReplay() {
+        MockCassette cassette = replayFilter.getCassette();
+        if (cassette != null) {
+            replayFilter.setCassette(null);
+            try {
+                cassette.close();
+            } catch (Exception e) {
+                logger.warn("Failed to close cassette", e);
+            }
+        }
+    }
+
     // ==================== 增强功能：验证增强 ====================
 
     /**
@@ -685,14 +1009,7 @@ public class MockUtil {
      */
     public static List<String> getRequestLog() {
         List<String> logs = new ArrayList<>();
-        if (wireMockServer != null && isRunning) {
-            wireMockServer.getAllServeEvents().forEach(event -> {
-                logs.add(String.format("%s %s -> %d",
-                    event.getRequest().getMethod(),
-                    event.getRequest().getUrl(),
-                    event.getResponse().getStatus()));
-            });
-        }
+        requestJournal.getRecentEntries().forEach(entry -> logs.add(entry.toString()));
         return logs;
     }
 
@@ -719,6 +1036,7 @@ public class MockUtil {
      */
     public static void clearScenarios() {
         scenarioMappings.clear();
+        scenarioIndexes.clear();
         logger.debug("Cleared all scenarios");
     }
 }
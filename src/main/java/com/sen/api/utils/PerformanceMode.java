@@ -0,0 +1,203 @@
+package com.sen.api.utils;
+
+import com.sen.api.beans.RequestTiming;
+import com.sen.api.configs.ApiProperties;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 性能模式
+ * 大批量运行时请求日志与Allure附件的I/O会超过接口调用本身，开启后：
+ * - RestAssured 不再对每个请求 log(ALL)，请求/响应先暂存在当前线程
+ * - 用例内的附件先暂存，用例结束时失败或被抽中才输出日志、写入附件，否则丢弃
+ * - 请求/响应体按 maxBodyChars 截断，附件文件由 {@link AllureAttachmentWriter} 后台写入
+ *
+ * 配置来源：Spring 下为 api.test.performance，TestNG 直接运行时可用系统属性
+ * api.performance.enabled / api.performance.passSampleRate / api.performance.maxBodyChars
+ *
+ * @author sen
+ */
+public class PerformanceMode {
+
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceMode.class);
+
+    // 未调用 startCase 时每线程最多暂存的条数
+    private static final int MAX_PENDING = 50;
+
+    private static volatile ApiProperties.PerformanceConfig config = fromSystemProperties();
+
+    private static final ThreadLocal<CaseRecord> currentCase = ThreadLocal.withInitial(CaseRecord::new);
+
+    private PerformanceMode() {
+    }
+
+    /**
+     * 当前用例暂存的请求与附件
+     * 用例内全部保留（失败时需要完整的请求顺序），用例之外的只保留最近 {@value #MAX_PENDING} 条
+     */
+    private static class CaseRecord {
+        private final List<String> exchanges = new ArrayList<>();
+        private final List<String[]> attachments = new ArrayList<>();
+        private boolean started;
+
+        <T> void add(List<T> list, T item) {
+            if (!started && list.size() >= MAX_PENDING) {
+                list.remove(0);
+            }
+            list.add(item);
+        }
+
+        void clear() {
+            exchanges.clear();
+            attachments.clear();
+        }
+    }
+
+    private static ApiProperties.PerformanceConfig fromSystemProperties() {
+        ApiProperties.PerformanceConfig performance = new ApiProperties.PerformanceConfig();
+        performance.setEnabled(Boolean.getBoolean("api.performance.enabled"));
+        String rate = System.getProperty("api.performance.passSampleRate");
+        if (rate != null) {
+            performance.setPassSampleRate(Double.parseDouble(rate));
+        }
+        String maxBody = System.getProperty("api.performance.maxBodyChars");
+        if (maxBody != null) {
+            performance.setMaxBodyChars(Integer.parseInt(maxBody));
+        }
+        return performance;
+    }
+
+    public static void configure(ApiProperties.PerformanceConfig performance) {
+        if (performance == null) {
+            return;
+        }
+        if (performance.getPassSampleRate() < 0 || performance.getPassSampleRate() > 1) {
+            throw new IllegalArgumentException("抽样比例必须在0到1之间: " + performance.getPassSampleRate());
+        }
+        config = performance;
+        AllureAttachmentWriter.configure(performance.getAttachmentQueueSize());
+        if (performance.isEnabled()) {
+            logger.info("Performance mode enabled: passSampleRate={}, maxBodyChars={}",
+                performance.getPassSampleRate(), performance.getMaxBodyChars());
+        }
+    }
+
+    public static boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public static ApiProperties.PerformanceConfig getConfig() {
+        return config;
+    }
+
+    // ==================== 用例生命周期 ====================
+
+    /**
+     * 用例开始，清空当前线程暂存的内容
+     */
+    public static void startCase() {
+        CaseRecord record = currentCase.get();
+        record.clear();
+        record.started = true;
+    }
+
+    /**
+     * 用例结束：失败或被抽中时输出暂存的日志与附件
+     *
+     * @return 是否输出
+     */
+    public static boolean finishCase(boolean passed) {
+        CaseRecord record = currentCase.get();
+        try {
+            if (!isEnabled()) {
+                return true;
+            }
+            boolean keep = !passed || ThreadLocalRandom.current().nextDouble() < config.getPassSampleRate();
+            if (keep) {
+                for (String exchange : record.exchanges) {
+                    if (passed) {
+                        logger.info(exchange);
+                    } else {
+                        logger.error(exchange);
+                    }
+                }
+                // 暂存时已按 maxBodyChars 截断
+                for (String[] attachment : record.attachments) {
+                    AllureAttachmentWriter.attach(attachment[0], attachment[1], attachment[2], attachment[3], 0);
+                }
+            }
+            return keep;
+        } finally {
+            record.clear();
+            record.started = false;
+        }
+    }
+
+    /**
+     * 添加附件：性能模式下暂存到用例结束，否则立即登记并后台写入
+     */
+    public static void attach(String name, String type, String content, String extension) {
+        if (isEnabled()) {
+            CaseRecord record = currentCase.get();
+            record.add(record.attachments, new String[]{name, type, truncate(content), extension});
+        } else {
+            AllureAttachmentWriter.attach(name, type, content, extension, 0);
+        }
+    }
+
+    public static void attach(String name, String content) {
+        attach(name, "text/plain", content, ".txt");
+    }
+
+    /**
+     * 按 maxBodyChars 截断
+     */
+    public static String truncate(String body) {
+        int max = config.getMaxBodyChars();
+        if (body == null || max <= 0 || body.length() <= max) {
+            return body;
+        }
+        return body.substring(0, max) + "... (truncated, " + body.length() + " chars)";
+    }
+
+    /**
+     * 暂存请求/响应摘要的 RestAssured 过滤器，替代 log(ALL)
+     */
+    public static class DeferredLogFilter implements Filter {
+        @Override
+        public Response filter(FilterableRequestSpecification requestSpec,
+                               FilterableResponseSpecification responseSpec, FilterContext ctx) {
+            long start = System.nanoTime();
+            Response response = ctx.next(requestSpec, responseSpec);
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("[REQUEST] ").append(requestSpec.getMethod()).append(' ').append(requestSpec.getURI());
+            Object body = requestSpec.getBody();
+            if (body != null) {
+                sb.append("\n[Request Body] ").append(truncate(String.valueOf(body)));
+            }
+            sb.append("\n[RESPONSE] ").append(response.getStatusCode()).append(" (").append(durationMs).append("ms)");
+            RequestTiming timing = HttpPhaseTimer.last();
+            if (timing != null) {
+                sb.append("\n[Timing] ").append(timing);
+            }
+            sb.append("\n[Response Body] ").append(truncate(response.asString()));
+            String exchange = sb.toString();
+
+            CaseRecord record = currentCase.get();
+            record.add(record.exchanges, exchange);
+            PerformanceMode.attach("HTTP " + requestSpec.getMethod() + " " + requestSpec.getURI(), exchange);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.sen.api.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * 请求事件日志（二进制，追加写，内存映射）
+ * 每个请求一条定长记录，方法、URL模板等字符串驻留到字符串表，记录中只存编号：
+ * - 记录文件：16字节文件头 + N条 {@value #RECORD_SIZE} 字节记录，按段映射，写入即对 mmap 区做绝对位置写
+ * - 字符串表：同名 .strings 文件，每项为 编号(int) + 长度(short) + UTF-8字节，新字符串出现时追加
+ * - 16位十六进制的 traceId 直接按 long 存储，其他格式的 traceId 驻留到字符串表
+ *
+ * 热路径上只有 URL 模板化会产生临时字符串，已驻留字符串和记录写入不分配对象。
+ * 写入与关闭通过读写锁互斥：关闭进行中或已关闭时写入直接丢弃，不会阻塞测试线程，也不会访问已关闭的文件。
+ * 读取与导出见 {@link RequestEventJournalReader}。
+ *
+ * @author sen
+ */
+public class RequestEventJournal implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestEventJournal.class);
+
+    public static final int MAGIC = 0x4C41524A;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 48;
+    public static final String STRINGS_SUFFIX = ".strings";
+    // 每段 1M 条记录，记录不会跨段
+    static final long SEGMENT_SIZE = (long) RECORD_SIZE << 20;
+
+    // 记录内偏移
+    static final int OFF_TIMESTAMP = 0;
+    static final int OFF_DURATION_MICROS = 8;
+    static final int OFF_TRACE = 16;
+    static final int OFF_METHOD = 24;
+    static final int OFF_URL = 28;
+    static final int OFF_STATUS = 32;
+    static final int OFF_REQUEST_BYTES = 36;
+    static final int OFF_RESPONSE_BYTES = 40;
+    static final int OFF_TRACE_STRING = 44;
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+    private static final Pattern UUID_SEGMENT = Pattern.compile(
+        "/[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}(?=/|$)");
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FileChannel stringChannel;
+    private final DataOutputStream stringOut;
+    private final Map<String, Integer> stringIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextStringId = new AtomicInteger(1);
+    private final AtomicLong nextRecord = new AtomicLong();
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile boolean closed;
+    // 写入持读锁，关闭持写锁
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    /**
+     * 一次请求的待写入状态，每线程复用
+     */
+    private static final class Pending {
+        private long timestamp;
+        private long startNanos;
+        private int method;
+        private int url;
+        private int requestBytes;
+        private boolean active;
+    }
+
+    private final ThreadLocal<Pending> pending = ThreadLocal.withInitial(Pending::new);
+
+    public RequestEventJournal(String file) {
+        this(Paths.get(file));
+    }
+
+    public RequestEventJournal(Path path) {
+        this.path = path;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.stringChannel = FileChannel.open(Paths.get(path + STRINGS_SUFFIX), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.stringOut = new DataOutputStream(Channels.newOutputStream(stringChannel));
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_SIZE).putInt(12, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开请求事件日志失败: " + path, e);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 请求发出时调用，记录方法、URL模板、开始时间和请求体大小
+     */
+    public void begin(String method, String url, int requestBytes) {
+        Lock lock = acquire();
+        if (lock == null) {
+            return;
+        }
+        try {
+            Pending p = pending.get();
+            p.timestamp = System.currentTimeMillis();
+            p.startNanos = System.nanoTime();
+            p.method = doIntern(method);
+            p.url = doIntern(urlTemplate(url));
+            p.requestBytes = requestBytes;
+            p.active = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 响应返回时调用，补全状态码、耗时、响应体大小并追加一条记录
+     *
+     * @param durationMicros 耗时（微秒），小于0时按 begin 到此刻计算
+     */
+    public void end(int status, int responseBytes, long durationMicros, String traceId) {
+        Pending p = pending.get();
+        if (!p.active) {
+            return;
+        }
+        p.active = false;
+        Lock lock = acquire();
+        if (lock == null) {
+            return;
+        }
+        try {
+            long duration = durationMicros >= 0 ? durationMicros : (System.nanoTime() - p.startNanos) / 1000;
+            long trace = parseTrace(traceId);
+            int traceString = trace == 0 && traceId != null ? doIntern(traceId) : 0;
+            doAppend(p.timestamp, duration, trace, p.method, p.url, status, p.requestBytes, responseBytes, traceString);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 追加一条完整记录，已关闭时丢弃
+     */
+    public void append(long timestamp, long durationMicros, long trace, int method, int url, int status,
+                       int requestBytes, int responseBytes, int traceString) {
+        Lock lock = acquire();
+        if (lock == null) {
+            return;
+        }
+        try {
+            doAppend(timestamp, durationMicros, trace, method, url, status, requestBytes, responseBytes, traceString);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取写入锁，关闭进行中或已关闭时返回 null
+     */
+    private Lock acquire() {
+        if (closed) {
+            return null;
+        }
+        Lock lock = closeLock.readLock();
+        if (!lock.tryLock()) {
+            return null;
+        }
+        if (closed) {
+            lock.unlock();
+            return null;
+        }
+        return lock;
+    }
+
+    private void doAppend(long timestamp, long durationMicros, long trace, int method, int url, int status,
+                          int requestBytes, int responseBytes, int traceString) {
+        long index = nextRecord.getAndIncrement();
+        long offset = index * RECORD_SIZE;
+        MappedByteBuffer segment = segment((int) (offset / SEGMENT_SIZE));
+        int pos = (int) (offset % SEGMENT_SIZE);
+        // 时间戳最后写入：读取方以时间戳非0判断记录完整
+        segment.putLong(pos + OFF_DURATION_MICROS, durationMicros);
+        segment.putLong(pos + OFF_TRACE, trace);
+        segment.putInt(pos + OFF_METHOD, method);
+        segment.putInt(pos + OFF_URL, url);
+        segment.putInt(pos + OFF_STATUS, status);
+        segment.putInt(pos + OFF_REQUEST_BYTES, requestBytes);
+        segment.putInt(pos + OFF_RESPONSE_BYTES, responseBytes);
+        segment.putInt(pos + OFF_TRACE_STRING, traceString);
+        segment.putLong(pos + OFF_TIMESTAMP, timestamp);
+    }
+
+    /**
+     * 字符串驻留，返回编号（0 表示 null 或已关闭）
+     */
+    public int intern(String value) {
+        Lock lock = acquire();
+        if (lock == null) {
+            return 0;
+        }
+        try {
+            return doIntern(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int doIntern(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer id = stringIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (stringOut) {
+            id = stringIds.get(value);
+            if (id != null) {
+                return id;
+            }
+            int newId = nextStringId.getAndIncrement();
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, 0xFFFF);
+            try {
+                stringOut.writeInt(newId);
+                stringOut.writeShort(length);
+                stringOut.write(bytes, 0, length);
+                stringOut.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("写入请求事件字符串表失败", e);
+            }
+            stringIds.put(value, newId);
+            return newId;
+        }
+    }
+
+    public long getRecordCount() {
+        return nextRecord.get();
+    }
+
+    private MappedByteBuffer segment(int index) {
+        MappedByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = segments;
+            if (index < current.length) {
+                return current[index];
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+            try {
+                for (int i = current.length; i <= index; i++) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_SIZE + i * SEGMENT_SIZE, SEGMENT_SIZE);
+                    buffer.order(ByteOrder.LITTLE_ENDIAN);
+                    grown[i] = buffer;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("扩展请求事件日志失败: " + path, e);
+            }
+            segments = grown;
+            return grown[index];
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * URL模板化：去掉协议主机和查询串，数字和UUID路径段替换为 {id}
+     */
+    static String urlTemplate(String url) {
+        if (url == null) {
+            return null;
+        }
+        String template = url;
+        int scheme = template.indexOf("://");
+        if (scheme > 0) {
+            int slash = template.indexOf('/', scheme + 3);
+            template = slash > 0 ? template.substring(slash) : "/";
+        }
+        int query = template.indexOf('?');
+        if (query >= 0) {
+            template = template.substring(0, query);
+        }
+        if (hasDigit(template)) {
+            template = UUID_SEGMENT.matcher(template).replaceAll("/{id}");
+            template = NUMERIC_SEGMENT.matcher(template).replaceAll("/{id}");
+        }
+        return template;
+    }
+
+    /**
+     * 字符串的 UTF-8 字节数（不分配临时数组），null 为0
+     */
+    public static int utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符编码为 '?'，与 String.getBytes 一致
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static boolean hasDigit(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 16位十六进制 traceId 转 long，其他格式返回0
+     */
+    static long parseTrace(String traceId) {
+        if (traceId == null || traceId.length() != 16) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = 0; i < 16; i++) {
+            int digit = Character.digit(traceId.charAt(i), 16);
+            if (digit < 0) {
+                return 0;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * 关闭：把文件截断到实际记录长度
+     */
+    @Override
+    public void close() {
+        // 等进行中的写入结束，之后的写入在 acquire 中丢弃
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeFiles();
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+    }
+
+    private void closeFiles() {
+        long count = nextRecord.get();
+        try {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            segments = new MappedByteBuffer[0];
+            stringOut.close();
+            channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close request event journal {}: {}", path, e.getMessage());
+        }
+        logger.info("Request event journal closed: {} records -> {}", count, path);
+    }
+}
@@ -0,0 +1,391 @@
+package com.sen.api.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 请求事件日志读取器
+ * 以只读方式映射 {@link RequestEventJournal} 写出的文件，逐条遍历记录；
+ * 同时提供命令行导出：
+ * <pre>
+ * java -cp ... com.sen.api.utils.RequestEventJournalReader logs/requests.journal [csv|json|summary-csv|summary-json]
+ * </pre>
+ * csv / json 输出每条记录，summary-* 按 方法+URL模板 汇总次数、错误数和耗时分位数
+ *
+ * @author sen
+ */
+public class RequestEventJournalReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final Map<Integer, String> strings;
+    private final long recordCount;
+
+    /**
+     * 单条请求事件
+     * 遍历时复用同一个实例，需要保存时调用 {@link #copy()}
+     */
+    public static class Event {
+        private long timestamp;
+        private long durationMicros;
+        private int status;
+        private int requestBytes;
+        private int responseBytes;
+        private String method;
+        private String url;
+        private long trace;
+        private String traceId;
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getDurationMicros() {
+            return durationMicros;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public int getRequestBytes() {
+            return requestBytes;
+        }
+
+        public int getResponseBytes() {
+            return responseBytes;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getTraceId() {
+            if (traceId == null && trace != 0) {
+                String hex = Long.toHexString(trace);
+                traceId = "0".repeat(16 - hex.length()) + hex;
+            }
+            return traceId;
+        }
+
+        public Event copy() {
+            Event event = new Event();
+            event.timestamp = timestamp;
+            event.durationMicros = durationMicros;
+            event.status = status;
+            event.requestBytes = requestBytes;
+            event.responseBytes = responseBytes;
+            event.method = method;
+            event.url = url;
+            event.trace = trace;
+            event.traceId = traceId;
+            return event;
+        }
+    }
+
+    /**
+     * 按 方法+URL模板 的汇总
+     */
+    public static class Summary {
+        private final String method;
+        private final String url;
+        private int count;
+        private int errors;
+        private long totalMicros;
+        private long[] durations = new long[16];
+        private boolean sorted;
+
+        Summary(String method, String url) {
+            this.method = method;
+            this.url = url;
+        }
+
+        void add(Event event) {
+            if (count == durations.length) {
+                durations = Arrays.copyOf(durations, count * 2);
+            }
+            durations[count++] = event.durationMicros;
+            sorted = false;
+            totalMicros += event.durationMicros;
+            if (event.status >= 400 || event.status <= 0) {
+                errors++;
+            }
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public double getAvgMillis() {
+            return count == 0 ? 0 : totalMicros / 1000.0 / count;
+        }
+
+        /**
+         * 耗时分位数（毫秒），p 取 0~100
+         */
+        public double percentileMillis(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(durations, 0, count);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(p / 100.0 * count) - 1;
+            return durations[Math.max(0, Math.min(count - 1, index))] / 1000.0;
+        }
+    }
+
+    public RequestEventJournalReader(String file) {
+        this(Paths.get(file));
+    }
+
+    public RequestEventJournalReader(Path path) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, RequestEventJournal.HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != RequestEventJournal.MAGIC) {
+                throw new IllegalArgumentException("不是请求事件日志文件: " + path);
+            }
+            if (header.getInt(8) != RequestEventJournal.RECORD_SIZE) {
+                throw new IllegalArgumentException("不支持的记录长度: " + header.getInt(8));
+            }
+            this.recordCount = (channel.size() - RequestEventJournal.HEADER_SIZE) / RequestEventJournal.RECORD_SIZE;
+            this.strings = readStrings(Paths.get(path + RequestEventJournal.STRINGS_SUFFIX));
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取请求事件日志失败: " + path, e);
+        }
+    }
+
+    private static Map<Integer, String> readStrings(Path path) throws IOException {
+        Map<Integer, String> strings = new HashMap<>();
+        if (!Files.exists(path)) {
+            return strings;
+        }
+        try (InputStream in = Files.newInputStream(path);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            while (true) {
+                int id;
+                try {
+                    id = data.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] bytes = new byte[data.readUnsignedShort()];
+                data.readFully(bytes);
+                strings.put(id, new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * 文件中的记录槽位数（未正常关闭的文件可能包含尾部空槽位，遍历时跳过）
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * 遍历所有完整记录
+     */
+    public void forEach(Consumer<Event> consumer) {
+        Event event = new Event();
+        long segmentRecords = RequestEventJournal.SEGMENT_SIZE / RequestEventJournal.RECORD_SIZE;
+        try {
+            for (long first = 0; first < recordCount; first += segmentRecords) {
+                long records = Math.min(segmentRecords, recordCount - first);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    RequestEventJournal.HEADER_SIZE + first * RequestEventJournal.RECORD_SIZE,
+                    records * RequestEventJournal.RECORD_SIZE);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < records; i++) {
+                    int pos = i * RequestEventJournal.RECORD_SIZE;
+                    long timestamp = buffer.getLong(pos + RequestEventJournal.OFF_TIMESTAMP);
+                    if (timestamp == 0) {
+                        continue;
+                    }
+                    event.timestamp = timestamp;
+                    event.durationMicros = buffer.getLong(pos + RequestEventJournal.OFF_DURATION_MICROS);
+                    event.status = buffer.getInt(pos + RequestEventJournal.OFF_STATUS);
+                    event.requestBytes = buffer.getInt(pos + RequestEventJournal.OFF_REQUEST_BYTES);
+                    event.responseBytes = buffer.getInt(pos + RequestEventJournal.OFF_RESPONSE_BYTES);
+                    event.method = strings.get(buffer.getInt(pos + RequestEventJournal.OFF_METHOD));
+                    event.url = strings.get(buffer.getInt(pos + RequestEventJournal.OFF_URL));
+                    event.trace = buffer.getLong(pos + RequestEventJournal.OFF_TRACE);
+                    event.traceId = event.trace != 0 ? null
+                        : strings.get(buffer.getInt(pos + RequestEventJournal.OFF_TRACE_STRING));
+                    consumer.accept(event);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取请求事件日志失败", e);
+        }
+    }
+
+    /**
+     * 读取全部记录
+     */
+    public List<Event> readAll() {
+        List<Event> events = new ArrayList<>();
+        forEach(event -> events.add(event.copy()));
+        return events;
+    }
+
+    /**
+     * 按 方法+URL模板 汇总，按请求数降序
+     */
+    public List<Summary> summarize() {
+        Map<String, Map<String, Summary>> summaries = new HashMap<>();
+        forEach(event -> summaries.computeIfAbsent(String.valueOf(event.url), k -> new HashMap<>())
+            .computeIfAbsent(String.valueOf(event.method), k -> new Summary(event.method, event.url)).add(event));
+        List<Summary> result = new ArrayList<>();
+        summaries.values().forEach(byMethod -> result.addAll(byMethod.values()));
+        result.sort((a, b) -> Integer.compare(b.count, a.count));
+        return result;
+    }
+
+    // ==================== 导出 ====================
+
+    public void writeCsv(PrintStream out) {
+        out.println("timestamp,method,url,status,durationMs,requestBytes,responseBytes,traceId");
+        forEach(e -> out.println(e.timestamp + "," + e.method + "," + csv(e.url) + "," + e.status + ","
+            + e.durationMicros / 1000.0 + "," + e.requestBytes + "," + e.responseBytes + ","
+            + (e.getTraceId() != null ? e.getTraceId() : "")));
+    }
+
+    public void writeJson(PrintStream out) {
+        out.println("[");
+        boolean[] first = {true};
+        forEach(e -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("timestamp", e.timestamp);
+            row.put("method", e.method);
+            row.put("url", e.url);
+            row.put("status", e.status);
+            row.put("durationMs", e.durationMicros / 1000.0);
+            row.put("requestBytes", e.requestBytes);
+            row.put("responseBytes", e.responseBytes);
+            row.put("traceId", e.getTraceId());
+            out.print(first[0] ? "  " : ",\n  ");
+            out.print(JsonUtil.toJsonString(row));
+            first[0] = false;
+        });
+        out.println("\n]");
+    }
+
+    public void writeSummaryCsv(PrintStream out) {
+        out.println("method,url,count,errors,avgMs,p50Ms,p95Ms,p99Ms,maxMs");
+        for (Summary s : summarize()) {
+            out.println(s.method + "," + csv(s.url) + "," + s.count + "," + s.errors + ","
+                + String.format("%.3f,%.3f,%.3f,%.3f,%.3f", s.getAvgMillis(), s.percentileMillis(50),
+                s.percentileMillis(95), s.percentileMillis(99), s.percentileMillis(100)));
+        }
+    }
+
+    public void writeSummaryJson(PrintStream out) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Summary s : summarize()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("method", s.method);
+            row.put("url", s.url);
+            row.put("count", s.count);
+            row.put("errors", s.errors);
+            row.put("avgMs", s.getAvgMillis());
+            Map<String, Object> percentiles = new LinkedHashMap<>();
+            percentiles.put("p50", s.percentileMillis(50));
+            percentiles.put("p95", s.percentileMillis(95));
+            percentiles.put("p99", s.percentileMillis(99));
+            percentiles.put("max", s.percentileMillis(100));
+            row.put("percentilesMs", percentiles);
+            rows.add(row);
+        }
+        out.println(JsonUtil.toJsonString(rows));
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 只读通道关闭失败无影响
+        }
+    }
+
+    /**
+     * 命令行导出
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("用法: RequestEventJournalReader <journal文件> [csv|json|summary-csv|summary-json]");
+            System.exit(1);
+        }
+        String format = args.length > 1 ? args[1] : "summary-csv";
+        try (RequestEventJournalReader reader = new RequestEventJournalReader(args[0])) {
+            switch (format) {
+                case "csv":
+                    reader.writeCsv(System.out);
+                    break;
+                case "json":
+                    reader.writeJson(System.out);
+                    break;
+                case "summary-json":
+                    reader.writeSummaryJson(System.out);
+                    break;
+                case "summary-csv":
+                    reader.writeSummaryCsv(System.out);
+                    break;
+                default:
+                    System.err.println("不支持的输出格式: " + format);
+                    System.exit(1);
+            }
+        }
+        System.out.flush();
+    }
+}
@@ -26,17 +26,23 @@ public class RestAssuredUtil {
         // 配置 RestAssured 全局设置
         RestAssured.config = RestAssured.config()
             .sslConfig(SSLConfig.sslConfig().relaxedHTTPSValidation());
+        ApiMetrics.install();
     }
 
     /**
      * 创建基础请求规范
+     * 性能模式下不再逐个请求 log(ALL) 和生成Allure附件，改为暂存到用例结束按结果输出
      */
     public static RequestSpecification createBaseSpec(String baseUrl, Map<String, String> headers) {
         RequestSpecBuilder builder = new RequestSpecBuilder()
             .setBaseUri(baseUrl)
-            .setRelaxedHTTPSValidation()
-            .log(LogDetail.ALL)
-            .addFilter(new AllureRestAssured()); // 添加 Allure 报告集成
+            .setRelaxedHTTPSValidation();
+        if (PerformanceMode.isEnabled()) {
+            builder.addFilter(new PerformanceMode.DeferredLogFilter());
+        } else {
+            builder.log(LogDetail.ALL)
+                .addFilter(new AllureRestAssured()); // 添加 Allure 报告集成
+        }
 
         if (headers != null && !headers.isEmpty()) {
             builder.addHeaders(headers);
@@ -0,0 +1,421 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sen.api.configs.ApiProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 断点续跑检查点
+ * 每个用例完成后把用例键、结果和该用例保存的变量作为一行 JSON 追加到检查点文件：
+ * - 测试线程只把记录放进有界缓冲区，后台线程按 flushIntervalMs 批量追加并刷盘；缓冲区满时丢弃（该用例续跑时重新执行）
+ * - resume 时按文件顺序回放：已完成的用例跳过，各用例保存的变量依次恢复（后写覆盖先写）；进程崩溃留下的半行忽略
+ * - 不续跑时每次运行清空检查点
+ * - 分片执行时每个分片写各自的 .shard-N 文件，续跑时读取全部分片的文件（分片方式变化后用例可能换分片）
+ *
+ * 配置来源：Spring 下为 api.test.checkpoint，TestNG 直接运行时可用系统属性
+ * api.checkpoint.enabled / api.checkpoint.file / api.checkpoint.resume / api.checkpoint.flushIntervalMs
+ *
+ * @author sen
+ */
+public class RunCheckpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunCheckpoint.class);
+
+    private static final int CAPACITY = 10000;
+    private static final String SHARD_SUFFIX = ".shard-";
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static volatile ApiProperties.CheckpointConfig config = fromSystemProperties();
+    private static volatile RunCheckpoint instance;
+
+    /**
+     * 一条检查点记录
+     */
+    public static class Entry {
+        private String key;
+        private boolean passed;
+        private Object result;
+        private Map<String, String> vars = new LinkedHashMap<>();
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public boolean isPassed() {
+            return passed;
+        }
+
+        public void setPassed(boolean passed) {
+            this.passed = passed;
+        }
+
+        /**
+         * 用例结果（JSON 结构），由调用方决定内容
+         */
+        public Object getResult() {
+            return result;
+        }
+
+        public void setResult(Object result) {
+            this.result = result;
+        }
+
+        public Map<String, String> getVars() {
+            return vars;
+        }
+
+        public void setVars(Map<String, String> vars) {
+            this.vars = vars;
+        }
+    }
+
+    private final Path file;
+    private final long flushIntervalMs;
+    // 续跑时从文件读出的记录
+    private final Map<String, Entry> completed = new LinkedHashMap<>();
+    private final Map<String, String> restoredVars = new LinkedHashMap<>();
+    private final BlockingQueue<Entry> buffer = new ArrayBlockingQueue<>(CAPACITY);
+    private final Object writeLock = new Object();
+    private final LongAdder dropped = new LongAdder();
+    private BufferedWriter writer;
+    private FileChannel channel;
+    private Thread writerThread;
+
+    private RunCheckpoint(Path base, Path file, boolean resume, long flushIntervalMs) {
+        this.file = file;
+        this.flushIntervalMs = flushIntervalMs;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (resume) {
+                List<Path> files = checkpointFiles(base);
+                if (files.isEmpty()) {
+                    logger.info("Checkpoint {} not found, starting from scratch", base);
+                }
+                for (Path existing : files) {
+                    load(existing);
+                }
+            } else {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取检查点失败: " + file, e);
+        }
+    }
+
+    private static ApiProperties.CheckpointConfig fromSystemProperties() {
+        ApiProperties.CheckpointConfig checkpoint = new ApiProperties.CheckpointConfig();
+        checkpoint.setEnabled(Boolean.getBoolean("api.checkpoint.enabled"));
+        checkpoint.setFile(System.getProperty("api.checkpoint.file", checkpoint.getFile()));
+        checkpoint.setResume(Boolean.getBoolean("api.checkpoint.resume"));
+        checkpoint.setFlushIntervalMs(Long.getLong("api.checkpoint.flushIntervalMs", checkpoint.getFlushIntervalMs()));
+        return checkpoint;
+    }
+
+    /**
+     * 更换配置，已有检查点先写完再关闭
+     */
+    public static synchronized void configure(ApiProperties.CheckpointConfig checkpoint) {
+        if (checkpoint == null) {
+            return;
+        }
+        if (checkpoint.getFlushIntervalMs() <= 0) {
+            throw new IllegalArgumentException("检查点写入间隔必须大于0: " + checkpoint.getFlushIntervalMs());
+        }
+        RunCheckpoint current = instance;
+        if (current != null) {
+            current.close();
+            instance = null;
+        }
+        config = checkpoint;
+        if (checkpoint.isEnabled()) {
+            logger.info("Checkpoint enabled: file={}, resume={}", checkpoint.getFile(), checkpoint.isResume());
+        }
+    }
+
+    public static boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    private static RunCheckpoint get() {
+        RunCheckpoint current = instance;
+        if (current == null) {
+            synchronized (RunCheckpoint.class) {
+                current = instance;
+                if (current == null) {
+                    ApiProperties.ScheduleConfig schedule = CaseScheduler.getConfig();
+                    Path base = Paths.get(config.getFile());
+                    Path file = base;
+                    if (schedule.getShardCount() > 1) {
+                        file = Paths.get(config.getFile() + SHARD_SUFFIX + schedule.getShardIndex());
+                    }
+                    current = new RunCheckpoint(base, file, config.isResume(), config.getFlushIntervalMs());
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // ==================== 续跑 ====================
+
+    /**
+     * 检查点中已完成的用例，未开启或没有记录时返回 null
+     */
+    public static Entry completed(String key) {
+        if (!isEnabled() || key == null) {
+            return null;
+        }
+        return get().completed.get(key);
+    }
+
+    /**
+     * 已完成用例保存的变量，按完成顺序合并；未开启或不续跑时为空
+     */
+    public static Map<String, String> restoredVariables() {
+        if (!isEnabled()) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(get().restoredVars);
+    }
+
+    /**
+     * 清空检查点（含各分片的文件），开启且不续跑时生效；分片执行前由启动进程调用
+     */
+    public static void clear() {
+        if (!isEnabled() || config.isResume()) {
+            return;
+        }
+        try {
+            for (Path existing : checkpointFiles(Paths.get(config.getFile()))) {
+                Files.deleteIfExists(existing);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("清空检查点失败: " + config.getFile(), e);
+        }
+    }
+
+    /**
+     * 检查点文件及其分片文件
+     */
+    private static List<Path> checkpointFiles(Path base) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.exists(base)) {
+            files.add(base);
+        }
+        Path dir = base.toAbsolutePath().getParent();
+        if (dir != null && Files.isDirectory(dir)) {
+            String prefix = base.getFileName() + SHARD_SUFFIX;
+            try (Stream<Path> siblings = Files.list(dir)) {
+                siblings.filter(p -> p.getFileName().toString().startsWith(prefix))
+                    .sorted()
+                    .forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    private void load(Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+        if (end < content.length) {
+            // 最后一行没写完就退出了，截掉，续跑的记录从完整行之后追加
+            try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncate.truncate(end);
+            }
+            logger.warn("Checkpoint {} ends with a partial line, {} bytes dropped", file, content.length - end);
+        }
+        int loaded = 0;
+        int broken = 0;
+        for (String line : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            Entry entry;
+            try {
+                entry = mapper.readValue(line, Entry.class);
+            } catch (IOException e) {
+                // 写到一半时进程退出
+                broken++;
+                continue;
+            }
+            completed.put(entry.getKey(), entry);
+            loaded++;
+            if (entry.getVars() != null) {
+                restoredVars.putAll(entry.getVars());
+            }
+        }
+        logger.info("Checkpoint {} loaded: {} entries{}", file, loaded, broken > 0 ? ", " + broken + " broken lines ignored" : "");
+    }
+
+    // ==================== 记录 ====================
+
+    /**
+     * 记录一个已完成的用例（非阻塞，未开启时忽略）
+     *
+     * @param result 用例结果，续跑时原样返回，需可被 Jackson 序列化
+     * @param vars   该用例保存到变量池的变量
+     */
+    public static void caseFinished(String key, boolean passed, Object result, Map<String, String> vars) {
+        if (!isEnabled() || key == null) {
+            return;
+        }
+        Entry entry = new Entry();
+        entry.setKey(key);
+        entry.setPassed(passed);
+        entry.setResult(result);
+        if (vars != null) {
+            entry.setVars(new LinkedHashMap<>(vars));
+        }
+        get().offer(entry);
+    }
+
+    /**
+     * 等待缓冲区中的记录全部写入
+     */
+    public static void flush() {
+        RunCheckpoint current = instance;
+        if (current != null) {
+            current.drain();
+        }
+    }
+
+    public static long getDroppedCount() {
+        RunCheckpoint current = instance;
+        return current == null ? 0 : current.dropped.sum();
+    }
+
+    private void offer(Entry entry) {
+        startWriter();
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+            logger.warn("Checkpoint buffer full, case {} will rerun on resume", entry.getKey());
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writerThread != null) {
+            return;
+        }
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+            writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开检查点失败: " + file, e);
+        }
+        writerThread = new Thread(this::writeLoop, "RunCheckpointWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        // 正常退出（含 OOM 后的退出）时写完缓冲区
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "RunCheckpointShutdown"));
+    }
+
+    private void writeLoop() {
+        // 每个间隔批量写一次，记录始终留在缓冲区里直到写入，flush() 总能看到
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(flushIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            drain();
+        }
+    }
+
+    private void drain() {
+        synchronized (writeLock) {
+            List<Entry> batch = new ArrayList<>();
+            buffer.drainTo(batch);
+            write(batch);
+        }
+    }
+
+    /**
+     * 追加并刷盘（调用方持有 writeLock）
+     */
+    private void write(List<Entry> batch) {
+        if (batch.isEmpty() || writer == null) {
+            return;
+        }
+        try {
+            for (Entry entry : batch) {
+                writer.write(mapper.writeValueAsString(entry));
+                writer.newLine();
+            }
+            writer.flush();
+            channel.force(false);
+        } catch (IOException e) {
+            logger.error("Failed to write {} checkpoint entries: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private synchronized void close() {
+        drain();
+        if (writerThread != null) {
+            writerThread.interrupt();
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            drain();
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close checkpoint {}: {}", file, e.getMessage());
+            }
+            writer = null;
+            writerThread = null;
+        }
+    }
+
+    /**
+     * 把 JSON 结构的结果转换回对象
+     */
+    public static <T> T convert(Object result, Class<T> type) {
+        return result == null ? null : mapper.convertValue(result, type);
+    }
+
+    /**
+     * 把对象转换为 JSON 结构保存
+     */
+    public static Map<String, Object> toResult(Object value) {
+        return mapper.convertValue(value, new TypeReference<Map<String, Object>>() { });
+    }
+}
@@ -0,0 +1,513 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sen.api.beans.RequestTiming;
+import com.sen.api.configs.ApiProperties;
+import com.sen.api.configs.EnvCenter;
+import com.sen.api.utils.YamlDslTestEngine.DslSuiteResult;
+import com.sen.api.utils.YamlDslTestEngine.DslTestCase;
+import com.sen.api.utils.YamlDslTestEngine.DslTestResult;
+import io.qameta.allure.FileSystemResultsWriter;
+import io.qameta.allure.model.Stage;
+import io.qameta.allure.model.Status;
+import io.qameta.allure.model.StatusDetails;
+import io.qameta.allure.model.TestResult;
+import io.qameta.allure.util.ResultsUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 多进程分片执行 YAML DSL 套件
+ * 单个 JVM 受 GC 和 TokenManager / EnvCenter / YamlDslTestEngine 单例限制，用不满多核机器。
+ * 启动进程把套件交给同机 N 个 worker JVM，每个 worker 只执行自己的分片，结果逐条流回启动进程，
+ * 合并成一个 DslSuiteResult；各 worker 的 Allure 结果合并到同一目录。
+ * - 分片沿用 {@link CaseScheduler}：duration 按历史耗时均衡，hash 按用例名哈希；dependsOn 关联的用例在同一分片
+ * - 启动进程统一划分，把各分片的用例清单写入文件交给 worker；worker 不写历史耗时，
+ *   而是把耗时随结束行回传，全部 worker 退出后由启动进程写回历史文件
+ * - 合并时核对每个未跳过的用例恰好返回一次结果，缺失或重复都记为检查失败
+ * - 没有声明 dependsOn、只靠 save 共享变量的用例可能分到不同分片，需要补上 dependsOn
+ * - worker 通过标准输出回传：以 RESULT_PREFIX / DONE_PREFIX 开头的行是结果，其余行作为 worker 日志转发
+ *
+ * 用法: ShardRunner [--resume] &lt;yaml文件&gt; [分片数] [duration|hash]
+ * --resume 从各分片的检查点续跑（见 {@link RunCheckpoint}）
+ * worker 的额外 JVM 参数用系统属性 api.shard.jvmArgs 指定（空格分隔），例如 -Dapi.shard.jvmArgs="-Xmx2g -XX:+UseG1GC"
+ *
+ * @author sen
+ */
+public class ShardRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRunner.class);
+
+    static final String RESULT_PREFIX = "##shard-result ";
+    static final String DONE_PREFIX = "##shard-done ";
+    private static final String WORKER_FLAG = "--worker";
+    private static final String RESUME_FLAG = "--resume";
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final String yamlPath;
+    private final int shardCount;
+    private String shardBy = "duration";
+    private Path workDir = Paths.get("target", "shards");
+    private Path allureResultsDir = Paths.get(System.getProperty("allure.results.directory", "allure-results"));
+    private List<String> jvmArgs = new ArrayList<>();
+
+    public ShardRunner(String yamlPath, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("分片数必须大于0: " + shardCount);
+        }
+        this.yamlPath = yamlPath;
+        this.shardCount = shardCount;
+        String args = System.getProperty("api.shard.jvmArgs");
+        if (StringUtil.isNotBlank(args)) {
+            jvmArgs.addAll(Arrays.asList(args.trim().split("\\s+")));
+        }
+    }
+
+    /**
+     * 分片方式：duration（默认）或 hash
+     */
+    public void setShardBy(String shardBy) {
+        if (!"duration".equals(shardBy) && !"hash".equals(shardBy)) {
+            throw new IllegalArgumentException("不支持的分片方式: " + shardBy);
+        }
+        this.shardBy = shardBy;
+    }
+
+    /**
+     * 各 worker 的临时目录，默认 target/shards
+     */
+    public void setWorkDir(Path workDir) {
+        this.workDir = workDir;
+    }
+
+    /**
+     * 合并后的 Allure 结果目录，默认取 allure.results.directory
+     */
+    public void setAllureResultsDir(Path allureResultsDir) {
+        this.allureResultsDir = allureResultsDir;
+    }
+
+    public void setJvmArgs(List<String> jvmArgs) {
+        this.jvmArgs = new ArrayList<>(jvmArgs);
+    }
+
+    // ==================== 启动进程 ====================
+
+    /**
+     * 启动全部 worker，等待结束后返回合并结果
+     */
+    public DslSuiteResult run() {
+        logger.info("========== 分片执行测试套件: {}，分片数 {}，分片方式 {} ==========", yamlPath, shardCount, shardBy);
+        long startTime = System.currentTimeMillis();
+        List<DslTestCase> cases = YamlDslTestEngine.getInstance().loadCases(yamlPath);
+        RunCheckpoint.clear();
+        List<List<DslTestCase>> partitions = partition(cases);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService readers = Executors.newFixedThreadPool(shardCount, r -> {
+            Thread t = new Thread(r, "shard-reader-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<ShardOutcome>> futures = new ArrayList<>();
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                Process process = start(i, writeCases(i, partitions.get(i)));
+                processes.add(process);
+                int shard = i;
+                futures.add(readers.submit(() -> collect(shard, process)));
+            }
+            List<ShardOutcome> outcomes = new ArrayList<>();
+            for (Future<ShardOutcome> future : futures) {
+                outcomes.add(future.get());
+            }
+            DslSuiteResult merged = merge(cases, outcomes);
+            merged.setTotalDurationMs(System.currentTimeMillis() - startTime);
+            mergeAllureResults();
+            saveDurations(outcomes);
+
+            logger.info("========== 分片执行完成 ==========");
+            logger.info("总计: {}, 通过: {}, 失败: {}, 跳过: {}, 耗时: {}ms",
+                merged.getPassedCount() + merged.getFailedCount(), merged.getPassedCount(),
+                merged.getFailedCount(), merged.getSkippedCount(), merged.getTotalDurationMs());
+            for (String check : merged.getFailedChecks()) {
+                logger.error("检查失败: {}", check);
+            }
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("分片执行被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("读取分片结果失败: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Process process : processes) {
+                if (process.isAlive()) {
+                    process.destroyForcibly();
+                }
+            }
+            readers.shutdownNow();
+        }
+    }
+
+    /**
+     * 用启动进程读到的历史耗时统一划分分片，worker 不再各自划分
+     */
+    private List<List<DslTestCase>> partition(List<DslTestCase> cases) {
+        ApiProperties.ScheduleConfig current = CaseScheduler.getConfig();
+        ApiProperties.ScheduleConfig schedule = new ApiProperties.ScheduleConfig();
+        schedule.setEnabled(true);
+        schedule.setHistoryFile(current.getHistoryFile());
+        schedule.setThreads(current.getThreads());
+        schedule.setDefaultDurationMs(current.getDefaultDurationMs());
+        schedule.setSmoothing(current.getSmoothing());
+        schedule.setShardCount(shardCount);
+        schedule.setShardBy(shardBy);
+        schedule.setSaveHistory(current.isSaveHistory());
+        CaseScheduler.configure(schedule);
+
+        List<DslTestCase> runnable = new ArrayList<>();
+        for (DslTestCase testCase : cases) {
+            if (!testCase.isSkip()) {
+                runnable.add(testCase);
+            }
+        }
+        return CaseScheduler.partition(runnable, DslTestCase::getName, DslTestCase::getPriority,
+            DslTestCase::getDependsOn, shardCount, "hash".equals(shardBy));
+    }
+
+    /**
+     * 把分片的用例清单写入 worker 目录
+     */
+    private Path writeCases(int shard, List<DslTestCase> cases) {
+        List<String> names = new ArrayList<>(cases.size());
+        for (DslTestCase testCase : cases) {
+            names.add(testCase.getName());
+        }
+        Path file = workDir.resolve("shard-" + shard).resolve("cases.json");
+        try {
+            Files.createDirectories(file.getParent());
+            mapper.writeValue(file.toFile(), names);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入分片用例清单失败: " + file, e);
+        }
+        logger.info("分片 {}: {} 个用例", shard, names.size());
+        return file;
+    }
+
+    private Process start(int shard, Path casesFile) {
+        ApiProperties.ScheduleConfig schedule = CaseScheduler.getConfig();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        // 透传环境与 api.* 配置，分片参数由启动进程决定
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if ((name.startsWith("api.") && !name.startsWith("api.schedule.shard") && !name.startsWith("api.shard."))
+                || name.equals("env") || name.equals("spring.profiles.active")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        Integer metricsPort = Integer.getInteger("api.metrics.port");
+        if (metricsPort != null && metricsPort > 0) {
+            // 启动进程占用配置的端口，各分片依次顺延
+            command.add("-Dapi.metrics.port=" + (metricsPort + 1 + shard));
+        }
+        command.add("-Dapi.schedule.enabled=true");
+        command.add("-Dapi.schedule.historyFile=" + Paths.get(schedule.getHistoryFile()).toAbsolutePath());
+        command.add("-Dapi.schedule.shardCount=" + shardCount);
+        command.add("-Dapi.schedule.shardIndex=" + shard);
+        command.add("-Dapi.schedule.shardBy=" + shardBy);
+        command.add("-Dapi.schedule.casesFile=" + casesFile.toAbsolutePath());
+        command.add("-Dapi.schedule.saveHistory=false");
+        command.add("-Dallure.results.directory=" + shardAllureDir(shard).toAbsolutePath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardRunner.class.getName());
+        command.add(WORKER_FLAG);
+        command.add(yamlPath);
+        try {
+            Files.createDirectories(shardAllureDir(shard));
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            logger.info("分片 {} 已启动", shard);
+            return process;
+        } catch (IOException e) {
+            throw new UncheckedIOException("启动分片进程失败: " + shard, e);
+        }
+    }
+
+    private Path shardAllureDir(int shard) {
+        return workDir.resolve("shard-" + shard).resolve("allure-results");
+    }
+
+    /**
+     * 读取一个 worker 的输出直到进程结束
+     */
+    private ShardOutcome collect(int shard, Process process) throws IOException, InterruptedException {
+        ShardOutcome outcome = new ShardOutcome(shard);
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    DslTestResult result = decode(line.substring(RESULT_PREFIX.length()));
+                    outcome.results.add(result);
+                    logger.info("[shard-{}] {} {} ({}ms)", shard, result.isPassed() ? "通过" : "失败",
+                        result.getName(), result.getDurationMs());
+                } else if (line.startsWith(DONE_PREFIX)) {
+                    JsonNode done = mapper.readTree(line.substring(DONE_PREFIX.length()));
+                    for (JsonNode check : done.path("failedChecks")) {
+                        outcome.failedChecks.add(check.asText());
+                    }
+                    done.path("durations").fields().forEachRemaining(
+                        e -> outcome.durations.put(e.getKey(), e.getValue().asLong()));
+                    outcome.done = true;
+                } else {
+                    logger.info("[shard-{}] {}", shard, line);
+                }
+            }
+        }
+        outcome.exitCode = process.waitFor();
+        return outcome;
+    }
+
+    /**
+     * 按 YAML 中的顺序合并各分片结果，并核对每个未跳过的用例恰好返回一次结果
+     */
+    DslSuiteResult merge(List<DslTestCase> cases, List<ShardOutcome> outcomes) {
+        Map<String, Integer> order = new HashMap<>();
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        DslSuiteResult merged = new DslSuiteResult(yamlPath);
+        for (int i = 0; i < cases.size(); i++) {
+            order.putIfAbsent(cases.get(i).getName(), i);
+            if (cases.get(i).isSkip()) {
+                merged.addSkipped();
+            } else {
+                expected.merge(cases.get(i).getName(), 1, Integer::sum);
+            }
+        }
+        List<DslTestResult> results = new ArrayList<>();
+        Map<String, Integer> returned = new LinkedHashMap<>();
+        for (ShardOutcome outcome : outcomes) {
+            results.addAll(outcome.results);
+            for (DslTestResult result : outcome.results) {
+                returned.merge(result.getName(), 1, Integer::sum);
+            }
+            for (String check : outcome.failedChecks) {
+                merged.addFailedCheck("分片 " + outcome.shard + ": " + check);
+            }
+            if (!outcome.done || outcome.exitCode != 0) {
+                merged.addFailedCheck("分片 " + outcome.shard + " 异常退出 (exit=" + outcome.exitCode + ")");
+            }
+        }
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            int count = returned.getOrDefault(entry.getKey(), 0);
+            if (count == 0) {
+                merged.addFailedCheck("用例 " + entry.getKey() + " 没有返回结果");
+            } else if (count != entry.getValue()) {
+                merged.addFailedCheck("用例 " + entry.getKey() + " 返回了 " + count + " 次结果，应为 " + entry.getValue() + " 次");
+            }
+        }
+        for (Map.Entry<String, Integer> entry : returned.entrySet()) {
+            if (!expected.containsKey(entry.getKey())) {
+                merged.addFailedCheck("用例 " + entry.getKey() + " 不在待执行用例中，却返回了 " + entry.getValue() + " 次结果");
+            }
+        }
+        results.sort(Comparator.comparingInt(r -> order.getOrDefault(r.getName(), Integer.MAX_VALUE)));
+        results.forEach(merged::addResult);
+        return merged;
+    }
+
+    /**
+     * 全部 worker 退出后把回传的耗时写回历史文件
+     */
+    private static void saveDurations(List<ShardOutcome> outcomes) {
+        for (ShardOutcome outcome : outcomes) {
+            outcome.durations.forEach(CaseScheduler::recordDuration);
+        }
+        CaseScheduler.saveHistory();
+    }
+
+    /**
+     * 把各分片的 Allure 结果移到同一目录，结果文件名带 UUID 不会冲突；
+     * 同名的公共文件（如 environment.properties）保留先到的一份
+     */
+    private void mergeAllureResults() {
+        try {
+            Files.createDirectories(allureResultsDir);
+            int moved = 0;
+            for (int i = 0; i < shardCount; i++) {
+                Path dir = shardAllureDir(i);
+                if (!Files.isDirectory(dir)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Path target = allureResultsDir.resolve(file.getFileName().toString());
+                        if (!Files.exists(target)) {
+                            Files.move(file, target);
+                            moved++;
+                        }
+                    }
+                }
+            }
+            logger.info("Allure 结果已合并: {} 个文件 -> {}", moved, allureResultsDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("合并 Allure 结果失败: " + allureResultsDir, e);
+        }
+    }
+
+    /**
+     * 一个分片的执行结果
+     */
+    static final class ShardOutcome {
+        private final int shard;
+        private final List<DslTestResult> results = new ArrayList<>();
+        private final List<String> failedChecks = new ArrayList<>();
+        private final Map<String, Long> durations = new HashMap<>();
+        private boolean done;
+        private int exitCode;
+
+        ShardOutcome(int shard) {
+            this.shard = shard;
+        }
+
+        List<DslTestResult> getResults() {
+            return results;
+        }
+
+        void setDone(boolean done) {
+            this.done = done;
+        }
+    }
+
+    // ==================== worker ====================
+
+    /**
+     * worker 进程：执行启动进程分给本分片的用例（用例清单和分片参数通过系统属性传入），逐条输出结果
+     */
+    static void runWorker(String yamlPath) {
+        EnvCenter.getInstance().init();
+        YamlDslTestEngine engine = YamlDslTestEngine.getInstance();
+        engine.initFromEnvCenter();
+        FileSystemResultsWriter allure = new FileSystemResultsWriter(
+            Paths.get(System.getProperty("allure.results.directory", "allure-results")));
+        engine.setResultListener(result -> {
+            allure.write(toAllure(yamlPath, result));
+            System.out.println(RESULT_PREFIX + encode(result));
+        });
+
+        DslSuiteResult suiteResult = engine.runFromFile(yamlPath);
+        ObjectNode done = mapper.createObjectNode();
+        done.putPOJO("failedChecks", suiteResult.getFailedChecks());
+        // 本分片实际执行的用例耗时，由启动进程写回历史文件
+        done.putPOJO("durations", CaseScheduler.recordedDurations());
+        System.out.println(DONE_PREFIX + done);
+        System.out.flush();
+    }
+
+    private static TestResult toAllure(String suite, DslTestResult result) {
+        long stop = System.currentTimeMillis();
+        String message = result.getErrorMessage();
+        if (message == null && !result.getFailedValidations().isEmpty()) {
+            message = String.join("; ", result.getFailedValidations());
+        }
+        return new TestResult()
+            .setUuid(UUID.randomUUID().toString())
+            .setHistoryId(ResultsUtils.md5(suite + "#" + result.getName()))
+            .setFullName(suite + "#" + result.getName())
+            .setName(result.getName())
+            .setStatus(result.isPassed() ? Status.PASSED : Status.FAILED)
+            .setStatusDetails(new StatusDetails().setMessage(message))
+            .setStage(Stage.FINISHED)
+            .setStart(stop - result.getDurationMs())
+            .setStop(stop)
+            .setLabels(new ArrayList<>(Arrays.asList(
+                ResultsUtils.createSuiteLabel(new File(suite).getName()),
+                ResultsUtils.createHostLabel(),
+                ResultsUtils.createThreadLabel())));
+    }
+
+    static String encode(DslTestResult result) {
+        return JsonUtil.toJsonString(result);
+    }
+
+    static DslTestResult decode(String json) throws IOException {
+        JsonNode node = mapper.readTree(json);
+        DslTestResult result = new DslTestResult(node.path("name").asText(null));
+        result.setPassed(node.path("passed").asBoolean());
+        result.setStatusCode(node.path("statusCode").asInt());
+        result.setResponseBody(node.path("responseBody").asText(null));
+        result.setErrorMessage(node.path("errorMessage").asText(null));
+        result.setDurationMs(node.path("durationMs").asLong());
+        result.setRetryCount(node.path("retryCount").asInt());
+        node.path("passedValidations").forEach(v -> result.getPassedValidations().add(v.asText()));
+        node.path("failedValidations").forEach(v -> result.getFailedValidations().add(v.asText()));
+        node.path("savedData").fields().forEachRemaining(e -> result.getSavedData().put(e.getKey(), e.getValue().asText()));
+        if (node.hasNonNull("timing")) {
+            result.setTiming(mapper.treeToValue(node.get("timing"), RequestTiming.class));
+        }
+        return result;
+    }
+
+    /**
+     * 命令行入口，退出码 0 表示全部通过
+     */
+    public static void main(String[] args) {
+        ApiMetrics.startFromSystemProperties();
+        if (args.length >= 2 && WORKER_FLAG.equals(args[0])) {
+            try {
+                runWorker(args[1]);
+                System.exit(0);
+            } catch (RuntimeException e) {
+                logger.error("分片执行失败: {}", e.getMessage(), e);
+                System.exit(1);
+            }
+        }
+        if (args.length > 0 && RESUME_FLAG.equals(args[0])) {
+            // 通过系统属性传给各 worker
+            System.setProperty("api.checkpoint.enabled", "true");
+            System.setProperty("api.checkpoint.resume", "true");
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length < 1) {
+            System.err.println("用法: ShardRunner [--resume] <yaml文件> [分片数] [duration|hash]");
+            System.exit(1);
+        }
+        int shards = args.length > 1 ? Integer.parseInt(args[1])
+            : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        ShardRunner runner = new ShardRunner(args[0], shards);
+        if (args.length > 2) {
+            runner.setShardBy(args[2]);
+        }
+        System.exit(runner.run().isAllPassed() ? 0 : 1);
+    }
+}
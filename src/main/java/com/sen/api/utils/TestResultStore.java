@@ -0,0 +1,382 @@
+package com.sen.api.utils;
+
+import com.sen.api.beans.TestResultRecord;
+import com.sen.api.configs.ApiProperties;
+import com.sen.api.configs.EnvCenter;
+import com.sen.api.mapper.TestResultMapper;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 测试结果库
+ * 用例结果写入有界缓冲区后立即返回，后台线程按批通过MyBatis多值INSERT落库：
+ * - 缓冲区满时丢弃并计数，永不阻塞测试线程
+ * - 攒满一批或到达刷新间隔即写入；运行结束时调用 {@link #flush} 等待全部落库
+ * Spring 下由 ApiConfiguration 基于 MyBatis 自动配置创建；脱离 Spring 时由 {@link #shared()} 按 api.resultStore.* 创建
+ *
+ * @author sen
+ */
+public class TestResultStore implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestResultStore.class);
+
+    public static final int DEFAULT_CAPACITY = 10000;
+    private static final int BATCH_SIZE = 200;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+    private static final int MAX_ERROR_LENGTH = 2000;
+    private static final String MAPPER_XML = "mapper/TestResultMapper.xml";
+    private static final String SCHEMA_SQL = "schema/test-result.sql";
+
+    private static volatile ApiProperties.ResultStoreConfig config = fromSystemProperties();
+    private static TestResultStore shared;
+    private static boolean sharedResolved;
+
+    private final DataSource dataSource;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final BlockingQueue<TestResultRecord> buffer;
+    private final Thread writer;
+    private final Object writeLock = new Object();
+    // 已入队但尚未写完（或写失败）的记录数，flush 等待其归零
+    private final AtomicLong pending = new AtomicLong();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean running = true;
+    // shared() 自建的连接池，close 时一并关闭
+    private HikariDataSource ownedDataSource;
+
+    public TestResultStore(DataSource dataSource) {
+        this(dataSource, DEFAULT_CAPACITY);
+    }
+
+    public TestResultStore(DataSource dataSource, int capacity) {
+        this(buildSqlSessionFactory(dataSource), capacity);
+    }
+
+    /**
+     * 复用已有的 SqlSessionFactory（如 MyBatis 自动配置），其 mapper-locations 需包含 TestResultMapper.xml
+     */
+    public TestResultStore(SqlSessionFactory sqlSessionFactory, int capacity) {
+        this.dataSource = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::writeLoop, "TestResultWriter");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private static SqlSessionFactory buildSqlSessionFactory(DataSource dataSource) {
+        Configuration configuration = new Configuration(
+            new Environment("test-result", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        try (InputStream in = Resources.getResourceAsStream(MAPPER_XML)) {
+            new XMLMapperBuilder(in, configuration, MAPPER_XML, configuration.getSqlFragments()).parse();
+        } catch (Exception e) {
+            throw new IllegalStateException("加载结果库Mapper失败: " + MAPPER_XML, e);
+        }
+        return new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    private static ApiProperties.ResultStoreConfig fromSystemProperties() {
+        ApiProperties.ResultStoreConfig resultStore = new ApiProperties.ResultStoreConfig();
+        resultStore.setEnabled(Boolean.getBoolean("api.resultStore.enabled"));
+        resultStore.setCapacity(Integer.getInteger("api.resultStore.capacity", resultStore.getCapacity()));
+        resultStore.setInitSchema(Boolean.parseBoolean(
+            System.getProperty("api.resultStore.initSchema", String.valueOf(resultStore.isInitSchema()))));
+        resultStore.setFlushTimeoutMs(Long.getLong("api.resultStore.flushTimeoutMs", resultStore.getFlushTimeoutMs()));
+        resultStore.setUrl(System.getProperty("api.resultStore.url"));
+        resultStore.setUsername(System.getProperty("api.resultStore.username"));
+        resultStore.setPassword(System.getProperty("api.resultStore.password"));
+        resultStore.setDriver(System.getProperty("api.resultStore.driver"));
+        return resultStore;
+    }
+
+    /**
+     * 设置当前运行的结果库（Spring 下由 ApiConfiguration 调用），之后 {@link #shared()} 直接返回它
+     */
+    public static synchronized void setShared(TestResultStore store, ApiProperties.ResultStoreConfig resultStore) {
+        config = resultStore;
+        shared = store;
+        sharedResolved = true;
+    }
+
+    /**
+     * 当前运行的结果库，未开启返回null
+     * 未经 {@link #setShared} 设置时，按 api.resultStore.* 首次调用时创建，并在JVM退出时写完关闭
+     */
+    public static synchronized TestResultStore shared() {
+        if (!sharedResolved) {
+            sharedResolved = true;
+            if (config.isEnabled()) {
+                shared = create(config);
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * 运行结束时等待落库的超时（毫秒）
+     */
+    public static long flushTimeoutMs() {
+        return config.getFlushTimeoutMs();
+    }
+
+    private static TestResultStore create(ApiProperties.ResultStoreConfig resultStore) {
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName("TestResultPool");
+        if (StringUtil.isNotBlank(resultStore.getUrl())) {
+            hikari.setJdbcUrl(resultStore.getUrl());
+            hikari.setUsername(resultStore.getUsername());
+            hikari.setPassword(resultStore.getPassword());
+            if (StringUtil.isNotBlank(resultStore.getDriver())) {
+                hikari.setDriverClassName(resultStore.getDriver());
+            }
+        } else {
+            EnvCenter.DatabaseConfig database = EnvCenter.getInstance().getDatabaseConfig();
+            if (database == null || StringUtil.isBlank(database.getUrl())) {
+                logger.warn("Test result store enabled but no database configured, results will not be persisted");
+                return null;
+            }
+            hikari.setJdbcUrl(database.getUrl());
+            hikari.setUsername(database.getUsername());
+            hikari.setPassword(database.getPassword());
+            hikari.setDriverClassName(database.getDriver());
+        }
+        // 只有后台写线程和运行结束时的 flush 会用到连接
+        hikari.setMaximumPoolSize(2);
+        HikariDataSource dataSource = new HikariDataSource(hikari);
+        TestResultStore store;
+        try {
+            store = new TestResultStore(dataSource, resultStore.getCapacity());
+            if (resultStore.isInitSchema()) {
+                store.initSchema();
+            }
+        } catch (RuntimeException e) {
+            dataSource.close();
+            throw e;
+        }
+        store.ownedDataSource = dataSource;
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close, "TestResultStoreShutdown"));
+        return store;
+    }
+
+    /**
+     * 建表（已存在则跳过）
+     */
+    public void initSchema() {
+        try (InputStream in = Resources.getResourceAsStream(SCHEMA_SQL);
+             Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            String script = new String(in.readAllBytes(), StandardCharsets.UTF_8)
+                .replaceAll("(?m)^--.*$", "");
+            for (String sql : script.split(";")) {
+                if (StringUtil.isNotBlank(sql)) {
+                    statement.execute(sql.trim());
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("初始化结果库表结构失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 写入一条结果（非阻塞）
+     *
+     * @return 缓冲区已满被丢弃时返回false
+     */
+    public boolean record(TestResultRecord record) {
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        if (record.getCreatedAt() == null) {
+            record.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+        }
+        String error = record.getErrorMessage();
+        if (error != null && error.length() > MAX_ERROR_LENGTH) {
+            record.setErrorMessage(error.substring(0, MAX_ERROR_LENGTH));
+        }
+        pending.incrementAndGet();
+        if (!buffer.offer(record)) {
+            pending.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 等待缓冲区中的结果全部落库
+     *
+     * @return 超时前全部写完返回true
+     */
+    public boolean flush(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (writeLock) {
+            drainAndWrite();
+            while (pending.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    logger.warn("Test result flush timed out, {} records pending", pending.get());
+                    return false;
+                }
+                try {
+                    writeLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                drainAndWrite();
+            }
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        List<TestResultRecord> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !buffer.isEmpty()) {
+            try {
+                TestResultRecord first = buffer.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 凑批：最多再等一个刷新间隔
+                long deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MS;
+                while (batch.size() < BATCH_SIZE) {
+                    buffer.drainTo(batch, BATCH_SIZE - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= BATCH_SIZE || remaining <= 0) {
+                        break;
+                    }
+                    TestResultRecord next = buffer.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // close() 触发：带上缓冲区剩余记录一起写出
+                buffer.drainTo(batch);
+            }
+            synchronized (writeLock) {
+                write(batch);
+                writeLock.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 在调用线程上写出缓冲区剩余记录（调用方持有 writeLock）
+     */
+    private void drainAndWrite() {
+        List<TestResultRecord> batch = new ArrayList<>(BATCH_SIZE);
+        while (buffer.drainTo(batch, BATCH_SIZE) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<TestResultRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            session.getMapper(TestResultMapper.class).insertBatch(batch);
+            session.commit();
+            written.add(batch.size());
+        } catch (Exception e) {
+            failed.add(batch.size());
+            logger.error("Failed to persist {} test results: {}", batch.size(), e.getMessage());
+        } finally {
+            pending.addAndGet(-batch.size());
+        }
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 查询用例最近的执行记录
+     */
+    public List<TestResultRecord> queryCaseHistory(String caseName, int limit) {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            return session.getMapper(TestResultMapper.class).selectByCase(caseName, limit);
+        }
+    }
+
+    /**
+     * 查询最近的运行批次汇总
+     */
+    public List<Map<String, Object>> queryRunSummaries(int limit) {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            return session.getMapper(TestResultMapper.class).selectRunSummaries(limit);
+        }
+    }
+
+    public int countByRun(String runId) {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            return session.getMapper(TestResultMapper.class).countByRun(runId);
+        }
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * 停止接收新结果，写完缓冲区后结束后台线程
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        flush(30_000);
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ownedDataSource != null) {
+            ownedDataSource.close();
+        }
+        logger.info("Test result store closed: written={}, dropped={}, failed={}",
+            written.sum(), dropped.sum(), failed.sum());
+    }
+}
@@ -408,6 +408,8 @@ public class TokenManager {
         String loginUrl = rootUrl + config.getLoginUrl();
         logger.info("登录获取Token: {} -> {}", account, loginUrl);
 
+        ApiEvents.TokenRefreshEvent event = new ApiEvents.TokenRefreshEvent();
+        event.begin();
         try {
             // 构建登录请求参数
             Map<String, Object> loginParams = new HashMap<>();
@@ -452,9 +454,13 @@ public class TokenManager {
             tokenCache.put(account, tokenInfo);
 
             logger.info("登录成功: {}, Token有效期: {}秒", account, expiresIn);
+            ApiMetrics.tokenRefresh("login", true);
+            event.finish(account, "login", true);
             return tokenInfo;
 
         } catch (Exception e) {
+            ApiMetrics.tokenRefresh("login", false);
+            event.finish(account, "login", false);
             logger.error("登录失败: {} - {}", account, e.getMessage());
             throw new RuntimeException("登录失败: " + e.getMessage(), e);
         }
@@ -479,6 +485,8 @@ public class TokenManager {
         String refreshUrl = rootUrl + config.getRefreshUrl();
         logger.info("刷新Token: {} -> {}", account, refreshUrl);
 
+        ApiEvents.TokenRefreshEvent event = new ApiEvents.TokenRefreshEvent();
+        event.begin();
         try {
             Map<String, Object> refreshParams = new HashMap<>();
             refreshParams.put("refreshToken", currentToken.getRefreshToken());
@@ -489,6 +497,8 @@ public class TokenManager {
                 .post(refreshUrl);
 
             if (response.getStatusCode() != 200) {
+                ApiMetrics.tokenRefresh("refresh", false);
+                event.finish(account, "refresh", false);
                 logger.warn("刷新Token失败，重新登录: {}", account);
                 return login(account);
             }
@@ -518,9 +528,13 @@ public class TokenManager {
             tokenCache.put(account, newTokenInfo);
 
             logger.info("Token刷新成功: {}, 刷新次数: {}", account, newTokenInfo.getRefreshCount());
+            ApiMetrics.tokenRefresh("refresh", true);
+            event.finish(account, "refresh", true);
             return newTokenInfo;
 
         } catch (Exception e) {
+            ApiMetrics.tokenRefresh("refresh", false);
+            event.finish(account, "refresh", false);
             logger.error("刷新Token失败，重新登录: {} - {}", account, e.getMessage());
             return login(account);
         }
@@ -24,11 +24,15 @@ public class YamlDataReader {
      * 从文件路径读取YAML数据并转换为指定类型的对象列表
      */
     public static <T> List<T> readYaml(Class<T> clz, String path) {
+        ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+        event.begin();
         try {
             logger.info("Reading YAML file from path: {}", path);
             File file = new File(path);
-            return yamlMapper.readValue(file,
+            List<T> rows = yamlMapper.readValue(file,
                 yamlMapper.getTypeFactory().constructCollectionType(List.class, clz));
+            event.finish(path, "yaml", rows);
+            return rows;
         } catch (IOException e) {
             logger.error("Failed to read YAML file: {}", path, e);
             throw new RuntimeException("转换YAML文件失败：" + e.getMessage(), e);
@@ -69,10 +73,14 @@ public class YamlDataReader {
      */
     @SuppressWarnings("unchecked")
     public static List<Map<String, Object>> readYamlAsList(String path) {
+        ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+        event.begin();
         try {
             logger.info("Reading YAML file as List from path: {}", path);
             File file = new File(path);
-            return yamlMapper.readValue(file, List.class);
+            List<Map<String, Object>> rows = yamlMapper.readValue(file, List.class);
+            event.finish(path, "yaml", rows);
+            return rows;
         } catch (IOException e) {
             logger.error("Failed to read YAML file as List: {}", path, e);
             throw new RuntimeException("转换YAML文件失败：" + e.getMessage(), e);
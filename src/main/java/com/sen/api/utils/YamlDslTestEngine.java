@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.jayway.jsonpath.JsonPath;
 import com.sen.api.beans.ApiDataBean;
+import com.sen.api.beans.RequestTiming;
+import com.sen.api.beans.TestResultRecord;
 import com.sen.api.configs.EnvCenter;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
@@ -16,6 +18,8 @@ import java.io.File;
 import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -68,6 +72,8 @@ public class YamlDslTestEngine {
         private int retry = 0;
         private String dependsOn;
         private String account; // 使用的账号
+        private int priority = 3; // 优先级（1-5，1最高），开启调度时生效
+        private List<String> snapshot = new ArrayList<>(); // 执行前拍摄快照、结束后恢复的数据库表（父表在前）
 
         // Getters and Setters
         public String getName() {
@@ -190,6 +196,14 @@ public class YamlDslTestEngine {
             this.dependsOn = dependsOn;
         }
 
+        public int getPriority() {
+            return priority;
+        }
+
+        public void setPriority(int priority) {
+            this.priority = priority;
+        }
+
         public String getAccount() {
             return account;
         }
@@ -197,6 +211,14 @@ public class YamlDslTestEngine {
         public void setAccount(String account) {
             this.account = account;
         }
+
+        public List<String> getSnapshot() {
+            return snapshot;
+        }
+
+        public void setSnapshot(List<String> snapshot) {
+            this.snapshot = snapshot;
+        }
     }
 
     /**
@@ -213,6 +235,11 @@ public class YamlDslTestEngine {
         private String errorMessage;
         private long durationMs;
         private int retryCount;
+        // 最近一次请求的分阶段耗时，请求未发出时为 null
+        private RequestTiming timing;
+
+        public DslTestResult() {
+        }
 
         public DslTestResult(String name) {
             this.name = name;
@@ -223,6 +250,10 @@ public class YamlDslTestEngine {
             return name;
         }
 
+        public void setName(String name) {
+            this.name = name;
+        }
+
         public boolean isPassed() {
             return passed;
         }
@@ -275,6 +306,14 @@ public class YamlDslTestEngine {
             this.durationMs = durationMs;
         }
 
+        public RequestTiming getTiming() {
+            return timing;
+        }
+
+        public void setTiming(RequestTiming timing) {
+            this.timing = timing;
+        }
+
         public int getRetryCount() {
             return retryCount;
         }
@@ -294,6 +333,8 @@ public class YamlDslTestEngine {
         private int failedCount = 0;
         private int skippedCount = 0;
         private long totalDurationMs;
+        // 套件级失败检查（如接口耗时回归），不计入用例数
+        private List<String> failedChecks = new ArrayList<>();
 
         public DslSuiteResult(String suiteName) {
             this.suiteName = suiteName;
@@ -312,6 +353,10 @@ public class YamlDslTestEngine {
             skippedCount++;
         }
 
+        public void addFailedCheck(String check) {
+            failedChecks.add(check);
+        }
+
         // Getters
         public String getSuiteName() {
             return suiteName;
@@ -341,8 +386,12 @@ public class YamlDslTestEngine {
             this.totalDurationMs = totalDurationMs;
         }
 
+        public List<String> getFailedChecks() {
+            return failedChecks;
+        }
+
         public boolean isAllPassed() {
-            return failedCount == 0;
+            return failedCount == 0 && failedChecks.isEmpty();
         }
 
         public double getPassRate() {
@@ -363,6 +412,15 @@ public class YamlDslTestEngine {
     // 默认请求头
     private final Map<String, String> defaultHeaders = new HashMap<>();
 
+    // 结果库（可选），用例结果异步批量落库
+    private volatile TestResultStore resultStore;
+
+    // 数据库夹具（可选），未设置时按 EnvCenter 的 database 在首次需要时创建
+    private volatile DbFixture dbFixture;
+
+    // 用例结果回调（可选），分片 worker 用它把结果流回启动进程
+    private volatile Consumer<DslTestResult> resultListener;
+
     // ObjectMapper
     private final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
     private final ObjectMapper jsonMapper = new ObjectMapper();
@@ -370,6 +428,7 @@ public class YamlDslTestEngine {
     private YamlDslTestEngine() {
         defaultHeaders.put("Content-Type", "application/json");
         defaultHeaders.put("Accept", "application/json");
+        ApiMetrics.install();
         logger.info("YamlDslTestEngine 初始化");
     }
 
@@ -402,6 +461,10 @@ public class YamlDslTestEngine {
         EnvCenter envCenter = EnvCenter.getInstance();
         this.rootUrl = envCenter.getRootUrl();
         this.defaultHeaders.putAll(envCenter.getHeaders());
+        if (resultStore == null) {
+            // 脱离 Spring 运行时按 api.resultStore.* 开启结果库
+            resultStore = TestResultStore.shared();
+        }
         logger.info("YamlDslTestEngine 从EnvCenter初始化完成");
     }
 
@@ -419,6 +482,27 @@ public class YamlDslTestEngine {
         defaultHeaders.put(key, value);
     }
 
+    /**
+     * 设置结果库，设置后每个用例结果写入结果库
+     */
+    public void setResultStore(TestResultStore resultStore) {
+        this.resultStore = resultStore;
+    }
+
+    /**
+     * 设置数据库夹具，声明了 snapshot 的用例用它拍摄和恢复快照
+     */
+    public void setDbFixture(DbFixture dbFixture) {
+        this.dbFixture = dbFixture;
+    }
+
+    /**
+     * 设置用例结果回调，每个用例执行完成后调用（并行调度时在执行线程上调用）
+     */
+    public void setResultListener(Consumer<DslTestResult> resultListener) {
+        this.resultListener = resultListener;
+    }
+
     /**
      * 设置共享数据
      */
@@ -464,23 +548,47 @@ public class YamlDslTestEngine {
         }
     }
 
+    /**
+     * 执行单个用例，不计入套件结果、不写结果库（压测 worker 反复调用）
+     */
+    public DslTestResult runCase(DslTestCase testCase) {
+        return runSingleTest(testCase, new LatencySamples());
+    }
+
+    /**
+     * 只加载不执行测试用例
+     */
+    public List<DslTestCase> loadCases(String yamlPath) {
+        try {
+            return loadTestCases(yamlPath);
+        } catch (Exception e) {
+            logger.error("加载测试用例失败: {}", e.getMessage());
+            throw new RuntimeException("加载测试用例失败: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 加载测试用例
      */
     @SuppressWarnings("unchecked")
     private List<DslTestCase> loadTestCases(String yamlPath) throws Exception {
+        ApiEvents.DataLoadEvent event = new ApiEvents.DataLoadEvent();
+        event.begin();
+        List<DslTestCase> cases;
         InputStream is = getClass().getClassLoader().getResourceAsStream(yamlPath);
         if (is == null) {
             File file = new File(yamlPath);
             if (!file.exists()) {
                 throw new RuntimeException("测试用例文件不存在: " + yamlPath);
             }
-            return yamlMapper.readValue(file,
+            cases = yamlMapper.readValue(file,
+                yamlMapper.getTypeFactory().constructCollectionType(List.class, DslTestCase.class));
+        } else {
+            cases = yamlMapper.readValue(is,
                 yamlMapper.getTypeFactory().constructCollectionType(List.class, DslTestCase.class));
+            is.close();
         }
-        List<DslTestCase> cases = yamlMapper.readValue(is,
-            yamlMapper.getTypeFactory().constructCollectionType(List.class, DslTestCase.class));
-        is.close();
+        event.finish(yamlPath, "yaml", cases);
         return cases;
     }
 
@@ -492,28 +600,38 @@ public class YamlDslTestEngine {
         long startTime = System.currentTimeMillis();
 
         DslSuiteResult suiteResult = new DslSuiteResult(suiteName);
+        String runId = UUID.randomUUID().toString();
+        LatencySamples latencies = new LatencySamples();
+        // 续跑时恢复已完成用例保存的变量
+        sharedData.putAll(RunCheckpoint.restoredVariables());
 
-        for (int i = 0; i < testCases.size(); i++) {
-            DslTestCase testCase = testCases.get(i);
-            logger.info("---------- 用例 {}/{}: {} ----------", i + 1, testCases.size(), testCase.getName());
+        if (CaseScheduler.isEnabled()) {
+            runScheduled(suiteName, testCases, runId, suiteResult, latencies);
+        } else {
+            for (int i = 0; i < testCases.size(); i++) {
+                DslTestCase testCase = testCases.get(i);
+                logger.info("---------- 用例 {}/{}: {} ----------", i + 1, testCases.size(), testCase.getName());
+
+                if (testCase.isSkip()) {
+                    logger.info("用例被跳过: {}", testCase.getName());
+                    suiteResult.addSkipped();
+                    continue;
+                }
+                if (restoreCompleted(suiteName, testCase, suiteResult)) {
+                    continue;
+                }
 
-            if (testCase.isSkip()) {
-                logger.info("用例被跳过: {}", testCase.getName());
-                suiteResult.addSkipped();
-                continue;
-            }
-
-            DslTestResult result = runSingleTest(testCase);
-            suiteResult.addResult(result);
-
-            if (result.isPassed()) {
-                logger.info("用例通过: {}", testCase.getName());
-            } else {
-                logger.error("用例失败: {} - {}", testCase.getName(), result.getErrorMessage());
+                runAndRecord(testCase, runId, suiteName, suiteResult, latencies);
             }
         }
 
         suiteResult.setTotalDurationMs(System.currentTimeMillis() - startTime);
+        LatencyGate.evaluate(suiteName, latencies).forEach(suiteResult::addFailedCheck);
+        if (resultStore != null) {
+            resultStore.flush(TestResultStore.flushTimeoutMs());
+        }
+        RunCheckpoint.flush();
+        ApiTracer.flush();
 
         logger.info("========== 测试套件执行完成 ==========");
         logger.info("总计: {}, 通过: {}, 失败: {}, 跳过: {}, 通过率: {:.2f}%",
@@ -522,16 +640,192 @@ public class YamlDslTestEngine {
             suiteResult.getFailedCount(),
             suiteResult.getSkippedCount(),
             suiteResult.getPassRate());
+        for (String check : suiteResult.getFailedChecks()) {
+            logger.error("检查失败: {}", check);
+        }
 
         return suiteResult;
     }
 
+    /**
+     * 按历史耗时调度执行：依赖先行，预计最慢的用例先开始，开启分片时只执行当前分片的用例
+     * 并发数大于1时用例并行执行，未声明 dependsOn 的用例之间不保证先后顺序
+     */
+    private void runScheduled(String suiteName, List<DslTestCase> testCases, String runId,
+                              DslSuiteResult suiteResult, LatencySamples latencies) {
+        List<DslTestCase> runnable = new ArrayList<>();
+        for (DslTestCase testCase : testCases) {
+            if (testCase.isSkip()) {
+                logger.info("用例被跳过: {}", testCase.getName());
+                suiteResult.addSkipped();
+            } else {
+                runnable.add(testCase);
+            }
+        }
+        // 检查点中已完成的用例也参与规划，保证续跑时分片与原来一致
+        CaseScheduler.Plan<DslTestCase> plan = CaseScheduler.plan(runnable, DslTestCase::getName,
+            DslTestCase::getPriority, DslTestCase::getDependsOn);
+        int threads = CaseScheduler.getConfig().getThreads();
+        int total = plan.cases().size();
+        logger.info("调度执行 {} 个用例，并发 {}，预计串行耗时 {}ms", total, threads, Math.round(plan.getExpectedMs()));
+
+        AtomicInteger started = new AtomicInteger();
+        plan.execute(threads, testCase -> {
+            if (restoreCompleted(suiteName, testCase, suiteResult)) {
+                started.incrementAndGet();
+                return;
+            }
+            logger.info("---------- 用例 {}/{}: {} ----------", started.incrementAndGet(), total, testCase.getName());
+            DslTestResult result = runAndRecord(testCase, runId, suiteName, suiteResult, latencies);
+            CaseScheduler.recordDuration(testCase.getName(), result.getDurationMs());
+        });
+        CaseScheduler.saveHistory();
+    }
+
+    /**
+     * 执行单个用例并记录结果
+     */
+    private DslTestResult runAndRecord(DslTestCase testCase, String runId, String suiteName,
+                                       DslSuiteResult suiteResult, LatencySamples latencies) {
+        DslTestResult result = testCase.getSnapshot() == null || testCase.getSnapshot().isEmpty()
+            ? runSingleTest(testCase, latencies)
+            : runWithSnapshot(suiteName, testCase, latencies);
+        synchronized (suiteResult) {
+            suiteResult.addResult(result);
+        }
+        persistResult(runId, suiteName, result);
+        checkpoint(suiteName, testCase, result);
+        ApiMetrics.caseFinished("dsl", result.isPassed());
+        Consumer<DslTestResult> listener = resultListener;
+        if (listener != null) {
+            listener.accept(result);
+        }
+
+        if (result.isPassed()) {
+            logger.info("用例通过: {}", testCase.getName());
+        } else {
+            logger.error("用例失败: {} - {}", testCase.getName(), result.getErrorMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 执行前对 snapshot 声明的表拍摄快照，结束后（包括失败）恢复，用例写入的数据不影响后续用例
+     * 并行调度时恢复会覆盖同时执行的其他用例对这些表的写入，涉及相同表的用例请用 dependsOn 串行
+     */
+    private DslTestResult runWithSnapshot(String suiteName, DslTestCase testCase, LatencySamples latencies) {
+        DbFixture fixture = dbFixture();
+        if (fixture == null) {
+            DslTestResult result = new DslTestResult(testCase.getName());
+            result.setPassed(false);
+            result.setErrorMessage("用例声明了数据库快照，但未配置数据库");
+            return result;
+        }
+        String name = suiteName + "#" + testCase.getName();
+        DslTestResult[] result = new DslTestResult[1];
+        try {
+            fixture.snapshot(name, testCase.getSnapshot().toArray(new String[0]));
+            fixture.withSnapshot(name, () -> result[0] = runSingleTest(testCase, latencies));
+        } catch (RuntimeException e) {
+            if (result[0] == null) {
+                result[0] = new DslTestResult(testCase.getName());
+            }
+            result[0].setPassed(false);
+            result[0].setErrorMessage("数据库快照失败: " + e.getMessage());
+        } finally {
+            fixture.dropSnapshot(name);
+        }
+        return result[0];
+    }
+
+    private DbFixture dbFixture() {
+        if (dbFixture == null) {
+            synchronized (this) {
+                EnvCenter.DatabaseConfig database = EnvCenter.getInstance().getDatabaseConfig();
+                if (dbFixture == null && database != null && database.isEnabled()
+                    && StringUtil.isNotBlank(database.getUrl())) {
+                    dbFixture = new DbFixture(new DbAssertUtil(database.getUrl(), database.getUsername(),
+                        database.getPassword(), database.getDriver(), 2));
+                }
+            }
+        }
+        return dbFixture;
+    }
+
+    /**
+     * 检查点中已完成的用例：恢复结果，不再执行
+     */
+    private boolean restoreCompleted(String suiteName, DslTestCase testCase, DslSuiteResult suiteResult) {
+        RunCheckpoint.Entry entry = RunCheckpoint.completed(suiteName + "#" + testCase.getName());
+        if (entry == null) {
+            return false;
+        }
+        DslTestResult result = RunCheckpoint.convert(entry.getResult(), DslTestResult.class);
+        if (result == null) {
+            result = new DslTestResult(testCase.getName());
+            result.setPassed(entry.isPassed());
+        }
+        synchronized (suiteResult) {
+            suiteResult.addResult(result);
+        }
+        Consumer<DslTestResult> listener = resultListener;
+        if (listener != null) {
+            listener.accept(result);
+        }
+        logger.info("用例已在检查点中完成，跳过: {}", testCase.getName());
+        return true;
+    }
+
+    /**
+     * 写入检查点：结果（不含响应体）和该用例写入变量池的前置参数、提取值
+     */
+    private void checkpoint(String suiteName, DslTestCase testCase, DslTestResult result) {
+        if (!RunCheckpoint.isEnabled()) {
+            return;
+        }
+        Map<String, String> vars = new LinkedHashMap<>();
+        if (testCase.getPreParam() != null) {
+            for (String key : testCase.getPreParam().keySet()) {
+                String value = sharedData.get(key);
+                if (value != null) {
+                    vars.put(key, value);
+                }
+            }
+        }
+        vars.putAll(result.getSavedData());
+        Map<String, Object> stored = RunCheckpoint.toResult(result);
+        stored.remove("responseBody");
+        RunCheckpoint.caseFinished(suiteName + "#" + testCase.getName(), result.isPassed(), stored, vars);
+    }
+
+    /**
+     * 写入结果库
+     */
+    private void persistResult(String runId, String suiteName, DslTestResult result) {
+        TestResultStore store = resultStore;
+        if (store == null) {
+            return;
+        }
+        TestResultRecord record = new TestResultRecord();
+        record.setRunId(runId);
+        record.setSuiteName(suiteName);
+        record.setCaseName(result.getName());
+        record.setPassed(result.isPassed());
+        record.setStatusCode(result.getStatusCode());
+        record.setDurationMs(result.getDurationMs());
+        record.setRetryCount(result.getRetryCount());
+        record.setErrorMessage(result.isPassed() ? null : result.getErrorMessage());
+        store.record(record);
+    }
+
     /**
      * 执行单个测试用例
      */
-    private DslTestResult runSingleTest(DslTestCase testCase) {
+    private DslTestResult runSingleTest(DslTestCase testCase, LatencySamples latencies) {
         DslTestResult result = new DslTestResult(testCase.getName());
         long startTime = System.currentTimeMillis();
+        ApiEvents.startCase(testCase.getName());
+        ApiTracer.Span span = ApiTracer.startSpan(testCase.getName());
 
         int attempts = 0;
         int maxAttempts = testCase.getRetry() + 1;
@@ -539,6 +833,9 @@ public class YamlDslTestEngine {
         while (attempts < maxAttempts) {
             attempts++;
             result.setRetryCount(attempts - 1);
+            if (attempts > 1) {
+                ApiMetrics.retry("dsl");
+            }
 
             try {
                 // 执行前等待
@@ -550,8 +847,9 @@ public class YamlDslTestEngine {
                 processPreParams(testCase);
 
                 // 发送请求
-                Response response = sendRequest(testCase);
+                Response response = sendRequest(testCase, latencies);
 
+                result.setTiming(HttpPhaseTimer.last());
                 result.setStatusCode(response.getStatusCode());
                 result.setResponseBody(response.getBody().asString());
 
@@ -585,6 +883,12 @@ public class YamlDslTestEngine {
         }
 
         result.setDurationMs(System.currentTimeMillis() - startTime);
+        if (span != null) {
+            span.setAttribute("test.retry_count", result.getRetryCount());
+            ApiTracer.endSpan(span, result.isPassed() ? null
+                : Objects.toString(result.getErrorMessage(), "校验失败"));
+        }
+        ApiEvents.endCase();
         return result;
     }
 
@@ -606,7 +910,7 @@ public class YamlDslTestEngine {
     /**
      * 发送HTTP请求
      */
-    private Response sendRequest(DslTestCase testCase) {
+    private Response sendRequest(DslTestCase testCase, LatencySamples latencies) {
         String url = rootUrl + replaceVariables(testCase.getApi());
 
         RequestSpecification request = RestAssured.given();
@@ -661,6 +965,7 @@ public class YamlDslTestEngine {
 
         // 发送请求
         Response response;
+        long requestStart = System.nanoTime();
         switch (method) {
             case "GET":
                 response = request.get(url);
@@ -680,6 +985,7 @@ public class YamlDslTestEngine {
             default:
                 throw new RuntimeException("不支持的HTTP方法: " + method);
         }
+        latencies.record(method, url, (System.nanoTime() - requestStart) / 1000);
 
         logger.debug("响应: {} - {}", response.getStatusCode(), response.getBody().asString());
         return response;
@@ -701,8 +1007,11 @@ public class YamlDslTestEngine {
                 String key = entry.getKey();
                 Object expected = entry.getValue();
 
+                ApiEvents.ValidationEvent event = new ApiEvents.ValidationEvent();
+                event.begin();
                 try {
                     boolean passed = validateSingle(key, expected, response.getStatusCode(), responseBody);
+                    event.finish(key, passed);
                     if (passed) {
                         result.getPassedValidations().add(key + "=" + expected);
                         logger.debug("验证通过: {} = {}", key, expected);
@@ -713,6 +1022,7 @@ public class YamlDslTestEngine {
                         allPassed = false;
                     }
                 } catch (Exception e) {
+                    event.finish(key, false);
                     result.getFailedValidations().add(key + ": " + e.getMessage());
                     result.setErrorMessage("验证异常: " + key + " - " + e.getMessage());
                     allPassed = false;
@@ -724,9 +1034,9 @@ public class YamlDslTestEngine {
     }
 
     /**
-     * 单个验证
+     * 单个验证（包可见，供基准测试调用）
      */
-    private boolean validateSingle(String key, Object expected, int statusCode, String responseBody) {
+    boolean validateSingle(String key, Object expected, int statusCode, String responseBody) {
         String expectedStr = String.valueOf(expected);
 
         // 状态码验证
@@ -799,22 +1109,26 @@ public class YamlDslTestEngine {
             String key = entry.getKey();
             String jsonPath = entry.getValue();
 
+            ApiEvents.ExtractEvent event = new ApiEvents.ExtractEvent();
+            event.begin();
             try {
                 Object value = JsonPath.read(responseBody, jsonPath);
                 String strValue = value != null ? value.toString() : "";
                 sharedData.put(key, strValue);
                 result.getSavedData().put(key, strValue);
+                event.finish(key, jsonPath, true);
                 logger.debug("保存数据: {} = {}", key, strValue);
             } catch (Exception e) {
+                event.finish(key, jsonPath, false);
                 logger.warn("保存数据失败: {} -> {}", key, jsonPath);
             }
         }
     }
 
     /**
-     * 替换变量
+     * 替换变量（包可见，供基准测试调用）
      */
-    private String replaceVariables(String text) {
+    String replaceVariables(String text) {
         if (text == null || text.isEmpty()) {
             return text;
         }
@@ -920,6 +1234,7 @@ public class YamlDslTestEngine {
 
         bean.setSleep(dslCase.getSleep());
         bean.setDependsOn(dslCase.getDependsOn());
+        bean.setPriority(dslCase.getPriority());
 
         if (dslCase.getTags() != null && !dslCase.getTags().isEmpty()) {
             bean.setTags(String.join(",", dslCase.getTags()));
@@ -0,0 +1,15 @@
+-- 用例执行结果表（MySQL / H2 MySQL模式通用）
+CREATE TABLE IF NOT EXISTS test_case_result (
+    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    run_id        VARCHAR(64)   NOT NULL,
+    suite_name    VARCHAR(255),
+    case_name     VARCHAR(255)  NOT NULL,
+    passed        BOOLEAN       NOT NULL,
+    status_code   INT,
+    duration_ms   BIGINT,
+    retry_count   INT,
+    error_message VARCHAR(2000),
+    created_at    TIMESTAMP     NOT NULL,
+    INDEX idx_result_case (case_name, created_at),
+    INDEX idx_result_run (run_id)
+);
@@ -0,0 +1,64 @@
+package com.sen.api.utils;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ApiEvents 单元测试
+ */
+@DisplayName("ApiEvents JFR事件测试")
+class ApiEventsTest {
+
+    @Test
+    @DisplayName("录制中的事件带用例名、接口和字段值")
+    void eventsCarryCaseAndEndpoint(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("users.csv");
+        Files.writeString(csv, "id,name\n1,a\n2,b\n3,c\n");
+        Path jfr = dir.resolve("events.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.sen.api.DataLoad");
+            recording.enable("com.sen.api.Validation");
+            recording.start();
+
+            ApiEvents.startCase("查询用户");
+            ApiEvents.requestSent("GET", "http://localhost:8080/users/42?x=1");
+            CsvDataReader.readCsvAsMap(csv.toString());
+            ApiEvents.ValidationEvent validation = new ApiEvents.ValidationEvent();
+            validation.begin();
+            validation.finish("$.name", true);
+            ApiEvents.endCase();
+
+            recording.stop();
+            recording.dump(jfr);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(jfr).stream()
+            .filter(e -> e.getEventType().getName().startsWith("com.sen.api."))
+            .collect(Collectors.toList());
+        assertEquals(2, events.size());
+
+        RecordedEvent load = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.sen.api.DataLoad")).findFirst().orElseThrow();
+        assertEquals("查询用户", load.getString("caseName"));
+        assertEquals("csv", load.getString("format"));
+        assertEquals(3, load.getInt("rows"));
+
+        RecordedEvent check = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.sen.api.Validation")).findFirst().orElseThrow();
+        assertEquals("GET /users/{id}", check.getString("endpoint"));
+        assertEquals("$.name", check.getString("expression"));
+        assertTrue(check.getBoolean("passed"));
+    }
+}
@@ -0,0 +1,132 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.sen.api.beans.ApiDataBean;
+import com.sen.api.configs.ApiProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ApiFlowExecutor 异步数据库验证单元测试（WireMock + H2）
+ */
+@DisplayName("ApiFlowExecutor 流程异步数据库验证测试")
+class ApiFlowExecutorTest {
+
+    private WireMockServer server;
+    private DbAssertUtil db;
+
+    @BeforeEach
+    void setUp() {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+        server.stubFor(any(anyUrl()).willReturn(aResponse().withStatus(200).withBody("{\"ok\":true}")));
+
+        ApiProperties.DatabaseConfig config = new ApiProperties.DatabaseConfig();
+        config.setUrl("jdbc:h2:mem:flow_" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setDriverClassName("org.h2.Driver");
+        config.setPoolSize(2);
+        db = new DbAssertUtil(config);
+        db.update("CREATE TABLE orders (id BIGINT PRIMARY KEY, status VARCHAR(16))");
+        db.insert("INSERT INTO orders VALUES (?, ?)", 1, "PENDING");
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+        server.stop();
+    }
+
+    private static ApiFlowExecutor.FlowStep step(String name, String method, String url) {
+        ApiDataBean apiData = new ApiDataBean();
+        apiData.setRun(true);
+        apiData.setDesc(name);
+        apiData.setMethod(method);
+        apiData.setUrl(url);
+        apiData.setStatus(200);
+        return new ApiFlowExecutor.FlowStep(name).api(apiData);
+    }
+
+    private ApiFlowExecutor flow(String name) {
+        return ApiFlowExecutor.create(name).rootUrl("http://localhost:" + server.port()).db(db);
+    }
+
+    @Test
+    @DisplayName("后续步骤都成功，之前提交的数据库验证失败时流程仍判为失败")
+    void asyncCheckFailsAfterLaterSteps() {
+        ApiFlowExecutor.FlowResult result = flow("下单")
+            .step(step("下单", "POST", "/orders")
+                .dbVerify("SELECT status FROM orders WHERE id = ${orderId}", "$.status=PAID", 300))
+            .step(step("查询", "GET", "/orders/1"))
+            .step(step("健康检查", "GET", "/health"))
+            .withData("orderId", "1")
+            .execute();
+
+        assertEquals(3, result.getStepResults().size());
+        assertTrue(result.getStepResults().stream().allMatch(ApiFlowExecutor.StepResult::isSuccess));
+        assertEquals(1, result.getDbCheckResults().size());
+        assertEquals(1, result.getDbFailureCount());
+        assertTrue(result.getDbCheckResults().get(0).getErrorMessage().contains("PENDING"),
+            result.getDbCheckResults().get(0).getErrorMessage());
+        assertFalse(result.isSuccess());
+    }
+
+    @Test
+    @DisplayName("屏障步骤在之前的数据库验证完成后才执行")
+    void barrierWaitsForChecks() throws Exception {
+        AtomicLong paidAt = new AtomicLong();
+        Thread payment = new Thread(() -> {
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            db.update("UPDATE orders SET status = ? WHERE id = ?", "PAID", 1);
+            paidAt.set(System.currentTimeMillis());
+        });
+
+        ApiFlowExecutor.FlowResult result = flow("支付")
+            .step(step("支付", "POST", "/pay")
+                .dbVerify("SELECT status FROM orders WHERE id = 1", "$.status=PAID", 5000)
+                .onSuccess(r -> payment.start()))
+            .step(step("发货", "POST", "/ship").barrier())
+            .execute();
+        payment.join();
+
+        assertTrue(result.isSuccess(), String.valueOf(result.getDbCheckResults().get(0).getErrorMessage()));
+        assertEquals(1, result.getDbCheckResults().size());
+        LoggedRequest ship = server.findAll(postRequestedFor(urlEqualTo("/ship"))).get(0);
+        assertTrue(ship.getLoggedDate().getTime() >= paidAt.get(),
+            "屏障步骤在验证通过前执行: " + ship.getLoggedDate().getTime() + " < " + paidAt.get());
+    }
+
+    @Test
+    @DisplayName("屏障处验证失败时不再执行后续步骤")
+    void barrierStopsOnFailedCheck() {
+        ApiFlowExecutor.FlowResult result = flow("退款")
+            .step(step("退款", "POST", "/refund")
+                .dbVerify("SELECT status FROM orders WHERE id = 1", "$.status=REFUNDED"))
+            .step(step("通知", "GET", "/notify").barrier())
+            .execute();
+
+        assertFalse(result.isSuccess());
+        assertEquals(1, result.getStepResults().size());
+        assertEquals(1, result.getDbFailureCount());
+        assertTrue(server.findAll(getRequestedFor(urlEqualTo("/notify"))).isEmpty());
+    }
+}
@@ -0,0 +1,107 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ApiMetrics 单元测试：请求经过计时过滤器后从抓取端口读取指标
+ */
+@DisplayName("ApiMetrics 运行指标测试")
+class ApiMetricsTest {
+
+    private static WireMockServer server;
+    private static int metricsPort;
+
+    @BeforeAll
+    static void start() throws Exception {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+        server.stubFor(get(urlEqualTo("/users/42")).willReturn(aResponse().withStatus(200).withBody("{}")));
+        ApiMetrics.install();
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            metricsPort = socket.getLocalPort();
+        }
+        System.setProperty("api.metrics.port", String.valueOf(metricsPort));
+        try {
+            ApiMetrics.startFromSystemProperties();
+        } finally {
+            System.clearProperty("api.metrics.port");
+        }
+    }
+
+    @AfterAll
+    static void stop() {
+        ApiMetrics.stopScrapeServer();
+        server.stop();
+    }
+
+    private static List<String> scrape(String metric) throws Exception {
+        HttpResponse<String> response = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build().send(
+            HttpRequest.newBuilder(URI.create("http://localhost:" + metricsPort + "/metrics")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        return Arrays.stream(response.body().split("\n"))
+            .filter(line -> line.startsWith(metric + "{"))
+            .collect(Collectors.toList());
+    }
+
+    private static boolean hasLine(List<String> lines, String... tags) {
+        return lines.stream().anyMatch(line -> Arrays.stream(tags).allMatch(line::contains));
+    }
+
+    @Test
+    @DisplayName("请求计时按方法、URI模板和状态码打标签")
+    void requestTimer() throws Exception {
+        RestAssured.given().get("http://localhost:" + server.port() + "/users/42");
+
+        List<String> lines = scrape("api_test_request_seconds_count");
+        assertTrue(hasLine(lines, "method=\"GET\"", "uri=\"/users/{id}\"", "status=\"200\""), lines.toString());
+        List<String> phases = scrape("api_test_request_phase_seconds_count");
+        assertTrue(hasLine(phases, "uri=\"/users/{id}\"", "phase=\"ttfb\""), phases.toString());
+        List<String> bytes = scrape("api_test_request_bytes_count");
+        assertTrue(hasLine(bytes, "uri=\"/users/{id}\"", "direction=\"received\""), bytes.toString());
+    }
+
+    @Test
+    @DisplayName("4xx 响应计入请求错误")
+    void requestErrors() throws Exception {
+        RestAssured.given().get("http://localhost:" + server.port() + "/missing?id=1");
+
+        List<String> lines = scrape("api_test_request_errors_total");
+        assertTrue(hasLine(lines, "method=\"GET\"", "uri=\"/missing\"", "reason=\"CLIENT_ERROR\""), lines.toString());
+    }
+
+    @Test
+    @DisplayName("用例结果与重试计数")
+    void caseCounters() throws Exception {
+        ApiMetrics.caseFinished("metrics-test", true);
+        ApiMetrics.caseFinished("metrics-test", false);
+        ApiMetrics.retry("metrics-test");
+
+        List<String> cases = scrape("api_test_cases_total");
+        assertTrue(hasLine(cases, "source=\"metrics-test\"", "result=\"passed\""), cases.toString());
+        assertTrue(hasLine(cases, "source=\"metrics-test\"", "result=\"failed\""), cases.toString());
+        assertTrue(hasLine(scrape("api_test_retries_total"), "source=\"metrics-test\""));
+    }
+}
@@ -0,0 +1,146 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.sen.api.configs.ApiProperties;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ApiTracer 单元测试
+ */
+@DisplayName("ApiTracer 链路追踪测试")
+class ApiTracerTest {
+
+    @AfterEach
+    void disable() {
+        ApiTracer.configure(new ApiProperties.TracingConfig());
+    }
+
+    @Test
+    @DisplayName("解析Server-Timing：多项、引号描述、缺失dur")
+    void parseServerTiming() {
+        List<ApiTracer.ServerTiming> timings =
+            ApiTracer.parseServerTiming("db;dur=53.2;desc=\"query; users, page 1\", cache;desc=hit, app;dur=x");
+
+        assertEquals(3, timings.size());
+        assertEquals("db", timings.get(0).getName());
+        assertEquals(53.2, timings.get(0).getDurationMs());
+        assertEquals("query; users, page 1", timings.get(0).getDescription());
+        assertNull(timings.get(1).getDurationMs());
+        assertEquals("hit", timings.get(1).getDescription());
+        assertNull(timings.get(2).getDurationMs());
+        assertTrue(ApiTracer.parseServerTiming(" ").isEmpty());
+    }
+
+    @Test
+    @DisplayName("用例span下的请求注入traceparent并导出OTLP-JSON")
+    void propagateAndExport(@TempDir Path dir) throws Exception {
+        WireMockServer server = new WireMockServer(options().dynamicPort());
+        server.start();
+        try {
+            server.stubFor(get(urlEqualTo("/users/1"))
+                .willReturn(aResponse().withStatus(200).withBody("{}")
+                    .withHeader("Server-Timing", "db;dur=12.5, app;dur=3")));
+            ApiMetrics.install();
+            ApiProperties.TracingConfig tracing = new ApiProperties.TracingConfig();
+            tracing.setEnabled(true);
+            tracing.setExportDir(dir.toString());
+            ApiTracer.configure(tracing);
+
+            ApiTracer.Span root = ApiTracer.startSpan("查询用户");
+            RestAssured.given().get("http://localhost:" + server.port() + "/users/1");
+            ApiTracer.endSpan(root, null);
+            assertNull(ApiTracer.current());
+            assertEquals(2, ApiTracer.flush());
+
+            LoggedRequest request = server.findAll(anyRequestedFor(urlEqualTo("/users/1"))).get(0);
+            String traceparent = request.getHeader(ApiTracer.TRACEPARENT);
+            assertTrue(traceparent.matches("00-" + root.getTraceId() + "-[0-9a-f]{16}-01"), traceparent);
+
+            Path file;
+            try (Stream<Path> files = Files.list(dir)) {
+                file = files.findFirst().orElseThrow();
+            }
+            JsonNode spans = new ObjectMapper().readTree(file.toFile())
+                .at("/resourceSpans/0/scopeSpans/0/spans");
+            assertEquals(2, spans.size());
+            JsonNode client = spans.get(0);
+            assertEquals(root.getSpanId(), client.get("parentSpanId").asText());
+            assertEquals(traceparent.substring(36, 52), client.get("spanId").asText());
+            assertEquals("GET /users/{id}", client.get("name").asText());
+
+            Map<String, JsonNode> attributes = new HashMap<>();
+            client.get("attributes").forEach(a -> attributes.put(a.get("key").asText(), a.get("value")));
+            assertEquals("200", attributes.get("http.response.status_code").get("intValue").asText());
+            assertEquals(12.5, attributes.get("http.server_timing.db.dur_ms").get("doubleValue").asDouble());
+            assertEquals(15.5, attributes.get("http.server_timing.total_ms").get("doubleValue").asDouble());
+            assertTrue(attributes.containsKey("http.timing.ttfb_ms"),
+                attributes.keySet().stream().sorted().collect(Collectors.joining(",")));
+            assertEquals(1, spans.get(1).at("/status/code").asInt());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("攒满一批由后台线程导出，慢收集器不阻塞结束span的线程")
+    void exportInBackground(@TempDir Path dir) throws Exception {
+        WireMockServer collector = new WireMockServer(options().dynamicPort());
+        collector.start();
+        try {
+            collector.stubFor(post(urlEqualTo("/v1/traces"))
+                .willReturn(aResponse().withStatus(200).withFixedDelay(1500)));
+            ApiTracer.flush();
+            ApiProperties.TracingConfig tracing = new ApiProperties.TracingConfig();
+            tracing.setEnabled(true);
+            tracing.setExportDir(dir.toString());
+            tracing.setCollectorUrl("http://localhost:" + collector.port() + "/v1/traces");
+            tracing.setBatchSize(2);
+            ApiTracer.configure(tracing);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < 4; i++) {
+                ApiTracer.endSpan(ApiTracer.startSpan("case-" + i), null);
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(elapsedMs < 1000, "endSpan 等待了导出: " + elapsedMs + "ms");
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (collector.findAll(postRequestedFor(urlEqualTo("/v1/traces"))).size() < 2
+                && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(2, collector.findAll(postRequestedFor(urlEqualTo("/v1/traces"))).size());
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(2, files.count());
+            }
+            assertEquals(0, ApiTracer.flush());
+            assertEquals(0, ApiTracer.getDroppedCount());
+        } finally {
+            collector.stop();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.sen.api.utils;
+
+import com.sen.api.configs.ApiProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CaseScheduler 单元测试
+ */
+@DisplayName("CaseScheduler 用例调度测试")
+class CaseSchedulerTest {
+
+    /**
+     * 用例：名称、优先级、依赖
+     */
+    private static final class Case {
+        final String name;
+        final int priority;
+        final String dependsOn;
+
+        Case(String name, int priority, String dependsOn) {
+            this.name = name;
+            this.priority = priority;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    @AfterEach
+    void disable() {
+        CaseScheduler.configure(new ApiProperties.ScheduleConfig());
+    }
+
+    private static ApiProperties.ScheduleConfig enable(Path dir, long... durations) {
+        ApiProperties.ScheduleConfig schedule = new ApiProperties.ScheduleConfig();
+        schedule.setEnabled(true);
+        schedule.setHistoryFile(dir.resolve("durations.json").toString());
+        CaseScheduler.configure(schedule);
+        for (int i = 0; i < durations.length; i++) {
+            CaseScheduler.recordDuration("c" + i, durations[i]);
+        }
+        CaseScheduler.saveHistory();
+        CaseScheduler.configure(schedule);
+        return schedule;
+    }
+
+    private static List<String> names(List<Case> cases) {
+        List<String> names = new ArrayList<>();
+        cases.forEach(c -> names.add(c.name));
+        return names;
+    }
+
+    private static CaseScheduler.Plan<Case> plan(List<Case> cases) {
+        return CaseScheduler.plan(cases, c -> c.name, c -> c.priority, c -> c.dependsOn);
+    }
+
+    @Test
+    @DisplayName("最慢的先执行，依赖与优先级优先，依赖链长度计入")
+    void longestFirstWithinConstraints(@TempDir Path dir) {
+        enable(dir, 100, 500, 200, 50, 400, 300);
+        List<Case> cases = Arrays.asList(
+            new Case("c0", 3, null),
+            new Case("c1", 3, "c3"),
+            new Case("c2", 3, null),
+            new Case("c3", 3, null),
+            new Case("c4", 3, null),
+            new Case("c5", 1, null));
+
+        // c5 优先级最高；c3 自身 50ms 但后续 c1 共 550ms
+        assertEquals(Arrays.asList("c5", "c3", "c1", "c4", "c2", "c0"), names(plan(cases).cases()));
+    }
+
+    @Test
+    @DisplayName("分片按预计耗时均衡，依赖的用例在同一分片")
+    void shardByExpectedDuration(@TempDir Path dir) {
+        ApiProperties.ScheduleConfig schedule = enable(dir, 900, 100, 100, 100, 100, 100, 100, 100, 100, 100);
+        List<Case> cases = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            cases.add(new Case("c" + i, 3, i == 9 ? "c8" : null));
+        }
+        schedule.setShardCount(2);
+
+        Set<String> seen = new HashSet<>();
+        List<List<String>> shards = new ArrayList<>();
+        for (int shard = 0; shard < 2; shard++) {
+            schedule.setShardIndex(shard);
+            CaseScheduler.configure(schedule);
+            CaseScheduler.Plan<Case> plan = plan(cases);
+            assertEquals(900, plan.getExpectedMs(), 0.001);
+            shards.add(names(plan.cases()));
+            seen.addAll(names(plan.cases()));
+        }
+        assertEquals(10, seen.size());
+        assertEquals(Collections.singletonList("c0"), shards.get(0));
+        assertTrue(shards.get(1).indexOf("c8") < shards.get(1).indexOf("c9"));
+    }
+
+    @Test
+    @DisplayName("按哈希分片覆盖全部用例，依赖的用例在同一分片")
+    void shardByHash(@TempDir Path dir) {
+        ApiProperties.ScheduleConfig schedule = enable(dir);
+        List<Case> cases = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            cases.add(new Case("c" + i, 3, i % 5 == 4 ? "c" + (i - 1) : null));
+        }
+        schedule.setShardCount(3);
+        schedule.setShardBy("hash");
+
+        List<String> all = new ArrayList<>();
+        for (int shard = 0; shard < 3; shard++) {
+            schedule.setShardIndex(shard);
+            CaseScheduler.configure(schedule);
+            List<String> names = names(plan(cases).cases());
+            for (int i = 4; i < 20; i += 5) {
+                assertEquals(names.contains("c" + (i - 1)), names.contains("c" + i));
+            }
+            all.addAll(names);
+        }
+        assertEquals(20, all.size());
+        assertEquals(20, new HashSet<>(all).size());
+    }
+
+    @Test
+    @DisplayName("并行执行时依赖完成后才开始")
+    void parallelRespectsDependencies(@TempDir Path dir) {
+        enable(dir);
+        List<Case> cases = Arrays.asList(
+            new Case("login", 3, null),
+            new Case("query", 3, "login"),
+            new Case("other", 3, null),
+            new Case("logout", 3, "query, other"));
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        List<String> violations = Collections.synchronizedList(new ArrayList<>());
+
+        plan(cases).execute(4, c -> {
+            if (c.dependsOn != null) {
+                for (String dep : c.dependsOn.split(",")) {
+                    if (!finished.contains(dep.trim())) {
+                        violations.add(c.name + " 在 " + dep.trim() + " 之前执行");
+                    }
+                }
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.add(c.name);
+        });
+
+        assertEquals(Collections.emptyList(), violations);
+        assertEquals(4, finished.size());
+        assertEquals("logout", finished.get(3));
+    }
+
+    @Test
+    @DisplayName("循环依赖报错")
+    void cycle(@TempDir Path dir) {
+        enable(dir);
+        List<Case> cases = Arrays.asList(new Case("a", 3, "b"), new Case("b", 3, "a"));
+        assertThrows(IllegalStateException.class, () -> plan(cases));
+    }
+
+    @Test
+    @DisplayName("循环依赖报错信息给出循环路径，循环下游的用例不计入")
+    void cycleMessage(@TempDir Path dir) {
+        enable(dir);
+        List<Case> cases = Arrays.asList(new Case("x", 3, null), new Case("a", 3, "c"), new Case("b", 3, "a"),
+            new Case("c", 3, "b"), new Case("d", 3, "c"));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> plan(cases));
+        assertTrue(e.getMessage().endsWith("a -> b -> c -> a") || e.getMessage().endsWith("b -> c -> a -> b")
+            || e.getMessage().endsWith("c -> a -> b -> c"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("很长的依赖链按顺序调度，不会栈溢出")
+    void longDependencyChain(@TempDir Path dir) {
+        enable(dir);
+        int length = 20_000;
+        List<Case> cases = new ArrayList<>(length + 1);
+        for (int i = length - 1; i >= 0; i--) {
+            cases.add(new Case("k" + i, 3, i > 0 ? "k" + (i - 1) : null));
+        }
+        cases.add(new Case("single", 3, null));
+
+        List<String> names = names(plan(cases).cases());
+        assertEquals(length + 1, names.size());
+        // 依赖链的 rank 最大，整条链排在独立用例之前
+        for (int i = 0; i < length; i++) {
+            assertEquals("k" + i, names.get(i));
+        }
+        assertEquals("single", names.get(length));
+    }
+
+    @Test
+    @DisplayName("启动进程统一划分：每个用例恰好分到一个分片，同名和有依赖的用例在同一分片")
+    void partitionCoversEveryCaseOnce(@TempDir Path dir) {
+        enable(dir, 900, 100, 100, 100, 100, 100);
+        List<Case> cases = Arrays.asList(
+            new Case("c0", 3, null), new Case("c1", 3, null), new Case("c2", 3, "c1"),
+            new Case("c3", 3, null), new Case("c4", 3, null), new Case("c3", 3, null),
+            new Case("c5", 3, null));
+
+        List<List<Case>> shards = CaseScheduler.partition(cases, c -> c.name, c -> c.priority, c -> c.dependsOn,
+            3, false);
+        assertEquals(3, shards.size());
+        List<String> all = new ArrayList<>();
+        shards.forEach(shard -> all.addAll(names(shard)));
+        assertEquals(cases.size(), all.size());
+        assertEquals(new HashSet<>(names(cases)), new HashSet<>(all));
+        assertEquals(Collections.singletonList("c0"), names(shards.get(0)));
+        for (List<Case> shard : shards) {
+            List<String> shardNames = names(shard);
+            assertTrue(shardNames.contains("c1") == shardNames.contains("c2"));
+            assertTrue(!shardNames.contains("c3") || Collections.frequency(shardNames, "c3") == 2);
+            if (shardNames.contains("c1")) {
+                assertTrue(shardNames.indexOf("c1") < shardNames.indexOf("c2"));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("配置用例清单后只调度清单中的用例，不再按分片序号划分")
+    void planAssignedCases(@TempDir Path dir) throws Exception {
+        ApiProperties.ScheduleConfig schedule = enable(dir);
+        Path casesFile = dir.resolve("cases.json");
+        Files.writeString(casesFile, "[\"b\", \"c\"]");
+        schedule.setShardCount(4);
+        schedule.setShardIndex(3);
+        schedule.setCasesFile(casesFile.toString());
+        CaseScheduler.configure(schedule);
+
+        List<Case> cases = Arrays.asList(new Case("a", 3, null), new Case("b", 3, null), new Case("c", 3, "b"));
+        assertEquals(Arrays.asList("b", "c"), names(plan(cases).cases()));
+
+        Files.writeString(casesFile, "[\"c\"]");
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> plan(cases));
+        assertTrue(e.getMessage().contains("c 依赖 b"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("saveHistory 为 false 时不写历史文件，耗时留给启动进程")
+    void workerDoesNotSaveHistory(@TempDir Path dir) {
+        ApiProperties.ScheduleConfig schedule = enable(dir);
+        schedule.setSaveHistory(false);
+        CaseScheduler.configure(schedule);
+
+        CaseScheduler.recordDuration("w1", 250);
+        CaseScheduler.saveHistory();
+        assertFalse(Files.exists(dir.resolve("durations.json")));
+        assertEquals(250L, CaseScheduler.recordedDurations().get("w1"));
+
+        schedule.setSaveHistory(true);
+        CaseScheduler.configure(schedule);
+        CaseScheduler.saveHistory();
+        assertTrue(Files.exists(dir.resolve("durations.json")));
+        assertFalse(CaseScheduler.recordedDurations().containsKey("w1"));
+    }
+}
@@ -0,0 +1,209 @@
+package com.sen.api.utils;
+
+import com.sen.api.configs.ApiProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DbAssertUtil 单元测试（H2 MySQL模式）
+ */
+@DisplayName("DbAssertUtil 数据库断言测试")
+class DbAssertUtilTest {
+
+    private DbAssertUtil db;
+
+    @BeforeEach
+    void setUp() {
+        db = new DbAssertUtil(config(2));
+        db.update("CREATE TABLE orders (id BIGINT PRIMARY KEY, status VARCHAR(16))");
+    }
+
+    private static ApiProperties.DatabaseConfig config(int poolSize) {
+        ApiProperties.DatabaseConfig config = new ApiProperties.DatabaseConfig();
+        config.setUrl("jdbc:h2:mem:assert_" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setDriverClassName("org.h2.Driver");
+        config.setPoolSize(poolSize);
+        return config;
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("等待式断言：数据稍后写入时轮询到满足为止")
+    void awaitEventually() throws Exception {
+        db.insert("INSERT INTO orders VALUES (?, ?)", 1, "PENDING");
+        CompletableFuture<List<Map<String, Object>>> future = db.awaitAsync(
+            "SELECT status FROM orders WHERE id = ?",
+            rows -> DbVerifyEvaluator.of("$[0].status", "PAID").evaluate(rows).firstMismatch(), 5000, 1);
+        Thread.sleep(200);
+        db.update("UPDATE orders SET status = ? WHERE id = ?", "PAID", 1);
+        assertEquals("PAID", future.get(5, TimeUnit.SECONDS).get(0).get("status"));
+        db.awaitDbResult("SELECT status FROM orders WHERE id = ?", "$.status=PAID", 1000, 1);
+    }
+
+    @Test
+    @DisplayName("慢查询按剩余等待时间超时，不拖过截止时间")
+    void slowQueryTimesOut() {
+        long start = System.currentTimeMillis();
+        CompletableFuture<List<Map<String, Object>>> future = db.awaitAsync(
+            "SELECT COUNT(*) AS c FROM SYSTEM_RANGE(1, 100000) a, SYSTEM_RANGE(1, 100000) b",
+            rows -> null, 1000);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(e.getCause().getMessage().contains("查询失败"), e.getCause().getMessage());
+        assertTrue(elapsed < 5000, "等待了 " + elapsed + "ms");
+    }
+
+    @Test
+    @DisplayName("阻塞的查询不占用调度器，其他等待按时完成")
+    void blockedQueriesDoNotStallScheduler() throws Exception {
+        String slow = "SELECT COUNT(*) AS c FROM SYSTEM_RANGE(1, 100000) a, SYSTEM_RANGE(1, 100000) b";
+        // 另一个实例使用独立连接池，与慢查询只共享等待调度器
+        String url = ((HikariDataSource) db.getJdbcTemplate().getDataSource()).getJdbcUrl();
+        try (DbAssertUtil other = new DbAssertUtil(url, "sa", "", "org.h2.Driver", 1)) {
+            for (int i = 0; i < 4; i++) {
+                db.awaitAsync(slow, rows -> null, 2000);
+            }
+            other.update("CREATE TABLE IF NOT EXISTS events (id BIGINT)");
+            other.insert("INSERT INTO events VALUES (?)", 7);
+            long start = System.currentTimeMillis();
+            other.awaitAsync("SELECT id FROM events", rows -> rows.isEmpty() ? "无结果" : null, 5000)
+                .get(5, TimeUnit.SECONDS);
+            assertTrue(System.currentTimeMillis() - start < 1000);
+        }
+    }
+
+    @Test
+    @DisplayName("关闭后提交的等待以异常完成")
+    void awaitAfterClose() {
+        db.close();
+        CompletableFuture<List<Map<String, Object>>> future = db.awaitAsync("SELECT 1", rows -> null, 1000);
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("占位符参数：查询、断言与更新都按参数绑定，不拼接SQL")
+    void parameterizedQueries() {
+        db.insert("INSERT INTO orders VALUES (?, ?)", 1, "PAID");
+        db.insert("INSERT INTO orders VALUES (?, ?)", 2, "PENDING");
+        db.insert("INSERT INTO orders VALUES (?, ?)", 3, "PAID");
+
+        assertEquals("PENDING", db.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, 2));
+        assertEquals(3L, ((Number) db.queryForMap("SELECT id FROM orders WHERE id = ? AND status = ?", 3, "PAID")
+            .get("id")).longValue());
+        assertEquals(2, db.queryForList("SELECT id FROM orders WHERE status = ? ORDER BY id", "PAID").size());
+        // 参数中的引号不会改变SQL语义
+        assertTrue(db.queryForList("SELECT id FROM orders WHERE status = ?", "PAID' OR '1'='1").isEmpty());
+
+        db.assertQuery("SELECT status FROM orders WHERE id = ?", "$.status", "PAID", 1);
+        db.assertCount("SELECT COUNT(*) FROM orders WHERE status = ?", 2, "PAID");
+        db.assertExists("SELECT 1 FROM orders WHERE id = ?", 2);
+        db.assertNotExists("SELECT 1 FROM orders WHERE id = ?", 99);
+        db.verifyDbResult("SELECT id, status FROM orders WHERE id > ? ORDER BY id", "$[0].status=PENDING;$[1].id=3", 1);
+        assertThrows(AssertionError.class,
+            () -> db.verifyDbResult("SELECT status FROM orders WHERE id = ?", "$.status=PAID", 2));
+
+        assertEquals(2, db.update("UPDATE orders SET status = ? WHERE status = ?", "SHIPPED", "PAID"));
+        assertEquals(1, db.delete("DELETE FROM orders WHERE id = ?", 2));
+        db.assertCount("SELECT COUNT(*) FROM orders WHERE status = ?", 2, "SHIPPED");
+    }
+
+    @Test
+    @DisplayName("poolSize > 0 时创建有上限的连接池，并发借用不超过 poolSize")
+    void pooledDataSource() throws Exception {
+        DataSource dataSource = db.getJdbcTemplate().getDataSource();
+        HikariDataSource pool = assertInstanceOf(HikariDataSource.class, dataSource);
+        assertTrue(pool.getPoolName().startsWith("DbAssertPool-"));
+        assertEquals(2, pool.getMaximumPoolSize());
+
+        int threads = 6;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int id = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                db.insert("INSERT INTO orders VALUES (?, ?)", id, "NEW");
+                db.queryForList("SELECT * FROM orders WHERE id = ?", id);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(pool.getHikariPoolMXBean().getTotalConnections() <= 2);
+        assertEquals(0, pool.getHikariPoolMXBean().getActiveConnections());
+        db.assertCount("SELECT COUNT(*) FROM orders WHERE status = ?", threads, "NEW");
+    }
+
+    @Test
+    @DisplayName("close() 关闭本实例创建的连接池，之后的查询失败")
+    void closeReleasesPool() throws SQLException {
+        HikariDataSource pool = (HikariDataSource) db.getJdbcTemplate().getDataSource();
+        Connection borrowed = pool.getConnection();
+        borrowed.close();
+
+        db.close();
+        assertTrue(pool.isClosed());
+        assertThrows(SQLException.class, pool::getConnection);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> db.queryForList("SELECT 1"));
+        assertTrue(e.getMessage().contains("查询失败"), e.getMessage());
+        // 重复关闭无副作用
+        db.close();
+    }
+
+    @Test
+    @DisplayName("close() 不关闭外部传入的数据源")
+    void closeKeepsExternalDataSource() {
+        HikariDataSource pool = (HikariDataSource) db.getJdbcTemplate().getDataSource();
+        db.insert("INSERT INTO orders VALUES (?, ?)", 1, "PAID");
+
+        DbAssertUtil shared = new DbAssertUtil(pool);
+        shared.assertExists("SELECT 1 FROM orders WHERE id = ?", 1);
+        shared.close();
+
+        assertFalse(pool.isClosed());
+        db.assertExists("SELECT 1 FROM orders WHERE id = ?", 1);
+    }
+
+    @Test
+    @DisplayName("poolSize 为0时退回到不带连接池的数据源")
+    void withoutPool() {
+        try (DbAssertUtil direct = new DbAssertUtil(config(0))) {
+            assertInstanceOf(DriverManagerDataSource.class, direct.getJdbcTemplate().getDataSource());
+            direct.update("CREATE TABLE items (id BIGINT)");
+            direct.insert("INSERT INTO items VALUES (?)", 5);
+            direct.assertCount("SELECT COUNT(*) FROM items WHERE id = ?", 1, 5);
+        }
+    }
+}
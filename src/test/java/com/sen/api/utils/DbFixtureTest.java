@@ -0,0 +1,175 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DbFixture 单元测试（H2 MySQL模式）
+ */
+@DisplayName("DbFixture 数据库夹具测试")
+class DbFixtureTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DbFixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:fixture_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(64))");
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, user_id BIGINT, amount DECIMAL(10,2), "
+            + "FOREIGN KEY (user_id) REFERENCES users(id))");
+        fixture = new DbFixture(dataSource);
+    }
+
+    @Test
+    @DisplayName("测试批量加载种子数据")
+    void testLoadRows() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 1; i <= 1200; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", i);
+            row.put("name", "user" + i);
+            rows.add(row);
+        }
+        assertEquals(1200, fixture.loadRows("users", rows));
+        assertEquals(1200, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+
+    @Test
+    @DisplayName("测试SQL脚本失败时整体回滚")
+    void testLoadSqlRollback() {
+        assertThrows(Exception.class, () -> fixture.loadSql(
+            "INSERT INTO users VALUES (1, 'a'); INSERT INTO users VALUES (1, 'duplicate')"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+
+    @Test
+    @DisplayName("测试快照恢复")
+    void testSnapshotRestore() {
+        fixture.loadSql("INSERT INTO users VALUES (1, 'alice'); INSERT INTO users VALUES (2, 'bob');"
+            + "INSERT INTO orders VALUES (10, 1, 12.50)");
+        fixture.snapshot("seed", "users", "orders");
+
+        assertThrows(IllegalStateException.class, () -> fixture.withSnapshot("seed", () -> {
+            jdbcTemplate.update("DELETE FROM orders");
+            jdbcTemplate.update("UPDATE users SET name = 'changed' WHERE id = 1");
+            jdbcTemplate.update("INSERT INTO users VALUES (3, 'carol')");
+            throw new IllegalStateException("用例中途失败");
+        }));
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        assertEquals("alice", jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = 1", String.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class));
+    }
+
+    @Test
+    @DisplayName("测试非法表名")
+    void testIllegalTableName() {
+        assertThrows(IllegalArgumentException.class, () -> fixture.snapshot("bad", "users; DROP TABLE users"));
+    }
+
+    @Test
+    @DisplayName("测试按外键顺序恢复（子表在前给出）")
+    void testRestoreForeignKeyOrder() {
+        fixture.loadSql("INSERT INTO users VALUES (1, 'alice'); INSERT INTO orders VALUES (10, 1, 12.50)");
+        fixture.snapshot("seed", "orders", "users");
+
+        jdbcTemplate.update("INSERT INTO users VALUES (2, 'bob')");
+        jdbcTemplate.update("INSERT INTO orders VALUES (11, 2, 3.00)");
+        fixture.restore("seed");
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class));
+    }
+
+    @Test
+    @DisplayName("测试恢复失败时整体回滚")
+    void testRestoreRollback() {
+        fixture.loadSql("INSERT INTO users VALUES (1, 'alice'); INSERT INTO orders VALUES (10, 1, 12.50)");
+        fixture.snapshot("seed", "users", "orders");
+
+        jdbcTemplate.update("INSERT INTO users VALUES (2, 'bob')");
+        // 快照中的行插不回去
+        jdbcTemplate.execute("ALTER TABLE orders DROP COLUMN amount");
+
+        assertThrows(Exception.class, () -> fixture.restore("seed"));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class));
+    }
+
+    @Test
+    @DisplayName("测试快照行数上限")
+    void testSnapshotLimit() {
+        fixture.loadSql("INSERT INTO users VALUES (1, 'alice'); INSERT INTO users VALUES (2, 'bob');"
+            + "INSERT INTO orders VALUES (10, 1, 12.50)");
+        fixture.maxSnapshotRows(2);
+        assertThrows(IllegalStateException.class, () -> fixture.snapshot("big", "users", "orders"));
+        assertFalse(fixture.hasSnapshot("big"));
+
+        fixture.maxSnapshotRows(3).snapshot("seed", "users", "orders");
+        assertTrue(fixture.hasSnapshot("seed"));
+    }
+
+    @Test
+    @DisplayName("测试DSL用例声明snapshot后，用例写入的数据在结束后恢复")
+    void testDslCaseSnapshot() {
+        fixture.loadSql("INSERT INTO users VALUES (1, 'alice')");
+        // 被测接口收到请求时写库
+        WireMockServer server = new WireMockServer(options().dynamicPort().extensions(new ServeEventListener() {
+            @Override
+            public void beforeResponseSent(ServeEvent serveEvent, Parameters parameters) {
+                jdbcTemplate.update("INSERT INTO users VALUES (2, 'bob')");
+                jdbcTemplate.update("INSERT INTO orders VALUES (10, 2, 8.00)");
+            }
+
+            @Override
+            public String getName() {
+                return "write-db";
+            }
+        }));
+        server.start();
+        server.stubFor(post(urlEqualTo("/orders")).willReturn(aResponse().withStatus(201)));
+        YamlDslTestEngine engine = YamlDslTestEngine.getInstance();
+        try {
+            engine.setRootUrl("http://localhost:" + server.port());
+            engine.setDbFixture(fixture);
+            YamlDslTestEngine.DslSuiteResult result = engine.runFromYaml(
+                "- name: createOrder\n"
+                    + "  api: /orders\n"
+                    + "  method: POST\n"
+                    + "  snapshot: [users, orders]\n"
+                    + "  validate:\n"
+                    + "    - status: 201\n");
+
+            assertEquals(1, result.getPassedCount());
+            assertEquals(1, server.getAllServeEvents().size());
+            assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class));
+            assertTrue(fixture.getSnapshotNames().isEmpty());
+        } finally {
+            engine.setDbFixture(null);
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.sen.api.utils;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DbVerifyEvaluator 单元测试（H2 MySQL模式），与原来序列化成JSON后用 JsonPath 求值的结果对比
+ */
+@DisplayName("DbVerifyEvaluator 数据库验证表达式测试")
+class DbVerifyEvaluatorTest {
+
+    private static final String SQL = "SELECT id, name, amount, created_at FROM orders WHERE amount > ? ORDER BY id";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:verify_" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, name VARCHAR(64), amount DECIMAL(10,2), "
+            + "created_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO orders VALUES (1, 'alice', 12.50, TIMESTAMP '2024-01-02 03:04:05')");
+        jdbcTemplate.update("INSERT INTO orders VALUES (2, 'bob', 8.00, NULL)");
+        jdbcTemplate.update("INSERT INTO orders VALUES (3, 'carol', 99.99, TIMESTAMP '2024-02-03 04:05:06')");
+    }
+
+    /**
+     * 原实现：查出全部行，序列化成JSON后用 JsonPath 读取，按字符串比较
+     */
+    private String legacyActual(String path, Object... args) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(SQL, args);
+        Object actual = JsonPath.read(JsonUtil.toJsonString(rows), path);
+        return String.valueOf(actual);
+    }
+
+    private void assertSameAsLegacy(String path, Object... args) {
+        assertSameAsLegacy(path, path, args);
+    }
+
+    /**
+     * @param legacyPath 原实现中取同一个值的写法
+     */
+    private void assertSameAsLegacy(String path, String legacyPath, Object... args) {
+        String legacy = legacyActual(legacyPath, args);
+        DbVerifyEvaluator evaluator = DbVerifyEvaluator.of(path, legacy);
+        DbVerifyEvaluator.Outcome streamed = evaluator.evaluate(jdbcTemplate, SQL, args);
+        assertTrue(streamed.hasRows(), path);
+        assertNull(streamed.firstMismatch(), path);
+        assertNull(evaluator.evaluate(jdbcTemplate.queryForList(SQL, args)).firstMismatch(), path);
+
+        DbVerifyEvaluator wrong = DbVerifyEvaluator.of(path, legacy + "-x");
+        assertNotNull(wrong.evaluate(jdbcTemplate, SQL, args).firstMismatch(), path);
+    }
+
+    @Test
+    @DisplayName("$.f 读取第一行，与JSON路径 $[0].f 结果一致")
+    void firstRowField() {
+        // 结果集序列化后是数组，原实现中 $.f 找不到属性
+        assertThrows(Exception.class, () -> legacyActual("$.name", 0));
+        assertSameAsLegacy("$.name", "$[0].name", 0);
+        assertSameAsLegacy("$.amount", "$[0].amount", 0);
+        assertSameAsLegacy("$.created_at", "$[0].created_at", 0);
+        assertSameAsLegacy("$.NAME", "$[0].name", 0);
+    }
+
+    @Test
+    @DisplayName("$[i].f 读取指定行，与JSON路径结果一致")
+    void indexedRowField() {
+        assertSameAsLegacy("$[1].name", 0);
+        assertSameAsLegacy("$[1].created_at", 0);
+        assertSameAsLegacy("$[2].amount", 0);
+        assertSameAsLegacy("$[0].id", 10);
+    }
+
+    @Test
+    @DisplayName("$.length() 统计全部行，与JSON路径结果一致")
+    void length() {
+        assertSameAsLegacy("$.length()", 0);
+        assertSameAsLegacy("$.length()", 10);
+        assertEquals("2", String.valueOf(DbVerifyEvaluator.of("$.size()", 2)
+            .evaluate(jdbcTemplate, SQL, 10).getActual(0)));
+    }
+
+    @Test
+    @DisplayName("过滤器、通配符回退到JSON路径求值")
+    void fallback() {
+        assertSameAsLegacy("$[?(@.id == 2)].name", 0);
+        assertSameAsLegacy("$[*].id", 0);
+        assertSameAsLegacy("$..name", 10);
+    }
+
+    @Test
+    @DisplayName("数值按数值比较，混合表达式一次求值")
+    void numericAndMixed() {
+        DbVerifyEvaluator evaluator = DbVerifyEvaluator.parse("$.amount=12.5;$[2].name=carol;$.length()=3");
+        assertNull(evaluator.evaluate(jdbcTemplate, SQL, 0).firstMismatch());
+        DbVerifyEvaluator mixed = DbVerifyEvaluator.parse("$.amount=12.5;$[?(@.id > 2)].name=[\"carol\"]");
+        assertNull(mixed.evaluate(jdbcTemplate, SQL, 0).firstMismatch());
+    }
+
+    @Test
+    @DisplayName("没有有效表达式时只检查是否有结果行")
+    void emptyExpressions() {
+        DbVerifyEvaluator evaluator = DbVerifyEvaluator.parse(";invalid;");
+        assertTrue(evaluator.getExpressions().isEmpty());
+        DbVerifyEvaluator.Outcome outcome = evaluator.evaluate(jdbcTemplate, SQL, 0);
+        assertTrue(outcome.hasRows());
+        assertNull(outcome.firstMismatch());
+        assertFalse(evaluator.evaluate(jdbcTemplate, SQL, 1000).hasRows());
+    }
+}
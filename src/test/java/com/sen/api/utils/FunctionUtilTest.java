@@ -0,0 +1,36 @@
+package com.sen.api.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FunctionUtil 单元测试
+ */
+@DisplayName("FunctionUtil 函数助手测试")
+class FunctionUtilTest {
+
+    @Test
+    @DisplayName("execute 调用已注册的函数")
+    void executeKnownFunction() {
+        assertEquals("YWJj", FunctionUtil.execute("base64", new String[]{"abc"}));
+        assertEquals("5", FunctionUtil.execute("plus", new String[]{"2", "3"}));
+    }
+
+    @Test
+    @DisplayName("execute 遇到未知函数或 bodyfile 时抛出异常")
+    void executeUnknownFunction() {
+        assertThrows(IllegalArgumentException.class, () -> FunctionUtil.execute("noSuchFunc", new String[0]));
+        assertThrows(IllegalArgumentException.class, () -> FunctionUtil.execute("bodyfile", new String[]{"a.json"}));
+    }
+
+    @Test
+    @DisplayName("DSL 中的 __func() 被替换，未知函数保留原文")
+    void dslFunctionReplacement() {
+        YamlDslTestEngine engine = YamlDslTestEngine.getInstance();
+        assertEquals("{\"diff\":\"3\",\"n\":5}",
+            engine.replaceVariables("{\"diff\":\"__sub(5,2)\",\"n\":__plus(2,3)}"));
+        assertEquals("x=__noSuchFunc(1)", engine.replaceVariables("x=__noSuchFunc(1)"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.sen.api.beans.RequestTiming;
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HttpPhaseTimer 单元测试
+ */
+@DisplayName("HttpPhaseTimer 分阶段计时测试")
+class HttpPhaseTimerTest {
+
+    private static WireMockServer server;
+
+    @BeforeAll
+    static void startServer() {
+        server = new WireMockServer(options().dynamicPort().dynamicHttpsPort());
+        server.start();
+        server.stubFor(get(urlEqualTo("/slow"))
+            .willReturn(aResponse().withStatus(200).withBody("{\"ok\":true}").withFixedDelay(50)));
+        ApiMetrics.install();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("HTTP请求：记录建连、TTFB和字节数，没有TLS阶段")
+    void plainHttp() {
+        RestAssured.given().get("http://localhost:" + server.port() + "/slow");
+        RequestTiming timing = HttpPhaseTimer.last();
+
+        assertNotNull(timing);
+        assertFalse(timing.isConnectionReused());
+        assertTrue(timing.getConnectMs() > 0);
+        assertEquals(0, timing.getTlsMs());
+        assertTrue(timing.getTtfbMs() >= 50, timing.toString());
+        assertTrue(timing.getTotalMs() >= timing.getTtfbMs() + timing.getConnectMs());
+        assertTrue(timing.getRequestBytes() > 0);
+        assertTrue(timing.getResponseBytes() > "{\"ok\":true}".length());
+    }
+
+    @Test
+    @DisplayName("HTTPS请求：TLS握手与TCP建连分开计时")
+    void https() {
+        RestAssured.given().relaxedHTTPSValidation().get("https://localhost:" + server.httpsPort() + "/slow");
+        RequestTiming timing = HttpPhaseTimer.last();
+
+        assertNotNull(timing);
+        assertTrue(timing.getTlsMs() > 0);
+        assertTrue(timing.getTtfbMs() >= 50, timing.toString());
+    }
+
+    @Test
+    @DisplayName("计时过滤器在最内层，外层过滤器返回时已能取到本次耗时")
+    void outerFilterSeesTiming() {
+        AtomicReference<RequestTiming> seen = new AtomicReference<>();
+        RestAssured.given()
+            .filter((requestSpec, responseSpec, ctx) -> {
+                Response response = ctx.next(requestSpec, responseSpec);
+                seen.set(HttpPhaseTimer.last());
+                return response;
+            })
+            .get("http://localhost:" + server.port() + "/slow");
+
+        assertNotNull(seen.get());
+        assertSame(HttpPhaseTimer.last(), seen.get());
+        assertTrue(seen.get().getTtfbMs() >= 50, seen.get().toString());
+    }
+}
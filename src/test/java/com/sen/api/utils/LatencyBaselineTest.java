@@ -0,0 +1,92 @@
+package com.sen.api.utils;
+
+import com.sen.api.configs.ApiProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LatencyBaseline 单元测试
+ */
+@DisplayName("LatencyBaseline 耗时基线测试")
+class LatencyBaselineTest {
+
+    private static LatencySamples samples(String url, double meanMs, double jitterMs, int count, long seed) {
+        Random random = new Random(seed);
+        LatencySamples samples = new LatencySamples();
+        for (int i = 0; i < count; i++) {
+            double ms = meanMs + random.nextGaussian() * jitterMs;
+            samples.record("GET", url, (long) (Math.max(0.1, ms) * 1000));
+        }
+        return samples;
+    }
+
+    @Test
+    @DisplayName("同一接口不同ID归为同一个URL模板")
+    void endpointUsesUrlTemplate() {
+        LatencySamples samples = new LatencySamples();
+        samples.record("get", "http://localhost:8080/users/1?x=1", 1000);
+        samples.record("GET", "http://localhost:8080/users/2", 2000);
+        assertEquals(1, samples.endpoints().size());
+        assertArrayEquals(new long[]{1000, 2000}, samples.sorted("GET /users/{id}"));
+    }
+
+    @Test
+    @DisplayName("Mann-Whitney：同分布不显著，整体右移显著，全部相同返回1")
+    void mannWhitney() {
+        long[] base = new long[100];
+        long[] same = new long[100];
+        long[] slower = new long[100];
+        for (int i = 0; i < 100; i++) {
+            base[i] = 1000 + i * 10;
+            same[i] = 1005 + i * 10;
+            slower[i] = 1300 + i * 10;
+        }
+        assertTrue(LatencyBaseline.mannWhitneyGreater(same, base) > 0.05);
+        assertTrue(LatencyBaseline.mannWhitneyGreater(slower, base) < 0.001);
+        assertTrue(LatencyBaseline.mannWhitneyGreater(base, slower) > 0.99);
+        assertEquals(1.0, LatencyBaseline.mannWhitneyGreater(new long[]{5, 5}, new long[]{5, 5, 5}));
+        assertEquals(0.5, LatencyBaseline.normalCdf(0), 1e-7);
+    }
+
+    @Test
+    @DisplayName("变慢超过容差且显著时报告回归，保存后重新加载结果一致")
+    void compareAgainstSavedBaseline(@TempDir Path dir) {
+        ApiProperties.BaselineConfig config = new ApiProperties.BaselineConfig();
+        Path file = dir.resolve("baseline.json");
+
+        LatencyBaseline recorded = new LatencyBaseline();
+        LatencySamples reference = samples("/orders/1", 50, 5, 500, 1);
+        reference.record("GET", "/health", 1000);
+        recorded.update(reference, 200);
+        recorded.save(file);
+
+        LatencyBaseline baseline = LatencyBaseline.load(file);
+        assertEquals(500, baseline.getEndpoint("GET /orders/{id}").getCount());
+        assertEquals(200, baseline.getEndpoint("GET /orders/{id}").getSamplesMicros().length);
+
+        // 噪声范围内：不报告
+        assertTrue(baseline.compare(samples("/orders/2", 51, 5, 200, 2), config).isEmpty());
+
+        // 明显变慢：报告；/health 样本不足，跳过
+        LatencySamples slow = samples("/orders/3", 80, 5, 200, 3);
+        slow.record("GET", "/health", 900000);
+        List<LatencyBaseline.Regression> regressions = baseline.compare(slow, config);
+        assertEquals(1, regressions.size());
+        LatencyBaseline.Regression regression = regressions.get(0);
+        assertEquals("GET /orders/{id}", regression.getEndpoint());
+        assertTrue(regression.getCurrentMs() > regression.getBaselineMs() * 1.2);
+        assertTrue(regression.getPValue() < config.getAlpha());
+        assertTrue(regression.getMessage().contains("P95"));
+
+        // 放宽容差后不再报告
+        config.setTolerance(1.0);
+        assertTrue(baseline.compare(slow, config).isEmpty());
+    }
+}
@@ -0,0 +1,166 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.sen.api.utils.LoadCoordinator.LoadPlan;
+import com.sen.api.utils.LoadCoordinator.LoadReport;
+import com.sen.api.utils.YamlDslTestEngine.DslTestCase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LoadCoordinator / LoadWorker 单元测试
+ */
+@DisplayName("LoadCoordinator 分布式压测测试")
+class LoadCoordinatorTest {
+
+    private static WireMockServer server;
+
+    @BeforeAll
+    static void startServer() {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+        server.stubFor(get(urlEqualTo("/ok"))
+            .willReturn(aResponse().withStatus(200).withBody("{\"code\":0}").withFixedDelay(10)));
+        server.stubFor(get(urlEqualTo("/broken"))
+            .willReturn(aResponse().withStatus(500)));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    private static DslTestCase testCase(String name, String api) {
+        DslTestCase testCase = new DslTestCase();
+        testCase.setName(name);
+        testCase.setApi(api);
+        testCase.setValidate(new ArrayList<>(Collections.singletonList(Collections.singletonMap("status", 200))));
+        return testCase;
+    }
+
+    @Test
+    @DisplayName("直方图合并后分位数与整体记录一致")
+    void histogramMerge() {
+        LatencyHistogram whole = new LatencyHistogram();
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            whole.record(v * 10);
+            (v % 2 == 0 ? first : second).record(v * 10);
+        }
+        LatencyHistogram merged = LatencyHistogram.fromMap(first.toMap());
+        merged.merge(LatencyHistogram.fromMap(second.toMap()));
+
+        assertEquals(whole.getCount(), merged.getCount());
+        assertEquals(whole.percentile(99), merged.percentile(99));
+        assertEquals(1_000_000, merged.getMax());
+        // 相对误差不超过 1/64
+        assertEquals(500_000, merged.percentile(50), 500_000 / 64.0);
+        assertEquals(990_000, merged.percentile(99), 990_000 / 64.0);
+    }
+
+    @Test
+    @DisplayName("多个本地 worker 平分速率，协调器合并计数与直方图")
+    void localWorkers() throws Exception {
+        LoadPlan plan = new LoadPlan();
+        plan.setCases(Arrays.asList(testCase("ok", "/ok"), testCase("broken", "/broken")));
+        plan.setRatePerSecond(60);
+        plan.setDurationSeconds(2);
+        plan.setMaxConcurrency(8);
+        plan.setRootUrl("http://localhost:" + server.port());
+
+        try (LoadCoordinator coordinator = new LoadCoordinator(plan, 3, 0)) {
+            coordinator.setReportDir(null);
+            coordinator.setConnectTimeoutMs(10_000);
+            CompletableFuture<LoadReport> report = CompletableFuture.supplyAsync(coordinator::run);
+            List<CompletableFuture<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                LoadWorker worker = new LoadWorker("localhost", coordinator.getPort(), "worker-" + i);
+                workers.add(CompletableFuture.runAsync(worker::run));
+            }
+            LoadReport result = report.get(60, TimeUnit.SECONDS);
+            for (CompletableFuture<Void> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+
+            // 每个 worker 20/s × 2s，两个用例轮流发起
+            assertEquals(120, result.getTotal().getCount());
+            assertEquals(120, result.getTotal().getHistogram().getCount());
+            Map<String, LoadCoordinator.LoadStats> cases = result.getCases();
+            assertEquals(60, cases.get("ok").getCount());
+            assertEquals(0, cases.get("ok").getErrors());
+            assertEquals(60, cases.get("broken").getErrors());
+            assertTrue(cases.get("ok").getHistogram().percentile(50) >= 10_000);
+            assertEquals(120, result.getTimeline().values().stream().mapToLong(LoadCoordinator.LoadStats::getCount).sum());
+        }
+    }
+
+    @Test
+    @DisplayName("worker 超过收尾超时未结束时记为失败，协调器照常出报告")
+    void hungWorker() throws Exception {
+        LoadPlan plan = new LoadPlan();
+        plan.setCases(Collections.singletonList(testCase("ok", "/ok")));
+        plan.setRatePerSecond(20);
+        plan.setDurationSeconds(1);
+        plan.setMaxConcurrency(4);
+        plan.setRootUrl("http://localhost:" + server.port());
+
+        try (LoadCoordinator coordinator = new LoadCoordinator(plan, 2, 0)) {
+            coordinator.setReportDir(null);
+            coordinator.setConnectTimeoutMs(10_000);
+            coordinator.setFinishTimeoutMs(2000);
+            CompletableFuture<LoadReport> report = CompletableFuture.supplyAsync(coordinator::run);
+            LoadWorker worker = new LoadWorker("localhost", coordinator.getPort(), "worker-ok");
+            CompletableFuture<Void> healthy = CompletableFuture.runAsync(worker::run);
+
+            // 只完成握手和预热，开始后不再上报
+            try (Socket socket = new Socket("localhost", coordinator.getPort())) {
+                BufferedReader input = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter output = new PrintWriter(
+                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                LoadCoordinator.send(output, message("hello", "worker-hung"));
+                assertEquals("plan", LoadCoordinator.read(input).get("type"));
+                LoadCoordinator.send(output, message("ready", "worker-hung"));
+                assertEquals("start", LoadCoordinator.read(input).get("type"));
+
+                LoadReport result = report.get(20, TimeUnit.SECONDS);
+                healthy.get(10, TimeUnit.SECONDS);
+
+                assertEquals(Collections.singleton("worker-hung"), result.getFailedWorkers().keySet());
+                assertEquals(10, result.getTotal().getCount());
+                assertEquals(result.getFailedWorkers(), result.toMap().get("failedWorkers"));
+            }
+        }
+    }
+
+    private static Map<String, Object> message(String type, String worker) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", type);
+        message.put("worker", worker);
+        return message;
+    }
+}
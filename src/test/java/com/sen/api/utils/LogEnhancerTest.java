@@ -0,0 +1,91 @@
+package com.sen.api.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LogEnhancer 单元测试
+ */
+@DisplayName("LogEnhancer 日志增强测试")
+class LogEnhancerTest {
+
+    @AfterEach
+    void reset() {
+        LogEnhancer.clearAllLogs();
+        LogEnhancer.configureLogFile("logs", 50L * 1024 * 1024, 5);
+    }
+
+    @Test
+    @DisplayName("只有失败用例的日志保留在内存中，最多保留一个缓冲区容量的最新条目")
+    void failedCaseRetention(@TempDir Path dir) {
+        LogEnhancer.configureLogFile(dir.toString(), 1024 * 1024, 1);
+
+        LogEnhancer.startTestCase("passed-case");
+        LogEnhancer.logValidation("$.code", true, "0", "0");
+        assertEquals(1, LogEnhancer.getTestLogs("passed-case").size());
+        LogEnhancer.endTestCase("passed-case", true);
+        assertTrue(LogEnhancer.getTestLogs("passed-case").isEmpty());
+
+        LogEnhancer.startTestCase("failed-case");
+        for (int i = 0; i < 1500; i++) {
+            LogEnhancer.logValidation("$.items[" + i + "]", false, "x", "y");
+        }
+        LogEnhancer.endTestCase("failed-case", false);
+        List<LogEnhancer.LogEntry> retained = LogEnhancer.getTestLogs("failed-case");
+        assertEquals(1024, retained.size());
+        assertTrue(retained.get(1023).getMessage().contains("$.items[1499]"));
+        assertEquals("failed-case", retained.get(0).getTestCase());
+
+        // 再次执行同名用例时清除上次保留的日志
+        LogEnhancer.startTestCase("failed-case");
+        LogEnhancer.endTestCase("failed-case", true);
+        assertTrue(LogEnhancer.getTestLogs("failed-case").isEmpty());
+    }
+
+    @Test
+    @DisplayName("大请求/响应体截断保留，完整内容由落盘线程另存")
+    void retainBodySpill(@TempDir Path dir) throws Exception {
+        LogEnhancer.configureLogFile(dir.toString(), 1024 * 1024, 1);
+        assertEquals("small", LogEnhancer.retainBody("case", "response", "small"));
+        assertNull(LogEnhancer.retainBody("case", "response", null));
+
+        StringBuilder body = new StringBuilder();
+        while (body.length() < 10_000) {
+            body.append("中文body-").append(body.length());
+        }
+        String retained = LogEnhancer.retainBody("case/1", "response", body.toString());
+        assertTrue(retained.startsWith(body.substring(0, 4096) + "... (truncated, " + body.length() + " chars"));
+
+        Matcher matcher = Pattern.compile("full body: (.+)\\)$").matcher(retained);
+        assertTrue(matcher.find(), retained);
+        Path spill = Paths.get(matcher.group(1));
+        assertEquals(dir.resolve("spill"), spill.getParent());
+        assertTrue(spill.getFileName().toString().startsWith("case_1-response-"));
+
+        LogEnhancer.flushLogs();
+        assertEquals(body.toString(), Files.readString(spill, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("失败日志记录的请求体截断")
+    void failedTestLogTruncates(@TempDir Path dir) {
+        LogEnhancer.configureLogFile(dir.toString(), 1024 * 1024, 1);
+        LogEnhancer.FailedTestLog log = LogEnhancer.recordFailedTest("big-body");
+        log.setRequestBody("x".repeat(5000));
+        assertTrue(log.getRequestBody().length() < 5000 + 200);
+        assertTrue(log.getRequestBody().contains("truncated, 5000 chars"));
+        assertSame(log, LogEnhancer.getFailedTestLog("big-body"));
+    }
+}
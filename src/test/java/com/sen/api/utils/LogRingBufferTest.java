@@ -0,0 +1,99 @@
+package com.sen.api.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LogRingBuffer 单元测试
+ */
+@DisplayName("LogRingBuffer 环形缓冲区测试")
+class LogRingBufferTest {
+
+    @Test
+    @DisplayName("容量向上取整为2的幂")
+    void capacity() {
+        assertEquals(2, new LogRingBuffer(1).getCapacity());
+        assertEquals(8, new LogRingBuffer(5).getCapacity());
+        assertEquals(1024, new LogRingBuffer(1024).getCapacity());
+    }
+
+    @Test
+    @DisplayName("生产者超过消费者一圈以上：只消费最新一圈，其余计入丢弃")
+    void producerLapsDrainer() {
+        LogRingBuffer ring = new LogRingBuffer(8);
+        for (int i = 0; i < 30; i++) {
+            ring.add(new LogEnhancer.LogEntry("INFO", "m" + i));
+        }
+        List<String> drained = new ArrayList<>();
+        assertEquals(8, ring.drain(entry -> drained.add(entry.getMessage())));
+        assertEquals(22, ring.getDroppedCount());
+        assertEquals("m22", drained.get(0));
+        assertEquals("m29", drained.get(7));
+
+        ring.add(new LogEnhancer.LogEntry("INFO", "m30"));
+        drained.clear();
+        assertEquals(1, ring.drain(entry -> drained.add(entry.getMessage())));
+        assertEquals(List.of("m30"), drained);
+        assertEquals(22, ring.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("并发写入与消费：消费的条目有序，消费数加丢弃数等于写入数")
+    void concurrentLapping() throws Exception {
+        LogRingBuffer ring = new LogRingBuffer(16);
+        int total = 200_000;
+        AtomicBoolean done = new AtomicBoolean();
+        long[] last = {-1};
+        long[] consumed = {0};
+        List<String> errors = new ArrayList<>();
+        Thread drainer = new Thread(() -> {
+            while (true) {
+                boolean finished = done.get();
+                consumed[0] += ring.drain(entry -> {
+                    if (entry.getSequence() <= last[0]) {
+                        errors.add(entry.getSequence() + " after " + last[0]);
+                    }
+                    last[0] = entry.getSequence();
+                });
+                if (finished) {
+                    return;
+                }
+            }
+        });
+        drainer.start();
+        for (int i = 0; i < total; i++) {
+            ring.add(new LogEnhancer.LogEntry("INFO", "m"));
+        }
+        done.set(true);
+        drainer.join();
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertEquals(total, consumed[0] + ring.getDroppedCount());
+        assertEquals(total - 1, last[0]);
+    }
+
+    @Test
+    @DisplayName("用例起点之后的快照，起点已被覆盖时从最旧的条目开始")
+    void snapshotFrom() {
+        LogRingBuffer ring = new LogRingBuffer(4);
+        ring.add(new LogEnhancer.LogEntry("INFO", "before"));
+        long start = ring.position();
+        for (int i = 0; i < 3; i++) {
+            ring.add(new LogEnhancer.LogEntry("INFO", "case" + i));
+        }
+        assertEquals(3, ring.snapshotFrom(start).size());
+        for (int i = 3; i < 6; i++) {
+            ring.add(new LogEnhancer.LogEntry("INFO", "case" + i));
+        }
+        List<LogEnhancer.LogEntry> entries = ring.snapshotFrom(start);
+        assertEquals(4, entries.size());
+        assertEquals("case2", entries.get(0).getMessage());
+        assertEquals("case5", entries.get(3).getMessage());
+    }
+}
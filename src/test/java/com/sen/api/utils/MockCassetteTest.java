@@ -0,0 +1,165 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MockCassette 录制回放单元测试
+ */
+@DisplayName("MockCassette 录制回放测试")
+class MockCassetteTest {
+
+    // 代理会把 HTTP/2 升级请求头转发给真实服务，录制时固定使用 HTTP/1.1
+    private static final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private static WireMockServer target;
+
+    @BeforeAll
+    static void startServers() throws IOException {
+        target = new WireMockServer(options().dynamicPort());
+        target.start();
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MockUtil.startMockServer(port);
+    }
+
+    @AfterAll
+    static void stopServers() {
+        MockUtil.stopMockServer();
+        target.stop();
+    }
+
+    @AfterEach
+    void reset() {
+        MockUtil.stopRecording();
+        MockUtil.stopReplay();
+        MockUtil.reset();
+        target.resetAll();
+    }
+
+    private static HttpResponse<byte[]> call(String method, String url, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(MockUtil.getMockServerUrl() + url))
+            .method(method, body == null
+                ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static String text(HttpResponse<byte[]> response) {
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("录制代理响应后回放：状态码、响应头、响应体一致，不再访问真实服务")
+    void recordThenReplay(@TempDir Path dir) throws Exception {
+        byte[] binary = {0, (byte) 0xff, (byte) 0xfe, 1, 2};
+        target.stubFor(get(urlEqualTo("/users/1")).willReturn(aResponse()
+            .withStatus(200).withHeader("X-Source", "real").withBody("{\"name\":\"张三\"}")));
+        target.stubFor(post(urlEqualTo("/orders")).willReturn(aResponse()
+            .withStatus(201).withBody("{\"id\":7}")));
+        target.stubFor(get(urlEqualTo("/files/1")).willReturn(aResponse().withBody(binary)));
+
+        Path cassette = dir.resolve("cassette.jsonl");
+        MockUtil.startRecording(target.baseUrl(), cassette.toString());
+        assertEquals("{\"name\":\"张三\"}", text(call("GET", "/users/1", null)));
+        assertEquals(201, call("POST", "/orders", "{\"sku\":\"a\"}").statusCode());
+        assertArrayEquals(binary, call("GET", "/files/1", null).body());
+        assertEquals(3, MockUtil.stopRecording());
+
+        target.resetAll();
+        MockUtil.startReplay(cassette.toString());
+
+        HttpResponse<byte[]> user = call("GET", "/users/1", null);
+        assertEquals(200, user.statusCode());
+        assertEquals("{\"name\":\"张三\"}", text(user));
+        assertEquals("real", user.headers().firstValue("X-Source").orElse(null));
+        assertEquals("true", user.headers().firstValue("X-Mock-Replay").orElse(null));
+
+        HttpResponse<byte[]> order = call("POST", "/orders", "{\"sku\":\"a\"}");
+        assertEquals(201, order.statusCode());
+        assertEquals("{\"id\":7}", text(order));
+        // 请求体不同，指纹不命中
+        assertEquals(404, call("POST", "/orders", "{\"sku\":\"b\"}").statusCode());
+
+        assertArrayEquals(binary, call("GET", "/files/1", null).body());
+        assertEquals(0, target.getAllServeEvents().size());
+    }
+
+    @Test
+    @DisplayName("同一指纹按录制顺序返回，最后一条重复使用")
+    void repeatedFingerprint(@TempDir Path dir) throws Exception {
+        Path cassette = dir.resolve("cassette.jsonl");
+        MockUtil.startRecording(target.baseUrl(), cassette.toString());
+        for (int i = 1; i <= 2; i++) {
+            target.stubFor(get(urlEqualTo("/counter")).willReturn(aResponse().withBody("v" + i)));
+            call("GET", "/counter", null);
+        }
+        MockUtil.stopRecording();
+
+        MockUtil.startReplay(cassette.toString());
+        assertEquals("v1", text(call("GET", "/counter", null)));
+        assertEquals("v2", text(call("GET", "/counter", null)));
+        assertEquals("v2", text(call("GET", "/counter", null)));
+    }
+
+    @Test
+    @DisplayName("命中过的记录从缓存返回，不再读取磁带文件")
+    void replayFromCache(@TempDir Path dir) throws Exception {
+        Path cassette = dir.resolve("cassette.jsonl");
+        target.stubFor(get(urlEqualTo("/cached")).willReturn(aResponse().withBody("first")));
+        MockUtil.startRecording(target.baseUrl(), cassette.toString());
+        call("GET", "/cached", null);
+        MockUtil.stopRecording();
+
+        MockUtil.startReplay(cassette.toString());
+        assertEquals("first", text(call("GET", "/cached", null)));
+
+        // 文件内容被破坏后，已缓存的响应仍可回放
+        long size = Files.size(cassette);
+        Files.write(cassette, new byte[(int) size]);
+        assertEquals("first", text(call("GET", "/cached", null)));
+    }
+
+    @Test
+    @DisplayName("录制期间被桩命中的请求不写入磁带")
+    void stubbedRequestsNotRecorded(@TempDir Path dir) throws Exception {
+        Path cassette = dir.resolve("cassette.jsonl");
+        target.stubFor(get(urlEqualTo("/real")).willReturn(aResponse().withBody("real")));
+        MockUtil.stubGet("/stubbed", "{\"from\":\"stub\"}", 200);
+
+        MockUtil.startRecording(target.baseUrl(), cassette.toString());
+        assertEquals("real", text(call("GET", "/real", null)));
+        assertEquals("{\"from\":\"stub\"}", text(call("GET", "/stubbed", null)));
+        assertEquals(1, MockUtil.stopRecording());
+
+        try (MockCassette opened = MockCassette.open(cassette.toString())) {
+            assertEquals(1, opened.getRecordCount());
+            assertNotNull(opened.lookup("GET", "/real", new byte[0]));
+            assertNull(opened.lookup("GET", "/stubbed", new byte[0]));
+        }
+    }
+}
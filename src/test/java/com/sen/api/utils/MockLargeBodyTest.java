@@ -0,0 +1,185 @@
+package com.sen.api.utils;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MockLargeBody 单元测试
+ */
+@DisplayName("MockLargeBody 大响应体测试")
+class MockLargeBodyTest {
+
+    private static final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MockUtil.startMockServer(port);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockUtil.stopMockServer();
+    }
+
+    @AfterEach
+    void reset() {
+        MockUtil.reset();
+    }
+
+    private static HttpResponse<byte[]> download(String url, String range) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(MockUtil.getMockServerUrl() + url));
+        if (range != null) {
+            request.header("Range", range);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static byte[] read(MockLargeBody.BodySource source, long offset, long length) throws IOException {
+        try (InputStream in = source.open(offset, length)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    @DisplayName("Range 解析：起止区间、开放区间、后缀区间")
+    void parseRange() {
+        assertArrayEquals(new long[]{0, 99}, MockLargeBody.parseRange("bytes=0-99", 1000));
+        assertArrayEquals(new long[]{900, 999}, MockLargeBody.parseRange("bytes=900-", 1000));
+        assertArrayEquals(new long[]{990, 999}, MockLargeBody.parseRange(" bytes= 990 - 5000 ", 1000));
+        // bytes=-N 为最后N个字节，N 超过总长时返回整个响应体
+        assertArrayEquals(new long[]{900, 999}, MockLargeBody.parseRange("bytes=-100", 1000));
+        assertArrayEquals(new long[]{0, 999}, MockLargeBody.parseRange("bytes=-5000", 1000));
+    }
+
+    @Test
+    @DisplayName("Range 解析：多区间和无法识别的格式返回完整响应体，越界返回 null")
+    void parseRangeFallbacks() {
+        assertEquals(0, MockLargeBody.parseRange("bytes=0-9,20-29", 1000).length);
+        assertEquals(0, MockLargeBody.parseRange("items=0-9", 1000).length);
+        assertEquals(0, MockLargeBody.parseRange("bytes=abc", 1000).length);
+        assertEquals(0, MockLargeBody.parseRange("bytes=a-b", 1000).length);
+
+        assertNull(MockLargeBody.parseRange("bytes=1000-", 1000));
+        assertNull(MockLargeBody.parseRange("bytes=5000-6000", 1000));
+        assertNull(MockLargeBody.parseRange("bytes=10-5", 1000));
+        assertNull(MockLargeBody.parseRange("bytes=-0", 1000));
+        assertNull(MockLargeBody.parseRange("bytes=0-0", 0));
+    }
+
+    @Test
+    @DisplayName("合成响应体：同一种子同一位置字节相同，任意偏移读取与整体读取一致")
+    void syntheticDeterministic() throws IOException {
+        MockLargeBody.BodySource source = MockLargeBody.syntheticSource(10_000, 7);
+        byte[] full = read(source, 0, 10_000);
+        assertEquals(10_000, full.length);
+        assertArrayEquals(full, read(MockLargeBody.syntheticSource(10_000, 7), 0, 10_000));
+
+        for (long offset : new long[]{1, 7, 8, 9, 4093, 9_990}) {
+            byte[] part = read(source, offset, 10);
+            assertArrayEquals(Arrays.copyOfRange(full, (int) offset, (int) offset + 10), part, "offset " + offset);
+        }
+        // 逐字节读取与块读取一致
+        try (InputStream in = source.open(3, 20)) {
+            for (int i = 0; i < 20; i++) {
+                assertEquals(full[3 + i] & 0xFF, in.read());
+            }
+            assertEquals(-1, in.read());
+        }
+
+        byte[] other = read(MockLargeBody.syntheticSource(10_000, 8), 0, 10_000);
+        assertFalse(Arrays.equals(full, other));
+        // 内容不是常量：256 个取值都应出现
+        assertEquals(256, Arrays.stream(toInts(full)).distinct().count());
+    }
+
+    private static int[] toInts(byte[] bytes) {
+        int[] values = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            values[i] = bytes[i] & 0xFF;
+        }
+        return values;
+    }
+
+    @Test
+    @DisplayName("合成下载接口：完整下载、区间下载与多次请求内容一致")
+    void syntheticDownload() throws Exception {
+        MockUtil.stubSyntheticDownload("/files/big.bin", "big.bin", 100_000, 42);
+        byte[] expected = read(MockLargeBody.syntheticSource(100_000, 42), 0, 100_000);
+
+        HttpResponse<byte[]> full = download("/files/big.bin", null);
+        assertEquals(200, full.statusCode());
+        assertArrayEquals(expected, full.body());
+        assertEquals("bytes", full.headers().firstValue("Accept-Ranges").orElse(null));
+        assertArrayEquals(expected, download("/files/big.bin", null).body());
+
+        HttpResponse<byte[]> middle = download("/files/big.bin", "bytes=1000-1999");
+        assertEquals(206, middle.statusCode());
+        assertEquals("bytes 1000-1999/100000", middle.headers().firstValue("Content-Range").orElse(null));
+        assertArrayEquals(Arrays.copyOfRange(expected, 1000, 2000), middle.body());
+
+        HttpResponse<byte[]> suffix = download("/files/big.bin", "bytes=-10");
+        assertEquals(206, suffix.statusCode());
+        assertEquals("bytes 99990-99999/100000", suffix.headers().firstValue("Content-Range").orElse(null));
+        assertArrayEquals(Arrays.copyOfRange(expected, 99_990, 100_000), suffix.body());
+
+        HttpResponse<byte[]> multiple = download("/files/big.bin", "bytes=0-9,20-29");
+        assertEquals(200, multiple.statusCode());
+        assertArrayEquals(expected, multiple.body());
+    }
+
+    @Test
+    @DisplayName("区间越界返回 416 和 Content-Range: bytes */总长")
+    void unsatisfiableRange() throws Exception {
+        MockUtil.stubSyntheticDownload("/files/small.bin", "small.bin", 1000, 1);
+
+        for (String range : new String[]{"bytes=1000-", "bytes=5000-6000", "bytes=-0"}) {
+            HttpResponse<byte[]> response = download("/files/small.bin", range);
+            assertEquals(416, response.statusCode(), range);
+            assertEquals("bytes */1000", response.headers().firstValue("Content-Range").orElse(null), range);
+            assertEquals(0, response.body().length, range);
+        }
+    }
+
+    @Test
+    @DisplayName("文件下载接口：完整下载与区间下载")
+    void fileDownload(@TempDir Path dir) throws Exception {
+        byte[] content = new byte[50_000];
+        new Random(3).nextBytes(content);
+        Path file = dir.resolve("report.bin");
+        Files.write(file, content);
+        MockUtil.stubFileDownload("/files/report.bin", file.toString());
+
+        HttpResponse<byte[]> full = download("/files/report.bin", null);
+        assertEquals(200, full.statusCode());
+        assertArrayEquals(content, full.body());
+
+        HttpResponse<byte[]> tail = download("/files/report.bin", "bytes=49000-");
+        assertEquals(206, tail.statusCode());
+        assertEquals("bytes 49000-49999/50000", tail.headers().firstValue("Content-Range").orElse(null));
+        assertArrayEquals(Arrays.copyOfRange(content, 49_000, 50_000), tail.body());
+
+        assertEquals(416, download("/files/report.bin", "bytes=50000-").statusCode());
+    }
+}
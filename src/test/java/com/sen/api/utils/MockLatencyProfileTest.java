@@ -0,0 +1,275 @@
+package com.sen.api.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.tomakehurst.wiremock.http.ChunkedDribbleDelay;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.http.UniformDistribution;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.ToLongFunction;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MockLatencyProfile 单元测试
+ * 分布采样使用固定种子，中位数和尾部分位数与配置参数的理论值比较
+ */
+@DisplayName("MockLatencyProfile 延迟画像测试")
+class MockLatencyProfileTest {
+
+    private static final int SAMPLES = 100_000;
+
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MockUtil.startMockServer(port);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockUtil.stopMockServer();
+    }
+
+    @AfterEach
+    void reset() {
+        MockUtil.reset();
+    }
+
+    private static long[] sample(ToLongFunction<Random> distribution) {
+        Random random = new Random(42);
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = distribution.applyAsLong(random);
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.ceil(p * sorted.length) - 1];
+    }
+
+    private static void assertNear(double expected, double actual, double relativeTolerance, String what) {
+        assertEquals(expected, actual, expected * relativeTolerance, what);
+    }
+
+    @Test
+    @DisplayName("对数正态分布：中位数为 median，p99 为 median * e^(2.326 * sigma)")
+    void lognormal() {
+        MockLatencyProfile.LogNormalDelay delay = new MockLatencyProfile.LogNormalDelay(120, 0.5);
+        long[] samples = sample(delay::sampleMillis);
+
+        assertNear(120, percentile(samples, 0.5), 0.03, "p50");
+        assertNear(120 * Math.exp(2.3263 * 0.5), percentile(samples, 0.99), 0.05, "p99");
+        assertTrue(samples[0] >= 0);
+    }
+
+    @Test
+    @DisplayName("帕累托分布：中位数为 scale * 2^(1/shape)，p99 为 scale * 100^(1/shape)，max 截断尾部")
+    void pareto() {
+        MockLatencyProfile.ParetoDelay delay = new MockLatencyProfile.ParetoDelay(50, 2.0, 0);
+        long[] samples = sample(delay::sampleMillis);
+
+        assertEquals(50, samples[0]);
+        assertNear(50 * Math.sqrt(2), percentile(samples, 0.5), 0.03, "p50");
+        assertNear(500, percentile(samples, 0.99), 0.05, "p99");
+
+        MockLatencyProfile.ParetoDelay capped = new MockLatencyProfile.ParetoDelay(50, 2.0, 300);
+        long[] cappedSamples = sample(capped::sampleMillis);
+        assertEquals(300, cappedSamples[SAMPLES - 1]);
+        assertEquals(300, percentile(cappedSamples, 0.99));
+        assertNear(50 * Math.sqrt(2), percentile(cappedSamples, 0.5), 0.03, "capped p50");
+    }
+
+    @Test
+    @DisplayName("经验直方图：只返回样本中出现过的值，频率与样本一致")
+    void empirical() {
+        MockLatencyProfile.EmpiricalDelay delay =
+            MockLatencyProfile.EmpiricalDelay.fromSamples(List.of(10, 10, 10, 20, 100));
+        long[] samples = sample(delay::sampleMillis);
+
+        long tens = Arrays.stream(samples).filter(v -> v == 10).count();
+        long twenties = Arrays.stream(samples).filter(v -> v == 20).count();
+        long hundreds = Arrays.stream(samples).filter(v -> v == 100).count();
+        assertEquals(SAMPLES, tens + twenties + hundreds);
+        assertNear(0.6, (double) tens / SAMPLES, 0.02, "P(10)");
+        assertNear(0.2, (double) twenties / SAMPLES, 0.05, "P(20)");
+        assertNear(0.2, (double) hundreds / SAMPLES, 0.05, "P(100)");
+        assertEquals(10, percentile(samples, 0.5));
+        assertEquals(100, percentile(samples, 0.99));
+    }
+
+    @Test
+    @DisplayName("经验直方图从延迟日志导入：单值行、预分桶行和注释")
+    void empiricalFromFile(@TempDir Path dir) throws IOException {
+        Path log = dir.resolve("latency.log");
+        Files.write(log, ("# 延迟日志\n"
+            + "15ms\n"
+            + "15\n"
+            + "\n"
+            + "40,2\n"
+            + "900 6\n").getBytes(StandardCharsets.UTF_8));
+        MockLatencyProfile.EmpiricalDelay delay = MockLatencyProfile.EmpiricalDelay.fromFile(log.toString());
+        long[] samples = sample(delay::sampleMillis);
+
+        assertEquals(15, samples[0]);
+        assertEquals(900, samples[SAMPLES - 1]);
+        assertNear(0.2, (double) Arrays.stream(samples).filter(v -> v == 15).count() / SAMPLES, 0.05, "P(15)");
+        assertEquals(900, percentile(samples, 0.5));
+    }
+
+    @Test
+    @DisplayName("带宽限速：分块数为 ceil(字节数/chunkSize)，总时长为 字节数/带宽")
+    void bandwidth() {
+        MockLatencyProfile profile = new MockLatencyProfile().bandwidth(16384, 1024);
+        ResponseDefinition definition = applied(profile, 40_000);
+        ChunkedDribbleDelay dribble = definition.getChunkedDribbleDelay();
+        assertEquals(40, dribble.getNumberOfChunks());
+        assertEquals(40_000 * 1000 / 16384, dribble.getTotalDuration());
+        assertNull(definition.getDelayDistribution());
+
+        // 响应体小于一个分块时至少一块、至少 1ms
+        ChunkedDribbleDelay small = applied(new MockLatencyProfile().bandwidth(1_000_000, 0), 10)
+            .getChunkedDribbleDelay();
+        assertEquals(1, small.getNumberOfChunks());
+        assertEquals(1, small.getTotalDuration());
+
+        assertNull(applied(new MockLatencyProfile().bandwidth(16384, 1024), 0).getChunkedDribbleDelay());
+    }
+
+    private static ResponseDefinition applied(MockLatencyProfile profile, long bodyBytes) {
+        var builder = aResponse().withStatus(200);
+        profile.applyTo(builder, bodyBytes);
+        return builder.build();
+    }
+
+    @Test
+    @DisplayName("限速下发的响应耗时不低于 字节数/带宽")
+    void bandwidthDelaysResponse() throws Exception {
+        String body = "x".repeat(4000);
+        MockUtil.stubWithLatency("GET", "/slow", body, 200, new MockLatencyProfile().bandwidth(10_000, 500));
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(URI.create(MockUtil.getMockServerUrl() + "/slow")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(body, response.body());
+        assertTrue(elapsedMs >= 400, "elapsed " + elapsedMs + "ms");
+    }
+
+    @Test
+    @DisplayName("从YAML解析各分布的参数和带宽配置")
+    @SuppressWarnings("unchecked")
+    void fromYaml() throws IOException {
+        String yaml = "lognormal:\n"
+            + "  latency: {distribution: lognormal, median: 120, sigma: 0.5}\n"
+            + "  bandwidth: {bytesPerSecond: 16384, chunkSize: 2048}\n"
+            + "pareto:\n"
+            + "  latency: {distribution: Pareto, scale: 30, shape: 1.5, max: 5000}\n"
+            + "uniform:\n"
+            + "  latency: {distribution: uniform, min: 10, max: 20}\n"
+            + "empirical:\n"
+            + "  latency: {distribution: empirical, samples: [5, 5, 7]}\n"
+            + "fixed:\n"
+            + "  latency: {delay: 250}\n"
+            + "defaults:\n"
+            + "  latency: {distribution: lognormal}\n"
+            + "  bandwidth: {bytesPerSecond: 100}\n"
+            + "unknown:\n"
+            + "  latency: {distribution: gamma}\n";
+        Map<String, Map<String, Map<String, Object>>> config =
+            new ObjectMapper(new YAMLFactory()).readValue(yaml, Map.class);
+
+        MockLatencyProfile lognormal = parse(config.get("lognormal"));
+        MockLatencyProfile.LogNormalDelay lognormalDelay =
+            (MockLatencyProfile.LogNormalDelay) lognormal.getDistribution();
+        assertEquals(120, lognormalDelay.getMedian());
+        assertEquals(0.5, lognormalDelay.getSigma());
+        assertEquals(16384, lognormal.getBytesPerSecond());
+        assertEquals(2048, lognormal.getChunkSize());
+
+        MockLatencyProfile.ParetoDelay pareto =
+            (MockLatencyProfile.ParetoDelay) parse(config.get("pareto")).getDistribution();
+        assertEquals(30, pareto.getScale());
+        assertEquals(1.5, pareto.getShape());
+        assertEquals(5000, pareto.getMax());
+
+        UniformDistribution uniform = (UniformDistribution) parse(config.get("uniform")).getDistribution();
+        for (int i = 0; i < 100; i++) {
+            long sample = uniform.sampleMillis();
+            assertTrue(sample >= 10 && sample <= 20, String.valueOf(sample));
+        }
+
+        MockLatencyProfile.EmpiricalDelay empirical =
+            (MockLatencyProfile.EmpiricalDelay) parse(config.get("empirical")).getDistribution();
+        long[] samples = sample(empirical::sampleMillis);
+        assertEquals(5, samples[0]);
+        assertEquals(7, samples[SAMPLES - 1]);
+
+        MockLatencyProfile fixed = parse(config.get("fixed"));
+        assertEquals(250, fixed.getDistribution().sampleMillis());
+        assertEquals(0, fixed.getBytesPerSecond());
+
+        MockLatencyProfile defaults = parse(config.get("defaults"));
+        MockLatencyProfile.LogNormalDelay defaultDelay =
+            (MockLatencyProfile.LogNormalDelay) defaults.getDistribution();
+        assertEquals(100, defaultDelay.getMedian());
+        assertEquals(0.1, defaultDelay.getSigma());
+        assertEquals(100, defaults.getBytesPerSecond());
+        assertEquals(1024, defaults.getChunkSize());
+
+        assertThrows(IllegalArgumentException.class, () -> parse(config.get("unknown")));
+    }
+
+    private static MockLatencyProfile parse(Map<String, Map<String, Object>> node) {
+        return MockLatencyProfile.fromConfig(node.get("latency"), node.get("bandwidth"));
+    }
+
+    @Test
+    @DisplayName("mock-config.yml 中的 latency 节点生效")
+    void loadFromMockConfig(@TempDir Path dir) throws Exception {
+        Path yaml = dir.resolve("mocks.yml");
+        Files.write(yaml, ("mocks:\n"
+            + "  - url: /delayed\n"
+            + "    response: '{\"ok\":true}'\n"
+            + "    latency:\n"
+            + "      delay: 300\n").getBytes(StandardCharsets.UTF_8));
+        MockUtil.loadMockFromYaml(yaml.toString());
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(URI.create(MockUtil.getMockServerUrl() + "/delayed")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("{\"ok\":true}", response.body());
+        assertTrue(elapsedMs >= 300, "elapsed " + elapsedMs + "ms");
+    }
+}
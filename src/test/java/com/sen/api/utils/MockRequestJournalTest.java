@@ -0,0 +1,94 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.client.VerificationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MockRequestJournal 单元测试
+ */
+@DisplayName("MockRequestJournal 请求日志测试")
+class MockRequestJournalTest {
+
+    @AfterEach
+    void tearDown() {
+        MockUtil.configureJournal(MockRequestJournal.DEFAULT_CAPACITY, 1.0);
+    }
+
+    @Test
+    @DisplayName("测试计数名额用完后新URL计入OTHER且标记为未跟踪")
+    void overflow() {
+        MockRequestJournal journal = new MockRequestJournal(10, 1.0, 2);
+        journal.record("GET", "/a", 200);
+        journal.record("GET", "/b", 200);
+        journal.record("GET", "/c", 200);
+        journal.record("GET", "/c", 200);
+        journal.record("GET", "/a", 200);
+
+        assertEquals(2, journal.getCount("GET", "/a"));
+        assertEquals(0, journal.getCount("GET", "/c"));
+        assertEquals(2, journal.getCounts().get(MockRequestJournal.OTHER_KEY));
+        assertTrue(journal.isOverflowed());
+        assertEquals(2, journal.getOverflowCount());
+        assertTrue(journal.isTracked("GET", "/a"));
+        assertFalse(journal.isTracked("GET", "/c"));
+
+        journal.reset();
+        assertFalse(journal.isOverflowed());
+        assertTrue(journal.isTracked("GET", "/c"));
+    }
+
+    @Test
+    @DisplayName("测试并发记录时单独计数的URL种类不超过上限")
+    void boundedUnderContention() throws Exception {
+        MockRequestJournal journal = new MockRequestJournal(100, 0.0, 50);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    journal.record("GET", "/u" + (i * 8 + offset) % 500, 200);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long total = journal.getCounts().values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(8000, total);
+        assertEquals(51, journal.getCounts().size());
+        assertEquals(journal.getCounts().get(MockRequestJournal.OTHER_KEY), journal.getOverflowCount());
+    }
+
+    @Test
+    @DisplayName("测试未跟踪的URL验证时明确报错而不是报收到0次")
+    void verifyUntrackedUrl() {
+        MockUtil.configureJournal(10, 1.0, 1);
+        MockRequestJournal journal = MockUtil.getRequestJournal();
+        journal.record("GET", "/tracked", 200);
+        journal.record("GET", "/untracked", 200);
+
+        MockUtil.verifyGetCalled("/tracked", 1);
+        VerificationException e = assertThrows(VerificationException.class,
+            () -> MockUtil.verifyGetCalled("/untracked", 1));
+        assertTrue(e.getMessage().contains("not tracked"), e.getMessage());
+        assertTrue(e.getMessage().contains("limit 1"), e.getMessage());
+    }
+}
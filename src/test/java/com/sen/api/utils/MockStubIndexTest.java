@@ -0,0 +1,107 @@
+package com.sen.api.utils;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MockStubIndex 单元测试
+ */
+@DisplayName("MockStubIndex 索引桩测试")
+class MockStubIndexTest {
+
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MockUtil.startMockServer(port);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockUtil.stopMockServer();
+    }
+
+    @AfterEach
+    void reset() {
+        MockUtil.reset();
+        MockUtil.clearScenarios();
+    }
+
+    private static HttpResponse<String> call(String method, String url) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(MockUtil.getMockServerUrl() + url))
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("之后注册的常规桩覆盖索引桩，再注册索引桩又覆盖回来")
+    void laterStubWins() throws Exception {
+        MockUtil.stubIndexed("GET", "/users/1", "{\"from\":\"index\"}", 200, 0);
+        assertEquals("{\"from\":\"index\"}", call("GET", "/users/1").body());
+
+        MockUtil.stubInternalServerError("/users/1");
+        assertEquals(500, call("GET", "/users/1").statusCode());
+
+        MockUtil.stubGet("/users/1", "{\"from\":\"stub\"}", 200);
+        assertEquals("{\"from\":\"stub\"}", call("GET", "/users/1").body());
+
+        MockUtil.stubIndexed("GET", "/users/1", "{\"from\":\"index2\"}", 200, 0);
+        assertEquals("{\"from\":\"index2\"}", call("GET", "/users/1").body());
+    }
+
+    @Test
+    @DisplayName("常规桩只遮蔽相同方法，前缀桩下的字面URL交给常规桩")
+    void shadowScope() throws Exception {
+        MockUtil.stubIndexed(null, "/orders", "{\"from\":\"index\"}", 200, 0);
+        MockUtil.stubIndexedPrefix("GET", "/items/", "{\"from\":\"prefix\"}", 200);
+        MockUtil.stubGet("/orders", "{\"from\":\"stub\"}", 200);
+        MockUtil.stubGet("/items/7", "{\"from\":\"stub\"}", 200);
+
+        assertEquals("{\"from\":\"stub\"}", call("GET", "/orders").body());
+        assertEquals("{\"from\":\"index\"}", call("POST", "/orders").body());
+        assertEquals("{\"from\":\"stub\"}", call("GET", "/items/7").body());
+        assertEquals("{\"from\":\"prefix\"}", call("GET", "/items/8").body());
+    }
+
+    @Test
+    @DisplayName("场景保存和加载包含YAML加载的索引桩及覆盖关系")
+    void scenarioIncludesIndex(@TempDir Path dir) throws Exception {
+        Path yaml = dir.resolve("mocks.yml");
+        Files.write(yaml, ("mocks:\n"
+            + "  - url: /a\n"
+            + "    response: '{\"from\":\"yaml\"}'\n"
+            + "  - url: /b\n"
+            + "    response: '{\"from\":\"yaml\"}'\n").getBytes(StandardCharsets.UTF_8));
+        MockUtil.loadMockFromYaml(yaml.toString());
+        MockUtil.stubGet("/b", "{\"from\":\"stub\"}", 200);
+        MockUtil.saveScenario("normal");
+
+        MockUtil.reset();
+        assertEquals(404, call("GET", "/a").statusCode());
+
+        MockUtil.loadScenario("normal");
+        assertEquals("{\"from\":\"yaml\"}", call("GET", "/a").body());
+        assertEquals("{\"from\":\"stub\"}", call("GET", "/b").body());
+    }
+}
@@ -0,0 +1,86 @@
+package com.sen.api.utils;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MockUtil 单元测试
+ */
+@DisplayName("MockUtil Mock服务测试")
+class MockUtilTest {
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MockUtil.startMockServer(port);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockUtil.stopMockServer();
+    }
+
+    @AfterEach
+    void reset() {
+        MockUtil.reset();
+        MockUtil.clearABExperiments();
+    }
+
+    @Test
+    @DisplayName("并发轮询AB实验时各变体次数均等")
+    void roundRobinUnderConcurrency() throws Exception {
+        MockUtil.createABExperiment("exp", "/ab")
+            .addVariant("A", "{\"v\":\"A\"}", 200, 1)
+            .addVariant("B", "{\"v\":\"B\"}", 200, 1)
+            .setStrategy("round_robin");
+
+        int threads = 8;
+        int perThread = 25;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int j = 0; j < perThread; j++) {
+                    MockUtil.applyABExperiment("exp");
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (StubMapping mapping : WireMock.listAllStubMappings().getMappings()) {
+            String variant = mapping.getResponse().getHeaders().getHeader("X-AB-Variant").firstValue();
+            counts.merge(variant, 1, Integer::sum);
+        }
+        assertEquals(threads * perThread / 2, counts.get("A"));
+        assertEquals(threads * perThread / 2, counts.get("B"));
+    }
+}
@@ -0,0 +1,202 @@
+package com.sen.api.utils;
+
+import com.sen.api.configs.ApiProperties;
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.AllureResultsWriter;
+import io.qameta.allure.model.TestResult;
+import io.qameta.allure.model.TestResultContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PerformanceMode / AllureAttachmentWriter 单元测试
+ * 附件写入内存中的 AllureResultsWriter，不产生 allure-results 文件
+ */
+@DisplayName("PerformanceMode 性能模式测试")
+class PerformanceModeTest {
+
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private volatile long writeDelayMs;
+    private AllureLifecycle original;
+    private AllureLifecycle lifecycle;
+    private String uuid;
+
+    @BeforeEach
+    void setUp() {
+        original = Allure.getLifecycle();
+        lifecycle = new AllureLifecycle(new AllureResultsWriter() {
+            @Override
+            public void write(TestResult testResult) {
+            }
+
+            @Override
+            public void write(TestResultContainer container) {
+            }
+
+            @Override
+            public void write(String source, InputStream attachment) {
+                try {
+                    if (writeDelayMs > 0) {
+                        Thread.sleep(writeDelayMs);
+                    }
+                    written.add(new String(attachment.readAllBytes(), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Allure.setLifecycle(lifecycle);
+        uuid = UUID.randomUUID().toString();
+        lifecycle.scheduleTestCase(new TestResult().setUuid(uuid).setName("performance"));
+        lifecycle.startTestCase(uuid);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lifecycle.stopTestCase(uuid);
+        lifecycle.writeTestCase(uuid);
+        Allure.setLifecycle(original);
+        PerformanceMode.configure(new ApiProperties.PerformanceConfig());
+    }
+
+    private static void enable(double passSampleRate) {
+        ApiProperties.PerformanceConfig config = new ApiProperties.PerformanceConfig();
+        config.setEnabled(true);
+        config.setPassSampleRate(passSampleRate);
+        config.setMaxBodyChars(100);
+        PerformanceMode.configure(config);
+    }
+
+    private List<String> finish(boolean passed) {
+        PerformanceMode.finishCase(passed);
+        assertTrue(AllureAttachmentWriter.flush(10_000));
+        return written;
+    }
+
+    @Test
+    @DisplayName("只输出失败用例：通过的用例附件丢弃，失败的用例全部输出")
+    void failureOnly() {
+        enable(0);
+        PerformanceMode.startCase();
+        PerformanceMode.attach("passed", "ok");
+        assertFalse(PerformanceMode.finishCase(true));
+        assertTrue(finish(true).isEmpty());
+
+        PerformanceMode.startCase();
+        for (int i = 0; i < 80; i++) {
+            PerformanceMode.attach("exchange-" + i, "body-" + i);
+        }
+        assertTrue(PerformanceMode.finishCase(false));
+        assertTrue(AllureAttachmentWriter.flush(10_000));
+        // 用例内不受暂存上限影响，最早的请求也保留
+        assertEquals(80, written.size());
+        assertTrue(written.contains("body-0"));
+    }
+
+    @Test
+    @DisplayName("未调用 startCase 时只暂存最近的条目")
+    void pendingCapWithoutStart() {
+        enable(0);
+        for (int i = 0; i < 80; i++) {
+            PerformanceMode.attach("exchange-" + i, "body-" + i);
+        }
+        assertEquals(50, finish(false).size());
+        assertFalse(written.contains("body-29"));
+        assertTrue(written.contains("body-30"));
+    }
+
+    @Test
+    @DisplayName("通过的用例按比例抽样输出")
+    void sampling() {
+        enable(0.25);
+        int kept = 0;
+        int cases = 8000;
+        for (int i = 0; i < cases; i++) {
+            PerformanceMode.startCase();
+            if (PerformanceMode.finishCase(true)) {
+                kept++;
+            }
+        }
+        // 二项分布标准差约 39，允许 5 倍
+        assertEquals(cases * 0.25, kept, 200);
+
+        enable(1);
+        PerformanceMode.startCase();
+        PerformanceMode.attach("sampled", "x".repeat(500));
+        assertEquals(1, finish(true).size());
+        assertTrue(written.get(0).startsWith("x".repeat(100) + "... (truncated, 500 chars)"));
+    }
+
+    @Test
+    @DisplayName("未开启性能模式时附件立即提交，不截断")
+    void disabled() {
+        PerformanceMode.startCase();
+        PerformanceMode.attach("direct", "y".repeat(500));
+        assertTrue(AllureAttachmentWriter.flush(10_000));
+        assertEquals(List.of("y".repeat(500)), written);
+        assertTrue(PerformanceMode.finishCase(true));
+    }
+
+    @Test
+    @DisplayName("flush 等待已提交的附件全部写完")
+    void flushWaitsForSubmitted() {
+        writeDelayMs = 2;
+        for (int i = 0; i < 200; i++) {
+            AllureAttachmentWriter.attach("a-" + i, "c-" + i);
+        }
+        assertTrue(AllureAttachmentWriter.flush(30_000));
+        assertEquals(200, written.size());
+        assertTrue(AllureAttachmentWriter.flush(0));
+    }
+
+    @Test
+    @DisplayName("更换线程池时并发提交的附件不丢失")
+    void attachWhileReconfiguring() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        int perThread = 2000;
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                // Allure 按线程维护当前用例，附件登记到同一个用例
+                lifecycle.setCurrentTestCase(uuid);
+                for (int i = 0; i < perThread; i++) {
+                    AllureAttachmentWriter.attach("concurrent", "body");
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        Thread reconfigure = new Thread(() -> {
+            while (running.get()) {
+                AllureAttachmentWriter.configure(4);
+            }
+        });
+        reconfigure.start();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        running.set(false);
+        reconfigure.join();
+        AllureAttachmentWriter.configure(1000);
+
+        assertTrue(AllureAttachmentWriter.flush(10_000));
+        assertEquals(4 * perThread, written.size());
+    }
+}
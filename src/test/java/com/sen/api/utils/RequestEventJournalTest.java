@@ -0,0 +1,106 @@
+package com.sen.api.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RequestEventJournal / RequestEventJournalReader 单元测试
+ */
+@DisplayName("RequestEventJournal 请求事件日志测试")
+class RequestEventJournalTest {
+
+    @Test
+    @DisplayName("写入后读取：字段、URL模板、traceId 与字节数一致")
+    void roundTrip(@TempDir Path dir) {
+        Path file = dir.resolve("requests.journal");
+        String requestBody = "{\"name\":\"张三\"}";
+        try (RequestEventJournal journal = new RequestEventJournal(file)) {
+            journal.begin("POST", "http://localhost:8080/users/123/orders/550e8400-e29b-41d4-a716-446655440000?x=1",
+                RequestEventJournal.utf8Length(requestBody));
+            journal.end(201, RequestEventJournal.utf8Length("✓ok"), 1500, "00f067aa0ba902b7");
+            journal.begin("GET", "/health", 0);
+            journal.end(503, 0, 2500, "req-42");
+        }
+
+        try (RequestEventJournalReader reader = new RequestEventJournalReader(file)) {
+            assertEquals(2, reader.getRecordCount());
+            List<RequestEventJournalReader.Event> events = reader.readAll();
+            RequestEventJournalReader.Event first = events.get(0);
+            assertEquals("POST", first.getMethod());
+            assertEquals("/users/{id}/orders/{id}", first.getUrl());
+            assertEquals(201, first.getStatus());
+            assertEquals(1500, first.getDurationMicros());
+            assertEquals(requestBody.getBytes(StandardCharsets.UTF_8).length, first.getRequestBytes());
+            assertEquals("✓ok".getBytes(StandardCharsets.UTF_8).length, first.getResponseBytes());
+            assertEquals("00f067aa0ba902b7", first.getTraceId());
+            assertTrue(first.getTimestamp() > 0);
+
+            RequestEventJournalReader.Event second = events.get(1);
+            assertEquals("/health", second.getUrl());
+            assertEquals("req-42", second.getTraceId());
+
+            List<RequestEventJournalReader.Summary> summaries = reader.summarize();
+            assertEquals(2, summaries.size());
+            assertEquals(1, summaries.stream().mapToInt(RequestEventJournalReader.Summary::getErrors).sum());
+        }
+    }
+
+    @Test
+    @DisplayName("UTF-8 字节数：多字节字符与代理对")
+    void utf8Length() {
+        for (String value : new String[]{"", "abc", "中文", "é", "😀x", "\uD800"}) {
+            assertEquals(value.getBytes(StandardCharsets.UTF_8).length, RequestEventJournal.utf8Length(value), value);
+        }
+        assertEquals(0, RequestEventJournal.utf8Length(null));
+    }
+
+    @Test
+    @DisplayName("并发写入时关闭：写入不抛异常，关闭后的写入被丢弃")
+    void closeWhileWriting(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("requests.journal");
+        RequestEventJournal journal = new RequestEventJournal(file);
+        int threads = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch started = new CountDownLatch(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                started.countDown();
+                for (int i = 0; i < 200_000; i++) {
+                    journal.begin("GET", "/items/" + thread, 0);
+                    journal.end(200, 10, 100, null);
+                }
+                return null;
+            }));
+        }
+        started.await();
+        Thread.sleep(20);
+        journal.close();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        long written = journal.getRecordCount();
+        journal.append(System.currentTimeMillis(), 1, 0, 0, 0, 200, 0, 0, 0);
+        assertEquals(0, journal.intern("after-close"));
+
+        try (RequestEventJournalReader reader = new RequestEventJournalReader(file)) {
+            assertEquals(written, reader.getRecordCount());
+            assertEquals(written, reader.readAll().size());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.sen.api.utils;
+
+import com.sen.api.configs.ApiProperties;
+import com.sen.api.utils.YamlDslTestEngine.DslTestResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RunCheckpoint 单元测试
+ */
+@DisplayName("RunCheckpoint 断点续跑测试")
+class RunCheckpointTest {
+
+    @AfterEach
+    void disable() {
+        RunCheckpoint.configure(new ApiProperties.CheckpointConfig());
+    }
+
+    private static void enable(Path file, boolean resume) {
+        ApiProperties.CheckpointConfig checkpoint = new ApiProperties.CheckpointConfig();
+        checkpoint.setEnabled(true);
+        checkpoint.setFile(file.toString());
+        checkpoint.setResume(resume);
+        checkpoint.setFlushIntervalMs(10);
+        RunCheckpoint.configure(checkpoint);
+    }
+
+    private static Map<String, String> vars(String... keyValues) {
+        Map<String, String> vars = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            vars.put(keyValues[i], keyValues[i + 1]);
+        }
+        return vars;
+    }
+
+    @Test
+    @DisplayName("续跑时恢复已完成用例的结果和变量，后写覆盖先写")
+    void recordAndResume(@TempDir Path dir) {
+        Path file = dir.resolve("checkpoint.jsonl");
+        enable(file, false);
+        DslTestResult login = new DslTestResult("login");
+        login.setPassed(true);
+        login.setStatusCode(200);
+        RunCheckpoint.caseFinished("suite#login", true, RunCheckpoint.toResult(login), vars("token", "t1"));
+        RunCheckpoint.caseFinished("suite#refresh", false, null, vars("token", "t2", "userId", "7"));
+        RunCheckpoint.flush();
+
+        enable(file, true);
+        RunCheckpoint.Entry entry = RunCheckpoint.completed("suite#login");
+        assertNotNull(entry);
+        assertTrue(entry.isPassed());
+        DslTestResult restored = RunCheckpoint.convert(entry.getResult(), DslTestResult.class);
+        assertEquals("login", restored.getName());
+        assertEquals(200, restored.getStatusCode());
+        assertFalse(RunCheckpoint.completed("suite#refresh").isPassed());
+        assertNull(RunCheckpoint.completed("suite#logout"));
+        assertEquals(vars("token", "t2", "userId", "7"), RunCheckpoint.restoredVariables());
+    }
+
+    @Test
+    @DisplayName("末尾半行被截掉，续跑记录接着完整行追加")
+    void partialLine(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("checkpoint.jsonl");
+        String complete = "{\"key\":\"a\",\"passed\":true,\"vars\":{\"x\":\"1\"}}\n";
+        Files.write(file, (complete + "{\"key\":\"b\",\"pas").getBytes(StandardCharsets.UTF_8));
+
+        enable(file, true);
+        assertNotNull(RunCheckpoint.completed("a"));
+        assertNull(RunCheckpoint.completed("b"));
+        assertEquals(complete, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+        RunCheckpoint.caseFinished("b", true, null, vars("y", "2"));
+        RunCheckpoint.flush();
+        enable(file, true);
+        assertNotNull(RunCheckpoint.completed("b"));
+        assertEquals(vars("x", "1", "y", "2"), RunCheckpoint.restoredVariables());
+    }
+
+    @Test
+    @DisplayName("不续跑时清空检查点")
+    void freshRun(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("checkpoint.jsonl");
+        Files.write(file, "{\"key\":\"a\",\"passed\":true}\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("checkpoint.jsonl.shard-1"), "{\"key\":\"b\",\"passed\":true}\n".getBytes(StandardCharsets.UTF_8));
+
+        enable(file, false);
+        RunCheckpoint.clear();
+        assertNull(RunCheckpoint.completed("a"));
+        assertTrue(RunCheckpoint.restoredVariables().isEmpty());
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(dir.resolve("checkpoint.jsonl.shard-1")));
+    }
+
+    @Test
+    @DisplayName("续跑时读取全部分片的检查点")
+    void shardFiles(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("checkpoint.jsonl");
+        Files.write(dir.resolve("checkpoint.jsonl.shard-0"),
+            "{\"key\":\"a\",\"passed\":true,\"vars\":{\"x\":\"1\"}}\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("checkpoint.jsonl.shard-1"),
+            "{\"key\":\"b\",\"passed\":true,\"vars\":{\"y\":\"2\"}}\n".getBytes(StandardCharsets.UTF_8));
+
+        enable(file, true);
+        assertNotNull(RunCheckpoint.completed("a"));
+        assertNotNull(RunCheckpoint.completed("b"));
+        assertEquals(vars("x", "1", "y", "2"), RunCheckpoint.restoredVariables());
+    }
+}
@@ -0,0 +1,68 @@
+package com.sen.api.utils;
+
+import com.sen.api.utils.YamlDslTestEngine.DslSuiteResult;
+import com.sen.api.utils.YamlDslTestEngine.DslTestCase;
+import com.sen.api.utils.YamlDslTestEngine.DslTestResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ShardRunner 合并结果测试
+ */
+@DisplayName("ShardRunner 分片合并测试")
+class ShardRunnerTest {
+
+    private static DslTestCase testCase(String name, boolean skip) {
+        DslTestCase testCase = new DslTestCase();
+        testCase.setName(name);
+        testCase.setSkip(skip);
+        return testCase;
+    }
+
+    private static ShardRunner.ShardOutcome outcome(int shard, String... passed) {
+        ShardRunner.ShardOutcome outcome = new ShardRunner.ShardOutcome(shard);
+        for (String name : passed) {
+            DslTestResult result = new DslTestResult(name);
+            result.setPassed(true);
+            outcome.getResults().add(result);
+        }
+        outcome.setDone(true);
+        return outcome;
+    }
+
+    private static DslSuiteResult merge(List<ShardRunner.ShardOutcome> outcomes) {
+        List<DslTestCase> cases = new ArrayList<>(Arrays.asList(
+            testCase("a", false), testCase("b", false), testCase("c", false), testCase("skipped", true)));
+        return new ShardRunner("suite.yml", 2).merge(cases, outcomes);
+    }
+
+    @Test
+    @DisplayName("每个用例恰好返回一次时按 YAML 顺序合并")
+    void mergeInYamlOrder() {
+        DslSuiteResult merged = merge(Arrays.asList(outcome(0, "c", "a"), outcome(1, "b")));
+        assertTrue(merged.isAllPassed(), String.valueOf(merged.getFailedChecks()));
+        assertEquals(1, merged.getSkippedCount());
+        List<String> names = new ArrayList<>();
+        merged.getResults().forEach(r -> names.add(r.getName()));
+        assertEquals(Arrays.asList("a", "b", "c"), names);
+    }
+
+    @Test
+    @DisplayName("缺失和重复的用例记为检查失败")
+    void missingAndDuplicatedCases() {
+        DslSuiteResult merged = merge(Arrays.asList(outcome(0, "a", "b"), outcome(1, "b", "skipped")));
+        assertFalse(merged.isAllPassed());
+        assertEquals(0, merged.getFailedCount());
+        List<String> checks = merged.getFailedChecks();
+        assertEquals(3, checks.size(), String.valueOf(checks));
+        assertTrue(checks.contains("用例 c 没有返回结果"));
+        assertTrue(checks.contains("用例 b 返回了 2 次结果，应为 1 次"));
+        assertTrue(checks.contains("用例 skipped 不在待执行用例中，却返回了 1 次结果"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.sen.api.utils;
+
+import com.sen.api.beans.TestResultRecord;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestResultStore 单元测试（H2 MySQL模式）
+ */
+@DisplayName("TestResultStore 结果库测试")
+class TestResultStoreTest {
+
+    private DriverManagerDataSource dataSource;
+    private TestResultStore store;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:result_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        store = new TestResultStore(dataSource);
+        store.initSchema();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private static TestResultRecord record(String runId, String caseName, boolean passed) {
+        TestResultRecord record = new TestResultRecord();
+        record.setRunId(runId);
+        record.setSuiteName("suite");
+        record.setCaseName(caseName);
+        record.setPassed(passed);
+        record.setStatusCode(passed ? 200 : 500);
+        record.setDurationMs(10L);
+        record.setRetryCount(0);
+        record.setErrorMessage(passed ? null : "failed");
+        return record;
+    }
+
+    @Test
+    @DisplayName("测试批量落库与查询")
+    void testBatchPersistAndQuery() {
+        for (int i = 0; i < 450; i++) {
+            assertTrue(store.record(record("run-1", "case" + (i % 3), i % 5 != 0)));
+        }
+        assertTrue(store.flush(10_000));
+        assertEquals(450, store.getWrittenCount());
+        assertEquals(450, store.countByRun("run-1"));
+
+        List<TestResultRecord> history = store.queryCaseHistory("case0", 10);
+        assertEquals(10, history.size());
+        assertEquals("case0", history.get(0).getCaseName());
+        assertNotNull(history.get(0).getCreatedAt());
+
+        List<Map<String, Object>> summaries = store.queryRunSummaries(5);
+        assertEquals(1, summaries.size());
+    }
+
+    @Test
+    @DisplayName("测试缓冲区满时丢弃而不阻塞")
+    void testDropWhenFull() {
+        store.close();
+        store = new TestResultStore(dataSource, 1);
+        int accepted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (store.record(record("run-2", "case", true))) {
+                accepted++;
+            }
+        }
+        assertTrue(store.flush(10_000));
+        assertEquals(1000, accepted + store.getDroppedCount());
+        assertEquals(accepted, store.countByRun("run-2"));
+    }
+
+    @Test
+    @DisplayName("测试复用 MyBatis 自动配置的 SqlSessionFactory")
+    void testReuseSqlSessionFactory() throws Exception {
+        // 与 application.yml 的 mybatis.mapper-locations 一致
+        SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setMapperLocations(new PathMatchingResourcePatternResolver().getResources("classpath:mapper/*.xml"));
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+
+        store.close();
+        store = new TestResultStore(sqlSessionFactory, TestResultStore.DEFAULT_CAPACITY);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(store.record(record("run-3", "case" + i, true)));
+        }
+        assertTrue(store.flush(10_000));
+        assertEquals(5, store.countByRun("run-3"));
+        assertEquals(1, store.queryCaseHistory("case0", 10).size());
+    }
+}
@@ -87,6 +87,8 @@ public class ApiTestModern extends TestBase {
         // 读取 param，并将值保存到公共数据map
         Map<String, String> params = apiConfig.getParams();
         setSaveDates(params);
+        // 续跑时恢复已完成用例保存的数据
+        setSaveDates(RunCheckpoint.restoredVariables());
 
         // 处理headers
         apiConfig.getHeaders().forEach((key, value) -> {
@@ -136,12 +138,32 @@ public class ApiTestModern extends TestBase {
      */
     @DataProvider(name = "apiDatas")
     public Iterator<Object[]> getApiData(ITestContext context) {
-        List<Object[]> dataProvider = new ArrayList<>();
+        List<ApiDataBean> runnable = new ArrayList<>();
         for (ApiDataBean data : dataList) {
             if (data.isRun()) {
+                runnable.add(data);
+            }
+        }
+        // 按历史耗时排序，开启分片时只保留当前分片
+        if (CaseScheduler.isEnabled()) {
+            runnable = CaseScheduler.plan(runnable, CaseScheduler::keyOf, ApiDataBean::getPriority,
+                ApiDataBean::getDependsOn).cases();
+        }
+        // 续跑时跳过检查点中已通过的用例（在分片之后过滤，分片与原来一致）；
+        // 已失败的用例保留，在 apiTest 中按检查点结果上报失败
+        List<Object[]> dataProvider = new ArrayList<>();
+        int completed = 0;
+        for (ApiDataBean data : runnable) {
+            RunCheckpoint.Entry entry = RunCheckpoint.completed(CaseScheduler.keyOf(data));
+            if (entry != null && entry.isPassed()) {
+                completed++;
+            } else {
                 dataProvider.add(new Object[] { data });
             }
         }
+        if (completed > 0) {
+            logger.info("Skipped {} test cases passed in checkpoint", completed);
+        }
         logger.info("Filtered {} executable test cases", dataProvider.size());
         return dataProvider.iterator();
     }
@@ -155,7 +177,51 @@ public class ApiTestModern extends TestBase {
         Allure.description("Test Case: " + apiDataBean.getDesc());
 
         logger.info("=== Test Start: {} ===", apiDataBean.getDesc());
+        RunCheckpoint.Entry restored = RunCheckpoint.completed(CaseScheduler.keyOf(apiDataBean));
+        if (restored != null && !restored.isPassed()) {
+            // 续跑前已失败的用例不重新执行，保留原失败结果
+            Map<?, ?> result = RunCheckpoint.convert(restored.getResult(), Map.class);
+            Object message = result != null ? result.get("errorMessage") : null;
+            Assert.fail("检查点中记录的失败: " + (message != null ? message : apiDataBean.getDesc()));
+        }
+        PerformanceMode.startCase();
+        ApiEvents.startCase(apiDataBean.getDesc());
+        ApiTracer.Span span = ApiTracer.startSpan(apiDataBean.getDesc());
+        long startTime = System.currentTimeMillis();
+        boolean passed = false;
+        String errorMessage = null;
+        try {
+            runCase(apiDataBean);
+            passed = true;
+        } catch (Exception | AssertionError e) {
+            errorMessage = e.getMessage();
+            throw e;
+        } finally {
+            CaseScheduler.recordDuration(CaseScheduler.keyOf(apiDataBean), System.currentTimeMillis() - startTime);
+            RunCheckpoint.caseFinished(CaseScheduler.keyOf(apiDataBean), passed,
+                passed ? null : Collections.singletonMap("errorMessage", errorMessage), takeCaseSaveDatas());
+            ApiTracer.endSpan(span, passed ? null : "用例失败");
+            ApiEvents.endCase();
+            PerformanceMode.finishCase(passed);
+        }
+
+        logger.info("=== Test End ===");
+    }
 
+    /**
+     * 导出剩余的链路追踪数据，保存用例耗时历史，写完检查点
+     */
+    @AfterSuite(alwaysRun = true)
+    public void afterSuite() {
+        ApiTracer.flush();
+        CaseScheduler.saveHistory();
+        RunCheckpoint.flush();
+    }
+
+    /**
+     * 执行单个用例
+     */
+    private void runCase(ApiDataBean apiDataBean) throws Exception {
         if (apiDataBean.getSleep() > 0) {
             logger.info("Sleeping for {} seconds", apiDataBean.getSleep());
             Allure.step("Sleep " + apiDataBean.getSleep() + " seconds");
@@ -172,18 +238,20 @@ public class ApiTestModern extends TestBase {
         String responseData = processResponse(response, apiDataBean);
 
         // 记录响应数据
-        logger.info("Response: {}", responseData);
-        Allure.step("Response received", () -> {
-            Allure.addAttachment("Response Body", "application/json", responseData, ".json");
-        });
+        if (PerformanceMode.isEnabled()) {
+            PerformanceMode.attach("Response Body", "application/json", responseData, ".json");
+        } else {
+            logger.info("Response: {}", responseData);
+            Allure.step("Response received", () -> {
+                PerformanceMode.attach("Response Body", "application/json", responseData, ".json");
+            });
+        }
 
         // 验证预期信息
         verifyResult(responseData, apiDataBean.getVerify(), apiDataBean.isContains());
 
         // 保存返回结果
         saveResult(responseData, apiDataBean.getSave());
-
-        logger.info("=== Test End ===");
     }
 
     /**
@@ -207,14 +275,16 @@ public class ApiTestModern extends TestBase {
         String url = parseUrl(apiDataBean.getUrl());
         String method = apiDataBean.getMethod().toLowerCase();
 
-        logger.info("Method: {}", method);
-        logger.info("URL: {}", url);
-        logger.info("Param: {}", param.replace("\r\n", "").replace("\n", ""));
+        if (!PerformanceMode.isEnabled()) {
+            logger.info("Method: {}", method);
+            logger.info("URL: {}", url);
+            logger.info("Param: {}", param.replace("\r\n", "").replace("\n", ""));
+        }
 
         // Allure 报告附件
-        Allure.addAttachment("Request Method", method);
-        Allure.addAttachment("Request URL", url);
-        Allure.addAttachment("Request Param", "application/json", param, ".json");
+        PerformanceMode.attach("Request Method", method);
+        PerformanceMode.attach("Request URL", url);
+        PerformanceMode.attach("Request Param", "application/json", param, ".json");
 
         Response response;
 
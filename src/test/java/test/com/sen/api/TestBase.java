@@ -4,8 +4,10 @@ import java.io.File;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -13,6 +15,7 @@ import org.dom4j.DocumentException;
 import org.testng.Assert;
 
 import com.sen.api.beans.BaseBean;
+import com.sen.api.utils.ApiEvents;
 import com.sen.api.utils.AssertUtil;
 import com.sen.api.utils.ExcelUtil;
 import com.sen.api.utils.FunctionUtil;
@@ -27,6 +30,11 @@ public class TestBase {
 	 */
 	private static Map<String, String> saveDatas = new HashMap<String, String>();
 
+	/**
+	 * 当前用例存入公共参数池的数据（写入断点续跑检查点）
+	 */
+	private static final ThreadLocal<Map<String, String>> caseSaveDatas = ThreadLocal.withInitial(LinkedHashMap::new);
+
 	/**
 	 * 替换符，如果数据中包含“${}”则会被替换成公共参数中存储的数据
 	 */
@@ -43,6 +51,20 @@ public class TestBase {
 		saveDatas.putAll(map);
 	}
 
+	/**
+	 * 取出并清空当前用例存入公共参数池的数据
+	 */
+	protected Map<String, String> takeCaseSaveDatas() {
+		Map<String, String> datas = caseSaveDatas.get();
+		caseSaveDatas.remove();
+		return datas;
+	}
+
+	private void putSaveData(String key, String value) {
+		saveDatas.put(key, value);
+		caseSaveDatas.get().put(key, value);
+	}
+
 	/**
 	 * 组件预参数（处理__fucn()以及${xxxx}）
 	 * 
@@ -88,7 +110,7 @@ public class TestBase {
 			key = prepar.split("=")[0];
 			value = prepar.split("=")[1];
 			ReportUtil.log(String.format("存储%s参数，值为：%s。", key, value));
-			saveDatas.put(key, value);
+			putSaveData(key, value);
 		}
 	}
 
@@ -140,14 +162,25 @@ public class TestBase {
 		ReportUtil.log("验证数据：" + allVerify);
 		if (contains) {
 			// 验证结果包含
-			AssertUtil.contains(sourchData, allVerify);
+			ApiEvents.ValidationEvent event = new ApiEvents.ValidationEvent();
+			event.begin();
+			try {
+				AssertUtil.contains(sourchData, allVerify);
+				event.finish("contains", true);
+			} catch (AssertionError e) {
+				event.finish("contains", false);
+				throw e;
+			}
 		} else {
 			// 通过';'分隔，通过jsonPath进行一一校验
 			Pattern pattern = Pattern.compile("([^;]*)=([^;]*)");
 			Matcher m = pattern.matcher(allVerify.trim());
 			while (m.find()) {
+				ApiEvents.ValidationEvent event = new ApiEvents.ValidationEvent();
+				event.begin();
 				String actualValue = getBuildValue(sourchData, m.group(1));
 				String exceptValue = getBuildValue(sourchData, m.group(2));
+				event.finish(m.group(1).trim(), Objects.equals(actualValue, exceptValue));
 				ReportUtil.log(String.format("验证转换后的值%s=%s", actualValue,
 						exceptValue));
 				Assert.assertEquals(actualValue, exceptValue, "验证预期结果失败。");
@@ -216,11 +249,14 @@ public class TestBase {
 			Pattern pattern = Pattern.compile("([^;=]*)=([^;]*)");
 			Matcher m = pattern.matcher(save.trim());
 			while (m.find()) {
+				ApiEvents.ExtractEvent event = new ApiEvents.ExtractEvent();
+				event.begin();
 				key = getBuildValue(json, m.group(1));
 				value = getBuildValue(json, m.group(2));
+				event.finish(key, m.group(2).trim(), true);
 
 				ReportUtil.log(String.format("存储公共参数   %s值为：%s.", key, value));
-				saveDatas.put(key, value);
+				putSaveData(key, value);
 			}
 		}
 	}